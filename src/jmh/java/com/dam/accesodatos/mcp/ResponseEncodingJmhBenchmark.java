@@ -0,0 +1,151 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.McpAccesoDatosRa3Application;
+import com.dam.accesodatos.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JMH: respuesta de find_all_users en JSON, CBOR y Smile
+ *
+ * Mismo Map que devuelve el controlador ({"tool", "result", "count", "status"}) con
+ * 'rows' usuarios, y los mismos ObjectMapper que usa la aplicación (McpBinaryFormatsConfig):
+ * - encode*: objeto → bytes (lo que hace el servidor en cada respuesta)
+ * - decode*: bytes → árbol (lo que hace el cliente al leerla)
+ *
+ * Al preparar cada tamaño se imprimen los bytes de cada formato, también con gzip
+ * (Content-Encoding habitual entre cliente y servidor).
+ *
+ * Ejecutar con: ./gradlew jmh -PjmhIncludes=ResponseEncodingJmhBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ResponseEncodingJmhBenchmark {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales"};
+    private static final String[] ROLES = {"Developer", "Manager", "Analyst", "Senior Developer", "Specialist"};
+
+    @Param({"100", "10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper json;
+    private ObjectMapper cbor;
+    private ObjectMapper smile;
+
+    private Map<String, Object> response;
+    private byte[] jsonBytes;
+    private byte[] cborBytes;
+    private byte[] smileBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(McpAccesoDatosRa3Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh-encoding;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.dam.accesodatos=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.org.springframework.orm.jpa=WARN")
+                .run();
+        json = context.getBean(ObjectMapper.class);
+        cbor = context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+        smile = context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+
+        List<User> users = new ArrayList<>(rows);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < rows; i++) {
+            User user = new User("Usuario " + i, "usuario" + i + "@empresa.com",
+                    DEPARTMENTS[i % DEPARTMENTS.length], ROLES[i % ROLES.length]);
+            user.setId((long) i + 1);
+            user.setActive(i % 7 != 0);
+            user.setCreatedAt(base.plusMinutes(i));
+            user.setUpdatedAt(base.plusMinutes(i).plusDays(3));
+            user.setVersion((long) (i % 4));
+            users.add(user);
+        }
+        response = new HashMap<>();
+        response.put("tool", "find_all_users");
+        response.put("result", users);
+        response.put("count", users.size());
+        response.put("status", "success");
+
+        jsonBytes = json.writeValueAsBytes(response);
+        cborBytes = cbor.writeValueAsBytes(response);
+        smileBytes = smile.writeValueAsBytes(response);
+        System.out.printf("%n[find_all_users rows=%d] JSON=%d B (gzip %d) | CBOR=%d B (gzip %d) | Smile=%d B (gzip %d)%n",
+                rows, jsonBytes.length, gzipSize(jsonBytes), cborBytes.length, gzipSize(cborBytes),
+                smileBytes.length, gzipSize(smileBytes));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return json.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() throws IOException {
+        return cbor.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] encodeSmile() throws IOException {
+        return smile.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public Object decodeJson() throws IOException {
+        return json.readTree(jsonBytes);
+    }
+
+    @Benchmark
+    public Object decodeCbor() throws IOException {
+        return cbor.readTree(cborBytes);
+    }
+
+    @Benchmark
+    public Object decodeSmile() throws IOException {
+        return smile.readTree(smileBytes);
+    }
+
+    private static int gzipSize(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+}
@@ -0,0 +1,124 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.McpAccesoDatosRa3Application;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.repository.LookupCodes;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: coste del flush según el tamaño del contexto de persistencia
+ *
+ * Cada invocación carga 'managed' usuarios en un EntityManager, modifica 'modified'
+ * de ellos y mide SOLO el flush (la carga va en el @Setup de la invocación).
+ *
+ * - Sin enhancement: el flush compara cada entidad gestionada con su snapshot,
+ *   campo a campo → crece con 'managed' aunque solo cambie una
+ * - Con enhancement (dirty tracking en línea): cada entidad sabe si ha cambiado →
+ *   crece con 'modified'
+ *
+ * Ejecutar con: ./gradlew jmh -PjmhIncludes=FlushDirtyCheckingJmhBenchmark
+ * y comparar con: ./gradlew jmh -PjmhIncludes=FlushDirtyCheckingJmhBenchmark -PnoEnhancement
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlushDirtyCheckingJmhBenchmark {
+
+    @Param({"1000", "10000"})
+    private int managed;
+
+    @Param({"1", "100"})
+    private int modified;
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(McpAccesoDatosRa3Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh-flush;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.dam.accesodatos=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "logging.level.org.springframework.orm.jpa=WARN",
+                        "logging.level.org.springframework.transaction=WARN")
+                .run();
+
+        load(context.getBean(JdbcTemplate.class), context.getBean(LookupCodes.class));
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        System.out.println("User con bytecode enhancement: " + SelfDirtinessTracker.class.isAssignableFrom(User.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Carga el contexto de persistencia y deja 'modified' usuarios cambiados.
+     * La transacción se deshace al terminar: todas las invocaciones parten de la misma tabla.
+     */
+    @Setup(Level.Invocation)
+    public void loadPersistenceContext() {
+        entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        List<User> users = entityManager.createQuery("SELECT u FROM User u ORDER BY u.id", User.class)
+                .setMaxResults(managed)
+                .getResultList();
+        invocation++;
+        for (int i = 0; i < modified; i++) {
+            users.get(i * (managed / modified)).setName("Changed " + invocation);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void discardPersistenceContext() {
+        entityManager.getTransaction().rollback();
+        entityManager.close();
+    }
+
+    @Benchmark
+    public void flush() {
+        entityManager.flush();
+    }
+
+    private void load(JdbcTemplate jdbcTemplate, LookupCodes lookupCodes) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        short department = lookupCodes.ensureDepartment("IT");
+        short role = lookupCodes.ensureRole("Developer");
+        List<Object[]> batch = new ArrayList<>(managed);
+        for (int i = 0; i < managed; i++) {
+            batch.add(new Object[]{"User " + i, "flush" + i + "@test.com", department, role, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, department_id, role_id, active, created_at, "
+                + "updated_at, version) VALUES (?, ?, ?, ?, TRUE, ?, ?, 0)", batch);
+    }
+}
@@ -0,0 +1,128 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.McpAccesoDatosRa3Application;
+import com.dam.accesodatos.model.ActiveUserDto;
+import com.dam.accesodatos.repository.LookupCodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: top_active_users desde el ranking en memoria vs ORDER BY ... LIMIT en SQL
+ *
+ * Misma tabla user_statistics (una fila por usuario, login_count pseudoaleatorio):
+ * - leaderboard*: ActiveUsersLeaderboard.top() → copia de una lista ya ordenada, O(K)
+ * - sql*: la consulta que haría cada llamada sin ranking (JOIN con users y departments,
+ *   ORDER BY login_count DESC LIMIT 10) contra H2 en memoria
+ *
+ * Ejecutar con: ./gradlew jmh -PjmhIncludes=TopActiveUsersJmhBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopActiveUsersJmhBenchmark {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales",
+            "Legal", "Support", "Operations", "Research", "Design"};
+
+    private static final String SELECT_TOP =
+            "SELECT s.user_id, u.name, d.name AS department, s.login_count, s.last_login "
+                    + "FROM user_statistics s JOIN users u ON u.id = s.user_id "
+                    + "JOIN departments d ON d.id = u.department_id ";
+
+    private static final RowMapper<ActiveUserDto> ROW_MAPPER = (rs, rowNum) -> new ActiveUserDto(
+            rs.getLong("user_id"), rs.getString("name"), rs.getString("department"),
+            rs.getLong("login_count"), rs.getTimestamp("last_login").toLocalDateTime());
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private ActiveUsersLeaderboard leaderboard;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(McpAccesoDatosRa3Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh-top-active;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "mcp.top-active.rebuild-interval-ms=3600000",
+                        "logging.level.root=WARN",
+                        "logging.level.com.dam.accesodatos=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "logging.level.org.springframework.orm.jpa=WARN",
+                        "logging.level.org.springframework.transaction=WARN")
+                .run();
+
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        load(context.getBean(LookupCodes.class));
+        leaderboard = context.getBean(ActiveUsersLeaderboard.class);
+        leaderboard.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void load(LookupCodes lookupCodes) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        short role = lookupCodes.ensureRole("Developer");
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{"User " + i, "top" + i + "@test.com",
+                    lookupCodes.ensureDepartment(DEPARTMENTS[i % DEPARTMENTS.length]), role, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, department_id, role_id, active, created_at, "
+                + "updated_at, version) VALUES (?, ?, ?, ?, true, ?, ?, 0)", batch);
+        jdbcTemplate.update("DELETE FROM user_statistics");
+        jdbcTemplate.update("INSERT INTO user_statistics (user_id, login_count, last_login) "
+                + "SELECT id, MOD(id * 7919, 100003), CURRENT_TIMESTAMP FROM users");
+    }
+
+    // ========== Ranking global ==========
+
+    @Benchmark
+    public List<ActiveUserDto> leaderboardGlobal() {
+        return leaderboard.top(null, 10);
+    }
+
+    @Benchmark
+    public List<ActiveUserDto> sqlGlobal() {
+        return jdbcTemplate.query(SELECT_TOP + "ORDER BY s.login_count DESC, s.user_id LIMIT 10", ROW_MAPPER);
+    }
+
+    // ========== Ranking de un departamento ==========
+
+    @Benchmark
+    public List<ActiveUserDto> leaderboardDepartment() {
+        return leaderboard.top("Finance", 10);
+    }
+
+    @Benchmark
+    public List<ActiveUserDto> sqlDepartment() {
+        return jdbcTemplate.query(SELECT_TOP + "WHERE d.name = ? ORDER BY s.login_count DESC, s.user_id LIMIT 10",
+                ROW_MAPPER, "Finance");
+    }
+}
@@ -0,0 +1,152 @@
+package com.dam.accesodatos.snapshot;
+
+import com.dam.accesodatos.McpAccesoDatosRa3Application;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.LookupCodes;
+import com.dam.accesodatos.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH: consultas de lectura con el snapshot columnar vs Hibernate/JPA
+ *
+ * Mismo contexto Spring y misma tabla users para ambos caminos:
+ * - snapshot*: UserSnapshotService (bitmaps y arrays en memoria)
+ * - jpa*: JPQL equivalente contra H2 en memoria (el camino más rápido posible en BD:
+ *   sin red y con los datos ya en memoria)
+ *
+ * Ejecutar con: ./gradlew jmh -PjmhIncludes=UserSnapshotJmhBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserSnapshotJmhBenchmark {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales",
+            "Legal", "Support", "Operations", "Research", "Design"};
+    private static final String[] ROLES = {"Developer", "Manager", "Analyst", "Designer"};
+
+    private static final String SEARCH_JPQL = "SELECT u FROM User u WHERE u.department = :dept "
+            + "AND u.role = :role AND u.active = :active ORDER BY u.id";
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private UserSnapshotService snapshot;
+    private HibernateUserService hibernateUserService;
+    private UserRepository userRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    private UserQueryDto searchQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(McpAccesoDatosRa3Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:jmh-snapshot;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "mcp.snapshot.enabled=true",
+                        "logging.level.root=WARN",
+                        "logging.level.com.dam.accesodatos=WARN",
+                        "logging.level.org.hibernate.SQL=WARN",
+                        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                        "logging.level.org.springframework.orm.jpa=WARN",
+                        "logging.level.org.springframework.transaction=WARN")
+                .run();
+
+        load(context.getBean(JdbcTemplate.class), context.getBean(LookupCodes.class));
+
+        snapshot = context.getBean(UserSnapshotService.class);
+        snapshot.reload();
+        hibernateUserService = context.getBean(HibernateUserService.class);
+        userRepository = context.getBean(UserRepository.class);
+        entityManager = context.getBean(EntityManager.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        searchQuery = new UserQueryDto("Finance", "Analyst", true, 50, 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private void load(JdbcTemplate jdbcTemplate, LookupCodes lookupCodes) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{"User " + i, "jmh" + i + "@test.com",
+                    lookupCodes.ensureDepartment(DEPARTMENTS[i % DEPARTMENTS.length]),
+                    lookupCodes.ensureRole(ROLES[i % ROLES.length]), i % 5 != 0, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, department_id, role_id, active, created_at, "
+                + "updated_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, 0)", batch);
+    }
+
+    // ========== find_users_by_department ==========
+
+    @Benchmark
+    public List<User> snapshotFindByDepartment() {
+        return snapshot.findUsersByDepartment("HR");
+    }
+
+    @Benchmark
+    public List<User> jpaFindByDepartment() {
+        return hibernateUserService.findUsersByDepartment("HR");
+    }
+
+    // ========== search_users (3 filtros + página) ==========
+
+    @Benchmark
+    public List<User> snapshotSearch() {
+        return snapshot.searchUsers(searchQuery);
+    }
+
+    @Benchmark
+    public List<User> jpaSearch() {
+        return readOnlyTransaction.execute(status -> entityManager.createQuery(SEARCH_JPQL, User.class)
+                .setParameter("dept", searchQuery.getDepartment())
+                .setParameter("role", searchQuery.getRole())
+                .setParameter("active", searchQuery.getActive())
+                .setFirstResult(searchQuery.getOffset())
+                .setMaxResults(searchQuery.getLimit())
+                .getResultList());
+    }
+
+    // ========== execute_count_by_department ==========
+
+    @Benchmark
+    public long snapshotCount() {
+        return snapshot.executeCountByDepartment("Sales");
+    }
+
+    @Benchmark
+    public long jpaCount() {
+        return userRepository.countActiveUsersByDepartment("Sales");
+    }
+}
@@ -0,0 +1,299 @@
+package com.dam.accesodatos.archive;
+
+import com.dam.accesodatos.cdc.UserChangeOutbox;
+import com.dam.accesodatos.datasource.ShardContext;
+import com.dam.accesodatos.datasource.ShardRouter;
+import com.dam.accesodatos.model.ArchivedUser;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import com.dam.accesodatos.repository.ArchivedUserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Archivado de usuarios inactivos: tabla caliente 'users' / tabla fría 'users_archive'.
+ *
+ * Las consultas habituales solo quieren usuarios activos, pero los inactivos siguen
+ * ocupando filas e índices de users y cada consulta los recorre o los salta. En segundo
+ * plano (mcp.archive.*) se mueven a users_archive los usuarios inactivos cuyo último
+ * cambio (updated_at) tiene más de inactive-days días:
+ * 1. SELECT ... FOR UPDATE de los primeros batch-size por ID (bloquea esas filas: un
+ *    update_user concurrente espera y después falla por bloqueo optimista)
+ * 2. INSERT INTO users_archive ... SELECT de esas filas, con su user_statistics
+ * 3. DELETE de esas filas en users (user_statistics se borra en cascada)
+ * 4. Evento ARCHIVE en la outbox con el rango de IDs del lote
+ * Cada lote es una transacción corta; el siguiente empieza cuando termina el anterior.
+ *
+ * Las herramientas de lectura solo ven users salvo que se pida includeArchived, en
+ * cuyo caso se consulta también el archivo (findById, findByIds, findAll, search,
+ * statsSummary; export_users lo recorre en HibernateUserServiceImpl).
+ *
+ * LIMITACIONES:
+ * - Un usuario archivado no vuelve a users (no hay restauración) y su email queda
+ *   libre para un alta nueva
+ * - find_users_changed_since no publica lápidas de los archivados: eran inactivos y
+ *   la copia del cliente sigue siendo correcta
+ */
+@Component
+public class UserArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserArchiveService.class);
+
+    private static final String SELECT_BATCH_SQL =
+            "SELECT id FROM users WHERE active = FALSE AND updated_at < ? ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO users_archive (id, name, email, department_id, role_id, active, created_at, updated_at, "
+                    + "version, login_count, last_login, archived_at) "
+                    + "SELECT u.id, u.name, u.email, u.department_id, u.role_id, u.active, u.created_at, "
+                    + "u.updated_at, u.version, s.login_count, s.last_login, ? "
+                    + "FROM users u LEFT JOIN user_statistics s ON s.user_id = u.id WHERE u.id IN (%s)";
+
+    private static final String DELETE_SQL = "DELETE FROM users WHERE id IN (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserChangeOutbox userChangeOutbox;
+
+    @Autowired
+    private ArchivedUserRepository archivedUserRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Value("${mcp.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mcp.archive.inactive-days:365}")
+    private long inactiveDays;
+
+    @Value("${mcp.archive.batch-size:500}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${mcp.archive.interval-ms:3600000}",
+               fixedDelayString = "${mcp.archive.interval-ms:3600000}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int archived = archiveInactiveBefore(LocalDateTime.now().minusDays(inactiveDays));
+            if (archived > 0) {
+                logger.info("Archivados {} usuarios inactivos desde hace más de {} días", archived, inactiveDays);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Error archivando usuarios inactivos; se reintentará en la siguiente ejecución", e);
+        }
+    }
+
+    /**
+     * Mueve a users_archive los usuarios inactivos con updated_at anterior a cutoff.
+     *
+     * @return Usuarios archivados
+     */
+    public int archiveInactiveBefore(LocalDateTime cutoff) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return archiveAll(cutoff);
+        }
+        int archived = 0;
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            archived += ShardContext.callOn(shard, () -> archiveAll(cutoff));
+        }
+        return archived;
+    }
+
+    // ========== Lecturas (includeArchived) ==========
+
+    public Optional<ArchivedUser> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return archivedUserRepository.findById(id);
+        }
+        return ShardContext.callOn(router.shardForId(id), () -> archivedUserRepository.findById(id));
+    }
+
+    /**
+     * @return Usuarios archivados con esos IDs, ordenados por ID
+     */
+    public List<ArchivedUser> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return sortById(archivedUserRepository.findByIdIn(ids));
+        }
+        Map<Integer, List<Long>> byShard = ids.stream().collect(Collectors.groupingBy(router::shardForId));
+        List<ArchivedUser> found = new ArrayList<>();
+        byShard.forEach((shard, shardIds) ->
+                found.addAll(ShardContext.callOn(shard, () -> archivedUserRepository.findByIdIn(shardIds))));
+        return sortById(found);
+    }
+
+    public List<ArchivedUser> findAll() {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return archivedUserRepository.findAllByOrderByIdAsc();
+        }
+        List<ArchivedUser> found = new ArrayList<>();
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            found.addAll(ShardContext.callOn(shard, archivedUserRepository::findAllByOrderByIdAsc));
+        }
+        return sortById(found);
+    }
+
+    /**
+     * Usuarios archivados que cumplen los filtros, ordenados por ID. limit/offset se
+     * aplican solo al archivo (null = todos).
+     */
+    public List<ArchivedUser> search(String department, String role, Boolean active, Integer limit, Integer offset) {
+        int skip = offset != null ? Math.max(0, offset) : 0;
+        Limit fetch = limit != null ? Limit.of(skip + Math.max(0, limit)) : Limit.unlimited();
+        ShardRouter router = shardRouter.getIfAvailable();
+        List<ArchivedUser> found;
+        if (router == null) {
+            found = archivedUserRepository.search(department, role, active, fetch);
+        } else if (department != null) {
+            found = ShardContext.callOn(router.shardForDepartment(department),
+                    () -> archivedUserRepository.search(department, role, active, fetch));
+        } else {
+            found = new ArrayList<>();
+            for (int shard = 0; shard < router.getShardCount(); shard++) {
+                found.addAll(ShardContext.callOn(shard,
+                        () -> archivedUserRepository.search(null, role, active, fetch)));
+            }
+            found = sortById(found);
+        }
+        return found.stream()
+                .skip(skip)
+                .limit(limit != null ? Math.max(0, limit) : Long.MAX_VALUE)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Mismo resumen que user_stats_summary, sobre users_archive.
+     */
+    public UserStatsSummaryDto statsSummary(String department, String role, Boolean active) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return toSummary(archivedUserRepository.summarize(department, role, active));
+        }
+        if (department != null) {
+            return ShardContext.callOn(router.shardForDepartment(department),
+                    () -> toSummary(archivedUserRepository.summarize(department, role, active)));
+        }
+        UserStatsSummaryDto summary = new UserStatsSummaryDto();
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            summary.merge(ShardContext.callOn(shard,
+                    () -> toSummary(archivedUserRepository.summarize(null, role, active))));
+        }
+        return summary;
+    }
+
+    private static UserStatsSummaryDto toSummary(List<Object[]> rows) {
+        UserStatsSummaryDto summary = new UserStatsSummaryDto();
+        for (Object[] row : rows) {
+            summary.add((String) row[0], (String) row[1], Boolean.TRUE.equals(row[2]), (Long) row[3]);
+        }
+        return summary;
+    }
+
+    // ========== Archivado por lotes ==========
+
+    private int archiveAll(LocalDateTime cutoff) {
+        int total = 0;
+        while (true) {
+            List<Long> ids = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            if (ids == null || ids.isEmpty()) {
+                return total;
+            }
+            // Después del commit: antes, otra transacción podría volver a cachear la fila
+            ids.forEach(id -> entityManagerFactory.getCache().evict(User.class, id));
+            total += ids.size();
+            if (ids.size() < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * @return IDs archivados en este lote
+     */
+    private List<Long> archiveBatch(LocalDateTime cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_BATCH_SQL, Long.class,
+                Timestamp.valueOf(cutoff), batchSize);
+        if (ids.isEmpty()) {
+            return ids;
+        }
+
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Object[] insertArgs = new Object[ids.size() + 1];
+        insertArgs[0] = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < ids.size(); i++) {
+            insertArgs[i + 1] = ids.get(i);
+        }
+        jdbcTemplate.update(INSERT_SQL.formatted(placeholders), insertArgs);
+        jdbcTemplate.update(DELETE_SQL.formatted(placeholders), ids.toArray());
+
+        // Todas las filas del rango que cumplían el criterio están en el lote (se eligen por ID)
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("fromId", ids.get(0));
+        payload.put("toId", ids.get(ids.size() - 1));
+        payload.put("where", Map.of("active", false, "updatedBefore", cutoff.toString()));
+        payload.put("affected", ids.size());
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            userChangeOutbox.append(connection, UserChangeOutbox.ARCHIVE, null, payload);
+            return null;
+        });
+        return ids;
+    }
+
+    private static List<ArchivedUser> sortById(List<ArchivedUser> users) {
+        List<ArchivedUser> sorted = new ArrayList<>(users);
+        sorted.sort(Comparator.comparing(ArchivedUser::getId));
+        return sorted;
+    }
+}
@@ -0,0 +1,137 @@
+package com.dam.accesodatos.cdc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * Cursor de lectura de la outbox user_change_events con seguimiento de huecos.
+ *
+ * Los offsets se asignan al insertar, pero las transacciones confirman en cualquier
+ * orden: un offset que falta puede ser un rollback (no aparecerá nunca) o una
+ * transacción lenta (aparecerá más tarde). Por eso:
+ * 1. Ante un hueco el cursor no avanza durante gapTimeoutMs: en el caso habitual la
+ *    transacción confirma enseguida y los eventos se procesan en orden.
+ * 2. Pasado ese tiempo el cursor avanza, pero los offsets saltados quedan PENDIENTES.
+ *    Quien lee la outbox los vuelve a buscar en cada lectura (pending()) y procesa
+ *    tarde los que aparezcan (markFound()).
+ * 3. Un offset pendiente durante más de lateCommitWindowMs se da por rollback.
+ *
+ * Para reanudar desde otro proceso, resumeToken() resume el estado en un texto:
+ * "120" (cursor) o "120;117,118" (cursor y offsets pendientes).
+ *
+ * No es thread-safe: cada suscriptor (o el snapshot) tiene el suyo y lo usa desde un
+ * único hilo a la vez.
+ */
+public class OffsetGapTracker {
+
+    /**
+     * Offsets pendientes como máximo por hueco. Las transacciones abiertas a la vez están
+     * acotadas por el pool de conexiones: un hueco mayor (purga, reanudación desde un
+     * offset antiguo) solo puede esperar a sus últimos offsets.
+     */
+    public static final int MAX_PENDING_PER_GAP = 256;
+
+    private final long gapTimeoutMs;
+    private final long lateCommitWindowMs;
+    private final TreeMap<Long, Long> pending = new TreeMap<>();  // offset → desde cuándo se espera
+    private volatile long cursor;
+    private long gapSince;
+
+    public OffsetGapTracker(long cursor, long gapTimeoutMs, long lateCommitWindowMs) {
+        this.cursor = cursor;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.lateCommitWindowMs = lateCommitWindowMs;
+    }
+
+    /**
+     * Reconstruye el estado de un resumeToken().
+     *
+     * @throws IllegalArgumentException si el texto no tiene el formato esperado
+     */
+    public static OffsetGapTracker resume(String token, long gapTimeoutMs, long lateCommitWindowMs, long now) {
+        try {
+            String[] parts = token.trim().split(";", 2);
+            OffsetGapTracker tracker = new OffsetGapTracker(Long.parseLong(parts[0]), gapTimeoutMs, lateCommitWindowMs);
+            if (parts.length == 2 && !parts[1].isBlank()) {
+                List<Long> offsets = new ArrayList<>();
+                for (String offset : parts[1].split(",")) {
+                    offsets.add(Long.parseLong(offset.trim()));
+                }
+                tracker.addPending(offsets, now);
+            }
+            return tracker;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Offset de reanudación no válido: " + token);
+        }
+    }
+
+    public long cursor() {
+        return cursor;
+    }
+
+    /**
+     * Decide si el siguiente evento leído tras el cursor se puede procesar ya.
+     *
+     * @return false si hay que esperar a que se cierre el hueco (reintentar en la siguiente lectura)
+     */
+    public boolean advance(long offset, long now) {
+        if (offset != cursor + 1) {
+            if (gapSince == 0) {
+                gapSince = now;
+            }
+            if (now - gapSince < gapTimeoutMs) {
+                return false;
+            }
+            for (long missing = Math.max(cursor + 1, offset - MAX_PENDING_PER_GAP); missing < offset; missing++) {
+                pending.put(missing, now);
+            }
+        }
+        gapSince = 0;
+        cursor = offset;
+        return true;
+    }
+
+    /**
+     * Offsets por debajo del cursor que aún no se han visto (p. ej. al empezar desde MAX(id)).
+     */
+    public void addPending(Collection<Long> offsets, long now) {
+        for (Long offset : offsets) {
+            if (offset <= cursor) {
+                pending.putIfAbsent(offset, now);
+            }
+        }
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * @return Offsets pendientes que aún pueden aparecer; descarta los que superan lateCommitWindowMs
+     */
+    public List<Long> pending(long now) {
+        pending.values().removeIf(since -> now - since >= lateCommitWindowMs);
+        return List.copyOf(pending.keySet());
+    }
+
+    /**
+     * El evento de un offset pendiente ya es visible y se ha procesado.
+     */
+    public void markFound(long offset) {
+        pending.remove(offset);
+    }
+
+    public String resumeToken() {
+        if (pending.isEmpty()) {
+            return String.valueOf(cursor);
+        }
+        StringJoiner offsets = new StringJoiner(",", cursor + ";", "");
+        for (Long offset : pending.keySet()) {
+            offsets.add(String.valueOf(offset));
+        }
+        return offsets.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package com.dam.accesodatos.cdc;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la tabla outbox user_change_events.
+ *
+ * @param offset Posición en el flujo de cambios (id de la fila)
+ * @param userId Usuario afectado (null en operaciones masivas)
+ * @param operation CREATE, UPDATE, DELETE, BULK_UPDATE, BULK_DELETE, BULK_INSERT o ARCHIVE
+ * @param payload JSON con el usuario o con los criterios de la operación masiva
+ * @param createdAt Momento en que se registró el cambio
+ */
+public record UserChangeEvent(long offset, Long userId, String operation, String payload, LocalDateTime createdAt) {
+}
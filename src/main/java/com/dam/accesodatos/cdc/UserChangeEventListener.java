@@ -0,0 +1,88 @@
+package com.dam.accesodatos.cdc;
+
+import com.dam.accesodatos.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Listener de eventos de Hibernate que alimenta la outbox con los cambios de User.
+ *
+ * Hibernate lo invoca justo después de ejecutar cada INSERT, UPDATE o DELETE de un
+ * User, dentro del flush y en la misma transacción. Así se cubren todas las vías de
+ * escritura (persist(), merge() o entidades modificadas, remove()) sin tocar cada
+ * método del servicio. Los borrados dejan además una lápida (user_tombstones) para
+ * la sincronización incremental.
+ *
+ * NOTA: dentro del flush no se deben usar operaciones del EntityManager; por eso la
+ * fila se inserta con JDBC sobre la conexión de la sesión (Session.doWork()).
+ */
+@Component
+public class UserChangeEventListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserChangeOutbox outbox;
+
+    @Autowired
+    private UserTombstoneWriter tombstones;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof User user) {
+            event.getSession().doWork(connection ->
+                    outbox.append(connection, UserChangeOutbox.CREATE, user.getId(), user));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User user) {
+            event.getSession().doWork(connection ->
+                    outbox.append(connection, UserChangeOutbox.UPDATE, user.getId(), user));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User) {
+            Long id = (Long) event.getId();
+            event.getSession().doWork(connection -> {
+                outbox.append(connection, UserChangeOutbox.DELETE, id, Map.of("id", id));
+                tombstones.record(connection, id);
+            });
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+}
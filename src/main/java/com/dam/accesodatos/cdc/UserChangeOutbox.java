@@ -0,0 +1,115 @@
+package com.dam.accesodatos.cdc;
+
+import com.dam.accesodatos.snapshot.UserSnapshotService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Map;
+
+/**
+ * Escritura en la tabla outbox user_change_events.
+ *
+ * Patrón "transactional outbox": el evento se inserta con la MISMA conexión JDBC y en
+ * la MISMA transacción que el cambio del usuario. Si la transacción hace rollback, el
+ * evento desaparece con ella; si hace commit, el cambio y su evento quedan visibles a
+ * la vez. Tras el commit se avisa a UserChangeStreamService para entregarlo sin esperar
+ * (y a UserSnapshotService, si está activo, para aplicarlo a la copia en memoria).
+ */
+@Component
+public class UserChangeOutbox {
+
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+    public static final String BULK_UPDATE = "BULK_UPDATE";
+    public static final String BULK_DELETE = "BULK_DELETE";
+    public static final String BULK_INSERT = "BULK_INSERT";  // import_users: rango de IDs de un lote
+    public static final String ARCHIVE = "ARCHIVE";          // Lote movido a users_archive: rango de IDs
+
+    private static final String INSERT_SQL =
+            "INSERT INTO user_change_events (user_id, operation, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final String SIGNAL_KEY = UserChangeOutbox.class.getName() + ".signal";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<UserChangeStreamService> streamService;
+
+    @Autowired
+    private ObjectProvider<UserSnapshotService> snapshotService;
+
+    /**
+     * Registra un cambio usando la conexión de la transacción en curso.
+     */
+    public void append(Connection connection, String operation, Long userId, Object payload) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            if (userId != null) {
+                ps.setLong(1, userId);
+            } else {
+                ps.setNull(1, Types.BIGINT);
+            }
+            ps.setString(2, operation);
+            ps.setString(3, toJson(payload));
+            ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            ps.executeUpdate();
+        }
+        signalAfterCommit();
+    }
+
+    /**
+     * Registra una operación masiva (UPDATE/DELETE JPQL). Estas sentencias no pasan por
+     * las entidades, así que el servicio publica los criterios para que los clientes
+     * apliquen el mismo cambio a su copia local.
+     */
+    public void appendBulk(EntityManager entityManager, String operation, Map<String, Object> criteria) {
+        entityManager.unwrap(Session.class).doWork(connection -> append(connection, operation, null, criteria));
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento de cambio", e);
+        }
+    }
+
+    /**
+     * Una sola notificación por transacción, después del commit.
+     */
+    private void signalAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(SIGNAL_KEY)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(SIGNAL_KEY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                UserChangeStreamService service = streamService.getIfAvailable();
+                if (service != null) {
+                    service.signal();
+                }
+                snapshotService.ifAvailable(UserSnapshotService::signal);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SIGNAL_KEY);
+            }
+        });
+    }
+}
@@ -0,0 +1,328 @@
+package com.dam.accesodatos.cdc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Entrega por SSE de los cambios confirmados de la outbox user_change_events.
+ *
+ * - Orden: cada suscriptor recibe los eventos por offset creciente, salvo los de
+ *   transacciones que confirman tarde (ver HUECOS).
+ * - Reanudación: el id de cada evento SSE es el estado de su OffsetGapTracker (el
+ *   offset, más los offsets que aún se esperan); el cliente reconecta con
+ *   Last-Event-ID (o ?fromOffset=) y continúa donde lo dejó.
+ * - Entrega por lotes: hasta batch-size eventos por lectura y por escritura en la red.
+ * - Backpressure: cada suscriptor lee de la BD a su propio ritmo desde su cursor. Un
+ *   cliente lento solo frena su propia entrega y no acumula eventos en memoria.
+ *
+ * HUECOS: los offsets se asignan al insertar, pero las transacciones pueden confirmar
+ * en otro orden. Si aparece un hueco se espera gap-timeout-ms por si la transacción
+ * pendiente confirma; pasado ese tiempo se continúa, pero el offset saltado se sigue
+ * buscando durante late-commit-window-ms. Si aparece se entrega entonces, fuera de
+ * orden y con "late": true; ningún cambio confirmado se pierde.
+ */
+@Component
+public class UserChangeStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeStreamService.class);
+
+    private static final String SELECT_EVENTS =
+            "SELECT id, user_id, operation, payload, created_at FROM user_change_events ";
+
+    private static final RowMapper<UserChangeEvent> EVENT_ROW_MAPPER = (rs, rowNum) -> {
+        long userId = rs.getLong("user_id");
+        return new UserChangeEvent(
+                rs.getLong("id"),
+                rs.wasNull() ? null : userId,
+                rs.getString("operation"),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toLocalDateTime());
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.cdc.batch-size:100}")
+    private int batchSize;
+
+    @Value("${mcp.cdc.gap-timeout-ms:1000}")
+    private long gapTimeoutMs;
+
+    @Value("${mcp.cdc.late-commit-window-ms:300000}")
+    private long lateCommitWindowMs;
+
+    @Value("${mcp.cdc.max-subscribers:100}")
+    private int maxSubscribers;
+
+    @Value("${mcp.cdc.delivery-threads:4}")
+    private int deliveryThreads;
+
+    @Value("${mcp.cdc.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${mcp.cdc.retention-hours:168}")
+    private long retentionHours;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private ExecutorService deliveryExecutor;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        deliveryExecutor = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "cdc-delivery-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        subscriptions.forEach(s -> s.emitter.complete());
+        deliveryExecutor.shutdownNow();
+    }
+
+    /**
+     * Abre una suscripción SSE.
+     *
+     * @param resumeFrom id del último evento recibido (o un offset); null para recibir solo cambios nuevos
+     * @throws IllegalStateException si se alcanzó el máximo de suscriptores
+     * @throws IllegalArgumentException si resumeFrom no es un id de evento válido
+     */
+    public SseEmitter subscribe(String resumeFrom) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new IllegalStateException("Máximo de suscriptores alcanzado (" + maxSubscribers + ")");
+        }
+
+        long now = System.currentTimeMillis();
+        OffsetGapTracker tracker;
+        if (resumeFrom != null) {
+            tracker = OffsetGapTracker.resume(resumeFrom, gapTimeoutMs, lateCommitWindowMs, now);
+        } else {
+            // Los huecos por debajo del último offset pueden ser transacciones aún sin commit
+            long latest = latestOffset();
+            tracker = new OffsetGapTracker(latest, gapTimeoutMs, lateCommitWindowMs);
+            tracker.addPending(missingOffsetsUpTo(latest), now);
+        }
+        Subscription subscription = new Subscription(new SseEmitter(emitterTimeoutMs), tracker);
+        subscription.emitter.onCompletion(() -> subscriptions.remove(subscription));
+        subscription.emitter.onTimeout(() -> subscriptions.remove(subscription));
+        subscription.emitter.onError(e -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+
+        logger.debug("Nuevo suscriptor de cambios desde {}", tracker.resumeToken());
+        scheduleDrain(subscription);
+        return subscription.emitter;
+    }
+
+    /**
+     * Lee hasta 'limit' eventos posteriores a un offset.
+     */
+    public List<UserChangeEvent> readAfter(long offset, int limit) {
+        return jdbcTemplate.query(SELECT_EVENTS + "WHERE id > ? ORDER BY id LIMIT ?", EVENT_ROW_MAPPER, offset, limit);
+    }
+
+    /**
+     * Lee los eventos ya confirmados de unos offsets concretos (los pendientes de un
+     * OffsetGapTracker).
+     */
+    public List<UserChangeEvent> readOffsets(Collection<Long> offsets) {
+        if (offsets.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(offsets.size(), "?"));
+        return jdbcTemplate.query(SELECT_EVENTS + "WHERE id IN (" + placeholders + ") ORDER BY id",
+                EVENT_ROW_MAPPER, offsets.toArray());
+    }
+
+    /**
+     * @return Último offset de la outbox (0 si está vacía)
+     */
+    public long latestOffset() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_change_events", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    /**
+     * Offsets sin evento entre los últimos MAX_PENDING_PER_GAP hasta 'offset' incluido:
+     * rollbacks o transacciones que aún no han confirmado.
+     */
+    public List<Long> missingOffsetsUpTo(long offset) {
+        long from = Math.max(0, offset - OffsetGapTracker.MAX_PENDING_PER_GAP);
+        Set<Long> present = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT id FROM user_change_events WHERE id > ? AND id <= ?", Long.class, from, offset));
+        List<Long> missing = new ArrayList<>();
+        for (long candidate = from + 1; candidate <= offset; candidate++) {
+            if (!present.contains(candidate)) {
+                missing.add(candidate);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Hay cambios nuevos confirmados: despierta a todos los suscriptores.
+     */
+    public void signal() {
+        subscriptions.forEach(this::scheduleDrain);
+    }
+
+    /**
+     * Respaldo de signal(): cambios hechos por otras instancias o avisos perdidos.
+     */
+    @Scheduled(fixedDelayString = "${mcp.cdc.poll-interval-ms:500}")
+    public void poll() {
+        signal();
+    }
+
+    @Scheduled(fixedDelayString = "${mcp.cdc.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Timestamp limit = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        int purged = jdbcTemplate.update("DELETE FROM user_change_events WHERE created_at < ?", limit);
+        if (purged > 0) {
+            logger.info("Outbox: {} eventos anteriores a {} eliminados", purged, limit);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // ========== Entrega ==========
+
+    /**
+     * Como mucho una tarea de entrega por suscriptor. Si llega un aviso mientras se
+     * entrega, 'dirty' obliga a repetir la lectura antes de soltar el suscriptor.
+     */
+    private void scheduleDrain(Subscription subscription) {
+        subscription.dirty.set(true);
+        if (subscription.draining.compareAndSet(false, true)) {
+            deliveryExecutor.execute(() -> drain(subscription));
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        try {
+            while (subscription.dirty.getAndSet(false)) {
+                while (deliverBatch(subscription) == batchSize) {
+                    // Lote completo: probablemente hay más eventos pendientes
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Suscriptor desconectado: {}", e.getMessage());
+            subscriptions.remove(subscription);
+            subscription.emitter.completeWithError(e);
+        } catch (RuntimeException e) {
+            logger.warn("Error entregando cambios a un suscriptor", e);
+        } finally {
+            subscription.draining.set(false);
+            if (subscription.dirty.get() && subscriptions.contains(subscription)) {
+                scheduleDrain(subscription);
+            }
+        }
+    }
+
+    /**
+     * Primero los offsets saltados que ya han confirmado, después los posteriores al cursor.
+     *
+     * @return Número de eventos posteriores al cursor leídos y enviados
+     */
+    private int deliverBatch(Subscription subscription) throws IOException {
+        OffsetGapTracker tracker = subscription.tracker;
+        Set<ResponseBodyEmitter.DataWithMediaType> frames = new LinkedHashSet<>();
+        long now = System.currentTimeMillis();
+
+        if (tracker.hasPending()) {
+            for (UserChangeEvent event : readOffsets(tracker.pending(now))) {
+                tracker.markFound(event.offset());
+                frames.addAll(frame(event, tracker, true));
+            }
+        }
+
+        int delivered = 0;
+        for (UserChangeEvent event : readAfter(tracker.cursor(), batchSize)) {
+            if (!tracker.advance(event.offset(), now)) {
+                break;
+            }
+            frames.addAll(frame(event, tracker, false));
+            delivered++;
+        }
+
+        if (!frames.isEmpty()) {
+            subscription.emitter.send(frames);
+        }
+        return delivered;
+    }
+
+    /**
+     * El id SSE es el estado del tracker tras este evento: es lo que el cliente devolverá
+     * en Last-Event-ID para reanudar.
+     */
+    private Set<ResponseBodyEmitter.DataWithMediaType> frame(UserChangeEvent event, OffsetGapTracker tracker,
+                                                             boolean late) throws IOException {
+        return SseEmitter.event()
+                .id(tracker.resumeToken())
+                .name(event.operation())
+                .data(toJson(event, late), MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    private String toJson(UserChangeEvent event, boolean late) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("offset", event.offset());
+        if (late) {
+            node.put("late", true);
+        }
+        if (event.userId() != null) {
+            node.put("userId", event.userId());
+        }
+        node.put("operation", event.operation());
+        node.set("data", objectMapper.readTree(event.payload()));
+        node.put("createdAt", event.createdAt().toString());
+        return objectMapper.writeValueAsString(node);
+    }
+
+    private static final class Subscription {
+        final SseEmitter emitter;
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean dirty = new AtomicBoolean();
+        final OffsetGapTracker tracker;
+
+        Subscription(SseEmitter emitter, OffsetGapTracker tracker) {
+            this.emitter = emitter;
+            this.tracker = tracker;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dam.accesodatos.cdc;
+
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Escritura y purga de lápidas (tabla user_tombstones) para find_users_changed_since.
+ *
+ * Igual que la outbox, la lápida se inserta en la misma transacción que el DELETE:
+ * si el borrado hace rollback, la lápida también.
+ */
+@Component
+public class UserTombstoneWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserTombstoneWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO user_tombstones (user_id, deleted_at) VALUES (?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${mcp.delta-sync.tombstone-retention-hours:720}")
+    private long retentionHours;
+
+    /**
+     * Lápida de un borrado individual, con la conexión de la transacción en curso.
+     */
+    public void record(Connection connection, Long userId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            ps.setLong(1, userId);
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Lápidas de los usuarios que va a borrar deleteInactiveBefore().
+     *
+     * Debe ejecutarse en la misma transacción y justo ANTES del DELETE masivo, con los
+     * mismos criterios: un DELETE JPQL no devuelve los IDs borrados.
+     */
+    public int recordInactiveBefore(EntityManager entityManager, LocalDateTime cutoff) {
+        return entityManager.createNativeQuery(
+                        "INSERT INTO user_tombstones (user_id, deleted_at) "
+                                + "SELECT id, ?1 FROM users WHERE active = false AND updated_at < ?2")
+                .setParameter(1, LocalDateTime.now())
+                .setParameter(2, cutoff)
+                .executeUpdate();
+    }
+
+    /**
+     * Las lápidas no pueden guardarse para siempre. Un cliente con una marca de agua
+     * más antigua que la retención recibe resyncRequired = true.
+     */
+    @Scheduled(fixedDelayString = "${mcp.delta-sync.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Timestamp limit = Timestamp.valueOf(retentionLimit());
+        int purged = jdbcTemplate.update("DELETE FROM user_tombstones WHERE deleted_at < ?", limit);
+        if (purged > 0) {
+            logger.info("Lápidas: {} anteriores a {} eliminadas", purged, limit);
+        }
+    }
+
+    /**
+     * Las marcas de agua anteriores a este instante ya no garantizan ver todos los borrados.
+     */
+    public LocalDateTime retentionLimit() {
+        return LocalDateTime.now().minusHours(retentionHours);
+    }
+}
@@ -0,0 +1,185 @@
+package com.dam.accesodatos.csvimport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lector CSV (RFC 4180) sobre un fichero mapeado en memoria.
+ *
+ * El fichero se recorre por ventanas de windowSize bytes (FileChannel.map): el
+ * sistema operativo carga las páginas bajo demanda y no hay copias intermedias a un
+ * buffer de lectura. Un registro que cruza el final de una ventana se vuelve a leer
+ * desde una ventana nueva que empieza en ese registro.
+ *
+ * Los separadores (coma, comillas, saltos de línea) son ASCII y en UTF-8 nunca forman
+ * parte de un carácter multibyte: se puede trocear por bytes y decodificar cada campo.
+ *
+ * No es thread-safe.
+ */
+public class MappedCsvReader implements Closeable {
+
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private long nextLine = 1;
+
+    private byte[] field = new byte[256];
+    private int fieldLength;
+
+    public MappedCsvReader(Path file, int windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        map(0);
+        skipBom();
+    }
+
+    /**
+     * @return Siguiente registro, o null al final del fichero
+     * @throws IOException si el fichero no se puede leer o el CSV está mal formado
+     *                     (comillas sin cerrar, registro mayor que la ventana)
+     */
+    public CsvRecord next() throws IOException {
+        while (windowStart + position < size) {
+            long line = nextLine;
+            List<String> fields = parseRecord();
+            if (fields != null) {
+                return new CsvRecord(line, fields);
+            }
+            // El registro sigue en la siguiente ventana
+            if (position == 0 && window.limit() == windowSize) {
+                throw new IOException("Registro de la línea " + line + " mayor que la ventana de lectura ("
+                        + windowSize + " bytes)");
+            }
+            map(windowStart + position);
+        }
+        return null;
+    }
+
+    /**
+     * Línea en la que empieza el siguiente registro.
+     */
+    public long currentLine() {
+        return nextLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // El mapeo se libera cuando el recolector descarta el MappedByteBuffer
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Lee un registro desde position.
+     *
+     * @return Campos del registro, o null si la ventana termina antes que el registro
+     */
+    private List<String> parseRecord() throws IOException {
+        List<String> fields = new ArrayList<>(8);
+        int limit = window.limit();
+        boolean lastWindow = windowStart + limit >= size;
+        int p = position;
+        int newlinesInQuotes = 0;
+        boolean inQuotes = false;
+        boolean quoted = false;
+        fieldLength = 0;
+
+        while (true) {
+            if (p >= limit) {
+                if (!lastWindow) {
+                    return null;
+                }
+                if (inQuotes) {
+                    throw new IOException("Comillas sin cerrar en el registro de la línea " + nextLine);
+                }
+                fields.add(takeField());
+                return finish(fields, p, newlinesInQuotes);
+            }
+
+            byte b = window.get(p++);
+            if (inQuotes) {
+                if (b != '"') {
+                    if (b == '\n') {
+                        newlinesInQuotes++;
+                    }
+                    append(b);
+                } else if (p < limit && window.get(p) == '"') {
+                    append(b);  // "" dentro de comillas = una comilla
+                    p++;
+                } else if (p >= limit && !lastWindow) {
+                    return null;  // No se sabe aún si es "" o el cierre
+                } else {
+                    inQuotes = false;
+                }
+            } else if (b == ',') {
+                fields.add(takeField());
+                quoted = false;
+            } else if (b == '\n') {
+                fields.add(takeField());
+                return finish(fields, p, newlinesInQuotes);
+            } else if (b == '"' && fieldLength == 0 && !quoted) {
+                inQuotes = true;
+                quoted = true;
+            } else if (b != '\r') {
+                append(b);
+            }
+        }
+    }
+
+    private List<String> finish(List<String> fields, int end, int newlinesInQuotes) {
+        position = end;
+        nextLine += 1 + newlinesInQuotes;
+        return fields;
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private String takeField() {
+        String value = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+        fieldLength = 0;
+        return value;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        position = 0;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+
+    private void skipBom() {
+        if (window.limit() >= UTF8_BOM.length && window.get(0) == UTF8_BOM[0]
+                && window.get(1) == UTF8_BOM[1] && window.get(2) == UTF8_BOM[2]) {
+            position = UTF8_BOM.length;
+        }
+    }
+
+    /**
+     * Un registro CSV y la línea del fichero en la que empieza.
+     */
+    public record CsvRecord(long line, List<String> fields) {
+
+        public boolean isBlank() {
+            return fields.size() == 1 && fields.get(0).isBlank();
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.dam.accesodatos.csvimport;
+
+import com.dam.accesodatos.cdc.UserChangeOutbox;
+import com.dam.accesodatos.datasource.ShardContext;
+import com.dam.accesodatos.datasource.ShardRouter;
+import com.dam.accesodatos.mcp.McpDeadline;
+import com.dam.accesodatos.model.UserImportResultDto;
+import com.dam.accesodatos.model.UserImportResultDto.RowError;
+import com.dam.accesodatos.repository.LookupCodes;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * import_users: carga masiva de usuarios desde un CSV del servidor (mcp.import.*).
+ *
+ * Dos etapas conectadas por una cola acotada:
+ * 1. Lectura (hilo "csv-import-parser"): MappedCsvReader recorre el fichero mapeado en
+ *    memoria, valida cada fila y entrega lotes de batch-size filas a la cola
+ * 2. Inserción (hilo de la petición): cada lote es un batch JDBC y un commit
+ *
+ * La cola tiene queue-capacity lotes: si la BD va más lenta que la lectura, el lector
+ * espera en lugar de acumular el fichero entero en memoria.
+ *
+ * ERRORES POR FILA: una fila inválida no detiene la carga.
+ * - Validación (campos vacíos, longitudes, email sin @) → se descarta al leerla
+ * - Fallo en la BD (email repetido...) → el batch se deshace hasta un savepoint y se
+ *   repite fila a fila, cada una con su savepoint: solo se pierden las filas con error
+ *
+ * JDBC directo, sin Hibernate: no hay contexto de persistencia que crezca ni
+ * UserLookupListener, así que los códigos de departamento/rol se obtienen con LookupCodes.
+ * Cada lote publica un evento BULK_INSERT en la outbox con su rango de IDs.
+ *
+ * CABECERA: name, email, department, role son obligatorias; active es opcional (true
+ * por defecto). Otras columnas se ignoran, así que un CSV de export_users se puede
+ * importar tal cual (salvo los emails que ya existan).
+ *
+ * PLAZO (McpDeadline): una carga larga no se cancela a mitad de un lote. Los lotes se
+ * ejecutan sin el plazo de la petición y este solo se comprueba tras cada commit: al
+ * vencer, la carga se detiene y devuelve lo confirmado hasta entonces (aborted=true,
+ * lastCommittedLine). Un fallo de la BD que no es de una fila concreta (conexión
+ * perdida...) también devuelve el resultado parcial en lugar de descartarlo.
+ */
+@Component
+public class UserCsvImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserCsvImporter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO users (name, email, department_id, role_id, active, created_at, updated_at, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    /** Marca de fin de la cola */
+    private static final List<ImportRow> END = Collections.emptyList();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserChangeOutbox userChangeOutbox;
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @Autowired
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Value("${mcp.import.directory:${java.io.tmpdir}/mcp-imports}")
+    private String directory;
+
+    @Value("${mcp.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${mcp.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    @Value("${mcp.import.window-mb:64}")
+    private int windowMb;
+
+    @Value("${mcp.import.max-errors:100}")
+    private int maxErrors;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Importa un CSV de mcp.import.directory.
+     *
+     * @param fileName Nombre del fichero dentro del directorio de importación
+     * @throws IllegalArgumentException si el fichero no existe o la cabecera no es válida
+     */
+    public UserImportResultDto importFile(String fileName) {
+        Path file = resolve(fileName);
+        long start = System.nanoTime();
+
+        MappedCsvReader reader = open(file);
+        Columns columns = readHeader(reader, fileName);
+
+        ImportErrors errors = new ImportErrors(maxErrors);
+        AtomicLong rowsRead = new AtomicLong();
+        BlockingQueue<List<ImportRow>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Thread parser = new Thread(() -> parse(reader, columns, queue, rowsRead, errors), "csv-import-parser");
+        parser.setDaemon(true);
+        parser.start();
+
+        Progress progress = new Progress();
+        String abortReason = null;
+        McpDeadline deadline = McpDeadline.current();
+        McpDeadline.detach();
+        try {
+            List<ImportRow> batch;
+            while ((batch = queue.take()) != END) {
+                insert(batch, errors, progress);
+                progress.lastCommittedLine = batch.get(batch.size() - 1).line();
+                if (deadline != null && deadline.hasExpired()) {
+                    abortReason = "Plazo de la petición agotado";
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortReason = "Importación interrumpida";
+        } catch (RuntimeException e) {
+            logger.error("import_users {}: carga detenida tras la línea {}", fileName, progress.lastCommittedLine, e);
+            abortReason = "Error en la BD: " + e.getMessage();
+        } finally {
+            McpDeadline.attach(deadline);
+            if (abortReason != null) {
+                // El lector puede estar bloqueado en la cola
+                parser.interrupt();
+            }
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        UserImportResultDto result = new UserImportResultDto();
+        result.setFileName(fileName);
+        result.setRowsRead(rowsRead.get());
+        result.setInserted(progress.inserted);
+        result.setFailed(errors.count());
+        result.setErrors(errors.kept());
+        result.setErrorsTruncated(errors.count() > result.getErrors().size());
+        result.setElapsedMs(elapsedMs);
+        result.setRowsPerSecond(progress.inserted * 1000 / elapsedMs);
+        result.setAborted(abortReason != null);
+        result.setAbortReason(abortReason);
+        result.setLastCommittedLine(progress.lastCommittedLine);
+        if (abortReason != null) {
+            logger.warn("import_users {} detenido ({}): {} insertados hasta la línea {}",
+                    fileName, abortReason, progress.inserted, progress.lastCommittedLine);
+        } else {
+            logger.info("import_users {}: {} insertados, {} con error en {} ms ({} filas/s)",
+                    fileName, progress.inserted, errors.count(), elapsedMs, result.getRowsPerSecond());
+        }
+        return result;
+    }
+
+    // ========== Etapa 1: lectura ==========
+
+    private MappedCsvReader open(Path file) {
+        try {
+            return new MappedCsvReader(file, windowMb * 1024 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir " + file.getFileName(), e);
+        }
+    }
+
+    /**
+     * Lee la cabecera en el hilo de la petición: un fichero sin las columnas
+     * obligatorias se rechaza antes de arrancar el lector.
+     */
+    private Columns readHeader(MappedCsvReader reader, String fileName) {
+        try {
+            MappedCsvReader.CsvRecord header = reader.next();
+            if (header == null) {
+                throw new IllegalArgumentException("El fichero " + fileName + " está vacío");
+            }
+            return Columns.of(header.fields());
+        } catch (IOException e) {
+            closeQuietly(reader);
+            throw new UncheckedIOException("No se pudo leer la cabecera de " + fileName, e);
+        } catch (RuntimeException e) {
+            closeQuietly(reader);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(MappedCsvReader reader) {
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // Solo se cierra tras un error previo
+        }
+    }
+
+    private void parse(MappedCsvReader reader, Columns columns, BlockingQueue<List<ImportRow>> queue,
+                       AtomicLong rowsRead, ImportErrors errors) {
+        try (reader) {
+            List<ImportRow> batch = new ArrayList<>(batchSize);
+            try {
+                MappedCsvReader.CsvRecord record;
+                while ((record = reader.next()) != null) {
+                    if (record.isBlank()) {
+                        continue;
+                    }
+                    rowsRead.incrementAndGet();
+                    ImportRow row = columns.toRow(record, errors);
+                    if (row == null) {
+                        continue;
+                    }
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        queue.put(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // CSV mal formado: se inserta lo leído y se informa del punto de parada
+                errors.add(reader.currentLine(), "Lectura interrumpida: " + e.getMessage());
+            }
+            if (!batch.isEmpty()) {
+                queue.put(batch);
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // La etapa de inserción ha terminado con error: nadie consume la cola
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Error cerrando el fichero importado", e);
+        }
+    }
+
+    // ========== Etapa 2: inserción ==========
+
+    /**
+     * Cada grupo confirmado se suma a progress en cuanto hace commit: si falla el grupo
+     * de otro shard, lo ya insertado sigue contado.
+     */
+    private void insert(List<ImportRow> batch, ImportErrors errors, Progress progress) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            progress.inserted += insertGroup(batch, errors);
+            return;
+        }
+        Map<Integer, List<ImportRow>> byShard = batch.stream()
+                .collect(Collectors.groupingBy(row -> router.shardForDepartment(row.department())));
+        for (Map.Entry<Integer, List<ImportRow>> group : byShard.entrySet()) {
+            progress.inserted += ShardContext.callOn(group.getKey(), () -> insertGroup(group.getValue(), errors));
+        }
+    }
+
+    private long insertGroup(List<ImportRow> rows, ImportErrors errors) {
+        // Códigos nuevos en autocommit antes de abrir la transacción del lote
+        lookupCodes.prepare(rows.stream().map(ImportRow::department).collect(Collectors.toSet()),
+                rows.stream().map(ImportRow::role).collect(Collectors.toSet()));
+        return transactionTemplate.execute(status ->
+                jdbcTemplate.execute((ConnectionCallback<Long>) connection -> insertRows(connection, rows, errors)));
+    }
+
+    private long insertRows(Connection connection, List<ImportRow> rows, ImportErrors errors) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<ImportRow> inserted;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            Savepoint beforeBatch = connection.setSavepoint();
+            try {
+                for (ImportRow row : rows) {
+                    bind(ps, row, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                inserted = rows;
+            } catch (SQLException e) {
+                // Una fila ha hecho fallar el batch: se deshace y se repite fila a fila
+                connection.rollback(beforeBatch);
+                ps.clearBatch();
+                inserted = new ArrayList<>(rows.size());
+                for (ImportRow row : rows) {
+                    Savepoint beforeRow = connection.setSavepoint();
+                    try {
+                        bind(ps, row, now);
+                        ps.executeUpdate();
+                        inserted.add(row);
+                    } catch (SQLException rowError) {
+                        connection.rollback(beforeRow);
+                        errors.add(row.line(), describe(rowError, row));
+                    }
+                }
+            }
+        }
+
+        if (!inserted.isEmpty()) {
+            appendEvent(connection, inserted);
+        }
+        return inserted.size();
+    }
+
+    private void bind(PreparedStatement ps, ImportRow row, Timestamp now) throws SQLException {
+        ps.setString(1, row.name());
+        ps.setString(2, row.email());
+        ps.setShort(3, lookupCodes.ensureDepartment(row.department()));
+        ps.setShort(4, lookupCodes.ensureRole(row.role()));
+        ps.setBoolean(5, row.active());
+        ps.setTimestamp(6, now);
+        ps.setTimestamp(7, now);
+    }
+
+    /**
+     * Un evento por lote con el rango de IDs insertados (no uno por fila): el snapshot
+     * y los suscriptores releen ese rango.
+     */
+    private void appendEvent(Connection connection, List<ImportRow> inserted) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(inserted.size(), "?"));
+        long fromId;
+        long toId;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT MIN(id), MAX(id) FROM users WHERE email IN (" + placeholders + ")")) {
+            for (int i = 0; i < inserted.size(); i++) {
+                ps.setString(i + 1, inserted.get(i).email());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                fromId = rs.getLong(1);
+                toId = rs.getLong(2);
+            }
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("fromId", fromId);
+        payload.put("toId", toId);
+        payload.put("count", inserted.size());
+        userChangeOutbox.append(connection, UserChangeOutbox.BULK_INSERT, null, payload);
+    }
+
+    private static String describe(SQLException e, ImportRow row) {
+        if ("23505".equals(e.getSQLState())) {
+            return "Ya existe un usuario con el email " + row.email();
+        }
+        String message = String.valueOf(e.getMessage());
+        int newline = message.indexOf('\n');
+        return newline > 0 ? message.substring(0, newline) : message;
+    }
+
+    private Path resolve(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("Falta el nombre del fichero a importar");
+        }
+        Path dir = Paths.get(directory).toAbsolutePath().normalize();
+        Path file = dir.resolve(fileName).normalize();
+        if (!file.startsWith(dir)) {
+            throw new IllegalArgumentException("El fichero debe estar en " + dir);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("No existe el fichero " + fileName + " en " + dir);
+        }
+        return file;
+    }
+
+    // ========== Tipos auxiliares ==========
+
+    private record ImportRow(long line, String name, String email, String department, String role,
+                             boolean active) {
+    }
+
+    /**
+     * Filas confirmadas y última línea del último lote completo (etapa de inserción).
+     */
+    private static final class Progress {
+        long inserted;
+        long lastCommittedLine;
+    }
+
+    /**
+     * Posición de cada columna según la cabecera.
+     */
+    private record Columns(int name, int email, int department, int role, int active) {
+
+        static Columns of(List<String> header) {
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String required : List.of("name", "email", "department", "role")) {
+                if (!positions.containsKey(required)) {
+                    throw new IllegalArgumentException("Falta la columna '" + required + "' en la cabecera");
+                }
+            }
+            return new Columns(positions.get("name"), positions.get("email"), positions.get("department"),
+                    positions.get("role"), positions.getOrDefault("active", -1));
+        }
+
+        /**
+         * @return Fila validada, o null si tiene errores (anotados en errors)
+         */
+        ImportRow toRow(MappedCsvReader.CsvRecord record, ImportErrors errors) {
+            List<String> fields = record.fields();
+            String userName = field(fields, name);
+            String userEmail = field(fields, email);
+            String userDepartment = field(fields, department);
+            String userRole = field(fields, role);
+            String userActive = field(fields, active);
+
+            String problem = null;
+            if (userName.length() < 2 || userName.length() > 50) {
+                problem = "El nombre debe tener entre 2 y 50 caracteres";
+            } else if (userEmail.isEmpty() || userEmail.length() > 100 || userEmail.indexOf('@') <= 0) {
+                problem = "Email no válido: '" + userEmail + "'";
+            } else if (userDepartment.isEmpty() || userDepartment.length() > 50) {
+                problem = "El departamento es obligatorio (máximo 50 caracteres)";
+            } else if (userRole.isEmpty() || userRole.length() > 50) {
+                problem = "El rol es obligatorio (máximo 50 caracteres)";
+            } else if (!userActive.isEmpty() && !userActive.equalsIgnoreCase("true")
+                    && !userActive.equalsIgnoreCase("false")) {
+                problem = "active debe ser true o false: '" + userActive + "'";
+            }
+            if (problem != null) {
+                errors.add(record.line(), problem);
+                return null;
+            }
+            return new ImportRow(record.line(), userName, userEmail, userDepartment, userRole,
+                    userActive.isEmpty() || userActive.equalsIgnoreCase("true"));
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index >= 0 && index < fields.size() ? fields.get(index).trim() : "";
+        }
+    }
+
+    /**
+     * Errores compartidos por las dos etapas. Cuenta todos y guarda los primeros max.
+     */
+    private static final class ImportErrors {
+        private final int max;
+        private final List<RowError> kept = new ArrayList<>();
+        private long count;
+
+        ImportErrors(int max) {
+            this.max = max;
+        }
+
+        synchronized void add(long line, String message) {
+            count++;
+            if (kept.size() < max) {
+                kept.add(new RowError(line, message));
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized List<RowError> kept() {
+            List<RowError> sorted = new ArrayList<>(kept);
+            sorted.sort(Comparator.comparingLong(RowError::line));
+            return sorted;
+        }
+    }
+}
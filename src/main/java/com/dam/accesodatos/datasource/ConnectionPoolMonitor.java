@@ -0,0 +1,202 @@
+package com.dam.accesodatos.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monitorización del pool de conexiones HikariCP por herramienta MCP.
+ *
+ * Recibe los eventos de InstrumentedDataSource y mantiene:
+ * - Latencia de obtención de conexión (espera en el pool) por herramienta
+ * - Conexiones activas/ociosas/en espera observadas en cada obtención
+ * - Tiempo de uso de cada conexión (aproximación de la latencia de BD)
+ * - Conexiones abiertas, para detectar fugas indicando QUÉ herramienta las abrió
+ *
+ * Las métricas se consultan en GET /mcp/pool_stats.
+ */
+@Component
+public class ConnectionPoolMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolMonitor.class);
+
+    @Value("${mcp.pool.leak-threshold-ms:10000}")
+    private long leakThresholdMs;
+
+    private final Map<String, HikariDataSource> pools = new ConcurrentHashMap<>();
+    private final Map<String, PoolWindow> windows = new ConcurrentHashMap<>();
+    private final Map<String, ToolStats> toolStats = new ConcurrentHashMap<>();
+    private final Set<Lease> openLeases = ConcurrentHashMap.newKeySet();
+
+    void registerPool(HikariDataSource pool) {
+        pools.putIfAbsent(pool.getPoolName(), pool);
+    }
+
+    Lease onAcquired(HikariDataSource pool, String tool, long waitNanos) {
+        ToolStats stats = toolStats.computeIfAbsent(tool, t -> new ToolStats());
+        stats.acquisitions.increment();
+        stats.acquireNanos.add(waitNanos);
+        stats.maxAcquireNanos.accumulate(waitNanos);
+
+        HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+        if (mx != null) {
+            stats.maxActive.accumulate(mx.getActiveConnections());
+            stats.maxPending.accumulate(mx.getThreadsAwaitingConnection());
+        }
+
+        PoolWindow window = windows.computeIfAbsent(pool.getPoolName(), p -> new PoolWindow());
+        window.acquisitions.increment();
+        window.acquireNanos.add(waitNanos);
+
+        Lease lease = new Lease(pool.getPoolName(), tool, Thread.currentThread().getName(), System.nanoTime());
+        if (leakThresholdMs > 0) {
+            openLeases.add(lease);
+        }
+        return lease;
+    }
+
+    void onAcquireFailed(HikariDataSource pool, String tool, long waitNanos) {
+        ToolStats stats = toolStats.computeIfAbsent(tool, t -> new ToolStats());
+        stats.failures.increment();
+        stats.maxAcquireNanos.accumulate(waitNanos);
+        logger.warn("No se obtuvo conexión del pool {} para la herramienta {} tras {} ms",
+                pool.getPoolName(), tool, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    void onReleased(Lease lease) {
+        if (!lease.released.compareAndSet(false, true)) {
+            return;
+        }
+        openLeases.remove(lease);
+        long holdNanos = System.nanoTime() - lease.acquiredAtNanos;
+
+        toolStats.computeIfAbsent(lease.tool, t -> new ToolStats()).holdNanos.add(holdNanos);
+        PoolWindow window = windows.computeIfAbsent(lease.pool, p -> new PoolWindow());
+        window.releases.increment();
+        window.holdNanos.add(holdNanos);
+    }
+
+    /**
+     * Busca conexiones abiertas más tiempo que el umbral y avisa UNA vez por conexión.
+     * A diferencia de leak-detection-threshold de Hikari, el aviso indica la herramienta MCP.
+     */
+    @Scheduled(fixedDelayString = "${mcp.pool.leak-check-interval-ms:5000}")
+    public void detectLeaks() {
+        if (leakThresholdMs <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (Lease lease : openLeases) {
+            long heldMs = TimeUnit.NANOSECONDS.toMillis(now - lease.acquiredAtNanos);
+            if (heldMs > leakThresholdMs && lease.reported.compareAndSet(false, true)) {
+                toolStats.computeIfAbsent(lease.tool, t -> new ToolStats()).leaks.increment();
+                logger.warn("Posible fuga de conexión: pool={} herramienta={} hilo={} abierta desde hace {} ms",
+                        lease.pool, lease.tool, lease.thread, heldMs);
+            }
+        }
+    }
+
+    /**
+     * Devuelve y reinicia las métricas acumuladas del pool desde la última llamada.
+     * Lo usa HikariPoolAutoSizer en cada ciclo de ajuste.
+     */
+    PoolWindow.Sample drainWindow(String poolName) {
+        return windows.computeIfAbsent(poolName, p -> new PoolWindow()).drain();
+    }
+
+    Collection<HikariDataSource> getPools() {
+        return pools.values();
+    }
+
+    /**
+     * Estado actual de los pools y métricas acumuladas por herramienta.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> poolsInfo = new TreeMap<>();
+        for (HikariDataSource pool : pools.values()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+            if (mx != null) {
+                info.put("active", mx.getActiveConnections());
+                info.put("idle", mx.getIdleConnections());
+                info.put("pending", mx.getThreadsAwaitingConnection());
+                info.put("total", mx.getTotalConnections());
+            }
+            info.put("maximumPoolSize", pool.getHikariConfigMXBean().getMaximumPoolSize());
+            poolsInfo.put(pool.getPoolName(), info);
+        }
+
+        Map<String, Object> toolsInfo = new TreeMap<>();
+        toolStats.forEach((tool, stats) -> toolsInfo.put(tool, stats.toMap()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pools", poolsInfo);
+        result.put("tools", toolsInfo);
+        result.put("openConnections", openLeases.size());
+        return result;
+    }
+
+    // ========== Clases auxiliares ==========
+
+    /**
+     * Conexión obtenida del pool y todavía no devuelta.
+     */
+    static final class Lease {
+        final String pool;
+        final String tool;
+        final String thread;
+        final long acquiredAtNanos;
+        final AtomicBoolean released = new AtomicBoolean();
+        final AtomicBoolean reported = new AtomicBoolean();
+
+        Lease(String pool, String tool, String thread, long acquiredAtNanos) {
+            this.pool = pool;
+            this.tool = tool;
+            this.thread = thread;
+            this.acquiredAtNanos = acquiredAtNanos;
+        }
+    }
+
+    /**
+     * Métricas acumuladas de una herramienta MCP.
+     */
+    static final class ToolStats {
+        final LongAdder acquisitions = new LongAdder();
+        final LongAdder acquireNanos = new LongAdder();
+        final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder failures = new LongAdder();
+        final LongAdder holdNanos = new LongAdder();
+        final LongAdder leaks = new LongAdder();
+        final LongAccumulator maxActive = new LongAccumulator(Math::max, 0);
+        final LongAccumulator maxPending = new LongAccumulator(Math::max, 0);
+
+        Map<String, Object> toMap() {
+            long count = acquisitions.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("acquisitions", count);
+            map.put("avgAcquireMs", count == 0 ? 0.0 : acquireNanos.sum() / 1_000_000.0 / count);
+            map.put("maxAcquireMs", maxAcquireNanos.get() / 1_000_000.0);
+            map.put("avgHoldMs", count == 0 ? 0.0 : holdNanos.sum() / 1_000_000.0 / count);
+            map.put("acquireFailures", failures.sum());
+            map.put("leaksDetected", leaks.sum());
+            map.put("maxActiveSeen", maxActive.get());
+            map.put("maxPendingSeen", maxPending.get());
+            return map;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.dam.accesodatos.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Envuelve los pools HikariCP del contexto en un InstrumentedDataSource.
+ *
+ * Se hace con un BeanPostProcessor para no tener que redefinir el DataSource que
+ * crea Spring Boot a partir de spring.datasource.* en application.yml.
+ */
+@Configuration
+public class DataSourceInstrumentationConfig {
+
+    @Bean
+    public static BeanPostProcessor hikariInstrumentationPostProcessor(
+            ObjectProvider<ConnectionPoolMonitor> monitorProvider) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari) {
+                    return new InstrumentedDataSource(hikari, monitorProvider);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.dam.accesodatos.datasource;
+
+import com.dam.accesodatos.mcp.McpDeadline;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.ResourceHolderSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JpaTransactionManager que limita cada transacción al plazo de la petición MCP.
+ *
+ * Tras abrir la transacción, fija como timeout el tiempo restante de McpDeadline
+ * (con precisión de milisegundos, si es menor que el de @Transactional). Spring lo
+ * propaga solo:
+ * - A cada consulta JPA creada con el EntityManager compartido (hint jakarta.persistence.query.timeout)
+ * - A cada sentencia de JdbcTemplate que participa en la transacción (Statement.setQueryTimeout)
+ *
+ * Si el plazo ya ha vencido, ni siquiera se pide conexión al pool.
+ */
+public class DeadlineAwareJpaTransactionManager extends JpaTransactionManager {
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        long remainingMs = McpDeadline.remainingMillis();
+        if (remainingMs <= 0) {
+            throw new TransactionTimedOutException("Plazo de la petición agotado antes de iniciar la transacción");
+        }
+
+        super.doBegin(transaction, definition);
+
+        if (remainingMs != Long.MAX_VALUE) {
+            applyDeadline((EntityManagerHolder) TransactionSynchronizationManager.getResource(
+                    obtainEntityManagerFactory()), remainingMs);
+            if (getDataSource() != null) {
+                applyDeadline((ConnectionHolder) TransactionSynchronizationManager.getResource(getDataSource()),
+                        remainingMs);
+            }
+        }
+    }
+
+    private static void applyDeadline(ResourceHolderSupport holder, long remainingMs) {
+        if (holder != null && (!holder.hasTimeout() || holder.getTimeToLiveInMillis() > remainingMs)) {
+            holder.setTimeoutInMillis(remainingMs);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.dam.accesodatos.datasource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+/**
+ * Sustituye el JpaTransactionManager autoconfigurado por DeadlineAwareJpaTransactionManager.
+ *
+ * Spring Boot solo crea el suyo si no hay otro TransactionManager, así que basta con
+ * declararlo. Igual que el de Boot, localiza el EntityManagerFactory por sí mismo.
+ */
+@Configuration
+public class DeadlineTransactionConfig {
+
+    @Bean
+    public JpaTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new DeadlineAwareJpaTransactionManager();
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+}
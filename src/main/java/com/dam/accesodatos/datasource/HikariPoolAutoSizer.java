@@ -0,0 +1,94 @@
+package com.dam.accesodatos.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Controlador adaptativo del tamaño de los pools HikariCP (opcional).
+ *
+ * Se activa con mcp.pool.adaptive.enabled=true. En cada ciclo lee las métricas de
+ * ConnectionPoolMonitor y ajusta maximumPoolSize dentro de [min-size, max-size]:
+ * - Hay hilos esperando y la espera media supera target-wait-ms → crece en 'step',
+ *   salvo que la latencia de BD supere max-db-latency-ms: con la BD saturada, más
+ *   conexiones solo añaden contención.
+ * - La espera es despreciable y sobran conexiones ociosas → decrece de 1 en 1.
+ */
+@Component
+@ConditionalOnProperty(name = "mcp.pool.adaptive.enabled", havingValue = "true")
+public class HikariPoolAutoSizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HikariPoolAutoSizer.class);
+
+    @Autowired
+    private ConnectionPoolMonitor monitor;
+
+    @Value("${mcp.pool.adaptive.min-size:5}")
+    private int minSize;
+
+    @Value("${mcp.pool.adaptive.max-size:30}")
+    private int maxSize;
+
+    @Value("${mcp.pool.adaptive.step:2}")
+    private int step;
+
+    @Value("${mcp.pool.adaptive.target-wait-ms:5}")
+    private double targetWaitMs;
+
+    @Value("${mcp.pool.adaptive.max-db-latency-ms:200}")
+    private double maxDbLatencyMs;
+
+    @Scheduled(fixedDelayString = "${mcp.pool.adaptive.interval-ms:2000}")
+    public void adjust() {
+        for (HikariDataSource pool : monitor.getPools()) {
+            HikariPoolMXBean mx = pool.getHikariPoolMXBean();
+            if (mx == null) {
+                continue;
+            }
+
+            PoolWindow.Sample sample = monitor.drainWindow(pool.getPoolName());
+            int current = pool.getHikariConfigMXBean().getMaximumPoolSize();
+            int target = computeTargetSize(current, minSize, maxSize, step, targetWaitMs, maxDbLatencyMs,
+                    sample.avgWaitMs(), sample.avgHoldMs(),
+                    mx.getThreadsAwaitingConnection(), mx.getIdleConnections());
+
+            if (target != current) {
+                logger.info("Pool {}: maximumPoolSize {} → {} (espera media {} ms, uso medio {} ms, en espera {})",
+                        pool.getPoolName(), current, target,
+                        String.format("%.2f", sample.avgWaitMs()), String.format("%.2f", sample.avgHoldMs()),
+                        mx.getThreadsAwaitingConnection());
+                pool.getHikariConfigMXBean().setMaximumPoolSize(target);
+            }
+        }
+    }
+
+    /**
+     * Decide el nuevo tamaño máximo del pool. Sin estado, para poder probarlo de forma aislada.
+     */
+    static int computeTargetSize(int current, int min, int max, int step,
+                                 double targetWaitMs, double maxDbLatencyMs,
+                                 double avgWaitMs, double avgHoldMs, int pending, int idle) {
+        if (current < min) {
+            return min;
+        }
+        if (current > max) {
+            return max;
+        }
+        if (pending > 0 && avgWaitMs > targetWaitMs) {
+            if (avgHoldMs > maxDbLatencyMs) {
+                return current;
+            }
+            return Math.min(max, current + step);
+        }
+        if (pending == 0 && avgWaitMs < targetWaitMs / 4 && idle > step) {
+            return Math.max(min, current - 1);
+        }
+        return current;
+    }
+}
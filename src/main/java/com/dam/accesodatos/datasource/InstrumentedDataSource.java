@@ -0,0 +1,106 @@
+package com.dam.accesodatos.datasource;
+
+import com.dam.accesodatos.mcp.McpDeadline;
+import com.dam.accesodatos.mcp.McpToolContext;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource que envuelve un pool HikariCP y mide cada obtención de conexión.
+ *
+ * - Mide el tiempo de espera de getConnection() y lo atribuye a la herramienta MCP actual
+ * - Envuelve la conexión para saber cuándo se devuelve al pool (close())
+ * - Registra las sentencias creadas en el plazo de la petición (McpDeadline)
+ *
+ * Hibernate y Spring siguen viendo un DataSource normal; unwrap() llega al pool real.
+ * close() cierra el pool: Spring lo llama al cerrar el contexto si el envoltorio es un
+ * bean, y los DataSource de enrutamiento lo llaman para cada uno de sus destinos.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final HikariDataSource pool;
+    private final ObjectProvider<ConnectionPoolMonitor> monitorProvider;
+
+    public InstrumentedDataSource(HikariDataSource pool, ObjectProvider<ConnectionPoolMonitor> monitorProvider) {
+        super(pool);
+        this.pool = pool;
+        this.monitorProvider = monitorProvider;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(pool::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(() -> pool.getConnection(username, password));
+    }
+
+    public HikariDataSource getPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private Connection instrument(ConnectionSupplier supplier) throws SQLException {
+        ConnectionPoolMonitor monitor = monitorProvider.getIfAvailable();
+        if (monitor == null) {
+            return supplier.get();
+        }
+
+        String tool = McpToolContext.getCurrentTool();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException e) {
+            monitor.onAcquireFailed(pool, tool, System.nanoTime() - start);
+            throw e;
+        }
+        monitor.registerPool(pool);
+        ConnectionPoolMonitor.Lease lease = monitor.onAcquired(pool, tool, System.nanoTime() - start);
+        return track(connection, lease, monitor);
+    }
+
+    /**
+     * Proxy de la conexión que avisa al monitor cuando se devuelve al pool y entrega
+     * a McpDeadline cada sentencia creada, para poder cancelarla si vence el plazo.
+     */
+    private static Connection track(Connection target, ConnectionPoolMonitor.Lease lease,
+                                    ConnectionPoolMonitor monitor) {
+        return (Connection) Proxy.newProxyInstance(
+                InstrumentedDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        Object result = method.invoke(target, args);
+                        if (result instanceof Statement statement) {
+                            McpDeadline.onStatementCreated(statement);
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                            monitor.onReleased(lease);
+                        }
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,34 @@
+package com.dam.accesodatos.datasource;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de un pool acumuladas durante una ventana de tiempo.
+ * Se reinician cada vez que se leen con drain().
+ */
+class PoolWindow {
+
+    final LongAdder acquisitions = new LongAdder();
+    final LongAdder acquireNanos = new LongAdder();
+    final LongAdder releases = new LongAdder();
+    final LongAdder holdNanos = new LongAdder();
+
+    Sample drain() {
+        long acquired = acquisitions.sumThenReset();
+        long waitNanos = acquireNanos.sumThenReset();
+        long released = releases.sumThenReset();
+        long heldNanos = holdNanos.sumThenReset();
+        return new Sample(
+                acquired == 0 ? 0.0 : waitNanos / 1_000_000.0 / acquired,
+                released == 0 ? 0.0 : heldNanos / 1_000_000.0 / released,
+                acquired);
+    }
+
+    /**
+     * @param avgWaitMs Espera media para obtener una conexión
+     * @param avgHoldMs Tiempo medio de uso de una conexión (aproxima la latencia de BD)
+     * @param acquisitions Conexiones obtenidas en la ventana
+     */
+    record Sample(double avgWaitMs, double avgHoldMs, long acquisitions) {
+    }
+}
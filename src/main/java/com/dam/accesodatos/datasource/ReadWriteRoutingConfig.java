@@ -0,0 +1,76 @@
+package com.dam.accesodatos.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Separación lectura/escritura: primario + N réplicas de solo lectura (opcional).
+ *
+ * Se activa con mcp.datasource.routing.enabled=true. El primario usa spring.datasource.*
+ * y cada réplica mcp.datasource.routing.replicas[i].*; todos los pools comparten los
+ * ajustes spring.datasource.hikari.* y se instrumentan con ConnectionPoolMonitor.
+ *
+ * Al definir nuestro propio DataSource, DataSourceAutoConfiguration de Spring Boot
+ * no crea el suyo y Hibernate usa este.
+ */
+@Configuration
+@ConditionalOnProperty(name = "mcp.datasource.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(RoutingProperties.class)
+public class ReadWriteRoutingConfig {
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                                 RoutingProperties routingProperties,
+                                                                 Environment environment,
+                                                                 ObjectProvider<ConnectionPoolMonitor> monitor) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        bindPoolSettings(primary, environment, "ra3-primary");
+
+        List<ReplicaState> replicas = new ArrayList<>();
+        for (int i = 0; i < routingProperties.getReplicas().size(); i++) {
+            RoutingProperties.Replica config = routingProperties.getReplicas().get(i);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setJdbcUrl(config.getUrl());
+            replica.setUsername(config.getUsername());
+            replica.setPassword(config.getPassword());
+            replica.setReadOnly(true);
+            bindPoolSettings(replica, environment, "ra3-replica-" + i);
+            replicas.add(new ReplicaState("replica-" + i, new InstrumentedDataSource(replica, monitor)));
+        }
+
+        return new ReadWriteRoutingDataSource(new InstrumentedDataSource(primary, monitor), replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReplicaHealthChecker replicaHealthChecker(ReadWriteRoutingDataSource routingDataSource,
+                                                     RoutingProperties routingProperties) {
+        return new ReplicaHealthChecker(routingDataSource.getReplicas(), routingProperties);
+    }
+
+    private static void bindPoolSettings(HikariDataSource pool, Environment environment, String poolName) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+    }
+}
@@ -0,0 +1,87 @@
+package com.dam.accesodatos.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource que envía las transacciones readOnly a las réplicas y el resto al primario.
+ *
+ * HibernateUserServiceImpl está anotado con @Transactional(readOnly = true) a nivel de
+ * clase y solo los métodos de escritura lo sobrescriben con @Transactional. Esa
+ * separación es la que usa este DataSource para decidir el destino:
+ * - Transacción readOnly → réplica sana (round-robin)
+ * - Escritura, o sin réplicas sanas → primario
+ *
+ * IMPORTANTE: Debe envolverse en un LazyConnectionDataSourceProxy. JpaTransactionManager
+ * obtiene la conexión al iniciar la transacción, antes de marcarla como readOnly en
+ * TransactionSynchronizationManager; el proxy retrasa la obtención hasta la primera
+ * sentencia, cuando ya se conoce el tipo de transacción.
+ *
+ * close() cierra los pools del primario y de las réplicas al cerrar el contexto
+ * (ni AbstractRoutingDataSource ni LazyConnectionDataSourceProxy lo hacen).
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<ReplicaState> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<ReplicaState> replicas) {
+        this.replicas = List.copyOf(replicas);
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (ReplicaState replica : this.replicas) {
+            targets.put(replica.getName(), replica.getDataSource());
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            ReplicaState replica = nextHealthyReplica();
+            if (replica != null) {
+                return replica.getName();
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Round-robin entre las réplicas sanas; null si no hay ninguna.
+     */
+    private ReplicaState nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            ReplicaState candidate = replicas.get((start + i) % size);
+            if (candidate.isHealthy()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    public List<ReplicaState> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource target : getResolvedDataSources().values()) {
+            if (target instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.dam.accesodatos.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Comprueba periódicamente la salud y el retraso de replicación de las réplicas.
+ *
+ * Una réplica deja de recibir lecturas si no responde o si su retraso supera
+ * mcp.datasource.routing.max-lag-ms; vuelve a recibirlas en cuanto se recupera.
+ * Sin réplicas sanas, ReadWriteRoutingDataSource envía las lecturas al primario.
+ */
+public class ReplicaHealthChecker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaHealthChecker.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final List<ReplicaState> replicas;
+    private final RoutingProperties properties;
+
+    public ReplicaHealthChecker(List<ReplicaState> replicas, RoutingProperties properties) {
+        this.replicas = replicas;
+        this.properties = properties;
+    }
+
+    @Scheduled(fixedDelayString = "${mcp.datasource.routing.health-check-interval-ms:2000}")
+    public void checkReplicas() {
+        for (ReplicaState replica : replicas) {
+            boolean wasHealthy = replica.isHealthy();
+            boolean healthy;
+            try {
+                long lagMs = probe(replica);
+                replica.setLagMs(lagMs);
+                healthy = lagMs <= properties.getMaxLagMs();
+            } catch (Exception e) {
+                logger.debug("Réplica {} no responde: {}", replica.getName(), e.getMessage());
+                healthy = false;
+            }
+            replica.setHealthy(healthy);
+
+            if (wasHealthy != healthy) {
+                logger.warn("Réplica {} {} (retraso {} ms)", replica.getName(),
+                        healthy ? "vuelve a recibir lecturas" : "excluida de las lecturas", replica.getLagMs());
+            }
+        }
+    }
+
+    /**
+     * @return Retraso de replicación en ms (0 si no hay lag-query configurada)
+     */
+    private long probe(ReplicaState replica) throws Exception {
+        try (Connection connection = replica.getDataSource().getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                throw new IllegalStateException("Conexión no válida");
+            }
+            String lagQuery = properties.getLagQuery();
+            if (lagQuery == null || lagQuery.isBlank()) {
+                return 0;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                return rs.next() ? rs.getLong(1) : Long.MAX_VALUE;
+            }
+        }
+    }
+}
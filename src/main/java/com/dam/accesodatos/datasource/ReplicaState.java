@@ -0,0 +1,43 @@
+package com.dam.accesodatos.datasource;
+
+import javax.sql.DataSource;
+
+/**
+ * Réplica de solo lectura y su último estado de salud conocido.
+ */
+public class ReplicaState {
+
+    private final String name;
+    private final DataSource dataSource;
+    private volatile boolean healthy = true;
+    private volatile long lagMs;
+
+    public ReplicaState(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    void setLagMs(long lagMs) {
+        this.lagMs = lagMs;
+    }
+}
@@ -0,0 +1,105 @@
+package com.dam.accesodatos.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de la separación lectura/escritura (mcp.datasource.routing.*).
+ */
+@ConfigurationProperties(prefix = "mcp.datasource.routing")
+public class RoutingProperties {
+
+    /** Activa el enrutado de transacciones readOnly a las réplicas */
+    private boolean enabled;
+
+    /** Réplicas de solo lectura */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /** Intervalo entre comprobaciones de salud de las réplicas */
+    private long healthCheckIntervalMs = 2000;
+
+    /** Retraso máximo de replicación admitido; por encima la réplica deja de recibir lecturas */
+    private long maxLagMs = 1000;
+
+    /**
+     * Consulta, ejecutada en la réplica, que devuelve el retraso de replicación en ms.
+     * Ejemplo PostgreSQL: SELECT EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000
+     * Si está vacía solo se comprueba que la réplica responde.
+     */
+    private String lagQuery;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public long getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+
+    public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+    }
+
+    public long getMaxLagMs() {
+        return maxLagMs;
+    }
+
+    public void setMaxLagMs(long maxLagMs) {
+        this.maxLagMs = maxLagMs;
+    }
+
+    public String getLagQuery() {
+        return lagQuery;
+    }
+
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+
+    /**
+     * Conexión a una réplica. El pool usa los mismos ajustes spring.datasource.hikari.*
+     */
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
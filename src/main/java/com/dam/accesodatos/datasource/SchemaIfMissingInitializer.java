@@ -0,0 +1,136 @@
+package com.dam.accesodatos.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Inicializador de schema.sql/data.sql que no hace nada si la tabla users ya existe.
+ *
+ * Con una BD en fichero los datos sobreviven al reinicio; ejecutar schema.sql (que
+ * empieza con DROP TABLE) los borraría en cada arranque. Al extender el inicializador
+ * de Spring Boot, Hibernate sigue arrancando después de la inicialización.
+ *
+ * Si la tabla existe pero con el esquema anterior (department/role como VARCHAR),
+ * aplica db/migration/normalize-department-role.sql conservando los datos. Las tablas
+ * añadidas después (outbox user_change_events, user_tombstones, users_archive) se crean con su script de
+ * db/migration si faltan, igual que el índice único idx_user_statistics_user (antes
+ * se fusionan las filas repetidas de un mismo usuario).
+ */
+public class SchemaIfMissingInitializer extends SqlDataSourceScriptDatabaseInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaIfMissingInitializer.class);
+
+    private final DataSource dataSource;
+
+    public SchemaIfMissingInitializer(DataSource dataSource, SqlInitializationProperties properties) {
+        super(dataSource, properties);
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public boolean initializeDatabase() {
+        if (schemaExists()) {
+            logger.info("La tabla users ya existe: se omite la ejecución de schema.sql y data.sql");
+            migrateIfNeeded();
+            createTableIfMissing("user_change_events", "db/migration/create-user-change-events.sql");
+            createTableIfMissing("user_tombstones", "db/migration/create-user-tombstones.sql");
+            createIndexIfMissing("user_statistics", "idx_user_statistics_user", "db/migration/unique-user-statistics.sql");
+            createTableIfMissing("users_archive", "db/migration/create-users-archive.sql");
+            return false;
+        }
+        return super.initializeDatabase();
+    }
+
+    private boolean schemaExists() {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // H2 guarda los identificadores sin comillas en mayúsculas; PostgreSQL en minúsculas
+            return tableExists(metaData, "USERS") || tableExists(metaData, "users");
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo comprobar si existe el esquema", e);
+        }
+    }
+
+    /**
+     * users.department (texto) → department_id/role_id con tablas de consulta.
+     */
+    private void migrateIfNeeded() {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (!columnExists(metaData, "USERS", "DEPARTMENT") && !columnExists(metaData, "users", "department")) {
+                return;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo comprobar la versión del esquema", e);
+        }
+        logger.info("Migrando users.department/role a las tablas de consulta departments/roles");
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/normalize-department-role.sql"))
+                .execute(dataSource);
+    }
+
+    /**
+     * Ejecuta el script de migración si la tabla (en minúsculas) no existe.
+     */
+    private void createTableIfMissing(String table, String script) {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (tableExists(metaData, table.toUpperCase(Locale.ROOT)) || tableExists(metaData, table)) {
+                return;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo comprobar si existe " + table, e);
+        }
+        logger.info("Creando la tabla {}", table);
+        new ResourceDatabasePopulator(new ClassPathResource(script)).execute(dataSource);
+    }
+
+    /**
+     * Ejecuta el script de migración si la tabla no tiene el índice (nombres en minúsculas).
+     */
+    private void createIndexIfMissing(String table, String index, String script) {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            if (indexExists(metaData, table.toUpperCase(Locale.ROOT), index) || indexExists(metaData, table, index)) {
+                return;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo comprobar si existe el índice " + index, e);
+        }
+        logger.info("Creando el índice {} sobre {}", index, table);
+        new ResourceDatabasePopulator(new ClassPathResource(script)).execute(dataSource);
+    }
+
+    private static boolean indexExists(DatabaseMetaData metaData, String table, String index) throws SQLException {
+        try (ResultSet rs = metaData.getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static boolean columnExists(DatabaseMetaData metaData, String table, String column) throws SQLException {
+        try (ResultSet rs = metaData.getColumns(null, null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    private static boolean tableExists(DatabaseMetaData metaData, String table) throws SQLException {
+        try (ResultSet rs = metaData.getTables(null, null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+}
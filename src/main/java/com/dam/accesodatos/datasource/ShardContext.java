@@ -0,0 +1,41 @@
+package com.dam.accesodatos.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard sobre el que trabaja el hilo actual. Lo lee ShardRoutingDataSource.
+ *
+ * IMPORTANTE: Hay que fijarlo ANTES de abrir la transacción; una transacción ya
+ * iniciada mantiene la conexión del shard en el que empezó.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    /**
+     * @return Shard actual o null si no se ha fijado ninguno
+     */
+    public static Integer current() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Ejecuta la acción con el shard indicado y restaura el anterior al terminar.
+     */
+    public static <T> T callOn(int shard, Supplier<T> action) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+}
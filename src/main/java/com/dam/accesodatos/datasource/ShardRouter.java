@@ -0,0 +1,43 @@
+package com.dam.accesodatos.datasource;
+
+import java.util.Objects;
+
+/**
+ * Decide en qué shard vive cada usuario.
+ *
+ * - Por departamento: hash(department) mod N. String.hashCode() está definido por la
+ *   especificación de Java, así que el reparto es estable entre arranques y JVMs.
+ * - Por ID: cada shard genera IDs intercalados (shard k: k+1, k+1+N, k+1+2N, ...),
+ *   por lo que el shard se deduce del propio ID sin consultar ninguna tabla.
+ */
+public class ShardRouter {
+
+    private final int shardCount;
+
+    public ShardRouter(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Se necesita al menos un shard");
+        }
+        this.shardCount = shardCount;
+    }
+
+    public int shardForDepartment(String department) {
+        Objects.requireNonNull(department, "El departamento es obligatorio para elegir shard");
+        return Math.floorMod(department.hashCode(), shardCount);
+    }
+
+    public int shardForId(long id) {
+        return (int) Math.floorMod(id - 1, (long) shardCount);
+    }
+
+    /**
+     * Primer ID que genera un shard vacío. Junto con INCREMENT BY N mantiene shardForId().
+     */
+    public long firstIdOf(int shard) {
+        return shard + 1L;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+}
@@ -0,0 +1,34 @@
+package com.dam.accesodatos.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * DataSource que entrega conexiones del shard fijado en ShardContext.
+ * Sin shard fijado (arranque de Hibernate, consola H2...) usa el shard 0.
+ * close() cierra el pool de cada shard al cerrar el contexto.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public ShardRoutingDataSource(Map<Object, Object> shards) {
+        setTargetDataSources(shards);
+        setDefaultTargetDataSource(shards.get(0));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : getResolvedDataSources().values()) {
+            if (shard instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
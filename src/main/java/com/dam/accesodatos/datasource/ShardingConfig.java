@@ -0,0 +1,84 @@
+package com.dam.accesodatos.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Particionado horizontal de users por departamento entre N bases de datos (opcional).
+ *
+ * Se activa con mcp.sharding.enabled=true (ver application-sharding.yml). Un único
+ * EntityManagerFactory trabaja sobre ShardRoutingDataSource; ShardedHibernateUserService
+ * fija el shard de cada operación y reparte en paralelo las que afectan a todos.
+ *
+ * No es combinable con mcp.datasource.routing (ambos definen el DataSource principal).
+ */
+@Configuration
+@ConditionalOnProperty(name = "mcp.sharding.enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties) {
+        return new ShardRouter(properties.getShards().size());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardingProperties properties, ShardRouter router, Environment environment,
+                                 ObjectProvider<ConnectionPoolMonitor> monitor) {
+        // data.sql inserta IDs fijos y reinicia la identidad: rompería el reparto de IDs
+        if ("always".equalsIgnoreCase(environment.getProperty("spring.sql.init.mode"))) {
+            throw new IllegalStateException("Con mcp.sharding.enabled=true, spring.sql.init.mode debe ser 'never'");
+        }
+
+        Map<Object, Object> shards = new HashMap<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard config = properties.getShards().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setJdbcUrl(config.getUrl());
+            pool.setUsername(config.getUsername());
+            pool.setPassword(config.getPassword());
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("ra3-shard-" + i);
+
+            if (properties.isInitSchema()) {
+                initShard(pool, i, router);
+            }
+            shards.put(i, new InstrumentedDataSource(pool, monitor));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Crea el esquema y configura la identidad de users con IDs intercalados entre shards.
+     */
+    private static void initShard(DataSource shard, int index, ShardRouter router) {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(shard);
+
+        JdbcTemplate jdbc = new JdbcTemplate(shard);
+        jdbc.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH " + router.firstIdOf(index));
+        jdbc.execute("ALTER TABLE users ALTER COLUMN id SET INCREMENT BY " + router.getShardCount());
+
+        logger.info("Shard {} inicializado (IDs {}, {}, ...)", index,
+                router.firstIdOf(index), router.firstIdOf(index) + router.getShardCount());
+    }
+}
@@ -0,0 +1,79 @@
+package com.dam.accesodatos.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración del particionado horizontal por departamento (mcp.sharding.*).
+ */
+@ConfigurationProperties(prefix = "mcp.sharding")
+public class ShardingProperties {
+
+    /** Activa el particionado de la tabla users entre varias bases de datos */
+    private boolean enabled;
+
+    /** Bases de datos (shards). El orden define el índice de cada shard: NO cambiarlo con datos */
+    private List<Shard> shards = new ArrayList<>();
+
+    /** Ejecuta schema.sql en cada shard al arrancar (solo para shards en memoria o vacíos) */
+    private boolean initSchema;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<Shard> shards) {
+        this.shards = shards;
+    }
+
+    public boolean isInitSchema() {
+        return initSchema;
+    }
+
+    public void setInitSchema(boolean initSchema) {
+        this.initSchema = initSchema;
+    }
+
+    /**
+     * Conexión a un shard. El pool usa los mismos ajustes spring.datasource.hikari.*
+     */
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.dam.accesodatos.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuración del almacenamiento persistente (perfil 'persistent').
+ *
+ * Sustituye el inicializador SQL de Spring Boot por SchemaIfMissingInitializer cuando
+ * mcp.storage.skip-init-if-schema-exists=true.
+ */
+@Configuration
+@ConditionalOnProperty(name = "mcp.storage.skip-init-if-schema-exists", havingValue = "true")
+public class StorageConfig {
+
+    @Bean
+    public SchemaIfMissingInitializer dataSourceScriptDatabaseInitializer(DataSource dataSource,
+                                                                          SqlInitializationProperties properties) {
+        return new SchemaIfMissingInitializer(dataSource, properties);
+    }
+}
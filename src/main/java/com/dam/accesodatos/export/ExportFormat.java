@@ -0,0 +1,57 @@
+package com.dam.accesodatos.export;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Formatos de export_users.
+ *
+ * - CSV: una cabecera y una línea por usuario (campos con coma, comillas o saltos entre comillas)
+ * - JSONL: un objeto JSON por línea, igual que el usuario en las respuestas de las herramientas
+ */
+public enum ExportFormat {
+
+    CSV("csv", "text/csv", "id,name,email,department,role,active,createdAt,updatedAt,version\n"),
+    JSONL("jsonl", "application/x-ndjson", "");
+
+    private final String extension;
+    private final String contentType;
+    private final byte[] header;
+
+    ExportFormat(String extension, String contentType, String header) {
+        this.extension = extension;
+        this.contentType = contentType;
+        this.header = header.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param value "csv" o "jsonl" (sin distinguir mayúsculas); null = CSV
+     */
+    public static ExportFormat from(String value) {
+        if (value == null || value.isBlank()) {
+            return CSV;
+        }
+        for (ExportFormat format : values()) {
+            if (format.extension.equals(value.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Formato de exportación no soportado: " + value + " (csv o jsonl)");
+    }
+
+    public static ExportFormat fromFileName(String fileName) {
+        return from(fileName.substring(fileName.lastIndexOf('.') + 1));
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    byte[] header() {
+        return header;
+    }
+}
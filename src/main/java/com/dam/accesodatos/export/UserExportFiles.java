@@ -0,0 +1,174 @@
+package com.dam.accesodatos.export;
+
+import com.dam.accesodatos.model.UserExportDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Ficheros de export_users (mcp.export.*).
+ *
+ * Cada exportación crea un fichero con nombre aleatorio en mcp.export.directory;
+ * el cliente lo descarga después con GET /mcp/exports/{fileName}. Los ficheros se
+ * borran pasados retention-minutes.
+ *
+ * Solo se sirven nombres generados aquí (users-UUID.csv|jsonl), así una petición
+ * de descarga no puede salir del directorio ("../", rutas absolutas...).
+ */
+@Component
+public class UserExportFiles {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportFiles.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("users-[0-9a-f\\-]{36}\\.(csv|jsonl)");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.export.directory:${java.io.tmpdir}/mcp-exports}")
+    private String directory;
+
+    @Value("${mcp.export.buffer-size-kb:64}")
+    private int bufferSizeKb;
+
+    @Value("${mcp.export.retention-minutes:60}")
+    private long retentionMinutes;
+
+    /**
+     * Crea un fichero vacío y abre su writer (con la cabecera ya escrita).
+     */
+    public UserExportWriter create(ExportFormat format) throws IOException {
+        Path file = newFile(format);
+        UserExportWriter writer = new UserExportWriter(file,
+                FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                format, objectMapper, bufferSizeKb * 1024);
+        writer.writeHeader();
+        return writer;
+    }
+
+    /**
+     * Une varias exportaciones (p. ej. una por shard) en un solo fichero.
+     *
+     * Cada parte se copia con FileChannel.transferTo: la copia la hace el sistema
+     * operativo, sin pasar los datos por el heap. La cabecera CSV solo se conserva una vez.
+     * Las partes se borran al terminar.
+     */
+    public UserExportDto concat(List<UserExportDto> parts, ExportFormat format, long startNanos) {
+        try {
+            Path target = newFile(format);
+            long headerLength = format.header().length;
+            long rows = 0;
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.wrap(format.header()));
+                for (UserExportDto part : parts) {
+                    Path source = resolve(part.getFileName());
+                    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                        transferFully(in, headerLength, in.size() - headerLength, out);
+                    }
+                    rows += part.getRowCount();
+                }
+            }
+            for (UserExportDto part : parts) {
+                Files.deleteIfExists(resolve(part.getFileName()));
+            }
+            return describe(target, format, rows, startNanos);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error uniendo las partes de la exportación", e);
+        }
+    }
+
+    /**
+     * Ruta de un fichero de exportación existente.
+     *
+     * @throws IllegalArgumentException si el nombre no es de una exportación
+     * @throws NoSuchFileException si ya no existe (p. ej. caducado)
+     */
+    public Path resolve(String fileName) throws NoSuchFileException {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("Nombre de exportación no válido: " + fileName);
+        }
+        Path file = directory().resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(fileName);
+        }
+        return file;
+    }
+
+    public UserExportDto describe(Path file, ExportFormat format, long rows, long startNanos) throws IOException {
+        return new UserExportDto(file.getFileName().toString(), format.getExtension(), rows,
+                Files.size(file), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Borra un fichero a medio escribir (exportación fallida).
+     */
+    public void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar la exportación incompleta {}", file, e);
+        }
+    }
+
+    /**
+     * Borra las exportaciones con más de retention-minutes.
+     */
+    @Scheduled(fixedDelayString = "${mcp.export.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Path dir = directory();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        Instant limit = Instant.now().minusSeconds(retentionMinutes * 60);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "users-*")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(limit)) {
+                    Files.deleteIfExists(file);
+                    logger.debug("Exportación caducada borrada: {}", file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Error purgando exportaciones en {}", dir, e);
+        }
+    }
+
+    /**
+     * transferTo puede copiar menos bytes de los pedidos: se repite hasta completar.
+     */
+    public static void transferFully(FileChannel in, long position, long count, WritableByteChannel out)
+            throws IOException {
+        long end = position + count;
+        while (position < end) {
+            position += in.transferTo(position, end - position, out);
+        }
+    }
+
+    private Path newFile(ExportFormat format) throws IOException {
+        Path dir = Files.createDirectories(directory());
+        return Files.createFile(dir.resolve("users-" + UUID.randomUUID() + "." + format.getExtension()));
+    }
+
+    private Path directory() {
+        return Paths.get(directory).toAbsolutePath().normalize();
+    }
+}
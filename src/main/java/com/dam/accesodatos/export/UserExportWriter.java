@@ -0,0 +1,158 @@
+package com.dam.accesodatos.export;
+
+import com.dam.accesodatos.model.ArchivedUser;
+import com.dam.accesodatos.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Escribe usuarios en un fichero de exportación a través de un FileChannel.
+ *
+ * Las líneas se acumulan en un ByteBuffer directo y se escriben al llenarse:
+ * una llamada write() por bloque (buffer-size-kb), no por usuario. La memoria
+ * usada es la del buffer, sea cual sea el número de filas.
+ *
+ * No es thread-safe: cada exportación usa su propio writer.
+ */
+public class UserExportWriter implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ExportFormat format;
+    private final ObjectMapper objectMapper;
+    private final ByteBuffer buffer;
+    private final StringBuilder line = new StringBuilder(256);
+    private long rowCount;
+
+    UserExportWriter(Path file, FileChannel channel, ExportFormat format, ObjectMapper objectMapper, int bufferSize) {
+        this.file = file;
+        this.channel = channel;
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    void writeHeader() throws IOException {
+        put(format.header());
+    }
+
+    public void write(User user) throws IOException {
+        byte[] bytes = format == ExportFormat.CSV
+                ? csvLine(user.getId(), user.getName(), user.getEmail(), user.getDepartment(), user.getRole(),
+                        user.getActive(), user.getCreatedAt(), user.getUpdatedAt(), user.getVersion())
+                : jsonLine(user);
+        put(bytes);
+        rowCount++;
+    }
+
+    /**
+     * Usuario de users_archive (includeArchived): en CSV las mismas columnas; en JSON
+     * Lines además loginCount, lastLogin y archivedAt.
+     */
+    public void write(ArchivedUser user) throws IOException {
+        byte[] bytes = format == ExportFormat.CSV
+                ? csvLine(user.getId(), user.getName(), user.getEmail(), user.getDepartment(), user.getRole(),
+                        user.getActive(), user.getCreatedAt(), user.getUpdatedAt(), user.getVersion())
+                : jsonLine(user);
+        put(bytes);
+        rowCount++;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Vacía el buffer y cierra el fichero.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > buffer.capacity()) {
+            // Línea mayor que el buffer: se escribe directamente
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private byte[] jsonLine(Object user) throws IOException {
+        line.setLength(0);
+        line.append(objectMapper.writeValueAsString(user)).append('\n');
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] csvLine(Long id, String name, String email, String department, String role, Boolean active,
+                           LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+        line.setLength(0);
+        line.append(id).append(',');
+        appendCsv(name).append(',');
+        appendCsv(email).append(',');
+        appendCsv(department).append(',');
+        appendCsv(role).append(',');
+        line.append(active != null ? active : "").append(',');
+        line.append(createdAt != null ? createdAt : "").append(',');
+        line.append(updatedAt != null ? updatedAt : "").append(',');
+        line.append(version != null ? version : "").append('\n');
+        return line.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * RFC 4180: entre comillas si contiene coma, comillas o salto de línea; las comillas se duplican.
+     */
+    private StringBuilder appendCsv(String value) {
+        if (value == null) {
+            return line;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+}
@@ -0,0 +1,196 @@
+package com.dam.accesodatos.mcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Límite adaptativo de peticiones MCP simultáneas (algoritmo de gradiente).
+ *
+ * Sin límite, cuando H2 se ralentiza las peticiones se acumulan en Tomcat y la
+ * latencia crece para todos. Este limitador mide la latencia de cada petición y
+ * ajusta cuántas pueden ejecutarse a la vez:
+ * - rttNoLoad: latencia de referencia (sin cola). Sigue al mínimo observado y sube
+ *   despacio si la carga cambia de forma duradera.
+ * - shortRtt: latencia media de la última ventana.
+ * - gradiente = tolerance · rttNoLoad / shortRtt, acotado a [0.5, 1]. Si la latencia
+ *   crece por encima de la referencia, el límite baja proporcionalmente.
+ * - nuevo límite = límite · gradiente + √límite (margen para seguir sondeando).
+ *
+ * Lo que supera el límite se rechaza AL INSTANTE (429) en lugar de esperar en cola:
+ * los clientes reintentan más tarde y la latencia de las peticiones admitidas se mantiene.
+ *
+ * HERRAMIENTAS EXCLUIDAS (excluded-tools): export_users e import_users tardan segundos
+ * por diseño. Con un único límite global, una sola exportación dispararía shortRtt, el
+ * gradiente caería a 0.5 y el límite bajaría al mínimo, rechazando herramientas de
+ * milisegundos sin motivo. Las excluidas no ocupan plaza ni aportan latencia.
+ *
+ * Desactivado por defecto (mcp.concurrency-limit.enabled).
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int windowMinSamples;
+    private final long windowNanos;
+    private final Set<String> excludedTools;
+
+    private volatile double limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    // Ventana actual (protegida por 'this')
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInflight;
+    private volatile double rttNoLoadNanos;
+    private volatile double lastShortRttNanos;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Map<String, LongAdder> rejectedByTool = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(
+            @Value("${mcp.concurrency-limit.enabled:false}") boolean enabled,
+            @Value("${mcp.concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${mcp.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${mcp.concurrency-limit.max-limit:200}") int maxLimit,
+            @Value("${mcp.concurrency-limit.tolerance:2.0}") double tolerance,
+            @Value("${mcp.concurrency-limit.smoothing:0.2}") double smoothing,
+            @Value("${mcp.concurrency-limit.window-min-samples:10}") int windowMinSamples,
+            @Value("${mcp.concurrency-limit.window-ms:100}") long windowMs,
+            @Value("${mcp.concurrency-limit.excluded-tools:export_users,import_users}") Set<String> excludedTools) {
+        this.enabled = enabled;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowMinSamples = windowMinSamples;
+        this.windowNanos = windowMs * 1_000_000;
+        this.excludedTools = Set.copyOf(excludedTools);
+    }
+
+    /**
+     * Intenta admitir una petición.
+     *
+     * @return true si se admite; el llamante DEBE llamar a release() al terminar
+     */
+    public boolean tryAcquire(String tool) {
+        if (excludedTools.contains(tool)) {
+            return true;
+        }
+        while (true) {
+            int current = inflight.get();
+            if (enabled && current >= (int) limit) {
+                rejected.increment();
+                rejectedByTool.computeIfAbsent(tool, t -> new LongAdder()).increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libera la plaza y registra la latencia observada.
+     */
+    public void release(String tool, long rttNanos) {
+        if (excludedTools.contains(tool)) {
+            return;
+        }
+        int inflightBefore = inflight.getAndDecrement();
+        synchronized (this) {
+            windowRttSum += rttNanos;
+            windowSamples++;
+            windowMaxInflight = Math.max(windowMaxInflight, inflightBefore);
+
+            long now = System.nanoTime();
+            if (windowSamples < windowMinSamples || now - windowStart < windowNanos) {
+                return;
+            }
+
+            double shortRtt = (double) windowRttSum / windowSamples;
+            rttNoLoadNanos = rttNoLoadNanos == 0 || shortRtt < rttNoLoadNanos
+                    ? shortRtt
+                    : rttNoLoadNanos + 0.05 * (shortRtt - rttNoLoadNanos);
+            lastShortRttNanos = shortRtt;
+
+            double newLimit = computeNewLimit(limit, rttNoLoadNanos, shortRtt, windowMaxInflight,
+                    tolerance, smoothing, minLimit, maxLimit);
+            if ((int) newLimit != (int) limit) {
+                logger.debug("Límite de concurrencia MCP {} → {} (rtt {} ms, referencia {} ms)",
+                        (int) limit, (int) newLimit,
+                        String.format("%.2f", shortRtt / 1e6), String.format("%.2f", rttNoLoadNanos / 1e6));
+            }
+            limit = newLimit;
+
+            windowStart = now;
+            windowRttSum = 0;
+            windowSamples = 0;
+            windowMaxInflight = 0;
+        }
+    }
+
+    /**
+     * Calcula el nuevo límite. Sin estado, para poder probarlo de forma aislada.
+     *
+     * @param maxInflight Máximo de peticiones simultáneas en la ventana: si no se llegó
+     *                    ni a la mitad del límite, la carga no lo pone a prueba y no se sube
+     */
+    static double computeNewLimit(double limit, double rttNoLoad, double shortRtt, int maxInflight,
+                                  double tolerance, double smoothing, int minLimit, int maxLimit) {
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * rttNoLoad / shortRtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        if (target > limit && maxInflight < limit / 2) {
+            return limit;
+        }
+        double smoothed = limit * (1 - smoothing) + target * smoothing;
+        return Math.max(minLimit, Math.min(maxLimit, smoothed));
+    }
+
+    /**
+     * Espera sugerida antes de reintentar: lo que tarda en vaciarse la cola actual.
+     */
+    public long retryAfterMs() {
+        double rttMs = lastShortRttNanos / 1e6;
+        return Math.max(50, Math.round(rttMs * 2));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("limit", getLimit());
+        stats.put("inflight", inflight.get());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        Map<String, Long> byTool = new LinkedHashMap<>();
+        rejectedByTool.forEach((tool, count) -> byTool.put(tool, count.sum()));
+        stats.put("rejectedByTool", byTool);
+        stats.put("rttMs", lastShortRttNanos / 1e6);
+        stats.put("rttNoLoadMs", rttNoLoadNanos / 1e6);
+        stats.put("retryAfterMs", retryAfterMs());
+        stats.put("excludedTools", excludedTools);
+        return stats;
+    }
+}
@@ -0,0 +1,67 @@
+package com.dam.accesodatos.mcp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Interceptor que aplica AdaptiveConcurrencyLimiter a las herramientas MCP.
+ *
+ * Si no hay plaza responde inmediatamente 429 con el mismo formato de error que
+ * McpServerController ("status": "overloaded") más una pista de reintento, tanto en
+ * la cabecera estándar Retry-After (segundos) como en "retryAfterMs".
+ */
+@Component
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        String tool = McpToolContextInterceptor.toolName(request);
+        if (limiter.tryAcquire(tool)) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            return true;
+        }
+
+        long retryAfterMs = limiter.retryAfterMs();
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", "Servidor sobrecargado: reintentar en " + retryAfterMs + " ms");
+        error.put("tool", tool);
+        error.put("status", "overloaded");
+        error.put("retryAfterMs", retryAfterMs);
+
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (retryAfterMs + 999) / 1000)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), error);
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            request.removeAttribute(START_ATTRIBUTE);
+            limiter.release(McpToolContextInterceptor.toolName(request), System.nanoTime() - (Long) start);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.dam.accesodatos.mcp;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plazos de las peticiones MCP (mcp.deadline.*).
+ */
+@ConfigurationProperties(prefix = "mcp.deadline")
+public class DeadlineProperties {
+
+    /** Plazo de las herramientas sin valor propio en 'tools' */
+    private long defaultMs = 10000;
+
+    /** Tope para los plazos que pide el cliente */
+    private long maxMs = 60000;
+
+    /** Cada cuánto revisa DeadlineWatchdog los plazos vencidos */
+    private long watchdogIntervalMs = 100;
+
+    /** Plazo por defecto por herramienta: find_all_users: 5000 */
+    private Map<String, Long> tools = new HashMap<>();
+
+    /**
+     * Plazo efectivo: el pedido por el cliente (acotado a maxMs) o el de la herramienta.
+     */
+    public long resolve(String tool, Long requestedMs) {
+        if (requestedMs != null && requestedMs > 0) {
+            return Math.min(requestedMs, maxMs);
+        }
+        return tools.getOrDefault(tool, defaultMs);
+    }
+
+    public long getDefaultMs() {
+        return defaultMs;
+    }
+
+    public void setDefaultMs(long defaultMs) {
+        this.defaultMs = defaultMs;
+    }
+
+    public long getMaxMs() {
+        return maxMs;
+    }
+
+    public void setMaxMs(long maxMs) {
+        this.maxMs = maxMs;
+    }
+
+    public long getWatchdogIntervalMs() {
+        return watchdogIntervalMs;
+    }
+
+    public void setWatchdogIntervalMs(long watchdogIntervalMs) {
+        this.watchdogIntervalMs = watchdogIntervalMs;
+    }
+
+    public Map<String, Long> getTools() {
+        return tools;
+    }
+
+    public void setTools(Map<String, Long> tools) {
+        this.tools = tools;
+    }
+}
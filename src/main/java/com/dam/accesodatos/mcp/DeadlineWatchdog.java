@@ -0,0 +1,37 @@
+package com.dam.accesodatos.mcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cancela las sentencias JDBC de las peticiones MCP cuyo plazo ha vencido.
+ *
+ * El query timeout del driver va en segundos enteros y no cubre todas las sentencias
+ * (por ejemplo, las que se abren antes de conocer el timeout de la transacción). El
+ * watchdog llama a Statement.cancel() en cuanto vence el plazo, con la resolución
+ * de mcp.deadline.watchdog-interval-ms.
+ *
+ * NOTA: la API de Servlet no avisa cuando el cliente cierra la conexión hasta que se
+ * escribe la respuesta. El plazo es la forma de acotar el trabajo de un cliente que
+ * ya no espera: debe enviarlo igual a su propio timeout.
+ */
+@Component
+public class DeadlineWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineWatchdog.class);
+
+    @Scheduled(fixedDelayString = "${mcp.deadline.watchdog-interval-ms:100}")
+    public void cancelExpired() {
+        long now = System.nanoTime();
+        for (McpDeadline deadline : McpDeadline.active()) {
+            if (deadline.isPastDeadline(now)) {
+                int cancelled = deadline.cancelStatements();
+                if (cancelled > 0) {
+                    logger.warn("Plazo agotado en {}: {} sentencia(s) cancelada(s)", deadline.getTool(), cancelled);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.dam.accesodatos.mcp;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Formatos binarios de Jackson en las herramientas /mcp: CBOR y Smile.
+ *
+ * Las respuestas de lista (find_all_users...) son JSON grandes y muy repetitivos: los
+ * mismos nombres de campo en cada usuario, fechas y números como texto. CBOR y Smile
+ * codifican el mismo modelo de datos en binario (números y longitudes en binario, sin
+ * comillas ni escapes; Smile además reutiliza los nombres de campo repetidos), así que
+ * ocupan menos y se codifican/decodifican con menos CPU.
+ *
+ * Negociación de contenido estándar de HTTP:
+ * - Accept: application/cbor o application/x-jackson-smile → respuesta en ese formato
+ * - Content-Type: application/cbor o application/x-jackson-smile → cuerpo de la petición
+ * - Sin cabeceras (o con application/json) → JSON como hasta ahora
+ *
+ * Los ObjectMapper se construyen con el Jackson2ObjectMapperBuilder de Spring Boot:
+ * misma configuración spring.jackson.* que el JSON (fechas ISO-8601, propiedades
+ * desconocidas ignoradas...). Sirven tanto a Spring MVC (HttpMessageConverter) como
+ * al perfil 'reactive' (codecs de WebFlux).
+ */
+@Configuration
+public class McpBinaryFormatsConfig {
+
+    /**
+     * Spring Boot añade los HttpMessageConverter declarados como bean a los de Spring MVC,
+     * en el lugar del converter por defecto del mismo tipo.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Mismos formatos en WebFlux. El encoder CBOR no admite Flux: el streaming NDJSON
+     * sigue siendo JSON, las respuestas completas sí se pueden pedir en CBOR.
+     */
+    @Bean
+    public CodecCustomizer binaryFormatsCodecCustomizer(MappingJackson2CborHttpMessageConverter cbor,
+                                                        MappingJackson2SmileHttpMessageConverter smile) {
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smile.getObjectMapper()));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smile.getObjectMapper()));
+            configurer.customCodecs().register(new Jackson2CborEncoder(cbor.getObjectMapper()));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cbor.getObjectMapper()));
+        };
+    }
+}
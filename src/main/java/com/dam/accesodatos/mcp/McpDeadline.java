@@ -0,0 +1,181 @@
+package com.dam.accesodatos.mcp;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Plazo (deadline) de la petición MCP que se ejecuta en el hilo actual.
+ *
+ * Lo fija McpDeadlineInterceptor al recibir la petición y lo usan:
+ * - DeadlineAwareJpaTransactionManager: timeout de la transacción = tiempo restante.
+ *   Spring lo aplica como hint jakarta.persistence.query.timeout a cada consulta JPA
+ *   y como query timeout a las sentencias de JdbcTemplate.
+ * - InstrumentedDataSource: registra aquí las sentencias JDBC que se abren, para que
+ *   DeadlineWatchdog pueda cancelarlas (Statement.cancel()) al vencer el plazo.
+ *
+ * Así una consulta patológica libera su conexión al agotar el plazo en lugar de
+ * retenerla indefinidamente.
+ */
+public final class McpDeadline {
+
+    private static final ThreadLocal<McpDeadline> CURRENT = new ThreadLocal<>();
+    private static final Set<McpDeadline> ACTIVE = ConcurrentHashMap.newKeySet();
+
+    private final String tool;
+    private volatile long deadlineNanos;
+    private volatile boolean explicit;
+    private volatile boolean cancelled;
+    private final Queue<Statement> statements = new ConcurrentLinkedQueue<>();
+
+    private McpDeadline(String tool, long timeoutMs, boolean explicit) {
+        this.tool = tool;
+        this.deadlineNanos = System.nanoTime() + timeoutMs * 1_000_000;
+        this.explicit = explicit;
+    }
+
+    /**
+     * Inicia el plazo de la petición actual.
+     *
+     * @param explicit true si lo indicó el cliente; false si es el valor por defecto de la herramienta
+     */
+    public static void start(String tool, long timeoutMs, boolean explicit) {
+        McpDeadline deadline = new McpDeadline(tool, timeoutMs, explicit);
+        CURRENT.set(deadline);
+        ACTIVE.add(deadline);
+    }
+
+    /**
+     * Aplica un plazo indicado por el cliente en el cuerpo de la petición. Sustituye al
+     * valor por defecto; si ya había uno explícito (cabecera), gana el más corto.
+     */
+    public static void override(long timeoutMs) {
+        McpDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return;
+        }
+        long requested = System.nanoTime() + timeoutMs * 1_000_000;
+        if (!deadline.explicit || requested < deadline.deadlineNanos) {
+            deadline.deadlineNanos = requested;
+        }
+        deadline.explicit = true;
+    }
+
+    /**
+     * @return Plazo del hilo actual o null (para propagarlo a otros hilos con attach())
+     */
+    public static McpDeadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Asocia al hilo actual el plazo de otro hilo (p. ej. consultas scatter-gather).
+     * Se deshace con detach(); el plazo sigue siendo del hilo que lo creó.
+     */
+    public static void attach(McpDeadline deadline) {
+        if (deadline != null) {
+            CURRENT.set(deadline);
+        }
+    }
+
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    public static void clear() {
+        McpDeadline deadline = CURRENT.get();
+        if (deadline != null) {
+            ACTIVE.remove(deadline);
+            deadline.statements.clear();
+        }
+        CURRENT.remove();
+    }
+
+    /**
+     * @return Milisegundos restantes, o Long.MAX_VALUE si el hilo no tiene plazo
+     */
+    public static long remainingMillis() {
+        McpDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return (deadline.deadlineNanos - System.nanoTime()) / 1_000_000;
+    }
+
+    /**
+     * @return true si el hilo actual tiene plazo y ya ha vencido
+     */
+    public static boolean isExpired() {
+        McpDeadline deadline = CURRENT.get();
+        return deadline != null && deadline.hasExpired();
+    }
+
+    /**
+     * @return true si este plazo ya ha vencido (para quien lo ha desasociado de su hilo)
+     */
+    public boolean hasExpired() {
+        return cancelled || isPastDeadline(System.nanoTime());
+    }
+
+    /**
+     * Registra una sentencia JDBC recién creada y le aplica el tiempo restante como
+     * query timeout (en segundos, redondeando hacia arriba).
+     */
+    public static void onStatementCreated(Statement statement) {
+        McpDeadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return;
+        }
+        deadline.statements.add(statement);
+        try {
+            long remainingMs = Math.max(1, remainingMillis());
+            statement.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (remainingMs + 999) / 1000));
+        } catch (SQLException e) {
+            // El driver no admite timeout: queda la cancelación del watchdog
+        }
+    }
+
+    /**
+     * Plazos vivos, para DeadlineWatchdog.
+     */
+    static Collection<McpDeadline> active() {
+        return Collections.unmodifiableSet(ACTIVE);
+    }
+
+    boolean isPastDeadline(long nowNanos) {
+        return nowNanos - deadlineNanos >= 0;
+    }
+
+    /**
+     * Cancela las sentencias abiertas de esta petición (solo la primera vez).
+     *
+     * @return Número de sentencias canceladas
+     */
+    int cancelStatements() {
+        if (cancelled) {
+            return 0;
+        }
+        cancelled = true;
+        int count = 0;
+        for (Statement statement : statements) {
+            try {
+                if (!statement.isClosed()) {
+                    statement.cancel();
+                    count++;
+                }
+            } catch (SQLException e) {
+                // Ya terminada o cerrada: nada que cancelar
+            }
+        }
+        return count;
+    }
+
+    String getTool() {
+        return tool;
+    }
+}
@@ -0,0 +1,52 @@
+package com.dam.accesodatos.mcp;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Lee el parámetro MCP "timeoutMs" del cuerpo JSON de las herramientas.
+ *
+ * Los endpoints de McpServerController reciben el cuerpo como Map, así que basta con
+ * inspeccionarlo tras deserializarlo, sin tocar cada endpoint.
+ */
+@ControllerAdvice(assignableTypes = McpServerController.class)
+public class McpDeadlineBodyAdvice extends RequestBodyAdviceAdapter {
+
+    @Autowired
+    private DeadlineProperties properties;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return Map.class.isAssignableFrom(methodParameter.getParameterType());
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (body instanceof Map<?, ?> map) {
+            Object timeout = map.get(McpDeadlineInterceptor.TIMEOUT_PARAM);
+            Long requested = null;
+            if (timeout instanceof Number number) {
+                requested = number.longValue();
+            } else if (timeout instanceof String text && !text.isBlank()) {
+                try {
+                    requested = Long.parseLong(text.trim());
+                } catch (NumberFormatException e) {
+                    // Valor no numérico: se ignora y se mantiene el plazo actual
+                }
+            }
+            if (requested != null && requested > 0) {
+                McpDeadline.override(Math.min(requested, properties.getMaxMs()));
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,54 @@
+package com.dam.accesodatos.mcp;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Interceptor que fija el plazo (McpDeadline) de cada petición MCP.
+ *
+ * El cliente puede indicarlo en milisegundos con:
+ * - Cabecera X-MCP-Timeout-Ms
+ * - Parámetro de URL timeoutMs
+ * - Campo "timeoutMs" del cuerpo JSON (lo aplica McpDeadlineBodyAdvice)
+ * Si no lo indica, se usa el plazo por defecto de la herramienta (mcp.deadline.tools).
+ */
+@Component
+public class McpDeadlineInterceptor implements HandlerInterceptor {
+
+    public static final String TIMEOUT_HEADER = "X-MCP-Timeout-Ms";
+    public static final String TIMEOUT_PARAM = "timeoutMs";
+
+    @Autowired
+    private DeadlineProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String tool = McpToolContextInterceptor.toolName(request);
+        Long requested = parse(request.getHeader(TIMEOUT_HEADER));
+        if (requested == null) {
+            requested = parse(request.getParameter(TIMEOUT_PARAM));
+        }
+        McpDeadline.start(tool, properties.resolve(tool, requested), requested != null);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        McpDeadline.clear();
+    }
+
+    private static Long parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -2,16 +2,47 @@ package com.dam.accesodatos.mcp;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import com.dam.accesodatos.cdc.UserChangeStreamService;
+import com.dam.accesodatos.datasource.ConnectionPoolMonitor;
+import com.dam.accesodatos.export.ExportFormat;
+import com.dam.accesodatos.export.UserExportFiles;
+import com.dam.accesodatos.ra3.GroupCommitUserCreator;
 import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.ra3.OptimisticUpdateExecutor;
+import com.dam.accesodatos.snapshot.UserSnapshotService;
+import com.dam.accesodatos.model.ActiveUserDto;
 import com.dam.accesodatos.model.User;
 import com.dam.accesodatos.model.UserCreateDto;
-
+import com.dam.accesodatos.model.UserDeltaDto;
+import com.dam.accesodatos.model.UserExportFilterDto;
+import com.dam.accesodatos.model.UserImportResultDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Controlador REST que expone las herramientas MCP via HTTP para operaciones Hibernate/JPA.
@@ -24,20 +55,59 @@ import java.util.Map;
  * - Listar herramientas Hibernate/JPA disponibles
  * - Ejecutar operaciones ORM específicas
  * - Obtener información sobre el servidor MCP
+ *
+ * Las lecturas que combinan snapshot, caché o users_archive las compone
+ * McpUserReadService, compartido con el transporte WebSocket (McpWebSocketHandler).
+ *
+ * Con el perfil 'reactive' las mismas rutas las sirve ReactiveMcpRouter (WebFlux).
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/mcp")
 @CrossOrigin(origins = "*")
 public class McpServerController {
 
     private static final Logger logger = LoggerFactory.getLogger(McpServerController.class);
 
+    // Atributos de Tomcat para enviar un fichero con sendfile (los mismos que usa su DefaultServlet)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private HibernateUserService hibernateUserService;  // ← CAMBIO: HibernateUserService en lugar de DatabaseUserService
 
     @Autowired
     private McpToolRegistry toolRegistry;
 
+    @Autowired
+    private OptimisticUpdateExecutor optimisticUpdateExecutor;
+
+    @Autowired
+    private GroupCommitUserCreator groupCommitUserCreator;
+
+    @Autowired
+    private ConnectionPoolMonitor connectionPoolMonitor;
+
+    @Autowired
+    private UserChangeStreamService userChangeStreamService;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private UserExportFiles userExportFiles;
+
+    @Autowired
+    private McpUserReadService userReads;
+
+    @Autowired
+    private McpWebSocketHandler mcpWebSocketHandler;
+
+    @Autowired
+    private ObjectProvider<UserSnapshotService> userSnapshot;  // Solo con mcp.snapshot.enabled=true
+
     /**
      * Endpoint de health check
      */
@@ -77,6 +147,73 @@ public class McpServerController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Endpoint de métricas del pool de conexiones (espera, uso y fugas por herramienta)
+     */
+    @GetMapping("/pool_stats")
+    public ResponseEntity<Map<String, Object>> getPoolStats() {
+        return ResponseEntity.ok(connectionPoolMonitor.snapshot());
+    }
+
+    /**
+     * Endpoint de métricas del límite de concurrencia (límite actual, rechazos, latencias)
+     */
+    @GetMapping("/concurrency_stats")
+    public ResponseEntity<Map<String, Object>> getConcurrencyStats() {
+        return ResponseEntity.ok(concurrencyLimiter.snapshot());
+    }
+
+    /**
+     * Endpoint de estado del transporte WebSocket /mcp/ws (conexiones, llamadas en curso)
+     */
+    @GetMapping("/ws_stats")
+    public ResponseEntity<Map<String, Object>> getWebSocketStats() {
+        return ResponseEntity.ok(mcpWebSocketHandler.snapshot());
+    }
+
+    /**
+     * Endpoint de estado del snapshot en memoria de usuarios (filas, último offset aplicado)
+     */
+    @GetMapping("/snapshot_stats")
+    public ResponseEntity<Map<String, Object>> getSnapshotStats() {
+        UserSnapshotService snapshot = userSnapshot.getIfAvailable();
+        if (snapshot == null) {
+            return ResponseEntity.ok(Map.of("enabled", false));
+        }
+        Map<String, Object> stats = new HashMap<>(snapshot.snapshot());
+        stats.put("enabled", true);
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Flujo SSE de cambios de usuarios (CREATE, UPDATE, DELETE, BULK_*) por offset creciente.
+     *
+     * Una transacción que confirma más de mcp.cdc.gap-timeout-ms después que otras
+     * posteriores se entrega al confirmar, fuera de orden y marcada con "late": true.
+     * Cada evento lleva como id el estado de reanudación (su offset y los offsets que aún
+     * se esperan). Para reanudar tras una desconexión el cliente envía la cabecera
+     * Last-Event-ID (EventSource lo hace solo) o el parámetro fromOffset.
+     * Sin ninguno de los dos, solo se reciben los cambios posteriores a la suscripción.
+     */
+    @GetMapping(value = "/subscribe_user_changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeUserChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(value = "fromOffset", required = false) Long fromOffset) {
+        logger.debug("Nueva suscripción a cambios de usuarios");
+
+        try {
+            String resumeFrom = lastEventId != null ? lastEventId
+                    : fromOffset != null ? String.valueOf(fromOffset) : null;
+            return ResponseEntity.ok(userChangeStreamService.subscribe(resumeFrom));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Suscripción rechazada: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            logger.warn("Suscripción rechazada: {}", e.getMessage());
+            return ResponseEntity.status(503).build();
+        }
+    }
+
     // ========== HIBERNATE/JPA OPERATION ENDPOINTS ==========
 
     /**
@@ -103,12 +240,15 @@ public class McpServerController {
             error.put("tool", "test_entity_manager");
             error.put("status", "error");
 
-            return ResponseEntity.status(500).body(error);
+            return errorResponse(error);
         }
     }
 
     /**
      * Crea un nuevo usuario usando persist()
+     *
+     * Con mcp.create-user.group-commit.enabled las altas concurrentes se agrupan
+     * en una sola transacción (ver GroupCommitUserCreator).
      */
     @PostMapping("/create_user")
     public ResponseEntity<Map<String, Object>> createUser(@RequestBody Map<String, String> request) {
@@ -121,7 +261,7 @@ public class McpServerController {
             String role = request.get("role");
 
             UserCreateDto dto = new UserCreateDto(name, email, department, role);
-            User user = hibernateUserService.createUser(dto);
+            User user = groupCommitUserCreator.createUser(dto);
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "create_user");
@@ -137,12 +277,15 @@ public class McpServerController {
             error.put("tool", "create_user");
             error.put("status", "error");
 
-            return ResponseEntity.status(500).body(error);
+            return errorResponse(error);
         }
     }
 
     /**
      * Busca un usuario por ID usando find()
+     *
+     * Con "includeArchived": true, si no está en users se busca en users_archive
+     * (la respuesta lleva "archived": true).
      */
     @PostMapping("/find_user_by_id")
     public ResponseEntity<Map<String, Object>> findUserById(@RequestBody Map<String, Object> request) {
@@ -150,11 +293,10 @@ public class McpServerController {
 
         try {
             Long userId = ((Number) request.get("userId")).longValue();
-            User user = hibernateUserService.findUserById(userId);
 
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "find_user_by_id");
-            response.put("result", user);
+            response.putAll(userReads.findUserById(userId, includeArchived(request)));
             response.put("status", "success");
 
             return ResponseEntity.ok(response);
@@ -166,24 +308,109 @@ public class McpServerController {
             error.put("tool", "find_user_by_id");
             error.put("status", "error");
 
-            return ResponseEntity.status(500).body(error);
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Busca varios usuarios por ID en lotes usando Session.byMultipleIds()
+     *
+     * Con "includeArchived": true, los IDs que no están en users se buscan en
+     * users_archive y se devuelven aparte en "archived".
+     */
+    @PostMapping("/find_users_by_ids")
+    public ResponseEntity<Map<String, Object>> findUsersByIds(@RequestBody Map<String, Object> request) {
+        logger.debug("Buscando usuarios por lista de IDs");
+
+        try {
+            List<?> rawIds = (List<?>) request.get("userIds");
+            List<Long> userIds = rawIds.stream()
+                    .map(id -> ((Number) id).longValue())
+                    .collect(Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "find_users_by_ids");
+            response.putAll(userReads.findUsersByIds(userIds, includeArchived(request)));
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error buscando usuarios por IDs", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error buscando usuarios por IDs: " + e.getMessage());
+            error.put("tool", "find_users_by_ids");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Actualiza un usuario usando merge() con bloqueo optimista (@Version)
+     *
+     * Si se envía "expectedVersion" la actualización es condicional y un conflicto
+     * devuelve 409. Sin ella, los conflictos se reintentan de forma acotada.
+     */
+    @PostMapping("/update_user")
+    public ResponseEntity<Map<String, Object>> updateUser(@RequestBody Map<String, Object> request) {
+        logger.debug("Actualizando usuario con Hibernate");
+
+        try {
+            Long userId = ((Number) request.get("userId")).longValue();
+
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setName((String) request.get("name"));
+            dto.setEmail((String) request.get("email"));
+            dto.setDepartment((String) request.get("department"));
+            dto.setRole((String) request.get("role"));
+            dto.setActive((Boolean) request.get("active"));
+            if (request.get("expectedVersion") != null) {
+                dto.setExpectedVersion(((Number) request.get("expectedVersion")).longValue());
+            }
+
+            User user = optimisticUpdateExecutor.updateWithRetry(userId, dto);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "update_user");
+            response.put("result", user);
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (OptimisticLockingFailureException e) {
+            logger.warn("Conflicto de versión actualizando usuario: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Conflicto de versión: " + e.getMessage());
+            error.put("tool", "update_user");
+            error.put("status", "conflict");
+
+            return ResponseEntity.status(409).body(error);
+        } catch (Exception e) {
+            logger.error("Error actualizando usuario", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error actualizando usuario: " + e.getMessage());
+            error.put("tool", "update_user");
+            error.put("status", "error");
+
+            return errorResponse(error);
         }
     }
 
     /**
      * Obtiene todos los usuarios usando JPA Repository
+     *
+     * Con "includeArchived": true añade los usuarios de users_archive en "archived".
      */
     @PostMapping("/find_all_users")
-    public ResponseEntity<Map<String, Object>> findAllUsers() {
+    public ResponseEntity<Map<String, Object>> findAllUsers(@RequestBody(required = false) Map<String, Object> request) {
         logger.debug("Obteniendo todos los usuarios");
 
         try {
-            List<User> users = hibernateUserService.findAll();
-
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "find_all_users");
-            response.put("result", users);
-            response.put("count", users.size());
+            response.putAll(userReads.findAllUsers(includeArchived(request)));
             response.put("status", "success");
 
             return ResponseEntity.ok(response);
@@ -195,25 +422,21 @@ public class McpServerController {
             error.put("tool", "find_all_users");
             error.put("status", "error");
 
-            return ResponseEntity.status(500).body(error);
+            return errorResponse(error);
         }
     }
 
     /**
-     * Busca usuarios por departamento usando JPQL
+     * Busca usuarios por departamento usando JPQL (o el snapshot en memoria si está activo)
      */
     @PostMapping("/find_users_by_department")
     public ResponseEntity<Map<String, Object>> findUsersByDepartment(@RequestBody Map<String, String> request) {
         logger.debug("Buscando usuarios por departamento");
 
         try {
-            String department = request.get("department");
-            List<User> users = hibernateUserService.findUsersByDepartment(department);
-
             Map<String, Object> response = new HashMap<>();
             response.put("tool", "find_users_by_department");
-            response.put("result", users);
-            response.put("count", users.size());
+            response.putAll(userReads.findUsersByDepartment(request.get("department")));
             response.put("status", "success");
 
             return ResponseEntity.ok(response);
@@ -225,7 +448,383 @@ public class McpServerController {
             error.put("tool", "find_users_by_department");
             error.put("status", "error");
 
-            return ResponseEntity.status(500).body(error);
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Resumen por departamento, rol y estado con un único GROUP BY (filtros opcionales)
+     *
+     * Con "includeArchived": true suma también los usuarios de users_archive (sin caché:
+     * "ageMs" es el del resumen de users).
+     */
+    @PostMapping("/user_stats_summary")
+    public ResponseEntity<Map<String, Object>> userStatsSummary(@RequestBody(required = false) Map<String, Object> request) {
+        logger.debug("Calculando resumen de usuarios");
+
+        try {
+            Map<String, Object> filters = request != null ? request : Map.of();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "user_stats_summary");
+            response.putAll(userReads.userStatsSummary(
+                    (String) filters.get("department"),
+                    (String) filters.get("role"),
+                    (Boolean) filters.get("active"),
+                    includeArchived(request)));
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error calculando resumen de usuarios", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error calculando resumen de usuarios: " + e.getMessage());
+            error.put("tool", "user_stats_summary");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    // ========== OPERACIONES MASIVAS (BULK JPQL) ==========
+
+    /**
+     * Desactiva todos los usuarios de un departamento con un único UPDATE
+     */
+    @PostMapping("/deactivate_department")
+    public ResponseEntity<Map<String, Object>> deactivateDepartment(@RequestBody Map<String, String> request) {
+        logger.debug("Desactivando departamento");
+
+        try {
+            String department = request.get("department");
+            int updated = hibernateUserService.deactivateDepartment(department);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "deactivate_department");
+            response.put("result", updated);
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error desactivando departamento", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error desactivando departamento: " + e.getMessage());
+            error.put("tool", "deactivate_department");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Cambia el rol de todos los usuarios con un rol dado con un único UPDATE
+     */
+    @PostMapping("/reassign_role")
+    public ResponseEntity<Map<String, Object>> reassignRole(@RequestBody Map<String, String> request) {
+        logger.debug("Reasignando rol");
+
+        try {
+            String fromRole = request.get("fromRole");
+            String toRole = request.get("toRole");
+            int updated = hibernateUserService.reassignRole(fromRole, toRole);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "reassign_role");
+            response.put("result", updated);
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error reasignando rol", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error reasignando rol: " + e.getMessage());
+            error.put("tool", "reassign_role");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Elimina usuarios inactivos anteriores a una fecha con un único DELETE
+     */
+    @PostMapping("/delete_inactive_before")
+    public ResponseEntity<Map<String, Object>> deleteInactiveBefore(@RequestBody Map<String, String> request) {
+        logger.debug("Eliminando usuarios inactivos");
+
+        try {
+            LocalDateTime cutoff = LocalDateTime.parse(request.get("cutoff"));
+            int deleted = hibernateUserService.deleteInactiveBefore(cutoff);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "delete_inactive_before");
+            response.put("result", deleted);
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error eliminando usuarios inactivos", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error eliminando usuarios inactivos: " + e.getMessage());
+            error.put("tool", "delete_inactive_before");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    // ========== SINCRONIZACIÓN INCREMENTAL ==========
+
+    /**
+     * Devuelve los cambios posteriores a una marca de agua (since, afterId) por lotes
+     */
+    @PostMapping("/find_users_changed_since")
+    public ResponseEntity<Map<String, Object>> findUsersChangedSince(@RequestBody Map<String, Object> request) {
+        logger.debug("Buscando usuarios cambiados desde una marca de agua");
+
+        try {
+            LocalDateTime since = request.get("since") != null
+                    ? LocalDateTime.parse((String) request.get("since")) : null;
+            Long afterId = request.get("afterId") != null ? ((Number) request.get("afterId")).longValue() : null;
+            int limit = request.get("limit") != null ? ((Number) request.get("limit")).intValue() : 100;
+
+            UserDeltaDto delta = hibernateUserService.findUsersChangedSince(since, afterId, limit);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "find_users_changed_since");
+            response.put("result", delta);
+            response.put("count", delta.getChanged().size() + delta.getDeleted().size());
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error buscando usuarios cambiados", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error buscando usuarios cambiados: " + e.getMessage());
+            error.put("tool", "find_users_changed_since");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    // ========== EXPORTACIÓN / IMPORTACIÓN ==========
+
+    /**
+     * Exporta usuarios a un fichero CSV o JSON Lines (filtros opcionales).
+     * Sin limit se exportan todas las filas que cumplan los filtros.
+     * Con "includeArchived": true se añaden al final los de users_archive.
+     */
+    @PostMapping("/export_users")
+    public ResponseEntity<Map<String, Object>> exportUsers(@RequestBody(required = false) Map<String, Object> request) {
+        logger.debug("Exportando usuarios");
+
+        try {
+            Map<String, Object> params = request != null ? request : Map.of();
+            UserExportFilterDto query = new UserExportFilterDto(
+                    (String) params.get("department"),
+                    (String) params.get("role"),
+                    (Boolean) params.get("active"),
+                    params.get("limit") != null ? ((Number) params.get("limit")).intValue() : null,
+                    params.get("offset") != null ? ((Number) params.get("offset")).intValue() : null);
+            query.setIncludeArchived(includeArchived(params));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "export_users");
+            response.putAll(userReads.exportUsers(query, (String) params.get("format")));
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Exportación rechazada: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("tool", "export_users");
+            error.put("status", "error");
+
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            logger.error("Error exportando usuarios", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error exportando usuarios: " + e.getMessage());
+            error.put("tool", "export_users");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Descarga un fichero generado por export_users.
+     *
+     * Con Tomcat se delega en sendfile: el núcleo copia el fichero al socket sin
+     * pasar por la JVM. En otros contenedores (o en tests con MockMvc) se usa
+     * FileChannel.transferTo hacia el canal de salida de la respuesta.
+     */
+    @GetMapping("/exports/{fileName}")
+    public void downloadExport(@PathVariable String fileName, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        Path file;
+        try {
+            file = userExportFiles.resolve(fileName);
+        } catch (IllegalArgumentException e) {
+            response.sendError(400, e.getMessage());
+            return;
+        } catch (NoSuchFileException e) {
+            response.sendError(404, "Exportación no encontrada o caducada: " + fileName);
+            return;
+        }
+
+        long size = Files.size(file);
+        response.setContentType(ExportFormat.fromFileName(fileName).getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setContentLengthLong(size);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            UserExportFiles.transferFully(channel, 0, size, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * Importa usuarios desde un CSV del directorio de importación del servidor.
+     * Una carga detenida a medias (plazo, fallo de la BD) responde 200 con status
+     * "partial" y lo ya confirmado.
+     */
+    @PostMapping("/import_users")
+    public ResponseEntity<Map<String, Object>> importUsers(@RequestBody Map<String, String> request) {
+        logger.debug("Importando usuarios");
+
+        try {
+            UserImportResultDto result = hibernateUserService.importUsers(request.get("fileName"));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "import_users");
+            response.put("result", result);
+            response.put("status", result.isAborted() ? "partial" : "success");
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Importación rechazada: {}", e.getMessage());
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("tool", "import_users");
+            error.put("status", "error");
+
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            logger.error("Error importando usuarios", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error importando usuarios: " + e.getMessage());
+            error.put("tool", "import_users");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Registra un inicio de sesión (se acumula en memoria y se vuelca por lotes)
+     */
+    @PostMapping("/record_login")
+    public ResponseEntity<Map<String, Object>> recordLogin(@RequestBody Map<String, Object> request) {
+        try {
+            Number userId = (Number) request.get("userId");
+            boolean result = hibernateUserService.recordLogin(userId != null ? userId.longValue() : null);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "record_login");
+            response.put("result", result);
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("tool", "record_login");
+            error.put("status", "error");
+
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            logger.error("Error registrando inicio de sesión", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error registrando inicio de sesión: " + e.getMessage());
+            error.put("tool", "record_login");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    /**
+     * Ranking de usuarios con más inicios de sesión (global o por departamento)
+     */
+    @PostMapping("/top_active_users")
+    public ResponseEntity<Map<String, Object>> topActiveUsers(@RequestBody(required = false) Map<String, Object> request) {
+        try {
+            Map<String, Object> params = request != null ? request : Map.of();
+            Integer limit = params.get("limit") != null ? ((Number) params.get("limit")).intValue() : null;
+            List<ActiveUserDto> users = hibernateUserService.topActiveUsers((String) params.get("department"), limit);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "top_active_users");
+            response.put("result", users);
+            response.put("count", users.size());
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            error.put("tool", "top_active_users");
+            error.put("status", "error");
+
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            logger.error("Error obteniendo el ranking de usuarios activos", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error obteniendo el ranking de usuarios activos: " + e.getMessage());
+            error.put("tool", "top_active_users");
+            error.put("status", "error");
+
+            return errorResponse(error);
+        }
+    }
+
+    // ========== Métodos auxiliares ==========
+
+    /**
+     * Las lecturas solo ven la tabla caliente users salvo que se pida "includeArchived": true.
+     */
+    static boolean includeArchived(Map<String, Object> request) {
+        return request != null && Boolean.TRUE.equals(request.get("includeArchived"));
+    }
+
+    /**
+     * Respuesta de error: 504 "deadline_exceeded" si la petición agotó su plazo
+     * (McpDeadline), 500 en otro caso.
+     */
+    static ResponseEntity<Map<String, Object>> errorResponse(Map<String, Object> error) {
+        if (McpDeadline.isExpired()) {
+            error.put("status", "deadline_exceeded");
+            return ResponseEntity.status(504).body(error);
         }
+        return ResponseEntity.status(500).body(error);
     }
 }
@@ -0,0 +1,114 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.snapshot.UserSnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Herramientas que solo existen con el snapshot en memoria (mcp.snapshot.enabled=true).
+ *
+ * searchUsers() y executeCountByDepartment() de HibernateUserServiceImpl están por
+ * implementar (TODO CE3.f): sin snapshot estas rutas no se registran, en lugar de
+ * responder siempre 500. Mientras se hace la carga inicial responden 503.
+ */
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(name = "mcp.snapshot.enabled", havingValue = "true")
+@RequestMapping("/mcp")
+@CrossOrigin(origins = "*")
+public class McpSnapshotController {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpSnapshotController.class);
+
+    @Autowired
+    private UserSnapshotService userSnapshot;
+
+    @Autowired
+    private McpUserReadService userReads;
+
+    /**
+     * Búsqueda con filtros opcionales (department, role, active) y paginación (limit, offset)
+     *
+     * Con "includeArchived": true devuelve además en "archived" los usuarios de
+     * users_archive que cumplen los filtros (el snapshot solo contiene users), con el
+     * mismo limit/offset aplicado al archivo.
+     */
+    @PostMapping("/search_users")
+    public ResponseEntity<Map<String, Object>> searchUsers(@RequestBody Map<String, Object> request) {
+        logger.debug("Buscando usuarios con filtros");
+
+        if (!userSnapshot.isReady()) {
+            return notReady("search_users");
+        }
+        try {
+            UserQueryDto query = new UserQueryDto(
+                    (String) request.get("department"),
+                    (String) request.get("role"),
+                    (Boolean) request.get("active"),
+                    request.get("limit") != null ? ((Number) request.get("limit")).intValue() : null,
+                    request.get("offset") != null ? ((Number) request.get("offset")).intValue() : null);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "search_users");
+            response.putAll(userReads.searchUsers(query, McpServerController.includeArchived(request)));
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error buscando usuarios con filtros", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error buscando usuarios con filtros: " + e.getMessage());
+            error.put("tool", "search_users");
+            error.put("status", "error");
+
+            return McpServerController.errorResponse(error);
+        }
+    }
+
+    /**
+     * Cuenta los usuarios activos de un departamento
+     */
+    @PostMapping("/execute_count_by_department")
+    public ResponseEntity<Map<String, Object>> executeCountByDepartment(@RequestBody Map<String, String> request) {
+        logger.debug("Contando usuarios por departamento");
+
+        if (!userSnapshot.isReady()) {
+            return notReady("execute_count_by_department");
+        }
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("tool", "execute_count_by_department");
+            response.putAll(userReads.executeCountByDepartment(request.get("department")));
+            response.put("status", "success");
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error contando usuarios por departamento", e);
+
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Error contando usuarios por departamento: " + e.getMessage());
+            error.put("tool", "execute_count_by_department");
+            error.put("status", "error");
+
+            return McpServerController.errorResponse(error);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> notReady(String tool) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "El snapshot de usuarios aún no está cargado");
+        error.put("tool", tool);
+        error.put("status", "error");
+        return ResponseEntity.status(503).body(error);
+    }
+}
@@ -0,0 +1,35 @@
+package com.dam.accesodatos.mcp;
+
+/**
+ * Contexto de la herramienta MCP que se está ejecutando en el hilo actual.
+ *
+ * Lo establece McpToolContextInterceptor al recibir una petición /mcp/{herramienta}
+ * y lo usan los componentes de infraestructura (por ejemplo, la monitorización del
+ * pool de conexiones) para atribuir métricas a cada herramienta.
+ */
+public final class McpToolContext {
+
+    /** Nombre usado cuando el código no se ejecuta dentro de una petición MCP */
+    public static final String NO_TOOL = "(sin herramienta)";
+
+    private static final ThreadLocal<String> CURRENT_TOOL = new ThreadLocal<>();
+
+    private McpToolContext() {
+    }
+
+    public static void setCurrentTool(String toolName) {
+        CURRENT_TOOL.set(toolName);
+    }
+
+    /**
+     * @return Herramienta en curso o NO_TOOL si no hay ninguna
+     */
+    public static String getCurrentTool() {
+        String tool = CURRENT_TOOL.get();
+        return tool != null ? tool : NO_TOOL;
+    }
+
+    public static void clear() {
+        CURRENT_TOOL.remove();
+    }
+}
@@ -0,0 +1,33 @@
+package com.dam.accesodatos.mcp;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Interceptor que publica en McpToolContext el nombre de la herramienta invocada.
+ *
+ * El nombre es el último segmento de la ruta: POST /mcp/find_all_users → "find_all_users".
+ */
+@Component
+public class McpToolContextInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        McpToolContext.setCurrentTool(toolName(request));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        McpToolContext.clear();
+    }
+
+    static String toolName(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int slash = uri.lastIndexOf('/');
+        return slash >= 0 ? uri.substring(slash + 1) : uri;
+    }
+}
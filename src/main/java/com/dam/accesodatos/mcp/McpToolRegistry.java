@@ -1,17 +1,25 @@
 package com.dam.accesodatos.mcp;
 
+import com.dam.accesodatos.model.UserCreateDto;
 import com.dam.accesodatos.ra3.HibernateUserService;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.mcp.server.annotation.Tool;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Registro de herramientas MCP disponibles para LLMs.
@@ -20,6 +28,7 @@ import java.util.List;
  * y los registra como herramientas disponibles para el protocolo MCP.
  */
 @Component
+@ImportRuntimeHints(McpToolRuntimeHints.class)
 public class McpToolRegistry {
     
     private static final Logger logger = LoggerFactory.getLogger(McpToolRegistry.class);
@@ -29,8 +38,12 @@ public class McpToolRegistry {
     
     @Autowired
     private HibernateUserService hibernateUserService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
     
     private final List<McpToolInfo> registeredTools = new ArrayList<>();
+    private final Map<String, McpToolInfo> toolsByName = new HashMap<>();
     
     @PostConstruct
     public void registerTools() {
@@ -58,6 +71,7 @@ public class McpToolRegistry {
                 
                 McpToolInfo toolInfo = new McpToolInfo(toolName, description, method, service);
                 registeredTools.add(toolInfo);
+                toolsByName.put(toolName, toolInfo);
                 
                 logger.debug("Registrada herramienta MCP: {} - {}", toolName, description);
             }
@@ -67,6 +81,61 @@ public class McpToolRegistry {
     public List<McpToolInfo> getRegisteredTools() {
         return new ArrayList<>(registeredTools);
     }
+
+    /**
+     * Invoca una herramienta por nombre con sus argumentos JSON ya leídos.
+     *
+     * Cada parámetro del método @Tool se toma del argumento con su mismo nombre (el
+     * plugin de Spring Boot compila con -parameters). Un parámetro DTO sin argumento
+     * propio se construye con todos los argumentos: create_user recibe
+     * {"name": ..., "email": ...} igual que el endpoint HTTP.
+     *
+     * Se ejecuta en el hilo actual (bloqueante) con McpToolContext establecido.
+     *
+     * @throws IllegalArgumentException si la herramienta no existe o un argumento falta o no se puede convertir
+     */
+    public Object invoke(String name, Map<String, Object> arguments) {
+        McpToolInfo tool = toolsByName.get(name);
+        if (tool == null) {
+            throw new IllegalArgumentException("Herramienta desconocida: " + name);
+        }
+        Map<String, Object> args = arguments != null ? arguments : Map.of();
+        Parameter[] parameters = tool.getMethod().getParameters();
+        Object[] values = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Parameter parameter = parameters[i];
+            Object raw = args.get(parameter.getName());
+            if (raw == null && isDto(parameter.getType())) {
+                raw = args;
+            }
+            if (raw == null) {
+                if (parameter.getType().isPrimitive()) {
+                    throw new IllegalArgumentException("Falta el argumento " + parameter.getName());
+                }
+                continue;
+            }
+            JavaType type = objectMapper.getTypeFactory().constructType(parameter.getParameterizedType());
+            values[i] = objectMapper.convertValue(raw, type);
+        }
+
+        McpToolContext.setCurrentTool(name);
+        try {
+            return tool.getMethod().invoke(tool.getService(), values);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            McpToolContext.clear();
+        }
+    }
+
+    private static boolean isDto(Class<?> type) {
+        return type.getPackageName().equals(UserCreateDto.class.getPackageName());
+    }
     
     /**
      * Información sobre una herramienta MCP registrada
@@ -0,0 +1,22 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.ra3.HibernateUserService;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Pistas para el procesado AOT de Spring.
+ *
+ * McpToolRegistry descubre las herramientas leyendo por reflexión los métodos
+ * anotados con @Tool; aquí se declara esa reflexión para que el análisis AOT
+ * (y una posible imagen nativa) la conserve.
+ */
+public class McpToolRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.reflection().registerType(HibernateUserService.class,
+                MemberCategory.INTROSPECT_PUBLIC_METHODS, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
@@ -0,0 +1,250 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.archive.UserArchiveService;
+import com.dam.accesodatos.model.ArchivedUser;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserExportDto;
+import com.dam.accesodatos.model.UserExportFilterDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.ra3.UserStatsSummaryCache;
+import com.dam.accesodatos.snapshot.UserSnapshotService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lecturas MCP que no son una llamada directa a HibernateUserService.
+ *
+ * Las usan los dos transportes (McpServerController por HTTP y McpWebSocketHandler por
+ * /mcp/ws) para que una misma herramienta responda igual por ambos:
+ * - find_users_by_department, search_users y execute_count_by_department leen del
+ *   snapshot en memoria si está activo y cargado ("source").
+ * - user_stats_summary pasa por UserStatsSummaryCache ("ageMs").
+ * - find_user_by_id, find_users_by_ids, find_all_users, search_users y
+ *   user_stats_summary admiten "includeArchived": true (users_archive).
+ * - export_users añade "downloadUrl".
+ *
+ * Cada método devuelve los campos de la respuesta ("result" y los que lo acompañan);
+ * "tool" y "status" los pone el transporte.
+ */
+@Service
+@Profile("!reactive")
+public class McpUserReadService {
+
+    @Autowired
+    private HibernateUserService hibernateUserService;
+
+    @Autowired
+    private UserStatsSummaryCache userStatsSummaryCache;
+
+    @Autowired
+    private UserArchiveService userArchiveService;
+
+    @Autowired
+    private ObjectProvider<UserSnapshotService> userSnapshot;  // Solo con mcp.snapshot.enabled=true
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Busca un usuario por ID; con includeArchived, si no está en users se busca en
+     * users_archive (y se añade "archived": true).
+     */
+    public Map<String, Object> findUserById(Long userId, boolean includeArchived) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        User user = hibernateUserService.findUserById(userId);
+        fields.put("result", user);
+        if (user == null && includeArchived) {
+            userArchiveService.findById(userId).ifPresent(archived -> {
+                fields.put("result", archived);
+                fields.put("archived", true);
+            });
+        }
+        return fields;
+    }
+
+    /**
+     * Busca varios usuarios por ID; con includeArchived, los que no están en users se
+     * devuelven aparte en "archived".
+     */
+    public Map<String, Object> findUsersByIds(List<Long> userIds, boolean includeArchived) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        List<User> users = hibernateUserService.findUsersByIds(userIds);
+        fields.put("result", users);
+        fields.put("count", users.size());
+        if (includeArchived) {
+            Set<Long> found = users.stream()
+                    .filter(Objects::nonNull)
+                    .map(User::getId)
+                    .collect(Collectors.toSet());
+            List<ArchivedUser> archived = userArchiveService.findByIds(userIds.stream()
+                    .filter(id -> !found.contains(id))
+                    .collect(Collectors.toSet()));
+            fields.put("archived", archived);
+        }
+        return fields;
+    }
+
+    /**
+     * Todos los usuarios; con includeArchived, los de users_archive en "archived".
+     */
+    public Map<String, Object> findAllUsers(boolean includeArchived) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        List<User> users = hibernateUserService.findAll();
+        fields.put("result", users);
+        fields.put("count", users.size());
+        if (includeArchived) {
+            fields.put("archived", userArchiveService.findAll());
+        }
+        return fields;
+    }
+
+    /**
+     * Usuarios de un departamento desde el snapshot si está cargado, si no con JPQL
+     */
+    public Map<String, Object> findUsersByDepartment(String department) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        UserSnapshotService snapshot = readySnapshot();
+        List<User> users = snapshot != null
+                ? snapshot.findUsersByDepartment(department)
+                : hibernateUserService.findUsersByDepartment(department);
+        fields.put("result", users);
+        fields.put("count", users.size());
+        fields.put("source", snapshot != null ? "snapshot" : "hibernate");
+        return fields;
+    }
+
+    /**
+     * Búsqueda con filtros y paginación sobre el snapshot; con includeArchived, los de
+     * users_archive que cumplen los filtros (mismo limit/offset) en "archived".
+     *
+     * @throws IllegalStateException si el snapshot aún no está cargado
+     */
+    public Map<String, Object> searchUsers(UserQueryDto query, boolean includeArchived) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        List<User> users = requireSnapshot().searchUsers(query);
+        fields.put("result", users);
+        fields.put("count", users.size());
+        if (includeArchived) {
+            fields.put("archived", userArchiveService.search(query.getDepartment(), query.getRole(),
+                    query.getActive(), query.getLimit(), query.getOffset()));
+        }
+        fields.put("source", "snapshot");
+        return fields;
+    }
+
+    /**
+     * Usuarios activos de un departamento contados sobre el snapshot
+     *
+     * @throws IllegalStateException si el snapshot aún no está cargado
+     */
+    public Map<String, Object> executeCountByDepartment(String department) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("result", requireSnapshot().executeCountByDepartment(department));
+        fields.put("source", "snapshot");
+        return fields;
+    }
+
+    /**
+     * Resumen por departamento, rol y estado desde UserStatsSummaryCache; con
+     * includeArchived suma también users_archive (sin caché: "ageMs" es el de users).
+     */
+    public Map<String, Object> userStatsSummary(String department, String role, Boolean active,
+                                                boolean includeArchived) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        UserStatsSummaryCache.Result summary = userStatsSummaryCache.get(department, role, active);
+        if (includeArchived) {
+            UserStatsSummaryDto withArchived = new UserStatsSummaryDto();
+            withArchived.merge(summary.summary());
+            withArchived.merge(userArchiveService.statsSummary(department, role, active));
+            fields.put("result", withArchived);
+            fields.put("includesArchived", true);
+        } else {
+            fields.put("result", summary.summary());
+        }
+        fields.put("ageMs", summary.ageMs());
+        return fields;
+    }
+
+    /**
+     * Exporta a fichero y devuelve la ruta de descarga en "downloadUrl"
+     */
+    public Map<String, Object> exportUsers(UserExportFilterDto query, String format) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        UserExportDto export = hibernateUserService.exportUsers(query, format);
+        fields.put("result", export);
+        fields.put("downloadUrl", "/mcp/exports/" + export.getFileName());
+        return fields;
+    }
+
+    /**
+     * Lectura con los argumentos por nombre de los parámetros @Tool (como
+     * McpToolRegistry.invoke), para el transporte WebSocket.
+     *
+     * search_users y execute_count_by_department sin snapshot activo devuelven null:
+     * el llamador los invoca sobre HibernateUserService como el resto de herramientas.
+     *
+     * @return Campos de la respuesta, o null si la herramienta no es una de estas lecturas
+     */
+    public Map<String, Object> read(String tool, Map<String, Object> arguments) {
+        boolean includeArchived = McpServerController.includeArchived(arguments);
+        return switch (tool) {
+            case "find_user_by_id" -> findUserById(requireId(arguments.get("id"), "id"), includeArchived);
+            case "find_users_by_ids" -> {
+                if (!(arguments.get("ids") instanceof List<?> ids)) {
+                    throw new IllegalArgumentException("Falta el argumento ids");
+                }
+                yield findUsersByIds(ids.stream().map(id -> requireId(id, "ids")).toList(), includeArchived);
+            }
+            case "find_all_users" -> findAllUsers(includeArchived);
+            case "find_users_by_department" -> findUsersByDepartment((String) arguments.get("department"));
+            case "search_users" -> userSnapshot.getIfAvailable() == null ? null
+                    : searchUsers(objectMapper.convertValue(query(arguments), UserQueryDto.class), includeArchived);
+            case "execute_count_by_department" -> userSnapshot.getIfAvailable() == null ? null
+                    : executeCountByDepartment((String) arguments.get("department"));
+            case "user_stats_summary" -> userStatsSummary((String) arguments.get("department"),
+                    (String) arguments.get("role"), (Boolean) arguments.get("active"), includeArchived);
+            case "export_users" -> exportUsers(objectMapper.convertValue(query(arguments), UserExportFilterDto.class),
+                    (String) arguments.get("format"));
+            default -> null;
+        };
+    }
+
+    private UserSnapshotService readySnapshot() {
+        UserSnapshotService snapshot = userSnapshot.getIfAvailable();
+        return snapshot != null && snapshot.isReady() ? snapshot : null;
+    }
+
+    private UserSnapshotService requireSnapshot() {
+        UserSnapshotService snapshot = readySnapshot();
+        if (snapshot == null) {
+            throw new IllegalStateException("El snapshot de usuarios aún no está cargado");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Filtros en "query" o, como en McpToolRegistry.invoke, directamente en los argumentos
+     */
+    private static Object query(Map<String, Object> arguments) {
+        return arguments.getOrDefault("query", arguments);
+    }
+
+    private static Long requireId(Object id, String argument) {
+        if (!(id instanceof Number number)) {
+            throw new IllegalArgumentException("Falta el argumento " + argument);
+        }
+        return number.longValue();
+    }
+}
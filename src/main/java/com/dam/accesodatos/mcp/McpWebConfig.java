@@ -0,0 +1,43 @@
+package com.dam.accesodatos.mcp;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuración Spring MVC de los endpoints MCP (no se usa con el perfil 'reactive').
+ */
+@Configuration
+@Profile("!reactive")
+@EnableConfigurationProperties(DeadlineProperties.class)
+public class McpWebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private McpToolContextInterceptor toolContextInterceptor;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Autowired
+    private McpDeadlineInterceptor deadlineInterceptor;
+
+    private static final String[] NON_TOOL_PATHS = {
+            "/mcp/health", "/mcp/tools", "/mcp/pool_stats", "/mcp/concurrency_stats", "/mcp/snapshot_stats",
+            "/mcp/subscribe_user_changes", "/mcp/exports/*", "/mcp/ws", "/mcp/ws_stats"
+    };
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Primero el límite de concurrencia: una petición rechazada no llega a ejecutar nada.
+        // Quedan fuera los endpoints de observación, el flujo SSE y el WebSocket (conexiones de
+        // larga duración; cada llamada por WebSocket pasa por el límite en McpWebSocketHandler).
+        registry.addInterceptor(concurrencyLimitInterceptor).addPathPatterns("/mcp/**")
+                .excludePathPatterns(NON_TOOL_PATHS);
+        registry.addInterceptor(deadlineInterceptor).addPathPatterns("/mcp/**")
+                .excludePathPatterns(NON_TOOL_PATHS);
+        registry.addInterceptor(toolContextInterceptor).addPathPatterns("/mcp/**");
+    }
+}
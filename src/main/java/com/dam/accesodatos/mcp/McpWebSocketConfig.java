@@ -0,0 +1,39 @@
+package com.dam.accesodatos.mcp;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistration;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Endpoint WebSocket /mcp/ws (ver McpWebSocketHandler).
+ *
+ * ORÍGENES: el navegador envía las cookies del servidor en el handshake aunque la
+ * página sea de otro dominio, y CORS no protege los WebSocket. Por eso, sin
+ * mcp.websocket.allowed-origins solo se aceptan conexiones del mismo origen (y
+ * clientes que no envían cabecera Origin, como los de línea de comandos). Los orígenes
+ * de otras páginas se añaden uno a uno en esa lista.
+ */
+@Configuration
+@EnableWebSocket
+@Profile("!reactive")
+public class McpWebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private McpWebSocketHandler handler;
+
+    @Value("${mcp.websocket.allowed-origins:}")
+    private String[] allowedOrigins;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        WebSocketHandlerRegistration registration = registry.addHandler(handler, "/mcp/ws");
+        if (allowedOrigins.length > 0) {
+            registration.setAllowedOrigins(allowedOrigins);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra3.GroupCommitUserCreator;
+import com.dam.accesodatos.ra3.OptimisticUpdateExecutor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.OptimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transporte WebSocket de las herramientas MCP: una conexión, muchas llamadas a la vez.
+ *
+ * Con HTTP cada llamada es una petición con sus cabeceras, su parseo y (sin keep-alive)
+ * su conexión. Un agente de larga duración abre /mcp/ws una vez y envía por ella todas
+ * sus llamadas, cada una con un id propio:
+ *   → {"id": 7, "tool": "find_user_by_id", "arguments": {"id": 1}, "timeoutMs": 2000}
+ *   ← {"id": 7, "tool": "find_user_by_id", "status": "success", "result": {...}}
+ * Las llamadas se ejecutan en paralelo (mcp.websocket.worker-threads) y cada respuesta
+ * se envía al terminar: pueden llegar en otro orden, el cliente las asocia por id.
+ * Los argumentos son los parámetros del método @Tool por nombre (McpToolRegistry.invoke).
+ * create_user y update_user pasan, como en HTTP, por GroupCommitUserCreator y
+ * OptimisticUpdateExecutor (reintentos; con expectedVersion, "status": "conflict"), y
+ * las lecturas con snapshot, caché o "includeArchived" por McpUserReadService: la
+ * respuesta lleva los mismos campos que la de HTTP ("source", "ageMs", "archived"...).
+ *
+ * CONTROL DE FLUJO por conexión:
+ * - Al conectar se envía {"type": "welcome", "maxInFlight": N}: el cliente puede tener
+ *   como mucho N llamadas sin respuesta. Si envía más, la llamada sobrante se responde
+ *   al instante con "status": "overloaded" sin ejecutarse.
+ * - Respuestas: se encolan como mucho send-buffer-bytes por conexión. Si el cliente no
+ *   las lee y se supera el límite, o un envío tarda más de send-time-limit-ms, se cierra
+ *   su conexión: un cliente lento no puede acumular memoria en el servidor.
+ * Además cada llamada pasa por AdaptiveConcurrencyLimiter y tiene su McpDeadline,
+ * igual que una petición HTTP ("overloaded" con retryAfterMs, "deadline_exceeded").
+ */
+@Component
+@Profile("!reactive")
+public class McpWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpWebSocketHandler.class);
+
+    private static final TypeReference<Map<String, Object>> CALL = new TypeReference<>() {};
+
+    @Autowired
+    private McpToolRegistry toolRegistry;
+
+    @Autowired
+    private McpUserReadService userReads;
+
+    @Autowired
+    private OptimisticUpdateExecutor optimisticUpdateExecutor;
+
+    @Autowired
+    private GroupCommitUserCreator groupCommitUserCreator;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @Autowired
+    private DeadlineProperties deadlineProperties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${mcp.websocket.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${mcp.websocket.worker-threads:32}")
+    private int workerThreads;
+
+    @Value("${mcp.websocket.send-buffer-bytes:4194304}")
+    private int sendBufferBytes;
+
+    @Value("${mcp.websocket.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${mcp.websocket.max-message-bytes:1048576}")
+    private int maxMessageBytes;
+
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private ExecutorService workers;
+
+    @PostConstruct
+    void startWorkers() {
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "mcp-ws-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        workers.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        session.setTextMessageSizeLimit(maxMessageBytes);
+        Connection connection = new Connection(
+                new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferBytes));
+        connections.put(session.getId(), connection);
+
+        Map<String, Object> welcome = new LinkedHashMap<>();
+        welcome.put("type", "welcome");
+        welcome.put("maxInFlight", maxInFlight);
+        send(connection, welcome);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        // Las llamadas en curso terminan; sus respuestas se descartan
+        connections.remove(session.getId());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+
+        Map<String, Object> call;
+        try {
+            call = objectMapper.readValue(message.getPayload(), CALL);
+        } catch (JsonProcessingException e) {
+            send(connection, error(null, null, "error", "Mensaje JSON no válido: " + e.getOriginalMessage()));
+            return;
+        }
+        Object id = call.get("id");
+        Object tool = call.get("tool");
+        if (!(tool instanceof String toolName) || toolName.isBlank()) {
+            send(connection, error(id, null, "error", "Falta el campo \"tool\""));
+            return;
+        }
+
+        if (connection.inFlight.incrementAndGet() > maxInFlight) {
+            connection.inFlight.decrementAndGet();
+            send(connection, error(id, toolName, "overloaded",
+                    "Demasiadas llamadas en curso en esta conexión (máximo " + maxInFlight + ")"));
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    send(connection, execute(id, toolName, call));
+                } finally {
+                    connection.inFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            connection.inFlight.decrementAndGet();
+            send(connection, error(id, toolName, "error", "Servidor deteniéndose"));
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        logger.debug("Error de transporte en la sesión WebSocket {}: {}", session.getId(), exception.getMessage());
+    }
+
+    /**
+     * @return Conexiones abiertas y llamadas en curso
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", connections.size());
+        stats.put("inFlight", connections.values().stream().mapToInt(c -> c.inFlight.get()).sum());
+        stats.put("maxInFlightPerConnection", maxInFlight);
+        return stats;
+    }
+
+    /**
+     * Ejecuta una llamada en un hilo de trabajo, con el límite de concurrencia y el plazo
+     * de una petición HTTP a la misma herramienta.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> execute(Object id, String tool, Map<String, Object> call) {
+        if (!limiter.tryAcquire(tool)) {
+            long retryAfterMs = limiter.retryAfterMs();
+            Map<String, Object> error = error(id, tool, "overloaded",
+                    "Servidor sobrecargado: reintentar en " + retryAfterMs + " ms");
+            error.put("retryAfterMs", retryAfterMs);
+            return error;
+        }
+
+        Long requested = call.get(McpDeadlineInterceptor.TIMEOUT_PARAM) instanceof Number number
+                ? number.longValue() : null;
+        McpDeadline.start(tool, deadlineProperties.resolve(tool, requested), requested != null);
+        long start = System.nanoTime();
+        try {
+            Object arguments = call.get("arguments");
+            Map<String, Object> fields = dispatch(tool, arguments instanceof Map<?, ?> map
+                    ? (Map<String, Object>) map : Map.of());
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("id", id);
+            response.put("tool", tool);
+            response.put("status", "success");
+            response.putAll(fields);
+            return response;
+        } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+            return error(id, tool, "conflict", "Conflicto de versión: " + e.getMessage());
+        } catch (RuntimeException e) {
+            if (McpDeadline.isExpired()) {
+                return error(id, tool, "deadline_exceeded", "Plazo agotado: " + e.getMessage());
+            }
+            if (!(e instanceof IllegalArgumentException)) {
+                logger.error("Error ejecutando {} por WebSocket", tool, e);
+            }
+            return error(id, tool, "error", "Error ejecutando " + tool + ": " + e.getMessage());
+        } finally {
+            McpDeadline.clear();
+            limiter.release(tool, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Las lecturas compuestas (snapshot, UserStatsSummaryCache, includeArchived) pasan por
+     * McpUserReadService y las altas y actualizaciones por los mismos componentes que
+     * McpServerController; el resto de herramientas se invocan directamente sobre
+     * HibernateUserService.
+     *
+     * @return Campos de la respuesta: "result" y, en las lecturas compuestas, los mismos
+     *         campos adicionales que por HTTP ("count", "source", "ageMs", "archived"...)
+     */
+    private Map<String, Object> dispatch(String tool, Map<String, Object> arguments) {
+        McpToolContext.setCurrentTool(tool);
+        try {
+            Map<String, Object> read = userReads.read(tool, arguments);
+            if (read != null) {
+                return read;
+            }
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("result", invoke(tool, arguments));
+            return fields;
+        } finally {
+            McpToolContext.clear();
+        }
+    }
+
+    private Object invoke(String tool, Map<String, Object> arguments) {
+        if (tool.equals("create_user")) {
+            return groupCommitUserCreator.createUser(objectMapper.convertValue(arguments, UserCreateDto.class));
+        }
+        if (tool.equals("update_user")) {
+            if (!(arguments.get("id") instanceof Number userId)) {
+                throw new IllegalArgumentException("Falta el argumento id");
+            }
+            return optimisticUpdateExecutor.updateWithRetry(userId.longValue(),
+                    objectMapper.convertValue(arguments, UserUpdateDto.class));
+        }
+        return toolRegistry.invoke(tool, arguments);
+    }
+
+    private void send(Connection connection, Map<String, Object> payload) {
+        WebSocketSession session = connection.session;
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
+        } catch (IOException | RuntimeException e) {
+            // Buffer de envío lleno o envío demasiado lento: el decorador ya ha cerrado la sesión
+            logger.warn("No se pudo enviar la respuesta por WebSocket (sesión {}): {}",
+                    session.getId(), e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> error(Object id, String tool, String status, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("id", id);
+        error.put("tool", tool);
+        error.put("status", status);
+        error.put("error", message);
+        return error;
+    }
+
+    private static final class Connection {
+        final WebSocketSession session;
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Connection(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.dam.accesodatos.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO de top_active_users: un usuario y sus inicios de sesión (user_statistics).
+ */
+public class ActiveUserDto {
+
+    private Long userId;
+    private String name;
+    private String department;
+    private long loginCount;
+    private LocalDateTime lastLogin;
+
+    public ActiveUserDto() {}
+
+    public ActiveUserDto(Long userId, String name, String department, long loginCount, LocalDateTime lastLogin) {
+        this.userId = userId;
+        this.name = name;
+        this.department = department;
+        this.loginCount = loginCount;
+        this.lastLogin = lastLogin;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public long getLoginCount() {
+        return loginCount;
+    }
+
+    public void setLoginCount(long loginCount) {
+        this.loginCount = loginCount;
+    }
+
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+
+    public void setLastLogin(LocalDateTime lastLogin) {
+        this.lastLogin = lastLogin;
+    }
+
+    @Override
+    public String toString() {
+        return "ActiveUserDto{" +
+                "userId=" + userId +
+                ", name='" + name + '\'' +
+                ", department='" + department + '\'' +
+                ", loginCount=" + loginCount +
+                '}';
+    }
+}
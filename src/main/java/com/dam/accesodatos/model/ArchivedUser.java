@@ -0,0 +1,134 @@
+package com.dam.accesodatos.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entidad JPA ArchivedUser: usuario inactivo movido a la tabla 'users_archive'.
+ *
+ * Mismas columnas que 'users' (con el ID original) más las estadísticas de inicio de
+ * sesión que tenía y el momento del archivado. Las filas las mueve UserArchiveService
+ * con JDBC; aquí solo se consultan (@Immutable: Hibernate no hace dirty checking ni
+ * genera UPDATE para esta entidad).
+ */
+@Entity
+@Table(name = "users_archive")
+@Immutable
+public class ArchivedUser {
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "name", nullable = false, length = 50)
+    private String name;
+
+    @Column(name = "email", nullable = false, length = 100)
+    private String email;
+
+    @Column(name = "department_id", nullable = false)
+    @Convert(converter = DepartmentCodeConverter.class)
+    private String department;
+
+    @Column(name = "role_id", nullable = false)
+    @Convert(converter = RoleCodeConverter.class)
+    private String role;
+
+    @Column(name = "active")
+    private Boolean active;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "login_count")
+    private Integer loginCount;
+
+    @Column(name = "last_login")
+    private LocalDateTime lastLogin;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public ArchivedUser() {}
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Integer getLoginCount() {
+        return loginCount;
+    }
+
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArchivedUser that = (ArchivedUser) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedUser{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", email='" + email + '\'' +
+                ", department='" + department + '\'' +
+                ", archivedAt=" + archivedAt +
+                '}';
+    }
+}
@@ -0,0 +1,31 @@
+package com.dam.accesodatos.model;
+
+import com.dam.accesodatos.repository.LookupCodes;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Conversor JPA: User.department (String) ↔ users.department_id (SMALLINT).
+ *
+ * Hibernate también lo aplica a los parámetros de JPQL que se comparan con el atributo,
+ * así que "WHERE u.department = :dept" sigue funcionando con el nombre y la BD compara
+ * e indexa el código. Spring inyecta LookupCodes: Spring Boot registra su contenedor de
+ * beans en Hibernate.
+ */
+@Converter
+public class DepartmentCodeConverter implements AttributeConverter<String, Short> {
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @Override
+    public Short convertToDatabaseColumn(String department) {
+        return department == null ? null : lookupCodes.departmentCode(department);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return code == null ? null : lookupCodes.departmentName(code);
+    }
+}
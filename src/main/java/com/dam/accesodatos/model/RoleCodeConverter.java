@@ -0,0 +1,26 @@
+package com.dam.accesodatos.model;
+
+import com.dam.accesodatos.repository.LookupCodes;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Conversor JPA: User.role (String) ↔ users.role_id (SMALLINT). Ver DepartmentCodeConverter.
+ */
+@Converter
+public class RoleCodeConverter implements AttributeConverter<String, Short> {
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @Override
+    public Short convertToDatabaseColumn(String role) {
+        return role == null ? null : lookupCodes.roleCode(role);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Short code) {
+        return code == null ? null : lookupCodes.roleName(code);
+    }
+}
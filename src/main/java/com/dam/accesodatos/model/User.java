@@ -2,6 +2,8 @@ package com.dam.accesodatos.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.DynamicUpdate;
+
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -22,6 +24,18 @@ import java.util.Objects;
  * - @GeneratedValue: El ID es autogenerado por la BD (IDENTITY strategy)
  * - @Column: Mapeo explícito de campos a columnas con restricciones
  * - @NotBlank, @Email: Validaciones de Bean Validation
+ * - @Version: Control de concurrencia optimista (columna 'version')
+ * - @DynamicUpdate (Hibernate): el UPDATE solo incluye las columnas modificadas
+ * - @Convert: department y role se guardan como códigos de las tablas departments/roles
+ *
+ * BYTECODE ENHANCEMENT (plugin org.hibernate.orm en build.gradle):
+ * - Al compilar, los setters pasan a anotar qué atributo cambia (dirty tracking en línea).
+ *   En el flush, Hibernate pregunta a cada entidad en lugar de compararla campo a campo
+ *   con la copia que guardó al cargarla.
+ * - Columnas anchas futuras (descripciones, JSON, BLOB...) pueden declararse con
+ *   @Basic(fetch = FetchType.LAZY) (y @LazyGroup para cargarlas juntas). Se leen en un
+ *   SELECT aparte al primer get. OJO: fuera de la transacción ese get falla; las
+ *   herramientas que devuelven el User por JSON deberían leerlas antes o excluirlas.
  *
  * NOTA PEDAGÓGICA:
  * El constructor sin argumentos es OBLIGATORIO para JPA. Hibernate lo usa
@@ -29,6 +43,8 @@ import java.util.Objects;
  */
 @Entity
 @Table(name = "users")
+@DynamicUpdate
+@EntityListeners(UserLookupListener.class)
 public class User {
 
     @Id
@@ -46,12 +62,20 @@ public class User {
     @Email(message = "El email debe tener un formato válido")
     private String email;
 
-    @Column(name = "department", nullable = false, length = 50)
+    /**
+     * Columna department_id: código SMALLINT de la tabla departments (ver DepartmentCodeConverter).
+     * En Java sigue siendo el nombre; cada fila ocupa 2 bytes en lugar del VARCHAR.
+     */
+    @Column(name = "department_id", nullable = false)
+    @Convert(converter = DepartmentCodeConverter.class)
     @NotBlank(message = "El departamento es obligatorio")
+    @Size(max = 50, message = "El departamento no puede superar 50 caracteres")
     private String department;
 
-    @Column(name = "role", nullable = false, length = 50)
+    @Column(name = "role_id", nullable = false)
+    @Convert(converter = RoleCodeConverter.class)
     @NotBlank(message = "El rol es obligatorio")
+    @Size(max = 50, message = "El rol no puede superar 50 caracteres")
     private String role;
 
     @Column(name = "active")
@@ -63,6 +87,16 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Versión para bloqueo optimista.
+     * Hibernate genera: UPDATE users SET ..., version = version + 1 WHERE id = ? AND version = ?
+     * Si otra transacción modificó la fila antes, el UPDATE no afecta filas y se lanza
+     * OptimisticLockException en lugar de sobrescribir los cambios ajenos.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // ===== CONSTRUCTOR SIN ARGUMENTOS (OBLIGATORIO PARA JPA) =====
 
     /**
@@ -151,6 +185,14 @@ public class User {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // ===== EQUALS Y HASHCODE =====
 
     @Override
@@ -179,6 +221,7 @@ public class User {
                 ", active=" + active +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", version=" + version +
                 '}';
     }
 }
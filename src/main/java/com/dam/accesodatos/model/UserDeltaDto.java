@@ -0,0 +1,96 @@
+package com.dam.accesodatos.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO de respuesta de find_users_changed_since (sincronización incremental)
+ *
+ * La marca de agua es el par (updatedAt, id): ordena todos los cambios sin ambigüedad
+ * aunque varios usuarios compartan el mismo updated_at. El cliente guarda
+ * nextUpdatedAt/nextId y los envía en la siguiente llamada. Mientras hasMore sea
+ * true conviene pedir el siguiente lote inmediatamente.
+ *
+ * Si resyncRequired es true, la marca de agua es más antigua que las lápidas
+ * conservadas: el cliente debe descartar su copia y descargar de nuevo la tabla.
+ */
+public class UserDeltaDto {
+
+    private List<User> changed;
+    private List<UserTombstone> deleted;
+    private LocalDateTime nextUpdatedAt;
+    private Long nextId;
+    private boolean hasMore;
+    private boolean resyncRequired;
+
+    public UserDeltaDto() {}
+
+    public UserDeltaDto(List<User> changed, List<UserTombstone> deleted,
+                        LocalDateTime nextUpdatedAt, Long nextId, boolean hasMore) {
+        this.changed = changed;
+        this.deleted = deleted;
+        this.nextUpdatedAt = nextUpdatedAt;
+        this.nextId = nextId;
+        this.hasMore = hasMore;
+    }
+
+    public List<User> getChanged() {
+        return changed;
+    }
+
+    public void setChanged(List<User> changed) {
+        this.changed = changed;
+    }
+
+    public List<UserTombstone> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(List<UserTombstone> deleted) {
+        this.deleted = deleted;
+    }
+
+    public LocalDateTime getNextUpdatedAt() {
+        return nextUpdatedAt;
+    }
+
+    public void setNextUpdatedAt(LocalDateTime nextUpdatedAt) {
+        this.nextUpdatedAt = nextUpdatedAt;
+    }
+
+    public Long getNextId() {
+        return nextId;
+    }
+
+    public void setNextId(Long nextId) {
+        this.nextId = nextId;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public boolean isResyncRequired() {
+        return resyncRequired;
+    }
+
+    public void setResyncRequired(boolean resyncRequired) {
+        this.resyncRequired = resyncRequired;
+    }
+
+    @Override
+    public String toString() {
+        return "UserDeltaDto{" +
+                "changed=" + (changed != null ? changed.size() : 0) +
+                ", deleted=" + (deleted != null ? deleted.size() : 0) +
+                ", nextUpdatedAt=" + nextUpdatedAt +
+                ", nextId=" + nextId +
+                ", hasMore=" + hasMore +
+                ", resyncRequired=" + resyncRequired +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.dam.accesodatos.model;
+
+/**
+ * DTO de respuesta de export_users: el fichero generado, no los usuarios.
+ *
+ * Los datos se descargan después con GET /mcp/exports/{fileName}.
+ */
+public class UserExportDto {
+
+    private String fileName;
+    private String format;
+    private long rowCount;
+    private long sizeBytes;
+    private long elapsedMs;
+
+    public UserExportDto() {}
+
+    public UserExportDto(String fileName, String format, long rowCount, long sizeBytes, long elapsedMs) {
+        this.fileName = fileName;
+        this.format = format;
+        this.rowCount = rowCount;
+        this.sizeBytes = sizeBytes;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+}
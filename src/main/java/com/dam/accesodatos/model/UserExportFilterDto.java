@@ -0,0 +1,92 @@
+package com.dam.accesodatos.model;
+
+/**
+ * Filtros de export_users.
+ *
+ * A diferencia de UserQueryDto (limit=10 y offset=0 por defecto, pensados para paginar
+ * búsquedas), aquí todos los campos son null por defecto: sin limit ni offset se
+ * exportan todas las filas que cumplan los filtros, se construya como se construya
+ * (controlador, McpToolRegistry.invoke o JSON).
+ *
+ * includeArchived: añade al final los usuarios de users_archive que cumplan los
+ * filtros. No se combina con limit/offset (la paginación sería sobre dos tablas).
+ */
+public class UserExportFilterDto {
+
+    private String department;
+    private String role;
+    private Boolean active;
+    private Integer limit;
+    private Integer offset;
+    private Boolean includeArchived;
+
+    public UserExportFilterDto() {}
+
+    public UserExportFilterDto(String department, String role, Boolean active, Integer limit, Integer offset) {
+        this.department = department;
+        this.role = role;
+        this.active = active;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+
+    public void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    public Boolean getIncludeArchived() {
+        return includeArchived;
+    }
+
+    public void setIncludeArchived(Boolean includeArchived) {
+        this.includeArchived = includeArchived;
+    }
+
+    @Override
+    public String toString() {
+        return "UserExportFilterDto{" +
+                "department='" + department + '\'' +
+                ", role='" + role + '\'' +
+                ", active=" + active +
+                ", limit=" + limit +
+                ", offset=" + offset +
+                ", includeArchived=" + includeArchived +
+                '}';
+    }
+}
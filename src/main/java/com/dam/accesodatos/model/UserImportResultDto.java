@@ -0,0 +1,125 @@
+package com.dam.accesodatos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de respuesta de import_users: resumen de la carga y errores por fila.
+ *
+ * Una fila con error no detiene la importación: se anota (línea + motivo) y se
+ * continúa. Solo se devuelven los primeros errores (mcp.import.max-errors);
+ * failed cuenta todos.
+ *
+ * Si la carga se detiene antes del final (plazo agotado o fallo de la BD), aborted
+ * es true y los contadores reflejan lo ya confirmado: todas las filas válidas hasta
+ * lastCommittedLine están en la BD. Para continuar basta con volver a importar el
+ * fichero: las filas ya cargadas solo aparecen como "email repetido".
+ */
+public class UserImportResultDto {
+
+    private String fileName;
+    private long rowsRead;
+    private long inserted;
+    private long failed;
+    private long elapsedMs;
+    private long rowsPerSecond;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+    private boolean aborted;
+    private String abortReason;
+    private long lastCommittedLine;
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    public void setAborted(boolean aborted) {
+        this.aborted = aborted;
+    }
+
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    public void setAbortReason(String abortReason) {
+        this.abortReason = abortReason;
+    }
+
+    public long getLastCommittedLine() {
+        return lastCommittedLine;
+    }
+
+    public void setLastCommittedLine(long lastCommittedLine) {
+        this.lastCommittedLine = lastCommittedLine;
+    }
+
+    /**
+     * Fila rechazada: línea del fichero (la cabecera es la 1) y motivo.
+     */
+    public record RowError(long line, String message) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.dam.accesodatos.model;
+
+import com.dam.accesodatos.repository.LookupCodes;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Antes de cada INSERT/UPDATE de User se asegura de que su departamento y su rol
+ * tienen código en las tablas de consulta. Los conversores solo traducen: si el
+ * nombre es nuevo, el código se crea aquí y no en cada consulta.
+ */
+public class UserLookupListener {
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @PrePersist
+    @PreUpdate
+    public void ensureCodes(User user) {
+        if (user.getDepartment() != null) {
+            lookupCodes.ensureDepartment(user.getDepartment());
+        }
+        if (user.getRole() != null) {
+            lookupCodes.ensureRole(user.getRole());
+        }
+    }
+}
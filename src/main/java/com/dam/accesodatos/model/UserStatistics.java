@@ -0,0 +1,96 @@
+package com.dam.accesodatos.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entidad JPA UserStatistics: contador de inicios de sesión de un usuario (tabla 'user_statistics').
+ *
+ * Una fila por usuario (índice único en user_id). Se borra en cascada con el usuario.
+ *
+ * NOTA: record_login no escribe con esta entidad. Los inicios de sesión se acumulan
+ * en memoria (LoginCounterBuffer) y se vuelcan periódicamente con un batch JDBC;
+ * la entidad se usa para consultarlos.
+ */
+@Entity
+@Table(name = "user_statistics",
+       indexes = @Index(name = "idx_user_statistics_user", columnList = "user_id", unique = true))
+public class UserStatistics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "login_count")
+    private Integer loginCount;
+
+    @Column(name = "last_login")
+    private LocalDateTime lastLogin;
+
+    public UserStatistics() {}
+
+    public UserStatistics(Long userId, Integer loginCount, LocalDateTime lastLogin) {
+        this.userId = userId;
+        this.loginCount = loginCount;
+        this.lastLogin = lastLogin;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Integer getLoginCount() {
+        return loginCount;
+    }
+
+    public void setLoginCount(Integer loginCount) {
+        this.loginCount = loginCount;
+    }
+
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+
+    public void setLastLogin(LocalDateTime lastLogin) {
+        this.lastLogin = lastLogin;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserStatistics that = (UserStatistics) o;
+        return Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId);
+    }
+
+    @Override
+    public String toString() {
+        return "UserStatistics{" +
+                "userId=" + userId +
+                ", loginCount=" + loginCount +
+                ", lastLogin=" + lastLogin +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package com.dam.accesodatos.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * DTO de respuesta de user_stats_summary: recuento de usuarios agregado por
+ * departamento → rol, con activos/inactivos en cada nivel.
+ *
+ * Se construye con las filas de un único GROUP BY (department, role, active):
+ * una consulta en lugar de una llamada a execute_count_by_department por departamento.
+ */
+public class UserStatsSummaryDto {
+
+    private final Counts totals = new Counts();
+    private final Map<String, DepartmentStats> departments = new TreeMap<>();
+
+    /**
+     * Suma una fila del GROUP BY a todos los niveles.
+     */
+    public void add(String department, String role, boolean active, long count) {
+        totals.add(active, count);
+        DepartmentStats departmentStats = departments.computeIfAbsent(department, d -> new DepartmentStats());
+        departmentStats.add(active, count);
+        departmentStats.roles.computeIfAbsent(role, r -> new Counts()).add(active, count);
+    }
+
+    /**
+     * Suma otro resumen (p. ej. el de otro shard).
+     */
+    public void merge(UserStatsSummaryDto other) {
+        other.departments.forEach((department, stats) -> stats.roles.forEach((role, counts) -> {
+            add(department, role, true, counts.active);
+            add(department, role, false, counts.inactive);
+        }));
+    }
+
+    public Counts getTotals() {
+        return totals;
+    }
+
+    public Map<String, DepartmentStats> getDepartments() {
+        return departments;
+    }
+
+    /**
+     * Recuento total, de activos y de inactivos.
+     */
+    public static class Counts {
+        private long total;
+        private long active;
+        private long inactive;
+
+        void add(boolean isActive, long count) {
+            total += count;
+            if (isActive) {
+                active += count;
+            } else {
+                inactive += count;
+            }
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long getActive() {
+            return active;
+        }
+
+        public long getInactive() {
+            return inactive;
+        }
+    }
+
+    public static class DepartmentStats extends Counts {
+        private final Map<String, Counts> roles = new TreeMap<>();
+
+        public Map<String, Counts> getRoles() {
+            return roles;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.dam.accesodatos.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Entidad JPA UserTombstone: marca de borrado de un usuario (tabla 'user_tombstones').
+ *
+ * Una fila borrada desaparece de 'users', así que una sincronización incremental
+ * (find_users_changed_since) no podría enterarse del borrado. La lápida conserva el
+ * ID y el momento del borrado para que los clientes eliminen su copia local.
+ *
+ * NOTA: las lápidas se escriben con JDBC (UserTombstoneWriter) dentro de la misma
+ * transacción que el DELETE; esta entidad solo se usa para consultarlas con JPQL.
+ */
+@Entity
+@Table(name = "user_tombstones")
+public class UserTombstone {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public UserTombstone() {}
+
+    public UserTombstone(Long userId, LocalDateTime deletedAt) {
+        this.userId = userId;
+        this.deletedAt = deletedAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserTombstone that = (UserTombstone) o;
+        return Objects.equals(userId, that.userId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(userId);
+    }
+
+    @Override
+    public String toString() {
+        return "UserTombstone{" +
+                "userId=" + userId +
+                ", deletedAt=" + deletedAt +
+                '}';
+    }
+}
@@ -6,6 +6,9 @@ import jakarta.validation.constraints.*;
  * DTO para actualización de usuarios
  * Usado en herramientas MCP para validar datos de actualización
  * Todos los campos son opcionales para permitir actualizaciones parciales
+ *
+ * expectedVersion permite una actualización condicional: si se indica y no coincide
+ * con la versión actual del usuario, la actualización se rechaza.
  */
 public class UserUpdateDto {
 
@@ -21,6 +24,8 @@ public class UserUpdateDto {
 
     private Boolean active;
 
+    private Long expectedVersion;
+
     public UserUpdateDto() {}
 
     public UserUpdateDto(String name, String email, String department, String role, Boolean active) {
@@ -71,6 +76,14 @@ public class UserUpdateDto {
         this.active = active;
     }
 
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public void setExpectedVersion(Long expectedVersion) {
+        this.expectedVersion = expectedVersion;
+    }
+
     /**
      * Aplica las actualizaciones a un usuario existente
      */
@@ -90,6 +103,7 @@ public class UserUpdateDto {
                 ", department='" + department + '\'' +
                 ", role='" + role + '\'' +
                 ", active=" + active +
+                ", expectedVersion=" + expectedVersion +
                 '}';
     }
 }
@@ -0,0 +1,241 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.datasource.ShardContext;
+import com.dam.accesodatos.datasource.ShardRouter;
+import com.dam.accesodatos.model.ActiveUserDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ranking en memoria de top_active_users: los K usuarios con más inicios de sesión,
+ * global y por departamento (mcp.top-active.*).
+ *
+ * Un ORDER BY login_count DESC LIMIT K en cada llamada ordena (o recorre) user_statistics
+ * entera. Aquí cada ranking guarda como mucho K usuarios y la consulta devuelve una
+ * lista ya ordenada: O(K).
+ *
+ * ACTUALIZACIÓN:
+ * 1. Al arrancar se carga de la BD (una consulta con ROW_NUMBER() por departamento;
+ *    el top global está contenido en la unión de los tops de cada departamento)
+ * 2. Cada volcado de LoginCounterBuffer relee los totales de los usuarios que ha
+ *    actualizado y, tras el commit, los ofrece a los rankings
+ * 3. login_count solo crece: un usuario que sale del top K solo puede volver cuando
+ *    sube su propio contador, y entonces pasa por el paso 2
+ *
+ * LIMITACIONES: borrados, cambios de departamento o de nombre y escrituras directas en
+ * user_statistics no pasan por el paso 2. Se recogen en la recarga completa cada
+ * rebuild-interval-ms.
+ */
+@Component
+public class ActiveUsersLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUsersLeaderboard.class);
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private static final Comparator<ActiveUserDto> RANKING =
+            Comparator.comparingLong(ActiveUserDto::getLoginCount).reversed()
+                    .thenComparing(ActiveUserDto::getUserId);
+
+    private static final String SELECT_RANKING =
+            "SELECT s.user_id, u.name, d.name AS department, s.login_count, s.last_login "
+                    + "FROM user_statistics s JOIN users u ON u.id = s.user_id "
+                    + "JOIN departments d ON d.id = u.department_id";
+
+    private static final String SELECT_TOP_BY_DEPARTMENT =
+            "SELECT user_id, name, department, login_count, last_login FROM ("
+                    + "SELECT s.user_id, u.name, d.name AS department, s.login_count, s.last_login, "
+                    + "ROW_NUMBER() OVER (PARTITION BY u.department_id "
+                    + "ORDER BY s.login_count DESC, s.user_id) AS department_rank "
+                    + "FROM user_statistics s JOIN users u ON u.id = s.user_id "
+                    + "JOIN departments d ON d.id = u.department_id) ranked "
+                    + "WHERE department_rank <= ?";
+
+    private static final RowMapper<ActiveUserDto> ROW_MAPPER = (rs, rowNum) -> new ActiveUserDto(
+            rs.getLong("user_id"),
+            rs.getString("name"),
+            rs.getString("department"),
+            rs.getLong("login_count"),
+            rs.getTimestamp("last_login") != null ? rs.getTimestamp("last_login").toLocalDateTime() : null);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Value("${mcp.top-active.k:100}")
+    private int capacity;
+
+    // Ofrecer y recargar no se mezclan: una recarga no pisa un volcado confirmado después de su lectura
+    private final Object lock = new Object();
+
+    private volatile TopK global;
+    private volatile Map<String, TopK> byDepartment = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * Recarga completa desde user_statistics.
+     */
+    @Scheduled(initialDelayString = "${mcp.top-active.rebuild-interval-ms:60000}",
+               fixedDelayString = "${mcp.top-active.rebuild-interval-ms:60000}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        synchronized (lock) {
+            TopK freshGlobal = new TopK(capacity);
+            Map<String, TopK> freshByDepartment = new ConcurrentHashMap<>();
+            List<ActiveUserDto> rows = readTop();
+            for (ActiveUserDto row : rows) {
+                freshGlobal.offer(row);
+                freshByDepartment.computeIfAbsent(row.getDepartment(), d -> new TopK(capacity)).offer(row);
+            }
+            freshGlobal.publish();
+            freshByDepartment.values().forEach(TopK::publish);
+            global = freshGlobal;
+            byDepartment = freshByDepartment;
+            logger.debug("Ranking de usuarios activos recargado: {} filas en {} ms",
+                    rows.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * @param department Departamento, o null para el ranking global
+     * @param limit Usuarios a devolver (1..K; null = 10 o K si es menor)
+     * @return Usuarios por login_count descendente (empate: menor ID primero)
+     */
+    public List<ActiveUserDto> top(String department, Integer limit) {
+        int size = limit != null ? limit : Math.min(DEFAULT_LIMIT, capacity);
+        if (size < 1 || size > capacity) {
+            throw new IllegalArgumentException("limit debe estar entre 1 y " + capacity);
+        }
+        if (global == null) {
+            rebuild();
+        }
+        TopK scope = department == null ? global : byDepartment.get(department);
+        return scope != null ? scope.view(size) : List.of();
+    }
+
+    /**
+     * Totales actuales de estos usuarios, leídos con la conexión en curso (dentro de la
+     * transacción del volcado, y en su shard).
+     */
+    List<ActiveUserDto> read(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(userIds.size(), "?"));
+        return jdbcTemplate.query(SELECT_RANKING + " WHERE s.user_id IN (" + placeholders + ")",
+                ROW_MAPPER, userIds.toArray());
+    }
+
+    /**
+     * Ofrece totales ya confirmados a los rankings.
+     */
+    void offer(Collection<ActiveUserDto> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            TopK currentGlobal = global;
+            if (currentGlobal == null) {
+                return;  // Aún sin cargar: la carga inicial leerá estos totales
+            }
+            Map<String, TopK> currentByDepartment = byDepartment;
+            Set<TopK> changed = new HashSet<>();
+            for (ActiveUserDto user : users) {
+                if (currentGlobal.offer(user)) {
+                    changed.add(currentGlobal);
+                }
+                TopK department = currentByDepartment.computeIfAbsent(user.getDepartment(), d -> new TopK(capacity));
+                if (department.offer(user)) {
+                    changed.add(department);
+                }
+            }
+            changed.forEach(TopK::publish);
+        }
+    }
+
+    private List<ActiveUserDto> readTop() {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return jdbcTemplate.query(SELECT_TOP_BY_DEPARTMENT, ROW_MAPPER, capacity);
+        }
+        // Cada departamento vive en un shard: la unión de los tops de cada shard basta
+        List<ActiveUserDto> rows = new ArrayList<>();
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            rows.addAll(ShardContext.callOn(shard,
+                    () -> jdbcTemplate.query(SELECT_TOP_BY_DEPARTMENT, ROW_MAPPER, capacity)));
+        }
+        return rows;
+    }
+
+    /**
+     * Los K mejores de un ámbito. Se modifica con el lock del ranking; las lecturas usan
+     * la última lista publicada, inmutable, sin bloquear.
+     */
+    private static final class TopK {
+
+        private final int capacity;
+        private final TreeSet<ActiveUserDto> ranked = new TreeSet<>(RANKING);
+        private final Map<Long, ActiveUserDto> members = new HashMap<>();
+        private volatile List<ActiveUserDto> view = List.of();
+
+        TopK(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * @return true si el ranking ha cambiado
+         */
+        boolean offer(ActiveUserDto user) {
+            ActiveUserDto current = members.get(user.getUserId());
+            if (current != null) {
+                ranked.remove(current);
+            } else if (ranked.size() >= capacity) {
+                ActiveUserDto last = ranked.last();
+                if (RANKING.compare(user, last) >= 0) {
+                    return false;
+                }
+                ranked.pollLast();
+                members.remove(last.getUserId());
+            }
+            ranked.add(user);
+            members.put(user.getUserId(), user);
+            return true;
+        }
+
+        void publish() {
+            view = List.copyOf(ranked);
+        }
+
+        List<ActiveUserDto> view(int limit) {
+            List<ActiveUserDto> current = view;
+            return current.subList(0, Math.min(limit, current.size()));
+        }
+    }
+}
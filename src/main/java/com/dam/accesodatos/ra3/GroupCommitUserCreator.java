@@ -0,0 +1,364 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.cdc.UserChangeOutbox;
+import com.dam.accesodatos.datasource.ShardContext;
+import com.dam.accesodatos.datasource.ShardRouter;
+import com.dam.accesodatos.mcp.McpDeadline;
+import com.dam.accesodatos.mcp.McpToolContext;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.repository.LookupCodes;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * create_user con "group commit": agrupa altas concurrentes en una sola transacción.
+ *
+ * RA3 - CE3.g: Gestión de transacciones
+ *
+ * Cada createUser() normal abre una transacción, hace un INSERT y un commit. Con
+ * ráfagas de peticiones el coste dominante es el commit, no el INSERT. En este modo:
+ * 1. Cada llamada deja su alta en una cola y espera su resultado
+ * 2. Un hilo recoge las altas que llegan en una ventana corta (window-us) o hasta
+ *    max-batch, y las inserta con un único batch JDBC y un único commit
+ * 3. Cada llamada recibe SU usuario (con su ID) o SU error
+ *
+ * AISLAMIENTO DE ERRORES: un email duplicado no debe tumbar el lote entero.
+ * - El batch JDBC no pasa por persist(): las mismas validaciones de Bean Validation de
+ *   la entidad User (@Email, @Size...) se comprueban antes de encolar, en el hilo de la
+ *   llamada, que recibe la misma ConstraintViolationException que con createUser()
+ * - Los duplicados dentro del lote o ya existentes en la BD se detectan antes del INSERT
+ *   y solo falla la llamada afectada
+ * - Si aun así el lote falla (p. ej. otra transacción insertó el mismo email a la vez),
+ *   cada alta se repite por separado con createUser() normal
+ *
+ * PLAZO: cada llamada espera su resultado como mucho el tiempo que le quede a su
+ * McpDeadline (o mcp.deadline.default-ms si no tiene). Si vence con el alta aún en la
+ * cola, se retira y no se insertará.
+ *
+ * Desactivado por defecto (mcp.create-user.group-commit.enabled). Desactivado, o con
+ * la cola llena, las altas van directamente a HibernateUserService.createUser().
+ */
+@Component
+public class GroupCommitUserCreator {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupCommitUserCreator.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO users (name, email, department_id, role_id, active, created_at, updated_at, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+    @Autowired
+    private HibernateUserService hibernateUserService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UserChangeOutbox userChangeOutbox;
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @Autowired
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Autowired
+    private Validator validator;
+
+    @Value("${mcp.create-user.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${mcp.create-user.group-commit.window-us:500}")
+    private long windowMicros;
+
+    @Value("${mcp.create-user.group-commit.max-batch:64}")
+    private int maxBatch;
+
+    @Value("${mcp.create-user.group-commit.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${mcp.deadline.default-ms:10000}")
+    private long defaultWaitMs;
+
+    private BlockingQueue<PendingCreate> queue;
+    private TransactionTemplate transactionTemplate;
+    private Thread flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        flusher = new Thread(this::flushLoop, "create-user-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("Group commit de create_user activo: ventana={}µs, lote máximo={}", windowMicros, maxBatch);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+    }
+
+    /**
+     * Crea el usuario, agrupándolo con otras altas concurrentes si el modo está activo.
+     *
+     * @return Usuario creado con su ID
+     * @throws RuntimeException el mismo error que daría createUser() para ESTE usuario
+     */
+    public User createUser(UserCreateDto dto) {
+        if (!enabled) {
+            return hibernateUserService.createUser(dto);
+        }
+
+        validate(dto);
+        PendingCreate pending = new PendingCreate(dto);
+        if (!queue.offer(pending)) {
+            return hibernateUserService.createUser(dto);
+        }
+
+        long remaining = McpDeadline.remainingMillis();
+        long waitMs = Math.max(0, remaining == Long.MAX_VALUE ? defaultWaitMs : remaining);
+        try {
+            return pending.result.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (pending.claim()) {
+                // Seguía en la cola: el hilo de agrupación la descartará
+                throw new QueryTimeoutException("Plazo agotado esperando al group commit de create_user");
+            }
+            throw new QueryTimeoutException(
+                    "Plazo agotado con el alta ya en un lote: puede haberse confirmado (email " + dto.getEmail() + ")");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando al group commit de create_user", e);
+        }
+    }
+
+    /**
+     * Mismas restricciones que comprueba Hibernate en persist() sobre la entidad User.
+     */
+    private void validate(UserCreateDto dto) {
+        User user = new User(dto.getName(), dto.getEmail(), dto.getDepartment(), dto.getRole());
+        Set<ConstraintViolation<User>> violations = validator.validate(user);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    // ========== Hilo de agrupación ==========
+
+    private void flushLoop() {
+        List<PendingCreate> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(windowMicros);
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingCreate next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                batch.forEach(p -> p.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+
+        IllegalStateException stopped = new IllegalStateException("Group commit detenido");
+        PendingCreate leftover;
+        while (queue != null && (leftover = queue.poll()) != null) {
+            leftover.result.completeExceptionally(stopped);
+        }
+    }
+
+    private void flush(List<PendingCreate> batch) {
+        // Las altas cuyo llamante agotó su plazo ya no se insertan
+        batch.removeIf(p -> !p.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        McpToolContext.setCurrentTool("create_user");
+        try {
+            ShardRouter router = shardRouter.getIfAvailable();
+            if (router == null) {
+                flushGroup(batch);
+                return;
+            }
+            Map<Integer, List<PendingCreate>> byShard = batch.stream()
+                    .collect(Collectors.groupingBy(p -> router.shardForDepartment(p.dto.getDepartment())));
+            byShard.forEach((shard, group) -> ShardContext.callOn(shard, () -> {
+                flushGroup(group);
+                return null;
+            }));
+        } finally {
+            McpToolContext.clear();
+        }
+    }
+
+    /**
+     * Inserta un grupo en una transacción. Falla solo las altas con email repetido.
+     */
+    private void flushGroup(List<PendingCreate> group) {
+        List<PendingCreate> accepted = rejectDuplicateEmails(group);
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Códigos nuevos en autocommit antes de abrir la transacción del lote
+            lookupCodes.prepare(accepted.stream().map(p -> p.dto.getDepartment()).collect(Collectors.toSet()),
+                    accepted.stream().map(p -> p.dto.getRole()).collect(Collectors.toSet()));
+            Map<String, User> created = transactionTemplate.execute(status -> insertBatch(accepted));
+            accepted.forEach(p -> p.result.complete(created.get(p.dto.getEmail())));
+            logger.debug("Group commit: {} usuarios en una transacción", accepted.size());
+        } catch (RuntimeException e) {
+            logger.debug("Lote de create_user fallido ({}), reintentando uno a uno", e.getMessage());
+            for (PendingCreate p : accepted) {
+                try {
+                    p.result.complete(hibernateUserService.createUser(p.dto));
+                } catch (RuntimeException individual) {
+                    p.result.completeExceptionally(individual);
+                }
+            }
+        }
+    }
+
+    private List<PendingCreate> rejectDuplicateEmails(List<PendingCreate> group) {
+        List<String> emails = group.stream()
+                .map(p -> p.dto.getEmail())
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Set<String> existing = new HashSet<>();
+        if (!emails.isEmpty()) {
+            String placeholders = String.join(", ", Collections.nCopies(emails.size(), "?"));
+            existing.addAll(jdbcTemplate.queryForList(
+                    "SELECT email FROM users WHERE email IN (" + placeholders + ")", String.class, emails.toArray()));
+        }
+
+        List<PendingCreate> accepted = new ArrayList<>(group.size());
+        Set<String> seen = new HashSet<>();
+        for (PendingCreate p : group) {
+            String email = p.dto.getEmail();
+            if (email != null && (existing.contains(email) || !seen.add(email))) {
+                p.result.completeExceptionally(new DataIntegrityViolationException(
+                        "Ya existe un usuario con el email " + email));
+            } else {
+                accepted.add(p);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * INSERT en batch JDBC + lectura de los IDs generados + eventos en la outbox.
+     * Los IDs se recuperan por email (único), que funciona con cualquier driver.
+     */
+    private Map<String, User> insertBatch(List<PendingCreate> accepted) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<User> users = accepted.stream().map(p -> {
+            User user = new User(p.dto.getName(), p.dto.getEmail(), p.dto.getDepartment(), p.dto.getRole());
+            user.setCreatedAt(now);
+            user.setUpdatedAt(now);
+            user.setVersion(0L);
+            return user;
+        }).collect(Collectors.toList());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, users, users.size(), (ps, user) -> {
+            ps.setString(1, user.getName());
+            ps.setString(2, user.getEmail());
+            // JDBC directo: no pasa por UserLookupListener, los códigos se obtienen aquí
+            ps.setShort(3, lookupCodes.ensureDepartment(user.getDepartment()));
+            ps.setShort(4, lookupCodes.ensureRole(user.getRole()));
+            ps.setBoolean(5, true);
+            ps.setTimestamp(6, timestamp);
+            ps.setTimestamp(7, timestamp);
+        });
+
+        Map<String, User> byEmail = users.stream().collect(Collectors.toMap(User::getEmail, u -> u));
+        String placeholders = String.join(", ", Collections.nCopies(users.size(), "?"));
+        jdbcTemplate.query("SELECT id, email FROM users WHERE email IN (" + placeholders + ")",
+                rs -> {
+                    byEmail.get(rs.getString("email")).setId(rs.getLong("id"));
+                },
+                byEmail.keySet().toArray());
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            for (User user : users) {
+                userChangeOutbox.append(connection, UserChangeOutbox.CREATE, user.getId(), user);
+            }
+            return null;
+        });
+        return byEmail;
+    }
+
+    private static final class PendingCreate {
+        final UserCreateDto dto;
+        final CompletableFuture<User> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PendingCreate(UserCreateDto dto) {
+            this.dto = dto;
+        }
+
+        /**
+         * Lo reclama el hilo de agrupación (para insertarla) o el llamante (al agotar el
+         * plazo): solo uno de los dos lo consigue.
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.dam.accesodatos.ra3;
 
+import com.dam.accesodatos.model.ActiveUserDto;
 import com.dam.accesodatos.model.User;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserDeltaDto;
+import com.dam.accesodatos.model.UserExportDto;
+import com.dam.accesodatos.model.UserExportFilterDto;
+import com.dam.accesodatos.model.UserImportResultDto;
 import com.dam.accesodatos.model.UserUpdateDto;
 import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserStatsSummaryDto;
 import org.springframework.ai.mcp.server.annotation.Tool;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -110,6 +117,29 @@ public interface HibernateUserService {
           description = "Busca un usuario por ID usando EntityManager.find()")
     User findUserById(Long id);
 
+    /**
+     * CE3.e: Busca varios usuarios por ID en pocas consultas usando Session.byMultipleIds()
+     *
+     * Alternativa a llamar a find_user_by_id en bucle (una petición y un SELECT por ID).
+     *
+     * Implementación requerida:
+     * - Obtener la Session nativa con entityManager.unwrap(Session.class)
+     * - session.byMultipleIds(User.class) con tamaño de batch, comprobación de la
+     *   sesión/caché de segundo nivel y resultados ordenados
+     * - Ejecutar con multiLoad(ids)
+     *
+     * Clases Hibernate requeridas:
+     * - org.hibernate.Session
+     * - org.hibernate.MultiIdentifierLoadAccess
+     *
+     * @param ids Lista de IDs a buscar
+     * @return Usuarios en el mismo orden que ids (null en la posición de los IDs inexistentes)
+     * @throws RuntimeException si hay error de BD
+     */
+    @Tool(name = "find_users_by_ids",
+          description = "Busca varios usuarios por ID en lotes usando Session.byMultipleIds()")
+    List<User> findUsersByIds(List<Long> ids);
+
     /**
      * CE3.e: Actualiza un usuario existente usando EntityManager.merge()
      *
@@ -237,7 +267,8 @@ public interface HibernateUserService {
      * @throws RuntimeException si hay error
      */
     @Tool(name = "search_users",
-          description = "Busca usuarios con filtros dinámicos usando JPQL")
+          description = "Busca usuarios con filtros dinámicos usando JPQL "
+                  + "(includeArchived: los de users_archive que cumplan los filtros, en 'archived')")
     List<User> searchUsers(UserQueryDto query);
 
     // ========== CE3.g: Gestión de Transacciones ==========
@@ -290,4 +321,162 @@ public interface HibernateUserService {
     @Tool(name = "execute_count_by_department",
           description = "Ejecuta consulta COUNT usando JPQL")
     long executeCountByDepartment(String department);
+
+    // ========== Operaciones masivas (bulk JPQL) ==========
+
+    /**
+     * Desactiva todos los usuarios de un departamento con un único UPDATE JPQL
+     *
+     * A diferencia de updateUser() (find + modificar + merge, una sentencia por fila),
+     * una operación bulk se ejecuta en la BD en un solo viaje de ida y vuelta.
+     *
+     * IMPORTANTE: Las sentencias bulk no actualizan las entidades ya cargadas en el
+     * contexto de persistencia ni en la caché de segundo nivel. La implementación
+     * debe invalidarlas tras ejecutar la sentencia.
+     *
+     * @param department Departamento a desactivar
+     * @return Número de usuarios desactivados
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "deactivate_department",
+          description = "Desactiva todos los usuarios de un departamento con un único UPDATE JPQL")
+    int deactivateDepartment(String department);
+
+    /**
+     * Reasigna un rol a otro en todos los usuarios con un único UPDATE JPQL
+     *
+     * @param fromRole Rol actual
+     * @param toRole Nuevo rol
+     * @return Número de usuarios actualizados
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "reassign_role",
+          description = "Cambia el rol de todos los usuarios con un rol dado usando un único UPDATE JPQL")
+    int reassignRole(String fromRole, String toRole);
+
+    /**
+     * Elimina los usuarios inactivos no modificados desde una fecha con un único DELETE JPQL
+     *
+     * @param cutoff Fecha límite: se eliminan los inactivos con updated_at anterior
+     * @return Número de usuarios eliminados
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "delete_inactive_before",
+          description = "Elimina usuarios inactivos anteriores a una fecha usando un único DELETE JPQL")
+    int deleteInactiveBefore(LocalDateTime cutoff);
+
+    // ========== Sincronización incremental ==========
+
+    /**
+     * Devuelve los usuarios creados, modificados o borrados después de una marca de agua
+     *
+     * La marca de agua es el par (updated_at, id) del último cambio ya recibido. Los
+     * cambios se devuelven ordenados por ese par y en lotes; el DTO incluye la marca de
+     * agua siguiente. Los borrados se devuelven como lápidas (ID + fecha de borrado).
+     *
+     * Permite a un cliente con copia local descargar solo las diferencias en lugar de
+     * toda la tabla. Usa el índice idx_users_updated_at(updated_at, id).
+     *
+     * @param since updated_at de la marca de agua (null = desde el principio)
+     * @param afterId id de la marca de agua (null = 0)
+     * @param limit Máximo de cambios en el lote
+     * @return Cambios, lápidas y marca de agua siguiente
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "find_users_changed_since",
+          description = "Devuelve por lotes los usuarios cambiados o borrados desde una marca de agua (updated_at, id)")
+    UserDeltaDto findUsersChangedSince(LocalDateTime since, Long afterId, int limit);
+
+    // ========== Agregados ==========
+
+    /**
+     * Resumen de usuarios por departamento, rol y estado con una única consulta GROUP BY
+     *
+     * Sustituye a llamar a execute_count_by_department una vez por departamento: una
+     * sola consulta y un solo recorrido de la tabla para todo el panel.
+     *
+     * @param department Filtro opcional por departamento (null = todos)
+     * @param role Filtro opcional por rol (null = todos)
+     * @param active Filtro opcional por estado (null = activos e inactivos)
+     * @return Recuentos anidados departamento → rol, con activos/inactivos
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "user_stats_summary",
+          description = "Recuento de usuarios por departamento, rol y estado activo en una sola consulta GROUP BY "
+                  + "(includeArchived: suma también users_archive)")
+    UserStatsSummaryDto userStatsSummary(String department, String role, Boolean active);
+
+    // ========== Exportación ==========
+
+    /**
+     * Exporta los usuarios (o un subconjunto filtrado) a un fichero CSV o JSON Lines
+     *
+     * Las filas se leen con un cursor (ScrollableResults) y se escriben según llegan:
+     * ni la tabla ni la respuesta JSON tienen que caber en memoria. El fichero se
+     * descarga después con GET /mcp/exports/{fileName}.
+     *
+     * @param query Filtros department, role y active; limit y offset son opcionales
+     *              (null = todas las filas, sin los valores por defecto de UserQueryDto);
+     *              includeArchived añade los usuarios de users_archive. Puede ser null.
+     * @param format "csv" (por defecto) o "jsonl"
+     * @return Nombre del fichero, filas, tamaño y duración
+     * @throws IllegalArgumentException si el formato no es válido
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "export_users",
+          description = "Exporta usuarios filtrados a un fichero CSV o JSON Lines para descargarlo después "
+                  + "(includeArchived: también los de users_archive)")
+    UserExportDto exportUsers(UserExportFilterDto query, String format);
+
+    /**
+     * Importa usuarios desde un fichero CSV del directorio de importación del servidor
+     *
+     * El fichero se lee mapeado en memoria en un hilo y se inserta en lotes JDBC en
+     * otro, con una cola acotada entre ambos. Las filas con error se anotan y la carga
+     * continúa con las demás. Si vence el plazo de la petición o falla la BD, la carga
+     * se detiene tras el último lote confirmado y devuelve el resultado parcial
+     * (aborted, abortReason, lastCommittedLine).
+     *
+     * @param fileName Nombre del fichero en mcp.import.directory (cabecera con
+     *                 name, email, department, role y opcionalmente active)
+     * @return Filas leídas, insertadas y con error, errores por línea y filas/segundo
+     * @throws IllegalArgumentException si el fichero no existe o falta alguna columna
+     * @throws RuntimeException si hay error
+     */
+    @Tool(name = "import_users",
+          description = "Carga masiva de usuarios desde un CSV del servidor con errores por fila y resumen de rendimiento")
+    UserImportResultDto importUsers(String fileName);
+
+    // ========== Estadísticas de uso ==========
+
+    /**
+     * Registra un inicio de sesión del usuario (user_statistics.login_count y last_login)
+     *
+     * No escribe en la BD en cada llamada: los inicios de sesión se acumulan en memoria
+     * y se vuelcan por lotes cada mcp.login-stats.flush-interval-ms. Si el servidor se
+     * cae se pierden como mucho los de ese intervalo.
+     *
+     * @param userId ID del usuario
+     * @return true si se ha registrado
+     * @throws IllegalArgumentException si userId es null
+     */
+    @Tool(name = "record_login",
+          description = "Registra un inicio de sesión de un usuario (contador acumulado en memoria y volcado por lotes)")
+    boolean recordLogin(Long userId);
+
+    /**
+     * Usuarios con más inicios de sesión, global o de un departamento
+     *
+     * Se lee de un ranking en memoria que se actualiza con cada volcado de record_login,
+     * sin ORDER BY sobre user_statistics. Va por detrás de record_login como mucho
+     * mcp.login-stats.flush-interval-ms.
+     *
+     * @param department Departamento, o null para el ranking global
+     * @param limit Usuarios a devolver (null = 10; máximo mcp.top-active.k)
+     * @return Usuarios ordenados por login_count descendente
+     * @throws IllegalArgumentException si limit está fuera de rango
+     */
+    @Tool(name = "top_active_users",
+          description = "Usuarios con más inicios de sesión, global o por departamento, desde un ranking en memoria")
+    List<ActiveUserDto> topActiveUsers(String department, Integer limit);
 }
@@ -1,22 +1,46 @@
 package com.dam.accesodatos.ra3;
 
+import com.dam.accesodatos.cdc.UserChangeOutbox;
+import com.dam.accesodatos.cdc.UserTombstoneWriter;
+import com.dam.accesodatos.csvimport.UserCsvImporter;
+import com.dam.accesodatos.export.ExportFormat;
+import com.dam.accesodatos.export.UserExportFiles;
+import com.dam.accesodatos.export.UserExportWriter;
+import com.dam.accesodatos.model.ActiveUserDto;
+import com.dam.accesodatos.model.ArchivedUser;
 import com.dam.accesodatos.model.User;
 import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserDeltaDto;
+import com.dam.accesodatos.model.UserExportDto;
+import com.dam.accesodatos.model.UserExportFilterDto;
+import com.dam.accesodatos.model.UserImportResultDto;
+import com.dam.accesodatos.model.UserTombstone;
 import com.dam.accesodatos.model.UserUpdateDto;
 import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import com.dam.accesodatos.repository.LookupCodes;
 import com.dam.accesodatos.repository.UserRepository;
 import jakarta.persistence.*;
 import jakarta.persistence.criteria.*;
 import jakarta.persistence.metamodel.Attribute;
 import jakarta.persistence.metamodel.EntityType;
 import jakarta.persistence.metamodel.Metamodel;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -42,6 +66,20 @@ import java.util.*;
  * 2. searchUsers() - JPQL dinámico (simplificado, sin Criteria API)
  * 3. transferData() - Transacción múltiple
  * 4. executeCountByDepartment() - JPQL COUNT
+ *
+ * OPERACIONES MASIVAS (bulk JPQL):
+ * - deactivateDepartment(), reassignRole(), deleteInactiveBefore()
+ *
+ * SINCRONIZACIÓN INCREMENTAL:
+ * - findUsersChangedSince() - paginación por marca de agua (keyset) + lápidas
+ *
+ * EXPORTACIÓN:
+ * - exportUsers() - cursor (ScrollableResults) volcado a fichero con FileChannel
+ * - importUsers() - CSV mapeado en memoria + batches JDBC (UserCsvImporter)
+ *
+ * ESTADÍSTICAS DE USO:
+ * - recordLogin() - contadores en memoria volcados por lotes (LoginCounterBuffer)
+ * - topActiveUsers() - ranking top-K en memoria (ActiveUsersLeaderboard)
  */
 @Service
 @Transactional(readOnly = true)  // Transacciones de solo lectura por defecto
@@ -53,6 +91,39 @@ public class HibernateUserServiceImpl implements HibernateUserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserChangeOutbox userChangeOutbox;
+
+    @Autowired
+    private UserTombstoneWriter userTombstoneWriter;
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @Value("${mcp.multi-load.batch-size:100}")
+    private int multiLoadBatchSize;
+
+    @Value("${mcp.delta-sync.max-batch-size:500}")
+    private int deltaMaxBatchSize;
+
+    @Value("${mcp.delta-sync.safety-lag-ms:1000}")
+    private long deltaSafetyLagMs;
+
+    @Autowired
+    private UserExportFiles userExportFiles;
+
+    @Value("${mcp.export.fetch-size:500}")
+    private int exportFetchSize;
+
+    @Autowired
+    private UserCsvImporter userCsvImporter;
+
+    @Autowired
+    private LoginCounterBuffer loginCounterBuffer;
+
+    @Autowired
+    private ActiveUsersLeaderboard activeUsersLeaderboard;
+
     // ========== CE3.a: Configuración y Conexión ORM ==========
 
     /**
@@ -141,6 +212,31 @@ public class HibernateUserServiceImpl implements HibernateUserService {
         return entityManager.find(User.class, id);
     }
 
+    /**
+     * Multi-get con la API nativa de Hibernate.
+     *
+     * - withBatchSize(): IDs por SELECT ... WHERE id IN (...)
+     * - enableSessionCheck(): no consulta la BD para las entidades ya cargadas
+     * - with(CacheMode.NORMAL): consulta primero la caché de segundo nivel
+     * - enableOrderedReturn(): el resultado respeta el orden de los IDs recibidos
+     *
+     * 500 IDs = 500 / batch-size consultas, en lugar de 500 SELECT.
+     */
+    @Override
+    public List<User> findUsersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Session session = entityManager.unwrap(Session.class);
+        return session.byMultipleIds(User.class)
+                .withBatchSize(multiLoadBatchSize)
+                .enableSessionCheck(true)
+                .with(CacheMode.NORMAL)
+                .enableOrderedReturn(true)
+                .multiLoad(ids);
+    }
+
     /**
      * ✅ EJEMPLO IMPLEMENTADO 4/6: UPDATE con merge()
      *
@@ -164,6 +260,15 @@ public class HibernateUserServiceImpl implements HibernateUserService {
             throw new RuntimeException("No se encontró usuario con ID " + id);
         }
 
+        // Actualización condicional: el cliente indica la versión que leyó.
+        // Si no coincide, otro agente modificó el usuario y rechazamos el cambio
+        // en lugar de sobrescribirlo. Si coincide, @Version protege además la
+        // ventana entre este find() y el UPDATE (WHERE id = ? AND version = ?).
+        if (dto.getExpectedVersion() != null && !dto.getExpectedVersion().equals(existing.getVersion())) {
+            throw new OptimisticLockException("El usuario " + id + " tiene versión " + existing.getVersion()
+                    + " (esperada " + dto.getExpectedVersion() + ")", null, existing);
+        }
+
         // 2. Aplicar cambios del DTO
         if (dto.getName() != null) {
             existing.setName(dto.getName());
@@ -183,7 +288,8 @@ public class HibernateUserServiceImpl implements HibernateUserService {
         existing.setUpdatedAt(LocalDateTime.now());
 
         // 3. merge() actualiza la entidad
-        // Hibernate detecta qué campos cambiaron y genera UPDATE solo de esos campos
+        // Hibernate detecta qué campos cambiaron y, gracias a @DynamicUpdate,
+        // genera un UPDATE solo de esos campos (más version = version + 1)
         return entityManager.merge(existing);
         // Al finalizar, Spring hace commit y Hibernate ejecuta el UPDATE
     }
@@ -210,6 +316,9 @@ public class HibernateUserServiceImpl implements HibernateUserService {
         // DIFERENCIA vs RA2:
         // - RA2: DELETE FROM users WHERE id = ?
         // - RA3: entityManager.remove(user)
+        //
+        // NOTA: el evento DELETE para /mcp/subscribe_user_changes lo registra
+        // UserChangeEventListener automáticamente; no hace falta código extra.
 
         throw new UnsupportedOperationException("TODO CE3.e: Implementar deleteUser() - " +
                 "Usar find() para buscar y remove() para eliminar");
@@ -296,6 +405,9 @@ public class HibernateUserServiceImpl implements HibernateUserService {
         // 5. Ejecutar y retornar:
         //    return query.getResultList();
         //
+        // OPCIONAL: paginación con ORDER BY u.id, setFirstResult(offset) y setMaxResults(limit).
+        // ShardedHibernateUserService asume este orden al mezclar resultados de varios shards.
+        //
         // VENTAJA vs RA2: Parámetros nombrados evitan SQL injection
 
         throw new UnsupportedOperationException("TODO CE3.f: Implementar searchUsers() - " +
@@ -360,4 +472,271 @@ public class HibernateUserServiceImpl implements HibernateUserService {
         throw new UnsupportedOperationException("TODO CE3.f: Implementar executeCountByDepartment() - " +
                 "Usar JPQL 'SELECT COUNT(u) FROM User u WHERE u.department = :dept'");
     }
+
+    // ========== Operaciones masivas (bulk JPQL) ==========
+
+    /**
+     * UPDATE masivo: una sola sentencia para todo el departamento.
+     *
+     * El repositorio usa @Modifying(clearAutomatically = true), por lo que el
+     * contexto de persistencia queda limpio tras la sentencia. Además se invalida
+     * la región de User en la caché de segundo nivel (si está habilitada).
+     *
+     * Como no pasa por las entidades, el listener de Hibernate no ve los cambios:
+     * se publica un único evento BULK_* con los criterios de la operación.
+     */
+    @Override
+    @Transactional
+    public int deactivateDepartment(String department) {
+        int updated = userRepository.deactivateByDepartment(department, LocalDateTime.now());
+        evictUserCache();
+        userChangeOutbox.appendBulk(entityManager, UserChangeOutbox.BULK_UPDATE, Map.of(
+                "where", Map.of("department", department),
+                "set", Map.of("active", false),
+                "affected", updated));
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int reassignRole(String fromRole, String toRole) {
+        // El UPDATE masivo no pasa por UserLookupListener: el rol nuevo necesita código antes
+        lookupCodes.ensureRole(toRole);
+        int updated = userRepository.reassignRole(fromRole, toRole, LocalDateTime.now());
+        evictUserCache();
+        userChangeOutbox.appendBulk(entityManager, UserChangeOutbox.BULK_UPDATE, Map.of(
+                "where", Map.of("role", fromRole),
+                "set", Map.of("role", toRole),
+                "affected", updated));
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int deleteInactiveBefore(LocalDateTime cutoff) {
+        userTombstoneWriter.recordInactiveBefore(entityManager, cutoff);
+        int deleted = userRepository.deleteInactiveBefore(cutoff);
+        evictUserCache();
+        userChangeOutbox.appendBulk(entityManager, UserChangeOutbox.BULK_DELETE, Map.of(
+                "where", Map.of("active", false, "updatedBefore", cutoff.toString()),
+                "affected", deleted));
+        return deleted;
+    }
+
+    // ========== Sincronización incremental ==========
+
+    /**
+     * Paginación por marca de agua (keyset) sobre (updated_at, id).
+     *
+     * A diferencia de OFFSET, la consulta empieza directamente en la posición de la
+     * marca de agua gracias al índice, y no salta ni repite filas aunque la tabla cambie
+     * entre lotes. Se piden limit + 1 filas de cada fuente para saber si hay más.
+     *
+     * MARGEN DE SEGURIDAD: updated_at lo asigna la aplicación ANTES del commit. Una
+     * transacción lenta podría confirmar un updated_at menor que una marca de agua ya
+     * entregada y el cliente no la vería nunca. Por eso solo se devuelven cambios con
+     * más de safety-lag-ms de antigüedad; los más recientes llegan en la siguiente llamada.
+     */
+    @Override
+    public UserDeltaDto findUsersChangedSince(LocalDateTime since, Long afterId, int limit) {
+        LocalDateTime from = since != null ? since : LocalDateTime.of(1970, 1, 1, 0, 0);
+        long fromId = afterId != null ? afterId : 0L;
+        int batch = Math.max(1, Math.min(limit, deltaMaxBatchSize));
+        LocalDateTime upTo = LocalDateTime.now().minusNanos(deltaSafetyLagMs * 1_000_000);
+
+        List<User> changed = entityManager.createQuery(
+                        "SELECT u FROM User u "
+                                + "WHERE (u.updatedAt > :since OR (u.updatedAt = :since AND u.id > :afterId)) "
+                                + "AND u.updatedAt <= :upTo "
+                                + "ORDER BY u.updatedAt, u.id", User.class)
+                .setParameter("since", from)
+                .setParameter("afterId", fromId)
+                .setParameter("upTo", upTo)
+                .setMaxResults(batch + 1)
+                .getResultList();
+
+        List<UserTombstone> deleted = entityManager.createQuery(
+                        "SELECT t FROM UserTombstone t "
+                                + "WHERE (t.deletedAt > :since OR (t.deletedAt = :since AND t.userId > :afterId)) "
+                                + "AND t.deletedAt <= :upTo "
+                                + "ORDER BY t.deletedAt, t.userId", UserTombstone.class)
+                .setParameter("since", from)
+                .setParameter("afterId", fromId)
+                .setParameter("upTo", upTo)
+                .setMaxResults(batch + 1)
+                .getResultList();
+
+        UserDeltaDto delta = UserDeltaMerger.merge(changed, deleted, batch, since, fromId, false);
+        delta.setResyncRequired(since != null && since.isBefore(userTombstoneWriter.retentionLimit()));
+        return delta;
+    }
+
+    // ========== Agregados ==========
+
+    /**
+     * Un único GROUP BY sobre (department, role, active). Con los códigos de
+     * departments/roles se agrupa por columnas SMALLINT; el conversor devuelve los nombres.
+     *
+     * Los filtros opcionales usan ":param IS NULL OR ...", así la consulta es siempre la
+     * misma y se reutiliza su plan.
+     */
+    @Override
+    public UserStatsSummaryDto userStatsSummary(String department, String role, Boolean active) {
+        List<Object[]> rows = entityManager.createQuery(
+                        "SELECT u.department, u.role, u.active, COUNT(u) FROM User u "
+                                + "WHERE (:dept IS NULL OR u.department = :dept) "
+                                + "AND (:role IS NULL OR u.role = :role) "
+                                + "AND (:active IS NULL OR u.active = :active) "
+                                + "GROUP BY u.department, u.role, u.active", Object[].class)
+                .setParameter("dept", department)
+                .setParameter("role", role)
+                .setParameter("active", active)
+                .getResultList();
+
+        UserStatsSummaryDto summary = new UserStatsSummaryDto();
+        for (Object[] row : rows) {
+            summary.add((String) row[0], (String) row[1], Boolean.TRUE.equals(row[2]), (Long) row[3]);
+        }
+        return summary;
+    }
+
+    // ========== Exportación ==========
+
+    /**
+     * Recorre los usuarios con un cursor de solo avance y los escribe en el fichero
+     * según llegan. A diferencia de findAll() + JSON, la memoria no crece con la tabla:
+     * - setFetchSize: el driver trae fetch-size filas por viaje a la BD
+     * - setReadOnly: Hibernate no guarda la copia para dirty checking
+     * - CacheMode.IGNORE: no se llena la caché de segundo nivel con toda la tabla
+     * - session.clear() cada fetch-size filas: el contexto de persistencia no crece
+     * Con includeArchived se recorre después users_archive del mismo modo.
+     */
+    @Override
+    public UserExportDto exportUsers(UserExportFilterDto queryDto, String format) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        UserExportFilterDto filters = queryDto != null ? queryDto : new UserExportFilterDto();
+        boolean includeArchived = Boolean.TRUE.equals(filters.getIncludeArchived());
+        if (includeArchived && (filters.getLimit() != null || filters.getOffset() != null)) {
+            throw new IllegalArgumentException("includeArchived en export_users no admite limit/offset");
+        }
+        long start = System.nanoTime();
+
+        Session session = entityManager.unwrap(Session.class);
+        SelectionQuery<User> query = session.createSelectionQuery(
+                        "FROM User u "
+                                + "WHERE (:dept IS NULL OR u.department = :dept) "
+                                + "AND (:role IS NULL OR u.role = :role) "
+                                + "AND (:active IS NULL OR u.active = :active) "
+                                + "ORDER BY u.id", User.class)
+                .setParameter("dept", filters.getDepartment())
+                .setParameter("role", filters.getRole())
+                .setParameter("active", filters.getActive())
+                .setFetchSize(exportFetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE);
+        if (filters.getOffset() != null) {
+            query.setFirstResult(filters.getOffset());
+        }
+        if (filters.getLimit() != null) {
+            query.setMaxResults(filters.getLimit());
+        }
+
+        UserExportWriter writer = null;
+        try (ScrollableResults<User> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            writer = userExportFiles.create(exportFormat);
+            int inSession = 0;
+            while (rows.next()) {
+                writer.write(rows.get());
+                if (++inSession == exportFetchSize) {
+                    session.clear();
+                    inSession = 0;
+                }
+            }
+            if (includeArchived) {
+                exportArchived(session, filters, writer);
+            }
+            writer.close();
+            return userExportFiles.describe(writer.getFile(), exportFormat, writer.getRowCount(), start);
+        } catch (IOException e) {
+            discardExport(writer);
+            throw new UncheckedIOException("Error escribiendo la exportación", e);
+        } catch (RuntimeException e) {
+            discardExport(writer);
+            throw e;
+        }
+    }
+
+    private void exportArchived(Session session, UserExportFilterDto filters, UserExportWriter writer)
+            throws IOException {
+        SelectionQuery<ArchivedUser> query = session.createSelectionQuery(
+                        "FROM ArchivedUser a "
+                                + "WHERE (:dept IS NULL OR a.department = :dept) "
+                                + "AND (:role IS NULL OR a.role = :role) "
+                                + "AND (:active IS NULL OR a.active = :active) "
+                                + "ORDER BY a.id", ArchivedUser.class)
+                .setParameter("dept", filters.getDepartment())
+                .setParameter("role", filters.getRole())
+                .setParameter("active", filters.getActive())
+                .setFetchSize(exportFetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE);
+        try (ScrollableResults<ArchivedUser> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            int inSession = 0;
+            while (rows.next()) {
+                writer.write(rows.get());
+                if (++inSession == exportFetchSize) {
+                    session.clear();
+                    inSession = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * NOT_SUPPORTED: sin la transacción de solo lectura de la clase. Cada lote abre
+     * y confirma la suya (un fallo a mitad no deshace los lotes ya cargados).
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UserImportResultDto importUsers(String fileName) {
+        return userCsvImporter.importFile(fileName);
+    }
+
+    /**
+     * NOT_SUPPORTED: solo toca memoria, no debe ocupar una conexión del pool.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean recordLogin(Long userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("userId es obligatorio");
+        }
+        loginCounterBuffer.record(userId);
+        return true;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<ActiveUserDto> topActiveUsers(String department, Integer limit) {
+        return activeUsersLeaderboard.top(department, limit);
+    }
+
+    /**
+     * Invalida las entradas de User en la caché de segundo nivel.
+     * Las sentencias bulk modifican la BD sin pasar por las entidades.
+     */
+    private void evictUserCache() {
+        entityManager.getEntityManagerFactory().getCache().evict(User.class);
+    }
+
+    private void discardExport(UserExportWriter writer) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // El fichero se borra igualmente
+            }
+            userExportFiles.discard(writer.getFile());
+        }
+    }
 }
@@ -0,0 +1,254 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.datasource.ShardContext;
+import com.dam.accesodatos.datasource.ShardRouter;
+import com.dam.accesodatos.model.ActiveUserDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * record_login: acumula los inicios de sesión en memoria y los vuelca a user_statistics por lotes.
+ *
+ * RA3 - CE3.g: Gestión de transacciones
+ *
+ * Una transacción por inicio de sesión (UPDATE + commit) limita record_login al ritmo
+ * de commits de la BD, y con un usuario muy activo todas las transacciones esperan el
+ * bloqueo de la misma fila. En su lugar:
+ * 1. Cada llamada suma 1 al contador en memoria del usuario (LongAdder: repartido en
+ *    celdas por hilo, sin un único punto de contención) y guarda el máximo de last_login
+ * 2. Cada flush-interval-ms un volcado toma lo acumulado y lo escribe con un batch de
+ *    UPDATE (login_count = login_count + n) y un batch de INSERT para los usuarios sin
+ *    fila, todo en UNA transacción
+ *
+ * VENTANA DE PÉRDIDA: si el proceso muere, se pierden los inicios de sesión aún no
+ * volcados, como mucho los de flush-interval-ms. Al parar la aplicación (@PreDestroy)
+ * se vuelca lo pendiente. Si el volcado falla, lo tomado vuelve a memoria y se reintenta
+ * en el siguiente.
+ *
+ * MEMORIA: una entrada por usuario con actividad reciente. Las entradas sin actividad
+ * durante un intervalo se retiran; si se superan max-pending-users se vuelca en el momento.
+ *
+ * Los inicios de sesión de usuarios que ya no existen se descartan en el volcado.
+ *
+ * Tras cada volcado, los totales de los usuarios actualizados se ofrecen al ranking de
+ * top_active_users (ActiveUsersLeaderboard).
+ */
+@Component
+public class LoginCounterBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginCounterBuffer.class);
+
+    private static final long NO_LOGIN = Long.MIN_VALUE;
+
+    private static final String UPDATE_SQL =
+            "UPDATE user_statistics SET login_count = COALESCE(login_count, 0) + ?, "
+                    + "last_login = CASE WHEN last_login IS NULL OR last_login < ? THEN ? ELSE last_login END "
+                    + "WHERE user_id = ?";
+
+    // SELECT ... FROM users: no inserta nada si el usuario se ha borrado entre tanto
+    private static final String INSERT_SQL =
+            "INSERT INTO user_statistics (user_id, login_count, last_login) SELECT id, ?, ? FROM users WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Autowired
+    private ActiveUsersLeaderboard leaderboard;
+
+    @Value("${mcp.login-stats.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${mcp.login-stats.max-pending-users:100000}")
+    private int maxPendingUsers;
+
+    private final Map<Long, PendingLogins> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+    }
+
+    /**
+     * Registra un inicio de sesión ahora. No accede a la BD.
+     */
+    public void record(long userId) {
+        add(userId, 1, System.currentTimeMillis());
+        if (pending.size() >= maxPendingUsers && flushLock.tryLock()) {
+            try {
+                flushLocked();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Vuelca lo acumulado a user_statistics.
+     *
+     * @return Usuarios actualizados
+     */
+    @Scheduled(fixedDelayString = "${mcp.login-stats.flush-interval-ms:1000}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            return flushLocked();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return Usuarios con inicios de sesión pendientes de volcar
+     */
+    public int getPendingUsers() {
+        return pending.size();
+    }
+
+    private int flushLocked() {
+        List<LoginDelta> deltas = drain();
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return writeOrRequeue(deltas);
+        }
+        // Cada shard en su propia transacción: si uno falla, solo se reintentan sus usuarios
+        Map<Integer, List<LoginDelta>> byShard = deltas.stream()
+                .collect(Collectors.groupingBy(delta -> router.shardForId(delta.userId())));
+        int written = 0;
+        for (Map.Entry<Integer, List<LoginDelta>> group : byShard.entrySet()) {
+            written += ShardContext.callOn(group.getKey(), () -> writeOrRequeue(group.getValue()));
+        }
+        return written;
+    }
+
+    /**
+     * Suma logins al usuario. Si el volcado retiró la entrada mientras tanto, lo sumado
+     * se recupera y se pasa a una entrada nueva.
+     */
+    private void add(long userId, long logins, long lastLogin) {
+        while (true) {
+            PendingLogins entry = pending.computeIfAbsent(userId, id -> new PendingLogins());
+            entry.count.add(logins);
+            entry.lastLogin.accumulate(lastLogin);
+            if (!entry.retired) {
+                return;
+            }
+            // sumThenReset es atómico por celda: cada login lo recoge este hilo o el volcado, no los dos
+            logins = entry.count.sumThenReset();
+            lastLogin = entry.lastLogin.getThenReset();
+            if (logins == 0 && lastLogin == NO_LOGIN) {
+                return;
+            }
+        }
+    }
+
+    private List<LoginDelta> drain() {
+        List<LoginDelta> deltas = new ArrayList<>();
+        for (Map.Entry<Long, PendingLogins> e : pending.entrySet()) {
+            PendingLogins entry = e.getValue();
+            long logins = entry.count.sumThenReset();
+            long lastLogin = entry.lastLogin.getThenReset();
+            if (logins == 0 && lastLogin == NO_LOGIN) {
+                // Sin actividad desde el último volcado: se retira. Lo que un hilo sume
+                // antes de ver retired se recoge aquí; lo que sume después lo mueve add()
+                entry.retired = true;
+                pending.remove(e.getKey(), entry);
+                logins = entry.count.sumThenReset();
+                lastLogin = entry.lastLogin.getThenReset();
+            }
+            if (logins > 0 || lastLogin != NO_LOGIN) {
+                // El contador se suma antes que la hora: puede haberse tomado uno sin la otra
+                deltas.add(new LoginDelta(e.getKey(), logins,
+                        lastLogin != NO_LOGIN ? lastLogin : System.currentTimeMillis()));
+            }
+        }
+        return deltas;
+    }
+
+    private int writeOrRequeue(List<LoginDelta> deltas) {
+        List<ActiveUserDto> totals = new ArrayList<>(deltas.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int from = 0; from < deltas.size(); from += batchSize) {
+                    totals.addAll(write(deltas.subList(from, Math.min(from + batchSize, deltas.size()))));
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Error volcando {} contadores de inicio de sesión; se reintentará", deltas.size(), e);
+            deltas.forEach(delta -> add(delta.userId(), delta.logins(), delta.lastLogin()));
+            return 0;
+        }
+        leaderboard.offer(totals);
+        return deltas.size();
+    }
+
+    /**
+     * @return Totales de los usuarios del lote tras el volcado, para el ranking
+     */
+    private List<ActiveUserDto> write(List<LoginDelta> chunk) {
+        List<Object[]> updates = new ArrayList<>(chunk.size());
+        for (LoginDelta delta : chunk) {
+            Timestamp lastLogin = new Timestamp(delta.lastLogin());
+            updates.add(new Object[]{delta.logins(), lastLogin, lastLogin, delta.userId()});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+
+        // 0 filas actualizadas = el usuario aún no tiene fila de estadísticas
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                LoginDelta delta = chunk.get(i);
+                inserts.add(new Object[]{delta.logins(), new Timestamp(delta.lastLogin()), delta.userId()});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+        }
+        return leaderboard.read(chunk.stream().map(LoginDelta::userId).toList());
+    }
+
+    private static final class PendingLogins {
+        final LongAdder count = new LongAdder();
+        final LongAccumulator lastLogin = new LongAccumulator(Math::max, NO_LOGIN);
+        volatile boolean retired;
+    }
+
+    private record LoginDelta(long userId, long logins, long lastLogin) {
+    }
+}
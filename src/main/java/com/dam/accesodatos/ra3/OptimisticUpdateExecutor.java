@@ -0,0 +1,91 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserUpdateDto;
+import jakarta.persistence.OptimisticLockException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ejecuta updateUser() con una política de reintentos acotada ante conflictos optimistas.
+ *
+ * RA3 - CE3.g: Gestión de transacciones
+ *
+ * Con @Version, dos agentes que editan el mismo usuario a la vez ya no se pisan:
+ * el segundo commit falla con OptimisticLockException. Este componente decide qué
+ * hacer con ese fallo:
+ * - Si el cliente NO indicó expectedVersion: se reintenta en una transacción NUEVA
+ *   (vuelve a leer la fila y aplica los cambios), con backoff exponencial y jitter.
+ * - Si el cliente indicó expectedVersion: NO se reintenta, el conflicto es real y se
+ *   devuelve al cliente para que relea y decida.
+ *
+ * IMPORTANTE: El reintento debe estar FUERA de la transacción. Por eso este componente
+ * no es @Transactional y llama al proxy de HibernateUserService en cada intento.
+ *
+ * Frente al bloqueo pesimista (SELECT ... FOR UPDATE), no hay esperas entre
+ * transacciones ni colas de bloqueos: solo se paga un reintento cuando hay conflicto.
+ */
+@Component
+public class OptimisticUpdateExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticUpdateExecutor.class);
+
+    @Autowired
+    private HibernateUserService hibernateUserService;
+
+    @Value("${mcp.update.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${mcp.update.retry.backoff-ms:5}")
+    private long backoffMs;
+
+    /**
+     * Actualiza el usuario reintentando ante conflictos de versión.
+     *
+     * @param id ID del usuario
+     * @param dto Cambios a aplicar (expectedVersion opcional)
+     * @return Usuario actualizado
+     * @throws OptimisticLockingFailureException si el conflicto persiste o era condicional
+     */
+    public User updateWithRetry(Long id, UserUpdateDto dto) {
+        int attempt = 1;
+        while (true) {
+            try {
+                return hibernateUserService.updateUser(id, dto);
+            } catch (OptimisticLockException | OptimisticLockingFailureException e) {
+                if (dto.getExpectedVersion() != null || attempt >= maxAttempts) {
+                    throw new OptimisticLockingFailureException(
+                            "Conflicto de concurrencia actualizando usuario " + id
+                                    + " tras " + attempt + " intento(s)", e);
+                }
+                logger.debug("Conflicto optimista en usuario {} (intento {}/{}), reintentando",
+                        id, attempt, maxAttempts);
+                backoff(attempt);
+                attempt++;
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long max = backoffMs << (attempt - 1);
+        if (max <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(max + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reintento interrumpido", e);
+        }
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -0,0 +1,355 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.datasource.ShardContext;
+import com.dam.accesodatos.datasource.ShardRouter;
+import com.dam.accesodatos.export.ExportFormat;
+import com.dam.accesodatos.export.UserExportFiles;
+import com.dam.accesodatos.mcp.McpDeadline;
+import com.dam.accesodatos.mcp.McpToolContext;
+import com.dam.accesodatos.model.ActiveUserDto;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserDeltaDto;
+import com.dam.accesodatos.model.UserExportDto;
+import com.dam.accesodatos.model.UserExportFilterDto;
+import com.dam.accesodatos.model.UserImportResultDto;
+import com.dam.accesodatos.model.UserTombstone;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Servicio de usuarios sobre varios shards (particionado por departamento).
+ *
+ * Decora a HibernateUserServiceImpl: cada llamada fija el shard en ShardContext y
+ * delega en el servicio normal, que abre su transacción sobre ese shard.
+ *
+ * - Operaciones de UN departamento (find_users_by_department, execute_count_by_department,
+ *   create_user, deactivate_department) → un solo shard
+ * - Operaciones por ID → el shard se deduce del ID (ver ShardRouter)
+ * - Operaciones globales (find_all_users, search_users, reassign_role...) → scatter-gather:
+ *   se ejecutan en paralelo en todos los shards y se combinan los resultados
+ *
+ * LIMITACIONES:
+ * - No hay transacciones entre shards: transfer_data es atómico solo dentro de cada shard
+ * - update_user no permite mover un usuario a un departamento de otro shard
+ * - export_users sin departamento no admite limit/offset y ordena por id solo dentro de cada shard
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "mcp.sharding.enabled", havingValue = "true")
+public class ShardedHibernateUserService implements HibernateUserService {
+
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+
+    @Autowired
+    @Qualifier("hibernateUserServiceImpl")
+    private HibernateUserService delegate;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private UserExportFiles userExportFiles;
+
+    @Value("${mcp.delta-sync.max-batch-size:500}")
+    private int deltaMaxBatchSize;
+
+    private ExecutorService scatterExecutor;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        scatterExecutor = Executors.newFixedThreadPool(router.getShardCount(), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        scatterExecutor.shutdownNow();
+    }
+
+    // ========== CE3.a ==========
+
+    @Override
+    public String testEntityManager() {
+        List<String> results = scatter(shard -> "shard " + shard + ": " + delegate.testEntityManager());
+        return String.join(" | ", results);
+    }
+
+    // ========== CE3.d, CE3.e: CRUD ==========
+
+    @Override
+    public User createUser(UserCreateDto dto) {
+        return onShard(router.shardForDepartment(dto.getDepartment()), () -> delegate.createUser(dto));
+    }
+
+    @Override
+    public User findUserById(Long id) {
+        return onShard(router.shardForId(id), () -> delegate.findUserById(id));
+    }
+
+    @Override
+    public List<User> findUsersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, List<Long>> idsByShard = ids.stream()
+                .distinct()
+                .collect(Collectors.groupingBy(router::shardForId));
+        List<Integer> shards = new ArrayList<>(idsByShard.keySet());
+
+        Map<Long, User> found = new HashMap<>();
+        scatterTo(shards, shard -> delegate.findUsersByIds(idsByShard.get(shard)))
+                .forEach(users -> users.stream().filter(Objects::nonNull).forEach(u -> found.put(u.getId(), u)));
+
+        List<User> ordered = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ordered.add(found.get(id));
+        }
+        return ordered;
+    }
+
+    @Override
+    public User updateUser(Long id, UserUpdateDto dto) {
+        int shard = router.shardForId(id);
+        if (dto.getDepartment() != null && router.shardForDepartment(dto.getDepartment()) != shard) {
+            throw new IllegalArgumentException("El departamento " + dto.getDepartment()
+                    + " está en otro shard: mover usuarios entre shards no está soportado");
+        }
+        return onShard(shard, () -> delegate.updateUser(id, dto));
+    }
+
+    @Override
+    public boolean deleteUser(Long id) {
+        return onShard(router.shardForId(id), () -> delegate.deleteUser(id));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return scatter(shard -> delegate.findAll()).stream()
+                .flatMap(List::stream)
+                .sorted(BY_ID)
+                .collect(Collectors.toList());
+    }
+
+    // ========== CE3.f: Consultas ==========
+
+    @Override
+    public List<User> findUsersByDepartment(String department) {
+        return onShard(router.shardForDepartment(department), () -> delegate.findUsersByDepartment(department));
+    }
+
+    /**
+     * Con departamento, consulta un solo shard. Sin él, pide a cada shard las primeras
+     * offset + limit filas, las mezcla ordenadas por ID y aplica la ventana solicitada.
+     */
+    @Override
+    public List<User> searchUsers(UserQueryDto query) {
+        if (query.getDepartment() != null) {
+            return onShard(router.shardForDepartment(query.getDepartment()), () -> delegate.searchUsers(query));
+        }
+
+        int offset = query.getOffset() != null ? query.getOffset() : 0;
+        int limit = query.getLimit() != null ? query.getLimit() : 10;
+        UserQueryDto perShard = new UserQueryDto(null, query.getRole(), query.getActive(), offset + limit, 0);
+
+        return scatter(shard -> delegate.searchUsers(perShard)).stream()
+                .flatMap(List::stream)
+                .sorted(BY_ID)
+                .skip(offset)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // ========== CE3.g: Transacciones ==========
+
+    /**
+     * Agrupa los usuarios por shard y ejecuta una transacción en cada uno.
+     * NOTA: si falla un shard, los demás ya pueden haber hecho commit.
+     */
+    @Override
+    public boolean transferData(List<User> users) {
+        Map<Integer, List<User>> usersByShard = users.stream()
+                .collect(Collectors.groupingBy(u -> router.shardForDepartment(u.getDepartment())));
+        List<Integer> shards = new ArrayList<>(usersByShard.keySet());
+
+        return scatterTo(shards, shard -> delegate.transferData(usersByShard.get(shard))).stream()
+                .allMatch(Boolean::booleanValue);
+    }
+
+    @Override
+    public long executeCountByDepartment(String department) {
+        return onShard(router.shardForDepartment(department), () -> delegate.executeCountByDepartment(department));
+    }
+
+    // ========== Operaciones masivas ==========
+
+    @Override
+    public int deactivateDepartment(String department) {
+        return onShard(router.shardForDepartment(department), () -> delegate.deactivateDepartment(department));
+    }
+
+    @Override
+    public int reassignRole(String fromRole, String toRole) {
+        return scatter(shard -> delegate.reassignRole(fromRole, toRole)).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    @Override
+    public int deleteInactiveBefore(LocalDateTime cutoff) {
+        return scatter(shard -> delegate.deleteInactiveBefore(cutoff)).stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    // ========== Sincronización incremental ==========
+
+    /**
+     * Cada shard devuelve su primer lote a partir de la marca de agua. El lote global
+     * está contenido en la unión de esos lotes, así que basta con mezclarlos.
+     */
+    @Override
+    public UserDeltaDto findUsersChangedSince(LocalDateTime since, Long afterId, int limit) {
+        List<UserDeltaDto> parts = scatter(shard -> delegate.findUsersChangedSince(since, afterId, limit));
+
+        Comparator<User> byWatermark = Comparator.comparing(User::getUpdatedAt).thenComparing(User::getId);
+        Comparator<UserTombstone> tombstoneOrder = Comparator.comparing(UserTombstone::getDeletedAt)
+                .thenComparing(UserTombstone::getUserId);
+        List<User> changed = parts.stream().flatMap(p -> p.getChanged().stream())
+                .sorted(byWatermark).collect(Collectors.toList());
+        List<UserTombstone> deleted = parts.stream().flatMap(p -> p.getDeleted().stream())
+                .sorted(tombstoneOrder).collect(Collectors.toList());
+        int batch = Math.max(1, Math.min(limit, deltaMaxBatchSize));
+
+        UserDeltaDto delta = UserDeltaMerger.merge(changed, deleted, batch, since,
+                afterId != null ? afterId : 0L, parts.stream().anyMatch(UserDeltaDto::isHasMore));
+        delta.setResyncRequired(parts.stream().anyMatch(UserDeltaDto::isResyncRequired));
+        return delta;
+    }
+
+    @Override
+    public UserStatsSummaryDto userStatsSummary(String department, String role, Boolean active) {
+        if (department != null) {
+            return onShard(router.shardForDepartment(department),
+                    () -> delegate.userStatsSummary(department, role, active));
+        }
+        UserStatsSummaryDto summary = new UserStatsSummaryDto();
+        scatter(shard -> delegate.userStatsSummary(null, role, active)).forEach(summary::merge);
+        return summary;
+    }
+
+    /**
+     * Con departamento exporta su shard. Sin él, cada shard escribe su parte en paralelo
+     * y las partes se unen en un fichero (FileChannel.transferTo, sin pasar por el heap).
+     */
+    @Override
+    public UserExportDto exportUsers(UserExportFilterDto query, String format) {
+        if (query != null && query.getDepartment() != null) {
+            return onShard(router.shardForDepartment(query.getDepartment()),
+                    () -> delegate.exportUsers(query, format));
+        }
+        if (query != null && (query.getLimit() != null || query.getOffset() != null)) {
+            throw new IllegalArgumentException("Con sharding, limit/offset en export_users requieren department");
+        }
+
+        ExportFormat exportFormat = ExportFormat.from(format);
+        long start = System.nanoTime();
+        List<UserExportDto> parts = scatter(shard -> delegate.exportUsers(query, format));
+        return userExportFiles.concat(parts, exportFormat, start);
+    }
+
+    /**
+     * UserCsvImporter ya reparte cada lote entre los shards según el departamento.
+     */
+    @Override
+    public UserImportResultDto importUsers(String fileName) {
+        return delegate.importUsers(fileName);
+    }
+
+    /**
+     * LoginCounterBuffer reparte cada volcado entre los shards según el ID.
+     */
+    @Override
+    public boolean recordLogin(Long userId) {
+        return delegate.recordLogin(userId);
+    }
+
+    /**
+     * ActiveUsersLeaderboard ya reúne los rankings de todos los shards.
+     */
+    @Override
+    public List<ActiveUserDto> topActiveUsers(String department, Integer limit) {
+        return delegate.topActiveUsers(department, limit);
+    }
+
+    // ========== Métodos auxiliares ==========
+
+    private <T> T onShard(int shard, Supplier<T> action) {
+        return ShardContext.callOn(shard, action);
+    }
+
+    private <T> List<T> scatter(IntFunction<T> perShard) {
+        return scatterTo(IntStream.range(0, router.getShardCount()).boxed().collect(Collectors.toList()), perShard);
+    }
+
+    /**
+     * Ejecuta la acción en paralelo en los shards indicados y espera a todos.
+     * Propaga la herramienta MCP actual para que las métricas del pool la atribuyan bien,
+     * y su plazo (McpDeadline) para que las consultas de cada shard también lo respeten.
+     */
+    private <T> List<T> scatterTo(List<Integer> shards, IntFunction<T> perShard) {
+        String tool = McpToolContext.getCurrentTool();
+        McpDeadline deadline = McpDeadline.current();
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> {
+                    McpToolContext.setCurrentTool(tool);
+                    McpDeadline.attach(deadline);
+                    try {
+                        return ShardContext.callOn(shard, () -> perShard.apply(shard));
+                    } finally {
+                        McpToolContext.clear();
+                        McpDeadline.detach();
+                    }
+                }, scatterExecutor))
+                .collect(Collectors.toList());
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+}
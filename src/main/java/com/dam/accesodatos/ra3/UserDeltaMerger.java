@@ -0,0 +1,61 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserDeltaDto;
+import com.dam.accesodatos.model.UserTombstone;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mezcla cambios y lápidas, ya ordenados por (marca temporal, id), en un solo lote.
+ *
+ * Ambas listas se recorren como en el merge de mergesort y se toman como mucho
+ * 'limit' elementos. La nueva marca de agua es la del último elemento tomado, de modo
+ * que lo que queda fuera del lote se devuelve en la llamada siguiente.
+ */
+final class UserDeltaMerger {
+
+    private UserDeltaMerger() {
+    }
+
+    /**
+     * @param changed Usuarios modificados ordenados por (updatedAt, id)
+     * @param deleted Lápidas ordenadas por (deletedAt, userId)
+     * @param moreUpstream true si alguna fuente tenía más filas de las recibidas
+     */
+    static UserDeltaDto merge(List<User> changed, List<UserTombstone> deleted, int limit,
+                              LocalDateTime since, long afterId, boolean moreUpstream) {
+        List<User> takenChanged = new ArrayList<>();
+        List<UserTombstone> takenDeleted = new ArrayList<>();
+        LocalDateTime nextUpdatedAt = since;
+        long nextId = afterId;
+
+        int i = 0;
+        int j = 0;
+        while (takenChanged.size() + takenDeleted.size() < limit && (i < changed.size() || j < deleted.size())) {
+            boolean takeChange = j >= deleted.size()
+                    || (i < changed.size() && compare(changed.get(i), deleted.get(j)) <= 0);
+            if (takeChange) {
+                User user = changed.get(i++);
+                takenChanged.add(user);
+                nextUpdatedAt = user.getUpdatedAt();
+                nextId = user.getId();
+            } else {
+                UserTombstone tombstone = deleted.get(j++);
+                takenDeleted.add(tombstone);
+                nextUpdatedAt = tombstone.getDeletedAt();
+                nextId = tombstone.getUserId();
+            }
+        }
+
+        boolean hasMore = moreUpstream || i < changed.size() || j < deleted.size();
+        return new UserDeltaDto(takenChanged, takenDeleted, nextUpdatedAt, nextId, hasMore);
+    }
+
+    private static int compare(User user, UserTombstone tombstone) {
+        int byTime = user.getUpdatedAt().compareTo(tombstone.getDeletedAt());
+        return byTime != 0 ? byTime : user.getId().compareTo(tombstone.getUserId());
+    }
+}
@@ -0,0 +1,116 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché de corta duración para user_stats_summary (mcp.stats-summary.cache-ttl-ms).
+ *
+ * Un panel suele pedir el mismo resumen cada pocos segundos desde varios clientes:
+ * dentro del TTL todos comparten el resultado de una sola consulta. El resumen puede
+ * ir hasta cache-ttl-ms por detrás de los cambios; con 0 la caché está desactivada.
+ *
+ * La clave son los filtros de la llamada. Como los elige el cliente, el número de
+ * entradas se limita con max-entries (al superarlo se vacía la caché).
+ *
+ * Cada entrada es un CompletableFuture: la primera llamada con una clave lo registra
+ * con computeIfAbsent() y hace la consulta FUERA del mapa; las simultáneas con la
+ * misma clave esperan a ese future (una sola consulta) sin bloquear el resto del mapa.
+ * Si la consulta falla, todas reciben el error y la entrada se retira.
+ */
+@Component
+public class UserStatsSummaryCache {
+
+    @Autowired
+    private HibernateUserService hibernateUserService;
+
+    @Value("${mcp.stats-summary.cache-ttl-ms:2000}")
+    private long ttlMs;
+
+    @Value("${mcp.stats-summary.max-entries:256}")
+    private int maxEntries;
+
+    private final Map<Key, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @return Resumen y su antigüedad en ms (0 si se acaba de calcular)
+     */
+    public Result get(String department, String role, Boolean active) {
+        if (ttlMs <= 0) {
+            return new Result(hibernateUserService.userStatsSummary(department, role, active), 0);
+        }
+
+        Key key = new Key(department, role, active);
+        CompletableFuture<Entry> current = entries.get(key);
+        if (current != null && isExpired(current)) {
+            entries.remove(key, current);
+            current = null;
+        }
+        if (current == null) {
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            CompletableFuture<Entry> created = new CompletableFuture<>();
+            current = entries.computeIfAbsent(key, k -> created);
+            if (current == created) {
+                return load(key, created);
+            }
+        }
+        Entry entry = await(current);
+        return new Result(entry.summary, Math.max(0, System.currentTimeMillis() - entry.createdAt));
+    }
+
+    /**
+     * Consulta de la llamada que registró el future, sin ningún bloqueo del mapa
+     */
+    private Result load(Key key, CompletableFuture<Entry> created) {
+        try {
+            Entry entry = new Entry(hibernateUserService.userStatsSummary(key.department, key.role, key.active),
+                    System.currentTimeMillis());
+            created.complete(entry);
+            return new Result(entry.summary, 0);
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Las entradas en curso no caducan; las que fallaron ya se han retirado del mapa
+     */
+    private boolean isExpired(CompletableFuture<Entry> future) {
+        return future.isDone() && !future.isCompletedExceptionally()
+                && System.currentTimeMillis() - future.join().createdAt >= ttlMs;
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    public record Result(UserStatsSummaryDto summary, long ageMs) {
+    }
+
+    private record Key(String department, String role, Boolean active) {
+    }
+
+    private record Entry(UserStatsSummaryDto summary, long createdAt) {
+    }
+}
@@ -0,0 +1,253 @@
+package com.dam.accesodatos.reactive;
+
+import com.dam.accesodatos.mcp.McpToolRegistry;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra3.GroupCommitUserCreator;
+import com.dam.accesodatos.ra3.OptimisticUpdateExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+
+/**
+ * Herramientas MCP sobre WebFlux (perfil 'reactive'): mismas rutas y mismo formato de
+ * respuesta que McpServerController, sin un hilo reservado por petición.
+ *
+ * - Lecturas (find_*, search_users, execute_count_by_department): R2DBC
+ *   (ReactiveUserRepository), sin bloquear ningún hilo mientras se espera o se envía.
+ *   search_users y execute_count_by_department solo se enrutan con
+ *   mcp.snapshot.enabled=true (ver ReactiveMcpRouter).
+ * - Listas: por defecto {"tool", "result", "count", "status"} como en el controlador.
+ *   Con "Accept: application/x-ndjson" la respuesta es un usuario JSON por línea, escrito
+ *   según sale del cursor: el servidor no guarda la lista entera y, si el cliente lee
+ *   despacio, deja de pedir filas a la BD (backpressure).
+ * - Escrituras y resto de herramientas: siguen siendo JPA (outbox, bloqueo optimista,
+ *   group commit...). Se ejecutan en Schedulers.boundedElastic(), nunca en los hilos
+ *   de Netty; el resto de herramientas se invocan por nombre con McpToolRegistry.
+ *
+ * Los interceptores de Spring MVC (límite de concurrencia, deadlines) no existen aquí.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveMcpHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMcpHandler.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> BODY =
+            new ParameterizedTypeReference<>() {};
+
+    @Autowired
+    private ReactiveUserRepository reactiveUserRepository;
+
+    @Autowired
+    private McpToolRegistry toolRegistry;
+
+    @Autowired
+    private GroupCommitUserCreator groupCommitUserCreator;
+
+    @Autowired
+    private OptimisticUpdateExecutor optimisticUpdateExecutor;
+
+    public Mono<ServerResponse> health(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(Map.of(
+                "status", "UP",
+                "service", "MCP Server RA3 Hibernate/JPA (WebFlux + R2DBC)"));
+    }
+
+    public Mono<ServerResponse> tools(ServerRequest request) {
+        List<Map<String, String>> toolsList = toolRegistry.getRegisteredTools().stream()
+                .map(tool -> Map.of("name", tool.getName(), "description", tool.getDescription()))
+                .collect(Collectors.toList());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("tools", toolsList);
+        response.put("count", toolsList.size());
+        response.put("server", "MCP Server - RA3 Hibernate/JPA DAM");
+        response.put("version", "1.0.0");
+        return ServerResponse.ok().bodyValue(response);
+    }
+
+    // ========== LECTURAS R2DBC ==========
+
+    public Mono<ServerResponse> findUserById(ServerRequest request) {
+        return body(request).flatMap(body -> {
+            Long userId = toLong(body.get("userId"));
+            return reactiveUserRepository.findById(userId)
+                    .map(user -> success("find_user_by_id", user))
+                    // Sin usuario: "result": null, igual que el controlador
+                    .defaultIfEmpty(success("find_user_by_id", null));
+        }).flatMap(response -> ServerResponse.ok().bodyValue(response))
+                .onErrorResume(e -> error("find_user_by_id", "Error buscando usuario", e));
+    }
+
+    public Mono<ServerResponse> findUsersByIds(ServerRequest request) {
+        return body(request).flatMap(body -> {
+            List<?> rawIds = (List<?>) body.get("userIds");
+            List<Long> userIds = rawIds.stream().map(ReactiveMcpHandler::toLong).collect(Collectors.toList());
+            return list(request, "find_users_by_ids", reactiveUserRepository.findByIds(userIds), null);
+        }).onErrorResume(e -> error("find_users_by_ids", "Error buscando usuarios por IDs", e));
+    }
+
+    public Mono<ServerResponse> findAllUsers(ServerRequest request) {
+        return list(request, "find_all_users", reactiveUserRepository.findAll(), null)
+                .onErrorResume(e -> error("find_all_users", "Error obteniendo usuarios", e));
+    }
+
+    public Mono<ServerResponse> findUsersByDepartment(ServerRequest request) {
+        return body(request).flatMap(body -> list(request, "find_users_by_department",
+                        reactiveUserRepository.findByDepartment((String) body.get("department")), "r2dbc"))
+                .onErrorResume(e -> error("find_users_by_department", "Error buscando usuarios por departamento", e));
+    }
+
+    public Mono<ServerResponse> searchUsers(ServerRequest request) {
+        return body(request).flatMap(body -> {
+            UserQueryDto query = new UserQueryDto(
+                    (String) body.get("department"),
+                    (String) body.get("role"),
+                    (Boolean) body.get("active"),
+                    body.get("limit") != null ? ((Number) body.get("limit")).intValue() : null,
+                    body.get("offset") != null ? ((Number) body.get("offset")).intValue() : null);
+            return list(request, "search_users", reactiveUserRepository.search(query), "r2dbc");
+        }).onErrorResume(e -> error("search_users", "Error buscando usuarios con filtros", e));
+    }
+
+    public Mono<ServerResponse> executeCountByDepartment(ServerRequest request) {
+        return body(request).flatMap(body -> reactiveUserRepository.countByDepartment((String) body.get("department")))
+                .flatMap(count -> {
+                    Map<String, Object> response = success("execute_count_by_department", count);
+                    response.put("source", "r2dbc");
+                    return ServerResponse.ok().bodyValue(response);
+                })
+                .onErrorResume(e -> error("execute_count_by_department", "Error contando usuarios por departamento", e));
+    }
+
+    // ========== ESCRITURAS Y RESTO DE HERRAMIENTAS (JPA en boundedElastic) ==========
+
+    public Mono<ServerResponse> createUser(ServerRequest request) {
+        return body(request).flatMap(body -> blocking(() -> groupCommitUserCreator.createUser(new UserCreateDto(
+                        (String) body.get("name"),
+                        (String) body.get("email"),
+                        (String) body.get("department"),
+                        (String) body.get("role")))))
+                .flatMap(user -> ServerResponse.ok().bodyValue(success("create_user", user)))
+                .onErrorResume(e -> error("create_user", "Error creando usuario", e));
+    }
+
+    public Mono<ServerResponse> updateUser(ServerRequest request) {
+        return body(request).flatMap(body -> {
+            Long userId = toLong(body.get("userId"));
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setName((String) body.get("name"));
+            dto.setEmail((String) body.get("email"));
+            dto.setDepartment((String) body.get("department"));
+            dto.setRole((String) body.get("role"));
+            dto.setActive((Boolean) body.get("active"));
+            if (body.get("expectedVersion") != null) {
+                dto.setExpectedVersion(toLong(body.get("expectedVersion")));
+            }
+            return blocking(() -> optimisticUpdateExecutor.updateWithRetry(userId, dto));
+        }).flatMap(user -> ServerResponse.ok().bodyValue(success("update_user", user)))
+                .onErrorResume(e -> error("update_user", "Error actualizando usuario", e));
+    }
+
+    /**
+     * Cualquier otra herramienta registrada: POST /mcp/{tool} con los argumentos del
+     * método @Tool por nombre (ver McpToolRegistry.invoke).
+     */
+    public Mono<ServerResponse> invokeTool(ServerRequest request) {
+        String tool = request.pathVariable("tool");
+        return body(request).flatMap(body -> blocking(() -> toolRegistry.invoke(tool, body)))
+                .map(result -> success(tool, result))
+                // Herramientas que devuelven null (no es un error)
+                .defaultIfEmpty(success(tool, null))
+                .flatMap(response -> ServerResponse.ok().bodyValue(response))
+                .onErrorResume(e -> error(tool, "Error ejecutando " + tool, e));
+    }
+
+    // ========== Métodos auxiliares ==========
+
+    private static Mono<Map<String, Object>> body(ServerRequest request) {
+        return request.bodyToMono(BODY).defaultIfEmpty(Map.of());
+    }
+
+    /**
+     * Lista completa en el formato del controlador, o NDJSON en streaming si el cliente lo acepta.
+     */
+    private static Mono<ServerResponse> list(ServerRequest request, String tool, Flux<User> users, String source) {
+        if (request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)) {
+            // Un error a mitad de respuesta ya no puede cambiar el estado: se corta la conexión
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(users, User.class);
+        }
+        return users.collectList().flatMap(result -> {
+            Map<String, Object> response = success(tool, result);
+            response.put("count", result.size());
+            if (source != null) {
+                response.put("source", source);
+            }
+            return ServerResponse.ok().bodyValue(response);
+        });
+    }
+
+    /**
+     * Código JPA bloqueante fuera de los hilos del servidor.
+     */
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Map<String, Object> success(String tool, Object result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("tool", tool);
+        response.put("result", result);
+        response.put("status", "success");
+        return response;
+    }
+
+    /**
+     * Mismos códigos que el controlador: 400 IllegalArgumentException, 409 conflicto de versión, 500 resto.
+     */
+    private static Mono<ServerResponse> error(String tool, String message, Throwable e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message + ": " + e.getMessage());
+        error.put("tool", tool);
+        HttpStatus status;
+        if (e instanceof OptimisticLockingFailureException) {
+            logger.warn("Conflicto de versión en {}: {}", tool, e.getMessage());
+            error.put("error", "Conflicto de versión: " + e.getMessage());
+            error.put("status", "conflict");
+            status = HttpStatus.CONFLICT;
+        } else if (e instanceof IllegalArgumentException) {
+            logger.warn("{}: {}", message, e.getMessage());
+            error.put("status", "error");
+            status = HttpStatus.BAD_REQUEST;
+        } else {
+            logger.error(message, e);
+            error.put("status", "error");
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        return ServerResponse.status(status).bodyValue(error);
+    }
+
+    private static Long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+}
@@ -0,0 +1,64 @@
+package com.dam.accesodatos.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Rutas /mcp de WebFlux (perfil 'reactive'). Sustituyen a McpServerController, que
+ * solo existe con Spring MVC.
+ *
+ * Uso: --spring.profiles.active=reactive (ver application-reactive.yml)
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveMcpRouter {
+
+    /**
+     * search_users y execute_count_by_department solo existen con mcp.snapshot.enabled=true,
+     * como en McpSnapshotController: searchUsers() y executeCountByDepartment() de
+     * HibernateUserServiceImpl están por implementar (TODO CE3.f). Sin snapshot responden
+     * 404 igual que con Spring MVC, en lugar de llegar a /{tool} y responder siempre 500.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> mcpRoutes(ReactiveMcpHandler handler,
+                                                    @Value("${mcp.snapshot.enabled:false}") boolean snapshotEnabled) {
+        return RouterFunctions.route()
+                .path("/mcp", builder -> {
+                    builder.GET("/health", handler::health)
+                            .GET("/tools", handler::tools)
+                            .POST("/find_user_by_id", handler::findUserById)
+                            .POST("/find_users_by_ids", handler::findUsersByIds)
+                            .POST("/find_all_users", handler::findAllUsers)
+                            .POST("/find_users_by_department", handler::findUsersByDepartment);
+                    if (snapshotEnabled) {
+                        builder.POST("/search_users", handler::searchUsers)
+                                .POST("/execute_count_by_department", handler::executeCountByDepartment);
+                    } else {
+                        builder.POST("/search_users", request -> ServerResponse.notFound().build())
+                                .POST("/execute_count_by_department", request -> ServerResponse.notFound().build());
+                    }
+                    builder.POST("/create_user", handler::createUser)
+                            .POST("/update_user", handler::updateUser)
+                            .POST("/{tool}", handler::invokeTool);
+                })
+                .build();
+    }
+
+    /**
+     * Equivalente a @CrossOrigin(origins = "*") del controlador.
+     */
+    @Bean
+    public CorsWebFilter mcpCorsFilter() {
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/mcp/**", new CorsConfiguration().applyPermitDefaultValues());
+        return new CorsWebFilter(source);
+    }
+}
@@ -0,0 +1,198 @@
+package com.dam.accesodatos.reactive;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserQueryDto;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Consultas de usuarios con R2DBC para el perfil 'reactive'.
+ *
+ * Equivalente no bloqueante de las lecturas de HibernateUserService: en lugar de
+ * devolver List<User> cuando la consulta ha terminado, cada método devuelve un Flux
+ * que emite los usuarios según se leen del cursor. Nada se ejecuta hasta que alguien
+ * se suscribe, y las filas se piden a medida que el suscriptor las solicita
+ * (backpressure): con NDJSON, al ritmo al que el cliente lee la respuesta.
+ *
+ * Mismo SQL que genera Hibernate para User (JOIN con departments y roles para
+ * devolver los nombres) y mismos resultados que las herramientas JPA.
+ *
+ * El pool de R2DBC (mcp.reactive.pool.*) es propio: no es un bean para que la
+ * autoconfiguración de Spring Boot no inicialice con él schema.sql (lo hace el
+ * DataSource JDBC, que sigue existiendo para el resto de componentes).
+ *
+ * OJO: r2dbc-h2 ejecuta H2 embebido en el propio proceso; no hay espera de red que
+ * liberar y cada consulta ocupa el hilo que la pide durante lo que tarde H2. La
+ * ventaja está en no reservar un hilo por petición mientras se escribe la respuesta.
+ * Con un driver de red (r2dbc-postgresql) el mismo código tampoco bloquea en la consulta.
+ *
+ * LIMITACIÓN: con sharding las lecturas reactivas van a la única URL configurada.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final String SELECT_USERS =
+            "SELECT u.id, u.name, u.email, d.name AS department, r.name AS role, u.active, "
+                    + "u.created_at, u.updated_at, u.version "
+                    + "FROM users u JOIN departments d ON d.id = u.department_id JOIN roles r ON r.id = u.role_id";
+
+    @Value("${mcp.reactive.r2dbc-url}")
+    private String url;
+
+    @Value("${spring.datasource.username:sa}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${mcp.reactive.pool.initial-size:2}")
+    private int initialSize;
+
+    @Value("${mcp.reactive.pool.max-size:10}")
+    private int maxSize;
+
+    @Value("${mcp.reactive.pool.max-acquire-time-ms:5000}")
+    private long maxAcquireTimeMs;
+
+    private ConnectionPool pool;
+    private DatabaseClient client;
+
+    @PostConstruct
+    void init() {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("ra3-r2dbc-pool")
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .maxAcquireTime(Duration.ofMillis(maxAcquireTimeMs))
+                .build());
+        client = DatabaseClient.create(pool);
+    }
+
+    @PreDestroy
+    void close() {
+        pool.dispose();
+    }
+
+    public Mono<User> findById(Long id) {
+        return client.sql(SELECT_USERS + " WHERE u.id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    /**
+     * @return Usuarios encontrados, ordenados por ID (los que no existen se omiten)
+     */
+    public Flux<User> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return client.sql(SELECT_USERS + " WHERE u.id IN (:ids) ORDER BY u.id")
+                .bind("ids", ids)
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    public Flux<User> findAll() {
+        return client.sql(SELECT_USERS + " ORDER BY u.id")
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    /**
+     * Mismo resultado que findUsersByDepartment(): activos del departamento por nombre.
+     */
+    public Flux<User> findByDepartment(String department) {
+        return client.sql(SELECT_USERS + " WHERE d.name = :department AND u.active = TRUE ORDER BY u.name")
+                .bind("department", department)
+                .map(ReactiveUserRepository::toUser)
+                .all();
+    }
+
+    /**
+     * Mismo resultado que UserSnapshotService.searchUsers(): filtros opcionales
+     * (null = sin filtro), orden por id y paginación con offset/limit.
+     * (searchUsers() de HibernateUserServiceImpl está por implementar.)
+     */
+    public Flux<User> search(UserQueryDto query) {
+        StringBuilder sql = new StringBuilder(SELECT_USERS).append(" WHERE 1=1");
+        if (query.getDepartment() != null) {
+            sql.append(" AND d.name = :department");
+        }
+        if (query.getRole() != null) {
+            sql.append(" AND r.name = :role");
+        }
+        if (query.getActive() != null) {
+            sql.append(" AND u.active = :active");
+        }
+        sql.append(" ORDER BY u.id");
+        if (query.getLimit() != null) {
+            sql.append(" LIMIT :limit");
+        }
+        if (query.getOffset() != null) {
+            sql.append(" OFFSET :offset");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+        if (query.getDepartment() != null) {
+            spec = spec.bind("department", query.getDepartment());
+        }
+        if (query.getRole() != null) {
+            spec = spec.bind("role", query.getRole());
+        }
+        if (query.getActive() != null) {
+            spec = spec.bind("active", query.getActive());
+        }
+        if (query.getLimit() != null) {
+            spec = spec.bind("limit", Math.max(0, query.getLimit()));
+        }
+        if (query.getOffset() != null) {
+            spec = spec.bind("offset", Math.max(0, query.getOffset()));
+        }
+        return spec.map(ReactiveUserRepository::toUser).all();
+    }
+
+    /**
+     * Mismo resultado que UserSnapshotService.executeCountByDepartment(): activos del
+     * departamento. (executeCountByDepartment() de HibernateUserServiceImpl está por
+     * implementar.)
+     */
+    public Mono<Long> countByDepartment(String department) {
+        return client.sql("SELECT COUNT(*) AS total FROM users u JOIN departments d ON d.id = u.department_id "
+                        + "WHERE d.name = :department AND u.active = TRUE")
+                .bind("department", department)
+                .map(row -> row.get("total", Long.class))
+                .one();
+    }
+
+    private static User toUser(Readable row) {
+        User user = new User(row.get("name", String.class), row.get("email", String.class),
+                row.get("department", String.class), row.get("role", String.class));
+        user.setId(row.get("id", Long.class));
+        user.setActive(row.get("active", Boolean.class));
+        user.setCreatedAt(row.get("created_at", LocalDateTime.class));
+        user.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+}
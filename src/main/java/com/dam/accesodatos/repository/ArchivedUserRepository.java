@@ -0,0 +1,44 @@
+package com.dam.accesodatos.repository;
+
+import com.dam.accesodatos.model.ArchivedUser;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository JPA de solo lectura para users_archive (las filas las escribe UserArchiveService).
+ */
+@Repository
+public interface ArchivedUserRepository extends JpaRepository<ArchivedUser, Long> {
+
+    List<ArchivedUser> findAllByOrderByIdAsc();
+
+    List<ArchivedUser> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Filtros opcionales (null = sin filtro), ordenados por ID.
+     */
+    @Query("SELECT a FROM ArchivedUser a "
+            + "WHERE (:department IS NULL OR a.department = :department) "
+            + "AND (:role IS NULL OR a.role = :role) "
+            + "AND (:active IS NULL OR a.active = :active) "
+            + "ORDER BY a.id")
+    List<ArchivedUser> search(@Param("department") String department, @Param("role") String role,
+                              @Param("active") Boolean active, Limit limit);
+
+    /**
+     * Filas (department, role, active, count) del mismo GROUP BY que user_stats_summary.
+     */
+    @Query("SELECT a.department, a.role, a.active, COUNT(a) FROM ArchivedUser a "
+            + "WHERE (:department IS NULL OR a.department = :department) "
+            + "AND (:role IS NULL OR a.role = :role) "
+            + "AND (:active IS NULL OR a.active = :active) "
+            + "GROUP BY a.department, a.role, a.active")
+    List<Object[]> summarize(@Param("department") String department, @Param("role") String role,
+                             @Param("active") Boolean active);
+}
@@ -0,0 +1,283 @@
+package com.dam.accesodatos.repository;
+
+import com.dam.accesodatos.datasource.ShardContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché de las tablas de consulta departments y roles (nombre ↔ código SMALLINT).
+ *
+ * La tabla users guarda department_id/role_id (2 bytes) en lugar de repetir el
+ * VARCHAR en cada fila; los conversores DepartmentCodeConverter y RoleCodeConverter
+ * traducen con esta caché, así que la entidad User sigue usando String.
+ *
+ * - Lectura: un nombre desconocido se traduce a UNKNOWN, que no coincide con ninguna
+ *   fila (buscar un departamento inexistente no crea nada).
+ * - Escritura: ensureDepartment()/ensureRole() crean el código si no existe.
+ *
+ * CONEXIONES: un fallo de caché usa la conexión de la transacción en curso
+ * (DataSourceUtils), nunca una segunda del pool. Con el pool lleno de peticiones que ya
+ * tienen su conexión, pedir otra para la consulta las bloquearía a todas hasta el
+ * connection-timeout.
+ * - Sin transacción: el código nuevo se crea en autocommit y se guarda en caché.
+ * - Dentro de una transacción: se crea en ella y solo pasa a la caché tras el commit
+ *   (un rollback no deja en caché un código que no está en la BD). Las cargas por lotes
+ *   (import_users, group commit) llaman a prepare() antes de abrir la transacción, así
+ *   que lo habitual es el primer caso.
+ *
+ * Con sharding cada shard tiene sus propias tablas de consulta: la caché se separa
+ * por el shard de ShardContext.
+ */
+@Component
+public class LookupCodes {
+
+    /** Código de un nombre que no existe en la tabla */
+    public static final short UNKNOWN = -1;
+
+    private static final int NO_SHARD = -1;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final Map<Integer, Table> departments = new ConcurrentHashMap<>();
+    private final Map<Integer, Table> roles = new ConcurrentHashMap<>();
+
+    public short departmentCode(String name) {
+        return table(departments, "departments").code(name, false);
+    }
+
+    public short ensureDepartment(String name) {
+        return table(departments, "departments").code(name, true);
+    }
+
+    public String departmentName(short code) {
+        return table(departments, "departments").name(code);
+    }
+
+    public short roleCode(String name) {
+        return table(roles, "roles").code(name, false);
+    }
+
+    public short ensureRole(String name) {
+        return table(roles, "roles").code(name, true);
+    }
+
+    public String roleName(short code) {
+        return table(roles, "roles").name(code);
+    }
+
+    /**
+     * Crea en autocommit los códigos que falten, ANTES de abrir la transacción que los
+     * usará. Con sharding hay que llamarlo dentro de ShardContext.
+     */
+    public void prepare(Collection<String> departmentNames, Collection<String> roleNames) {
+        for (String name : departmentNames) {
+            ensureDepartment(name);
+        }
+        for (String name : roleNames) {
+            ensureRole(name);
+        }
+    }
+
+    private Table table(Map<Integer, Table> tables, String tableName) {
+        Integer shard = ShardContext.current();
+        return tables.computeIfAbsent(shard != null ? shard : NO_SHARD, s -> new Table(tableName));
+    }
+
+    /**
+     * Una tabla de consulta de un shard. Las entradas no cambian una vez creadas, así
+     * que basta con mapas concurrentes; solo un fallo de caché va a la BD.
+     */
+    private final class Table {
+        private final String selectByName;
+        private final String selectById;
+        private final String merge;
+        private final Map<String, Short> codes = new ConcurrentHashMap<>();
+        private final Map<Short, String> names = new ConcurrentHashMap<>();
+
+        Table(String tableName) {
+            this.selectByName = "SELECT id FROM " + tableName + " WHERE name = ?";
+            this.selectById = "SELECT name FROM " + tableName + " WHERE id = ?";
+            // MERGE ... KEY de H2: inserta solo si no existe (seguro con altas concurrentes)
+            this.merge = "MERGE INTO " + tableName + " (name) KEY (name) VALUES (?)";
+        }
+
+        short code(String name, boolean create) {
+            if (name == null) {
+                return UNKNOWN;
+            }
+            Short cached = codes.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            boolean inTransaction = inTransaction();
+            Connection connection = connection(inTransaction);
+            try {
+                Short code = findCode(connection, name);
+                if (code == null && create) {
+                    code = inTransaction ? createInTransaction(connection, name) : createAutoCommit(connection, name);
+                }
+                if (code == null) {
+                    return UNKNOWN;
+                }
+                if (!inTransaction || !createdInTransaction().containsKey(name)) {
+                    cache(name, code);
+                }
+                return code;
+            } catch (SQLException e) {
+                throw new IllegalStateException("No se pudo obtener el código de '" + name + "'", e);
+            } finally {
+                release(connection, inTransaction);
+            }
+        }
+
+        /**
+         * Transacción real con su conexión ya abierta. Con NOT_SUPPORTED la sincronización
+         * está activa pero no hay transacción: DataSourceUtils ligaría una conexión al hilo
+         * hasta el final del método, así que ahí se usa una conexión suelta.
+         */
+        private boolean inTransaction() {
+            return TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.hasResource(dataSource);
+        }
+
+        private Connection connection(boolean inTransaction) {
+            if (inTransaction) {
+                return DataSourceUtils.getConnection(dataSource);
+            }
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException("No se pudo obtener una conexión para " + selectByName, e);
+            }
+        }
+
+        private void release(Connection connection, boolean inTransaction) {
+            if (inTransaction) {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+                return;
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new IllegalStateException("No se pudo devolver la conexión al pool", e);
+            }
+        }
+
+        private Short createAutoCommit(Connection connection, String name) throws SQLException {
+            connection.setAutoCommit(true);
+            executeMerge(connection, name);
+            return findCode(connection, name);
+        }
+
+        /**
+         * MERGE en la transacción del llamante. Si otra transacción crea el mismo nombre a
+         * la vez, el MERGE espera a su commit y falla por clave única: se deshace hasta el
+         * savepoint y se lee el código que ha confirmado la otra.
+         */
+        private Short createInTransaction(Connection connection, String name) throws SQLException {
+            Savepoint beforeMerge = connection.setSavepoint();
+            try {
+                executeMerge(connection, name);
+            } catch (SQLException e) {
+                if (!"23505".equals(e.getSQLState())) {
+                    throw e;
+                }
+                connection.rollback(beforeMerge);
+                return findCode(connection, name);
+            }
+            Short code = findCode(connection, name);
+            if (code != null) {
+                createdInTransaction().put(name, code);
+            }
+            return code;
+        }
+
+        private void executeMerge(Connection connection, String name) throws SQLException {
+            try (PreparedStatement ps = connection.prepareStatement(merge)) {
+                ps.setString(1, name);
+                ps.executeUpdate();
+            }
+        }
+
+        /**
+         * Códigos creados por la transacción en curso; pasan a la caché al confirmarse.
+         */
+        @SuppressWarnings("unchecked")
+        private Map<String, Short> createdInTransaction() {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                return Map.of();
+            }
+            Map<String, Short> created = (Map<String, Short>) TransactionSynchronizationManager.getResource(this);
+            if (created == null) {
+                Map<String, Short> pending = new HashMap<>();
+                TransactionSynchronizationManager.bindResource(this, pending);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(Table.this);
+                        if (status == STATUS_COMMITTED) {
+                            pending.forEach(Table.this::cache);
+                        }
+                    }
+                });
+                created = pending;
+            }
+            return created;
+        }
+
+        private void cache(String name, short code) {
+            codes.put(name, code);
+            names.put(code, name);
+        }
+
+        String name(short code) {
+            String cached = names.get(code);
+            if (cached != null) {
+                return cached;
+            }
+            boolean inTransaction = inTransaction();
+            Connection connection = connection(inTransaction);
+            try (PreparedStatement ps = connection.prepareStatement(selectById)) {
+                ps.setShort(1, code);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("Código " + code + " inexistente en " + selectById);
+                    }
+                    String name = rs.getString(1);
+                    if (!inTransaction || !createdInTransaction().containsKey(name)) {
+                        cache(name, code);
+                    }
+                    return name;
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("No se pudo obtener el nombre del código " + code, e);
+            } finally {
+                release(connection, inTransaction);
+            }
+        }
+
+        private Short findCode(Connection connection, String name) throws SQLException {
+            try (PreparedStatement ps = connection.prepareStatement(selectByName)) {
+                ps.setString(1, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getShort(1) : null;
+                }
+            }
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.dam.accesodatos.repository;
 
 import com.dam.accesodatos.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -104,4 +106,47 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT u FROM User u WHERE LOWER(u.name) LIKE LOWER(CONCAT('%', :name, '%'))")
     List<User> findByNameContainingIgnoreCase(@Param("name") String name);
+
+    // ===== OPERACIONES MASIVAS (BULK JPQL) =====
+
+    /**
+     * Desactiva todos los usuarios activos de un departamento en una sola sentencia.
+     *
+     * NOTA PEDAGÓGICA:
+     * Un UPDATE JPQL se ejecuta directamente en la BD y NO pasa por el contexto de
+     * persistencia. Por eso usamos @Modifying con:
+     * - flushAutomatically: vuelca cambios pendientes ANTES del UPDATE
+     * - clearAutomatically: limpia el EntityManager DESPUÉS, para que ninguna entidad
+     *   managed conserve el valor antiguo de 'active'
+     *
+     * @param dept Nombre del departamento
+     * @param now Marca temporal para updated_at
+     * @return Número de filas actualizadas
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.active = false, u.updatedAt = :now WHERE u.department = :dept AND u.active = true")
+    int deactivateByDepartment(@Param("dept") String dept, @Param("now") LocalDateTime now);
+
+    /**
+     * Cambia el rol de todos los usuarios que tienen un rol dado.
+     *
+     * @param fromRole Rol actual
+     * @param toRole Nuevo rol
+     * @param now Marca temporal para updated_at
+     * @return Número de filas actualizadas
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.role = :toRole, u.updatedAt = :now WHERE u.role = :fromRole")
+    int reassignRole(@Param("fromRole") String fromRole, @Param("toRole") String toRole,
+                     @Param("now") LocalDateTime now);
+
+    /**
+     * Elimina los usuarios inactivos cuya última modificación es anterior a una fecha.
+     *
+     * @param cutoff Fecha límite (exclusiva)
+     * @return Número de filas eliminadas
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM User u WHERE u.active = false AND u.updatedAt < :cutoff")
+    int deleteInactiveBefore(@Param("cutoff") LocalDateTime cutoff);
 }
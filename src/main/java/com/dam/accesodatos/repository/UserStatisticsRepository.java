@@ -0,0 +1,17 @@
+package com.dam.accesodatos.repository;
+
+import com.dam.accesodatos.model.UserStatistics;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository JPA para UserStatistics (solo lectura en la práctica: las escrituras
+ * las hace LoginCounterBuffer con batches JDBC).
+ */
+@Repository
+public interface UserStatisticsRepository extends JpaRepository<UserStatistics, Long> {
+
+    Optional<UserStatistics> findByUserId(Long userId);
+}
@@ -0,0 +1,373 @@
+package com.dam.accesodatos.snapshot;
+
+import com.dam.accesodatos.model.User;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Copia en memoria de la tabla users organizada por columnas.
+ *
+ * En lugar de una lista de objetos User, cada columna es un array primitivo indexado
+ * por número de fila:
+ * - ids, versiones y fechas (epoch millis) en long[]
+ * - departamento y rol codificados con diccionario: int[] con el código de cada fila
+ * - active y "fila viva" como BitSet (un bit por fila)
+ * - por cada código de departamento y de rol, un BitSet con sus filas vivas
+ *
+ * Un filtro como "department = 'IT' AND active" se resuelve con un AND de bitmaps
+ * (64 filas por operación) sin crear objetos; solo se materializan como User las
+ * filas del resultado.
+ *
+ * Las filas borradas dejan un hueco (bit 'live' a 0) que no se reutiliza; la
+ * reconstrucción completa de UserSnapshotService las compacta.
+ *
+ * CONCURRENCIA: un único hilo escribe (el que aplica los cambios) y las consultas
+ * leen en paralelo bajo un ReentrantReadWriteLock.
+ */
+public class UserColumnStore {
+
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Dictionary departments = new Dictionary();
+    private final Dictionary roles = new Dictionary();
+    private final List<BitSet> departmentRows = new ArrayList<>();
+    private final List<BitSet> roleRows = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final BitSet active = new BitSet();
+    private final Map<Long, Integer> rowById = new HashMap<>();
+
+    private long[] ids;
+    private long[] versions;
+    private long[] createdAtMillis;
+    private long[] updatedAtMillis;
+    private int[] departmentCodes;
+    private int[] roleCodes;
+    private String[] names;
+    private String[] emails;
+    private int rows;
+    private boolean idsAscending = true;
+
+    public UserColumnStore(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new long[capacity];
+        versions = new long[capacity];
+        createdAtMillis = new long[capacity];
+        updatedAtMillis = new long[capacity];
+        departmentCodes = new int[capacity];
+        roleCodes = new int[capacity];
+        names = new String[capacity];
+        emails = new String[capacity];
+    }
+
+    // ========== Escritura ==========
+
+    /**
+     * Inserta el usuario o sustituye la fila que ya tenga su id.
+     */
+    public void upsert(User user) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowById.get(user.getId());
+            int row;
+            if (existing != null) {
+                row = existing;
+                departmentRows.get(departmentCodes[row]).clear(row);
+                roleRows.get(roleCodes[row]).clear(row);
+            } else {
+                row = appendRow(user.getId());
+            }
+
+            int departmentCode = departments.code(user.getDepartment());
+            int roleCode = roles.code(user.getRole());
+            departmentCodes[row] = departmentCode;
+            roleCodes[row] = roleCode;
+            bitmap(departmentRows, departmentCode).set(row);
+            bitmap(roleRows, roleCode).set(row);
+            active.set(row, Boolean.TRUE.equals(user.getActive()));
+            versions[row] = user.getVersion() != null ? user.getVersion() : 0L;
+            createdAtMillis[row] = toMillis(user.getCreatedAt());
+            updatedAtMillis[row] = toMillis(user.getUpdatedAt());
+            names[row] = user.getName();
+            emails[row] = user.getEmail();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.remove(id);
+            if (row != null) {
+                clearRow(row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Equivale a DELETE FROM users WHERE active = false AND updated_at < :cutoff.
+     *
+     * @return Filas eliminadas
+     */
+    public int deleteInactiveBefore(LocalDateTime cutoff) {
+        long cutoffMillis = toMillis(cutoff);
+        lock.writeLock().lock();
+        try {
+            BitSet candidates = (BitSet) live.clone();
+            candidates.andNot(active);
+            int deleted = 0;
+            for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                if (updatedAtMillis[row] != NULL_TIME && updatedAtMillis[row] < cutoffMillis) {
+                    rowById.remove(ids[row]);
+                    clearRow(row);
+                    deleted++;
+                }
+            }
+            return deleted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ========== Consultas ==========
+
+    /**
+     * Mismo resultado que findUsersByDepartment(): activos del departamento ordenados por nombre.
+     */
+    public List<User> findActiveByDepartment(String department) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = departmentBitmap(department);
+            if (matches == null) {
+                return List.of();
+            }
+            matches.and(active);
+
+            Integer[] order = new Integer[matches.cardinality()];
+            int i = 0;
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                order[i++] = row;
+            }
+            Arrays.sort(order, Comparator.comparing(row -> names[row]));
+
+            List<User> result = new ArrayList<>(order.length);
+            for (int row : order) {
+                result.add(materialize(row));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mismo resultado que searchUsers(): filtros opcionales (null = sin filtro),
+     * orden por id y paginación con offset/limit.
+     */
+    public List<User> search(String department, String role, Boolean activeFilter, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = (BitSet) live.clone();
+            if (department != null) {
+                int code = departments.find(department);
+                if (code < 0) {
+                    return List.of();
+                }
+                matches.and(departmentRows.get(code));
+            }
+            if (role != null) {
+                int code = roles.find(role);
+                if (code < 0) {
+                    return List.of();
+                }
+                matches.and(roleRows.get(code));
+            }
+            if (activeFilter != null) {
+                if (activeFilter) {
+                    matches.and(active);
+                } else {
+                    matches.andNot(active);
+                }
+            }
+
+            List<User> result = new ArrayList<>(Math.min(limit, 256));
+            if (idsAscending) {
+                // Filas en orden de id: se recorre el bitmap y se para al completar la página
+                int skipped = 0;
+                for (int row = matches.nextSetBit(0); row >= 0 && result.size() < limit;
+                     row = matches.nextSetBit(row + 1)) {
+                    if (skipped++ >= offset) {
+                        result.add(materialize(row));
+                    }
+                }
+                return result;
+            }
+
+            long[] matchedIds = new long[matches.cardinality()];
+            int i = 0;
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                matchedIds[i++] = ids[row];
+            }
+            Arrays.sort(matchedIds);
+            for (int j = offset; j < matchedIds.length && result.size() < limit; j++) {
+                result.add(materialize(rowById.get(matchedIds[j])));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mismo resultado que executeCountByDepartment(): activos del departamento.
+     */
+    public long countActiveByDepartment(String department) {
+        lock.readLock().lock();
+        try {
+            BitSet matches = departmentBitmap(department);
+            if (matches == null) {
+                return 0;
+            }
+            matches.and(active);
+            return matches.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Número de usuarios (filas vivas)
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Filas ocupadas, incluidos los huecos de los borrados
+     */
+    public int allocatedRows() {
+        lock.readLock().lock();
+        try {
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ========== Internos ==========
+
+    private int appendRow(long id) {
+        if (rows == ids.length) {
+            grow();
+        }
+        int row = rows++;
+        if (row > 0 && id < ids[row - 1]) {
+            idsAscending = false;
+        }
+        ids[row] = id;
+        live.set(row);
+        rowById.put(id, row);
+        return row;
+    }
+
+    private void clearRow(int row) {
+        live.clear(row);
+        active.clear(row);
+        departmentRows.get(departmentCodes[row]).clear(row);
+        roleRows.get(roleCodes[row]).clear(row);
+        names[row] = null;
+        emails[row] = null;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        createdAtMillis = Arrays.copyOf(createdAtMillis, capacity);
+        updatedAtMillis = Arrays.copyOf(updatedAtMillis, capacity);
+        departmentCodes = Arrays.copyOf(departmentCodes, capacity);
+        roleCodes = Arrays.copyOf(roleCodes, capacity);
+        names = Arrays.copyOf(names, capacity);
+        emails = Arrays.copyOf(emails, capacity);
+    }
+
+    /**
+     * @return Copia del bitmap del departamento (se puede modificar) o null si no existe
+     */
+    private BitSet departmentBitmap(String department) {
+        int code = departments.find(department);
+        return code < 0 ? null : (BitSet) departmentRows.get(code).clone();
+    }
+
+    private static BitSet bitmap(List<BitSet> bitmaps, int code) {
+        while (bitmaps.size() <= code) {
+            bitmaps.add(new BitSet());
+        }
+        return bitmaps.get(code);
+    }
+
+    private User materialize(int row) {
+        User user = new User(names[row], emails[row], departments.value(departmentCodes[row]),
+                roles.value(roleCodes[row]));
+        user.setId(ids[row]);
+        user.setActive(active.get(row));
+        user.setVersion(versions[row]);
+        user.setCreatedAt(toDateTime(createdAtMillis[row]));
+        user.setUpdatedAt(toDateTime(updatedAtMillis[row]));
+        return user;
+    }
+
+    // Las fechas se guardan como milisegundos de la LocalDateTime leída en UTC: es solo
+    // una codificación, la conversión inversa devuelve exactamente el mismo valor.
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime == null ? NULL_TIME : dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return millis == NULL_TIME ? null : LocalDateTime.ofEpochSecond(
+                Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Diccionario String ↔ código int. Los códigos no se reutilizan: los valores son pocos
+     * (departamentos y roles) y así el código de una fila nunca cambia de significado.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            return codes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        int find(String value) {
+            Integer code = codes.get(value);
+            return code != null ? code : -1;
+        }
+
+        String value(int code) {
+            return values.get(code);
+        }
+    }
+}
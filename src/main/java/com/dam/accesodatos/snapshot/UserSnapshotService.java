@@ -0,0 +1,376 @@
+package com.dam.accesodatos.snapshot;
+
+import com.dam.accesodatos.cdc.OffsetGapTracker;
+import com.dam.accesodatos.cdc.UserChangeEvent;
+import com.dam.accesodatos.cdc.UserChangeOutbox;
+import com.dam.accesodatos.cdc.UserChangeStreamService;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Motor de lectura en memoria para find_users_by_department, search_users y
+ * execute_count_by_department (mcp.snapshot.enabled=true).
+ *
+ * 1. Al arrancar carga la tabla users en un UserColumnStore y recuerda el último
+ *    offset de la outbox user_change_events.
+ * 2. Después aplica, en orden de offset, los cambios CONFIRMADOS de la outbox (con
+ *    OffsetGapTracker: las transacciones que confirman tarde se aplican al aparecer):
+ *    - CREATE/UPDATE: el payload es el usuario completo → upsert
+ *    - DELETE: se borra la fila
+ *    - BULK_UPDATE: se recargan de la BD las filas afectadas (por departamento o rol)
+ *    - BULK_DELETE: se aplica el mismo criterio (inactivos anteriores a la fecha) en memoria
+ *    - BULK_INSERT: se cargan de la BD las filas del rango de IDs del lote importado
+ *    - ARCHIVE: se borran las filas del rango que ya están en users_archive
+ *    - Cualquier otra operación: reconstrucción completa
+ * 3. UserChangeOutbox avisa tras cada commit; un @Scheduled cubre los avisos perdidos.
+ *
+ * CONSISTENCIA: las lecturas van unos milisegundos por detrás de los commits (lo que
+ * tarde el hilo de aplicación). Mientras no se ha hecho la carga inicial, isReady()
+ * devuelve false y las herramientas usan Hibernate.
+ *
+ * LIMITACIONES:
+ * - Las fechas se guardan con precisión de milisegundos.
+ * - Con sharding (mcp.sharding.enabled) la carga no recorre todos los shards: si
+ *   ambas opciones están activas el arranque falla.
+ */
+@Component
+@ConditionalOnProperty(name = "mcp.snapshot.enabled", havingValue = "true")
+public class UserSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSnapshotService.class);
+
+    private static final String SELECT_USERS =
+            "SELECT u.id, u.name, u.email, d.name AS department, r.name AS role, u.active, u.created_at, "
+                    + "u.updated_at, u.version FROM users u "
+                    + "JOIN departments d ON d.id = u.department_id JOIN roles r ON r.id = u.role_id";
+
+    private static final RowMapper<User> USER_ROW_MAPPER = (rs, rowNum) -> {
+        User user = new User(rs.getString("name"), rs.getString("email"),
+                rs.getString("department"), rs.getString("role"));
+        user.setId(rs.getLong("id"));
+        user.setActive(rs.getBoolean("active"));
+        user.setVersion(rs.getLong("version"));
+        user.setCreatedAt(rs.getTimestamp("created_at") != null
+                ? rs.getTimestamp("created_at").toLocalDateTime() : null);
+        user.setUpdatedAt(rs.getTimestamp("updated_at") != null
+                ? rs.getTimestamp("updated_at").toLocalDateTime() : null);
+        return user;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserChangeStreamService changeStream;
+
+    @Value("${mcp.snapshot.batch-size:500}")
+    private int batchSize;
+
+    @Value("${mcp.snapshot.gap-timeout-ms:1000}")
+    private long gapTimeoutMs;
+
+    @Value("${mcp.snapshot.late-commit-window-ms:300000}")
+    private long lateCommitWindowMs;
+
+    @Value("${mcp.sharding.enabled:false}")
+    private boolean shardingEnabled;
+
+    private final AtomicBoolean applying = new AtomicBoolean();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private ExecutorService applyExecutor;
+
+    private volatile UserColumnStore store;
+    private volatile OffsetGapTracker tracker;
+
+    @PostConstruct
+    void startExecutor() {
+        // JdbcTemplate solo ve el shard fijado en ShardContext: el snapshot quedaría incompleto
+        if (shardingEnabled) {
+            throw new IllegalStateException("mcp.snapshot.enabled=true no es compatible con mcp.sharding.enabled=true");
+        }
+        applyExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-snapshot-apply");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        applyExecutor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        applyExecutor.execute(this::rebuild);
+    }
+
+    /**
+     * Reconstrucción completa a petición, en el hilo de aplicación (escrituras que no
+     * pasan por la outbox, como cargas directas con JDBC).
+     */
+    public void reload() {
+        try {
+            applyExecutor.submit(this::rebuild).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recarga del snapshot interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error recargando el snapshot", e.getCause());
+        }
+    }
+
+    public boolean isReady() {
+        return store != null;
+    }
+
+    // ========== Consultas ==========
+
+    public List<User> findUsersByDepartment(String department) {
+        return requireStore().findActiveByDepartment(department);
+    }
+
+    public List<User> searchUsers(UserQueryDto query) {
+        int offset = query.getOffset() != null ? Math.max(0, query.getOffset()) : 0;
+        int limit = query.getLimit() != null ? Math.max(0, query.getLimit()) : Integer.MAX_VALUE;
+        return requireStore().search(query.getDepartment(), query.getRole(), query.getActive(), offset, limit);
+    }
+
+    public long executeCountByDepartment(String department) {
+        return requireStore().countActiveByDepartment(department);
+    }
+
+    public Map<String, Object> snapshot() {
+        UserColumnStore current = store;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", current != null);
+        stats.put("users", current != null ? current.size() : 0);
+        stats.put("allocatedRows", current != null ? current.allocatedRows() : 0);
+        stats.put("appliedOffset", tracker != null ? tracker.cursor() : 0L);
+        return stats;
+    }
+
+    // ========== Aplicación de cambios ==========
+
+    /**
+     * Hay cambios confirmados en la outbox (lo llama UserChangeOutbox tras el commit).
+     */
+    public void signal() {
+        dirty.set(true);
+        if (store != null && applying.compareAndSet(false, true)) {
+            applyExecutor.execute(this::drain);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mcp.snapshot.poll-interval-ms:500}")
+    public void poll() {
+        signal();
+    }
+
+    /**
+     * Carga completa. Se lee primero el offset y después los usuarios: los eventos
+     * posteriores a ese offset que ya estén reflejados en la carga se vuelven a aplicar,
+     * lo que no cambia el resultado. Los huecos por debajo del offset pueden ser
+     * transacciones aún sin commit: quedan pendientes en el tracker y se aplican al aparecer.
+     */
+    void rebuild() {
+        long start = System.nanoTime();
+        long maxOffset = changeStream.latestOffset();
+        List<Long> missing = changeStream.missingOffsetsUpTo(maxOffset);
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+
+        UserColumnStore fresh = new UserColumnStore(count != null ? count : 0);
+        jdbcTemplate.query(SELECT_USERS + " ORDER BY u.id",
+                (RowCallbackHandler) rs -> fresh.upsert(USER_ROW_MAPPER.mapRow(rs, 0)));
+
+        OffsetGapTracker fromLoad = new OffsetGapTracker(maxOffset, gapTimeoutMs, lateCommitWindowMs);
+        fromLoad.addPending(missing, System.currentTimeMillis());
+        tracker = fromLoad;
+        store = fresh;
+        logger.info("Snapshot de usuarios cargado: {} filas en {} ms (offset {})",
+                fresh.size(), (System.nanoTime() - start) / 1_000_000, maxOffset);
+    }
+
+    private void drain() {
+        try {
+            while (dirty.getAndSet(false)) {
+                while (applyBatch() == batchSize) {
+                    // Lote completo: probablemente hay más eventos pendientes
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Error aplicando cambios al snapshot; se reconstruye", e);
+            rebuild();
+        } finally {
+            applying.set(false);
+            if (dirty.get()) {
+                signal();
+            }
+        }
+    }
+
+    /**
+     * Mismo tratamiento de huecos que UserChangeStreamService (OffsetGapTracker). Los
+     * offsets saltados que ya han confirmado se aplican antes que los posteriores al
+     * cursor. Fuera de orden no hay problema: dos transacciones sobre el mismo usuario se
+     * bloquean por fila, así que la posterior confirma siempre después, y las masivas
+     * releen de la BD el estado actual.
+     *
+     * @return Número de eventos posteriores al cursor aplicados
+     */
+    private int applyBatch() {
+        OffsetGapTracker current = tracker;
+        long now = System.currentTimeMillis();
+
+        if (current.hasPending()) {
+            for (UserChangeEvent event : changeStream.readOffsets(current.pending(now))) {
+                logger.debug("Snapshot: evento confirmado tarde (offset {})", event.offset());
+                current.markFound(event.offset());
+                if (!apply(event)) {
+                    // Reconstruido: el nuevo tracker ya parte del final de la outbox
+                    return 0;
+                }
+            }
+        }
+
+        int applied = 0;
+        for (UserChangeEvent event : changeStream.readAfter(current.cursor(), batchSize)) {
+            if (!current.advance(event.offset(), now)) {
+                // Se reintenta en el siguiente poll()
+                break;
+            }
+            applied++;
+            if (!apply(event)) {
+                return applied;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @return false si el evento obligó a reconstruir el snapshot
+     */
+    private boolean apply(UserChangeEvent event) {
+        UserColumnStore current = store;
+        try {
+            return switch (event.operation()) {
+                case UserChangeOutbox.CREATE, UserChangeOutbox.UPDATE -> {
+                    current.upsert(objectMapper.readValue(event.payload(), User.class));
+                    yield true;
+                }
+                case UserChangeOutbox.DELETE -> {
+                    current.delete(event.userId());
+                    yield true;
+                }
+                case UserChangeOutbox.BULK_UPDATE -> applyBulkUpdate(current, objectMapper.readTree(event.payload()));
+                case UserChangeOutbox.BULK_DELETE -> applyBulkDelete(current, objectMapper.readTree(event.payload()));
+                case UserChangeOutbox.BULK_INSERT -> applyBulkInsert(current, objectMapper.readTree(event.payload()));
+                case UserChangeOutbox.ARCHIVE -> applyArchive(current, objectMapper.readTree(event.payload()));
+                default -> {
+                    rebuild();
+                    yield false;
+                }
+            };
+        } catch (IOException e) {
+            throw new IllegalStateException("Evento de cambio ilegible (offset " + event.offset() + ")", e);
+        }
+    }
+
+    /**
+     * Los UPDATE masivos no publican las filas: se releen las que ahora cumplen el
+     * criterio (deactivate_department → su departamento; reassign_role → el rol nuevo).
+     */
+    private boolean applyBulkUpdate(UserColumnStore current, JsonNode payload) {
+        JsonNode where = payload.path("where");
+        JsonNode set = payload.path("set");
+        List<User> affected;
+        if (where.has("department")) {
+            affected = jdbcTemplate.query(SELECT_USERS + " WHERE d.name = ?", USER_ROW_MAPPER,
+                    where.get("department").asText());
+        } else if (set.has("role")) {
+            affected = jdbcTemplate.query(SELECT_USERS + " WHERE r.name = ?", USER_ROW_MAPPER,
+                    set.get("role").asText());
+        } else {
+            rebuild();
+            return false;
+        }
+        affected.forEach(current::upsert);
+        return true;
+    }
+
+    private boolean applyBulkDelete(UserColumnStore current, JsonNode payload) {
+        JsonNode where = payload.path("where");
+        if (!where.has("updatedBefore")) {
+            rebuild();
+            return false;
+        }
+        current.deleteInactiveBefore(LocalDateTime.parse(where.get("updatedBefore").asText()));
+        return true;
+    }
+
+    /**
+     * El rango puede incluir altas concurrentes de otros clientes: el upsert es idempotente.
+     */
+    private boolean applyBulkInsert(UserColumnStore current, JsonNode payload) {
+        if (!payload.has("fromId") || !payload.has("toId")) {
+            rebuild();
+            return false;
+        }
+        jdbcTemplate.query(SELECT_USERS + " WHERE u.id BETWEEN ? AND ?", USER_ROW_MAPPER,
+                        payload.get("fromId").asLong(), payload.get("toId").asLong())
+                .forEach(current::upsert);
+        return true;
+    }
+
+    /**
+     * Un ID archivado no vuelve a users: borrar también los de lotes anteriores del mismo
+     * rango no cambia el resultado.
+     */
+    private boolean applyArchive(UserColumnStore current, JsonNode payload) {
+        if (!payload.has("fromId") || !payload.has("toId")) {
+            rebuild();
+            return false;
+        }
+        jdbcTemplate.queryForList("SELECT id FROM users_archive WHERE id BETWEEN ? AND ?", Long.class,
+                        payload.get("fromId").asLong(), payload.get("toId").asLong())
+                .forEach(current::delete);
+        return true;
+    }
+
+    private UserColumnStore requireStore() {
+        UserColumnStore current = store;
+        if (current == null) {
+            throw new IllegalStateException("El snapshot de usuarios aún no está cargado");
+        }
+        return current;
+    }
+}
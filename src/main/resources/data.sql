@@ -1,16 +1,27 @@
 -- RA2: Datos iniciales para testing y desarrollo
 -- Estos datos se cargan automáticamente al arrancar la aplicación Spring Boot
 
--- Insertar usuarios de prueba
-INSERT INTO users (id, name, email, department, role, active, created_at, updated_at) VALUES
-(1, 'Juan Pérez', 'juan.perez@empresa.com', 'IT', 'Developer', true, '2024-01-15 09:30:00', '2024-01-15 09:30:00'),
-(2, 'María García', 'maria.garcia@empresa.com', 'HR', 'Manager', true, '2024-01-16 10:15:00', '2024-01-20 14:20:00'),
-(3, 'Carlos López', 'carlos.lopez@empresa.com', 'Finance', 'Analyst', true, '2024-01-17 11:00:00', '2024-01-17 11:00:00'),
-(4, 'Ana Martínez', 'ana.martinez@empresa.com', 'IT', 'Senior Developer', true, '2024-01-18 08:45:00', '2024-01-25 16:30:00'),
-(5, 'Luis Rodríguez', 'luis.rodriguez@empresa.com', 'Marketing', 'Specialist', true, '2024-01-19 13:20:00', '2024-01-19 13:20:00'),
-(6, 'Elena Fernández', 'elena.fernandez@empresa.com', 'IT', 'DevOps', false, '2024-01-20 09:00:00', '2024-02-01 10:00:00'),
-(7, 'Pedro Sánchez', 'pedro.sanchez@empresa.com', 'Sales', 'Representative', true, '2024-01-21 10:30:00', '2024-01-21 10:30:00'),
-(8, 'Laura González', 'laura.gonzalez@empresa.com', 'HR', 'Recruiter', true, '2024-01-22 14:00:00', '2024-01-22 14:00:00');
+-- Tablas de consulta (los códigos nuevos los crea la aplicación al guardar usuarios)
+INSERT INTO departments (id, name) VALUES
+(1, 'IT'), (2, 'HR'), (3, 'Finance'), (4, 'Marketing'), (5, 'Sales');
+
+INSERT INTO roles (id, name) VALUES
+(1, 'Developer'), (2, 'Manager'), (3, 'Analyst'), (4, 'Senior Developer'), (5, 'Specialist'),
+(6, 'DevOps'), (7, 'Representative'), (8, 'Recruiter');
+
+ALTER TABLE departments ALTER COLUMN id RESTART WITH 100;
+ALTER TABLE roles ALTER COLUMN id RESTART WITH 100;
+
+-- Insertar usuarios de prueba (department_id y role_id: códigos de las tablas anteriores)
+INSERT INTO users (id, name, email, department_id, role_id, active, created_at, updated_at) VALUES
+(1, 'Juan Pérez', 'juan.perez@empresa.com', 1, 1, true, '2024-01-15 09:30:00', '2024-01-15 09:30:00'),
+(2, 'María García', 'maria.garcia@empresa.com', 2, 2, true, '2024-01-16 10:15:00', '2024-01-20 14:20:00'),
+(3, 'Carlos López', 'carlos.lopez@empresa.com', 3, 3, true, '2024-01-17 11:00:00', '2024-01-17 11:00:00'),
+(4, 'Ana Martínez', 'ana.martinez@empresa.com', 1, 4, true, '2024-01-18 08:45:00', '2024-01-25 16:30:00'),
+(5, 'Luis Rodríguez', 'luis.rodriguez@empresa.com', 4, 5, true, '2024-01-19 13:20:00', '2024-01-19 13:20:00'),
+(6, 'Elena Fernández', 'elena.fernandez@empresa.com', 1, 6, false, '2024-01-20 09:00:00', '2024-02-01 10:00:00'),
+(7, 'Pedro Sánchez', 'pedro.sanchez@empresa.com', 5, 7, true, '2024-01-21 10:30:00', '2024-01-21 10:30:00'),
+(8, 'Laura González', 'laura.gonzalez@empresa.com', 2, 8, true, '2024-01-22 14:00:00', '2024-01-22 14:00:00');
 
 -- Insertar estadísticas de ejemplo para usuarios (opcional - para JOINs)
 INSERT INTO user_statistics (user_id, login_count, last_login) VALUES
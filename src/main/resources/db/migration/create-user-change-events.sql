@@ -0,0 +1,14 @@
+-- Migración: outbox transaccional user_change_events (UserChangeEventListener).
+-- La ejecuta SchemaIfMissingInitializer al arrancar sobre una BD persistente creada
+-- antes de que existiera la outbox (las BD en memoria se recrean con schema.sql).
+-- Sin ella cada INSERT/UPDATE/DELETE de users fallaría al anotar su evento.
+
+CREATE TABLE IF NOT EXISTS user_change_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT,
+    operation VARCHAR(20) NOT NULL,
+    payload VARCHAR(4000),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_change_events_created_at ON user_change_events(created_at);
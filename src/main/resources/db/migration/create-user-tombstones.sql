@@ -0,0 +1,14 @@
+-- Migración: sincronización incremental (find_users_changed_since).
+-- La ejecuta SchemaIfMissingInitializer al arrancar sobre una BD persistente creada
+-- antes de que existieran las lápidas (las BD en memoria se recrean con schema.sql).
+-- delete_inactive_before escribe las lápidas antes de borrar: sin esta tabla falla.
+
+CREATE TABLE IF NOT EXISTS user_tombstones (
+    user_id BIGINT PRIMARY KEY,
+    deleted_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_user_tombstones_deleted_at ON user_tombstones(deleted_at, user_id);
+
+-- Marca de agua (updated_at, id) sobre users
+CREATE INDEX IF NOT EXISTS idx_users_updated_at ON users(updated_at, id);
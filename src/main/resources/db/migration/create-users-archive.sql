@@ -0,0 +1,20 @@
+-- Migración: tabla users_archive (UserArchiveService).
+-- La ejecuta SchemaIfMissingInitializer al arrancar sobre una BD persistente creada
+-- antes de que existiera el archivo (las BD en memoria se recrean con schema.sql).
+
+CREATE TABLE IF NOT EXISTS users_archive (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL,
+    email VARCHAR(100) NOT NULL,
+    department_id SMALLINT NOT NULL REFERENCES departments(id),
+    role_id SMALLINT NOT NULL REFERENCES roles(id),
+    active BOOLEAN,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    version BIGINT NOT NULL,
+    login_count INTEGER,
+    last_login TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_users_archive_email ON users_archive(email);
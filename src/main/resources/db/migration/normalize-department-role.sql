@@ -0,0 +1,43 @@
+-- Migración: users.department/role (VARCHAR) → department_id/role_id (SMALLINT)
+-- con tablas de consulta departments y roles.
+-- La ejecuta SchemaIfMissingInitializer al arrancar sobre una BD persistente que aún
+-- tiene el esquema anterior (las BD en memoria se recrean con schema.sql).
+
+CREATE TABLE IF NOT EXISTS departments (
+    id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS roles (
+    id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+-- 1. Un código por cada valor distinto
+INSERT INTO departments (name)
+SELECT DISTINCT department FROM users WHERE department NOT IN (SELECT name FROM departments);
+
+INSERT INTO roles (name)
+SELECT DISTINCT role FROM users WHERE role NOT IN (SELECT name FROM roles);
+
+-- 2. Columnas nuevas rellenadas con los códigos
+ALTER TABLE users ADD COLUMN department_id SMALLINT;
+ALTER TABLE users ADD COLUMN role_id SMALLINT;
+
+UPDATE users u SET
+    department_id = (SELECT d.id FROM departments d WHERE d.name = u.department),
+    role_id = (SELECT r.id FROM roles r WHERE r.name = u.role);
+
+ALTER TABLE users ALTER COLUMN department_id SET NOT NULL;
+ALTER TABLE users ALTER COLUMN role_id SET NOT NULL;
+
+-- 3. Fuera las columnas de texto y sus índices; índices sobre los códigos
+DROP INDEX IF EXISTS idx_users_department;
+DROP INDEX IF EXISTS idx_users_role;
+ALTER TABLE users DROP COLUMN department;
+ALTER TABLE users DROP COLUMN role;
+
+ALTER TABLE users ADD CONSTRAINT fk_users_department FOREIGN KEY (department_id) REFERENCES departments(id);
+ALTER TABLE users ADD CONSTRAINT fk_users_role FOREIGN KEY (role_id) REFERENCES roles(id);
+CREATE INDEX idx_users_department ON users(department_id, active);
+CREATE INDEX idx_users_role ON users(role_id);
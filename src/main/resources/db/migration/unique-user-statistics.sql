@@ -0,0 +1,17 @@
+-- Migración: una fila de user_statistics por usuario (LoginCounterBuffer hace
+-- UPDATE ... WHERE user_id = ? y solo inserta si no actualiza ninguna).
+-- La ejecuta SchemaIfMissingInitializer al arrancar sobre una BD persistente creada
+-- antes del índice único (las BD en memoria se recrean con schema.sql).
+
+-- 1. Las filas repetidas de un usuario se suman en la de menor id
+UPDATE user_statistics s
+SET login_count = (SELECT SUM(COALESCE(d.login_count, 0)) FROM user_statistics d WHERE d.user_id = s.user_id),
+    last_login = (SELECT MAX(d.last_login) FROM user_statistics d WHERE d.user_id = s.user_id)
+WHERE s.id = (SELECT MIN(d.id) FROM user_statistics d WHERE d.user_id = s.user_id)
+  AND EXISTS (SELECT 1 FROM user_statistics d WHERE d.user_id = s.user_id AND d.id <> s.id);
+
+-- 2. Y se borran las demás
+DELETE FROM user_statistics
+WHERE id NOT IN (SELECT MIN(id) FROM user_statistics GROUP BY user_id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_user_statistics_user ON user_statistics(user_id);
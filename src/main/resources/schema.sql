@@ -3,28 +3,48 @@
 -- Estudiantes deben usar JDBC puro para interactuar con estas tablas
 
 -- Eliminar tablas si existen (para poder recrear en cada arranque)
+DROP TABLE IF EXISTS users_archive CASCADE;
+DROP TABLE IF EXISTS user_tombstones CASCADE;
+DROP TABLE IF EXISTS user_change_events CASCADE;
 DROP TABLE IF EXISTS user_statistics CASCADE;
 DROP TABLE IF EXISTS users CASCADE;
+DROP TABLE IF EXISTS departments CASCADE;
+DROP TABLE IF EXISTS roles CASCADE;
+
+-- Tablas de consulta: cada nombre se guarda una vez y users solo guarda su código
+-- (SMALLINT, 2 bytes). Más filas por página de datos y de índice.
+CREATE TABLE departments (
+    id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
+
+CREATE TABLE roles (
+    id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(50) NOT NULL UNIQUE
+);
 
 -- Tabla principal: users
 CREATE TABLE users (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     name VARCHAR(50) NOT NULL,
     email VARCHAR(100) UNIQUE NOT NULL,
-    department VARCHAR(50) NOT NULL,
-    role VARCHAR(50) NOT NULL,
+    department_id SMALLINT NOT NULL REFERENCES departments(id),
+    role_id SMALLINT NOT NULL REFERENCES roles(id),
     active BOOLEAN DEFAULT TRUE,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT DEFAULT 0 NOT NULL  -- Bloqueo optimista (@Version)
 );
 
 -- Índices para mejorar rendimiento de consultas
-CREATE INDEX idx_users_department ON users(department);
-CREATE INDEX idx_users_role ON users(role);
+CREATE INDEX idx_users_department ON users(department_id, active);  -- find_users_by_department, execute_count_by_department
+CREATE INDEX idx_users_role ON users(role_id);
 CREATE INDEX idx_users_active ON users(active);
 CREATE INDEX idx_users_email ON users(email);
+CREATE INDEX idx_users_updated_at ON users(updated_at, id);  -- Marca de agua de find_users_changed_since
 
 -- Tabla para estadísticas agregadas (opcional - para JOINs avanzados)
+-- record_login la actualiza por lotes (LoginCounterBuffer): una fila por usuario.
 CREATE TABLE user_statistics (
     id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     user_id BIGINT NOT NULL,
@@ -33,6 +53,49 @@ CREATE TABLE user_statistics (
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 );
 
+CREATE UNIQUE INDEX idx_user_statistics_user ON user_statistics(user_id);  -- UPDATE ... WHERE user_id = ? del volcado
+
+-- Outbox transaccional: cada cambio en users se registra en la MISMA transacción.
+-- El id es el offset que usan los suscriptores de /mcp/subscribe_user_changes para reanudar.
+CREATE TABLE user_change_events (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT,                       -- NULL en operaciones masivas (BULK_*)
+    operation VARCHAR(20) NOT NULL,       -- CREATE, UPDATE, DELETE, BULK_UPDATE, BULK_DELETE, BULK_INSERT, ARCHIVE
+    payload VARCHAR(4000),                -- JSON: usuario, o criterios de la operación masiva
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_user_change_events_created_at ON user_change_events(created_at);
+
+-- Lápidas: usuarios borrados, para que la sincronización incremental vea los DELETE.
+-- Sin FK a users: la fila del usuario ya no existe.
+CREATE TABLE user_tombstones (
+    user_id BIGINT PRIMARY KEY,
+    deleted_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_user_tombstones_deleted_at ON user_tombstones(deleted_at, user_id);
+
+-- Archivo: usuarios inactivos sacados de users (UserArchiveService) para que la tabla
+-- caliente y sus índices solo crezcan con los usuarios en uso. Conserva el ID original
+-- y las estadísticas de inicio de sesión (user_statistics se borra en cascada con users).
+CREATE TABLE users_archive (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL,
+    email VARCHAR(100) NOT NULL,
+    department_id SMALLINT NOT NULL REFERENCES departments(id),
+    role_id SMALLINT NOT NULL REFERENCES roles(id),
+    active BOOLEAN,
+    created_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    version BIGINT NOT NULL,
+    login_count INTEGER,
+    last_login TIMESTAMP,
+    archived_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_users_archive_email ON users_archive(email);
+
 -- Nota sobre Triggers:
 -- H2 soporta triggers pero con sintaxis Java. Para este proyecto educativo,
 -- los estudiantes actualizarán updated_at manualmente en sus métodos UPDATE.
@@ -0,0 +1,152 @@
+package com.dam.accesodatos.archive;
+
+import com.dam.accesodatos.model.ArchivedUser;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserExportFilterDto;
+import com.dam.accesodatos.model.UserStatistics;
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import com.dam.accesodatos.repository.UserStatisticsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración del archivado users → users_archive (lotes de 2 usuarios)
+ */
+@SpringBootTest(properties = "mcp.archive.batch-size=2")
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Archivado de usuarios inactivos")
+class UserArchiveServiceIntegrationTest {
+
+    @Autowired
+    private UserArchiveService archiveService;
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserStatisticsRepository statisticsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User active;
+    private User recentlyInactive;
+    private List<User> oldInactive;
+
+    @BeforeEach
+    void setUp() {
+        statisticsRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM users_archive");
+        userRepository.deleteAll();
+
+        active = service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        recentlyInactive = service.createUser(new UserCreateDto("Luis", "luis@test.com", "IT", "Developer"));
+        oldInactive = List.of(
+                service.createUser(new UserCreateDto("Eva", "eva@test.com", "HR", "Manager")),
+                service.createUser(new UserCreateDto("Pablo", "pablo@test.com", "IT", "Analyst")),
+                service.createUser(new UserCreateDto("Rosa", "rosa@test.com", "Sales", "Analyst")));
+
+        jdbcTemplate.update("UPDATE users SET active = FALSE WHERE id = ?", recentlyInactive.getId());
+        Timestamp longAgo = Timestamp.valueOf(LocalDateTime.now().minusYears(2));
+        for (User user : oldInactive) {
+            jdbcTemplate.update("UPDATE users SET active = FALSE, updated_at = ? WHERE id = ?", longAgo, user.getId());
+        }
+        statisticsRepository.save(new UserStatistics(oldInactive.get(0).getId(), 42, LocalDateTime.now().minusYears(2)));
+    }
+
+    @Test
+    @DisplayName("Mueve en varios lotes solo los inactivos anteriores al corte")
+    void archive_MovesOnlyOldInactiveUsers() {
+        int archived = archiveService.archiveInactiveBefore(LocalDateTime.now().minusDays(30));
+
+        assertEquals(3, archived);
+        assertEquals(2, userRepository.count());
+        assertTrue(userRepository.findById(active.getId()).isPresent());
+        assertTrue(userRepository.findById(recentlyInactive.getId()).isPresent());
+        for (User user : oldInactive) {
+            assertTrue(userRepository.findById(user.getId()).isEmpty());
+        }
+
+        List<ArchivedUser> archivedUsers = archiveService.findAll();
+        assertEquals(oldInactive.stream().map(User::getId).toList(),
+                archivedUsers.stream().map(ArchivedUser::getId).toList());
+        ArchivedUser eva = archivedUsers.get(0);
+        assertEquals("eva@test.com", eva.getEmail());
+        assertEquals("HR", eva.getDepartment());
+        assertFalse(eva.getActive());
+        assertEquals(42, eva.getLoginCount());
+        assertNotNull(eva.getArchivedAt());
+
+        assertEquals(0, archiveService.archiveInactiveBefore(LocalDateTime.now().minusDays(30)));
+    }
+
+    @Test
+    @DisplayName("Cada lote publica un evento ARCHIVE con su rango de IDs")
+    void archive_AppendsOutboxEvents() {
+        Long before = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM user_change_events", Long.class);
+
+        archiveService.archiveInactiveBefore(LocalDateTime.now().minusDays(30));
+
+        List<String> payloads = jdbcTemplate.queryForList(
+                "SELECT payload FROM user_change_events WHERE operation = 'ARCHIVE' AND id > ? ORDER BY id",
+                String.class, before);
+        assertEquals(2, payloads.size());
+        assertTrue(payloads.get(0).contains("\"fromId\":" + oldInactive.get(0).getId()));
+        assertTrue(payloads.get(1).contains("\"toId\":" + oldInactive.get(2).getId()));
+    }
+
+    @Test
+    @DisplayName("Las lecturas del archivo encuentran a los usuarios movidos")
+    void findArchived_ByIdAndIds() {
+        archiveService.archiveInactiveBefore(LocalDateTime.now().minusDays(30));
+
+        Long pabloId = oldInactive.get(1).getId();
+        assertNull(service.findUserById(pabloId));
+        assertEquals("Pablo", archiveService.findById(pabloId).orElseThrow().getName());
+        assertTrue(archiveService.findById(active.getId()).isEmpty());
+
+        List<ArchivedUser> found = archiveService.findByIds(List.of(oldInactive.get(2).getId(), pabloId, active.getId()));
+        assertEquals(List.of(pabloId, oldInactive.get(2).getId()), found.stream().map(ArchivedUser::getId).toList());
+    }
+
+    @Test
+    @DisplayName("includeArchived: búsqueda, resumen y exportación cuentan también el archivo")
+    void archivedRows_VisibleToSearchSummaryAndExport() {
+        archiveService.archiveInactiveBefore(LocalDateTime.now().minusDays(30));
+
+        List<ArchivedUser> analysts = archiveService.search(null, "Analyst", false, null, null);
+        assertEquals(List.of(oldInactive.get(1).getId(), oldInactive.get(2).getId()),
+                analysts.stream().map(ArchivedUser::getId).toList());
+        assertEquals(List.of(oldInactive.get(2).getId()), archiveService.search(null, null, null, 1, 2)
+                .stream().map(ArchivedUser::getId).toList());
+
+        UserStatsSummaryDto archived = archiveService.statsSummary(null, null, false);
+        assertEquals(3, archived.getTotals().getInactive());
+        assertEquals(1, archived.getDepartments().get("IT").getTotal());
+
+        UserExportFilterDto filter = new UserExportFilterDto();
+        filter.setIncludeArchived(true);
+        assertEquals(5, service.exportUsers(filter, "csv").getRowCount());
+        assertEquals(2, service.exportUsers(null, "csv").getRowCount());
+
+        filter.setLimit(10);
+        assertThrows(IllegalArgumentException.class, () -> service.exportUsers(filter, "csv"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.ra3.GroupCommitUserCreator;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de create_user: una transacción por alta vs group commit
+ *
+ * Muchos hilos crean usuarios a la vez. Con group commit las altas que coinciden en
+ * la ventana comparten un batch JDBC y un único commit.
+ *
+ * NOTA: con H2 en memoria el commit es barato; la diferencia crece con una BD en
+ * disco (perfil 'persistent') o remota, donde cada commit implica un fsync o un viaje de red.
+ *
+ * Ejecutar con: ./gradlew benchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "mcp.create-user.group-commit.enabled=true",
+        "mcp.create-user.group-commit.window-us=500",
+        "mcp.create-user.group-commit.max-batch=64"
+})
+@ActiveProfiles("test")
+@DisplayName("Benchmark - Group commit en create_user")
+class GroupCommitBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int CREATES_PER_THREAD = 100;
+
+    @Autowired
+    private GroupCommitUserCreator groupCommitUserCreator;
+
+    @Autowired
+    private HibernateUserService hibernateUserService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Una transacción por alta")
+    void perCallTransaction() throws InterruptedException {
+        run("una transacción por alta", "single", hibernateUserService::createUser);
+    }
+
+    @Test
+    @DisplayName("Group commit")
+    void groupCommit() throws InterruptedException {
+        run("group commit", "group", groupCommitUserCreator::createUser);
+    }
+
+    private void run(String mode, String prefix, Consumer<UserCreateDto> create) throws InterruptedException {
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < CREATES_PER_THREAD; i++) {
+                    String email = prefix + "-" + thread + "-" + i + "@bench.com";
+                    try {
+                        create.accept(new UserCreateDto("Bench " + i, email, "IT", "Developer"));
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - begin;
+
+        int total = THREADS * CREATES_PER_THREAD;
+        double seconds = elapsed / 1_000_000_000.0;
+        System.out.printf("[create_user %s] hilos=%d altas=%d fallidas=%d tiempo=%.3fs throughput=%.1f ops/s%n",
+                mode, THREADS, total, failed.get(), seconds, (total - failed.get()) / seconds);
+        assertEquals(0, failed.get());
+        assertEquals(total, userRepository.count());
+    }
+}
@@ -0,0 +1,96 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserImportResultDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de carga masiva: import_users (CSV mapeado + batches JDBC) vs create_user fila a fila
+ *
+ * create_user se mide con menos filas (mcp.bench.create-rows) porque cada alta es una
+ * transacción; se compara el throughput (filas/s), no el tiempo total.
+ *
+ * Ejecutar con: ./gradlew benchmark -Pmcp.bench.import-rows=1000000
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Benchmark - Importación masiva de usuarios")
+class ImportBenchmark {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${mcp.import.directory:${java.io.tmpdir}/mcp-imports}")
+    private String importDirectory;
+
+    @Value("${mcp.bench.import-rows:200000}")
+    private int importRows;
+
+    @Value("${mcp.bench.create-rows:5000}")
+    private int createRows;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("import_users")
+    void importUsers() throws IOException {
+        Path file = Files.createDirectories(Paths.get(importDirectory)).resolve("bench-users.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("name,email,department,role,active\n");
+            for (int i = 0; i < importRows; i++) {
+                writer.write("Bench " + i + ",bench" + i + "@bench.com," + (i % 5 == 0 ? "HR" : "IT") + ",Developer,true\n");
+            }
+        }
+
+        try {
+            UserImportResultDto result = service.importUsers(file.getFileName().toString());
+
+            System.out.printf("[import_users] filas=%d insertadas=%d errores=%d tiempo=%dms throughput=%d filas/s (%.1f MB)%n",
+                    importRows, result.getInserted(), result.getFailed(), result.getElapsedMs(),
+                    result.getRowsPerSecond(), Files.size(file) / 1_048_576.0);
+            assertEquals(importRows, result.getInserted());
+            assertEquals(0, result.getFailed());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("create_user fila a fila")
+    void createUserPerRow() {
+        long begin = System.nanoTime();
+        for (int i = 0; i < createRows; i++) {
+            service.createUser(new UserCreateDto("Bench " + i, "single" + i + "@bench.com", "IT", "Developer"));
+        }
+        double seconds = (System.nanoTime() - begin) / 1_000_000_000.0;
+
+        System.out.printf("[create_user fila a fila] filas=%d tiempo=%.3fs throughput=%.1f filas/s%n",
+                createRows, seconds, createRows / seconds);
+        assertEquals(createRows, userRepository.count());
+    }
+}
@@ -0,0 +1,142 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.mcp.AdaptiveConcurrencyLimiter;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de carga del límite adaptativo de concurrencia
+ *
+ * 1. Referencia: un solo cliente secuencial → latencia sin cola
+ * 2. Sobrecarga: muchos clientes a la vez contra find_all_users (consulta pesada)
+ *
+ * Con el límite activo, lo que excede la capacidad recibe 429 al instante y el p99
+ * de las peticiones admitidas se mantiene cerca de la referencia en lugar de crecer
+ * con el número de clientes. El límite está desactivado por defecto; sin -P se
+ * obtiene la referencia sin límite.
+ *
+ * Ejecutar con: ./gradlew benchmark -Pmcp.concurrency-limit.enabled=true
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.com.dam.accesodatos=INFO",
+        "logging.level.org.springframework.transaction=INFO",
+        "logging.level.org.springframework.orm.jpa=INFO"
+})
+@ActiveProfiles("test")
+@DisplayName("Benchmark - Sobrecarga con límite adaptativo de concurrencia")
+class OverloadBenchmark {
+
+    private static final int USERS = 2_000;
+    private static final int CLIENTS = 64;
+    private static final int REQUESTS_PER_CLIENT = 30;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter limiter;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userRepository.saveAll(IntStream.range(0, USERS)
+                .mapToObj(i -> new User("Load " + i, "load" + i + "@bench.com", "IT", "Developer"))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("p99 de las peticiones admitidas bajo sobrecarga")
+    void overload() throws Exception {
+        List<Long> baseline = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(200, call(baseline));
+        }
+
+        List<Long> admitted = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger unexpected = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int c = 0; c < CLIENTS; c++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                    int status = call(admitted);
+                    if (status == 429) {
+                        rejected.incrementAndGet();
+                    } else if (status != 200) {
+                        unexpected.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf("[sobrecarga] referencia p50=%.1f ms p99=%.1f ms | %d clientes: admitidas=%d "
+                        + "p50=%.1f ms p99=%.1f ms rechazadas(429)=%d throughput=%.1f ok/s límite final=%d%n",
+                percentile(baseline, 50), percentile(baseline, 99), CLIENTS, admitted.size(),
+                percentile(admitted, 50), percentile(admitted, 99), rejected.get(),
+                admitted.size() / seconds, limiter.getLimit());
+        assertEquals(0, unexpected.get());
+    }
+
+    /**
+     * Llama a find_all_users; si responde 200 anota la latencia en 'latencies'.
+     */
+    private int call(List<Long> latencies) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/mcp/find_all_users"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+        long start = System.nanoTime();
+        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 200) {
+            latencies.add(System.nanoTime() - start);
+        }
+        return response.statusCode();
+    }
+
+    private static double percentile(List<Long> samples, int percentile) {
+        if (samples.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100)) / 1e6;
+    }
+}
@@ -0,0 +1,107 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.repository.LookupCodes;
+import com.dam.accesodatos.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de memoria y flush con un contexto de persistencia grande
+ *
+ * Carga mcp.bench.managed-users usuarios en una transacción y mide:
+ * - memoria retenida por entidad gestionada (heap usado tras GC, antes y después de cargar)
+ * - duración del flush con un solo usuario modificado
+ *
+ * Comparar con y sin bytecode enhancement:
+ *   ./gradlew benchmark --tests '*PersistenceContextBenchmark'
+ *   ./gradlew benchmark --tests '*PersistenceContextBenchmark' -PnoEnhancement
+ * (la medida fina del flush está en FlushDirtyCheckingJmhBenchmark)
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Benchmark - Contexto de persistencia: memoria y flush")
+class PersistenceContextBenchmark {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${mcp.bench.managed-users:50000}")
+    private int managedUsers;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        short department = lookupCodes.ensureDepartment("IT");
+        short role = lookupCodes.ensureRole("Developer");
+        List<Object[]> batch = new ArrayList<>(managedUsers);
+        for (int i = 0; i < managedUsers; i++) {
+            batch.add(new Object[]{"User " + i, "pc" + i + "@bench.com", department, role, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, department_id, role_id, active, created_at, "
+                + "updated_at, version) VALUES (?, ?, ?, ?, TRUE, ?, ?, 0)", batch);
+    }
+
+    @Test
+    @DisplayName("Memoria por entidad gestionada y flush con un cambio")
+    void memoryAndFlush() {
+        boolean enhanced = SelfDirtinessTracker.class.isAssignableFrom(User.class);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            long before = usedHeapAfterGc();
+            List<User> users = entityManager.createQuery("SELECT u FROM User u", User.class).getResultList();
+            long after = usedHeapAfterGc();
+
+            users.get(users.size() / 2).setName("Changed");
+            long flushStart = System.nanoTime();
+            entityManager.flush();
+            double flushMs = (System.nanoTime() - flushStart) / 1_000_000.0;
+
+            System.out.printf("[contexto de persistencia] enhancement=%s entidades=%d memoria=%.1f MB (%d bytes/entidad) "
+                            + "flush con 1 cambio=%.2f ms%n",
+                    enhanced, users.size(), (after - before) / 1_048_576.0,
+                    (after - before) / Math.max(1, users.size()), flushMs);
+            assertEquals(managedUsers, users.size());
+            status.setRollbackOnly();
+        });
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
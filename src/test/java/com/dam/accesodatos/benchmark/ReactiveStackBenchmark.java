@@ -0,0 +1,174 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.McpAccesoDatosRa3Application;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Servlet + JPA frente a WebFlux + R2DBC (perfil 'reactive') con mucha concurrencia
+ *
+ * Arranca la aplicación dos veces en el mismo proceso, cada una con su H2 en memoria y
+ * los mismos datos, y lanza contra cada una IN_FLIGHT peticiones a la vez:
+ * 1. find_users_by_department (JSON completo): latencia p50/p99 y throughput
+ * 2. find_all_users en NDJSON (solo reactivo): tiempo hasta la primera línea frente a la respuesta completa
+ *
+ * También se anota el máximo de hilos vivos: Tomcat necesita uno por petición en curso
+ * (hasta server.tomcat.threads.max); Netty atiende todas con un hilo por núcleo.
+ * El límite adaptativo de concurrencia se desactiva para que el servlet no responda 429.
+ *
+ * Ejecutar con: ./gradlew benchmark
+ */
+@Tag("benchmark")
+@DisplayName("Benchmark - Servlet/JPA frente a WebFlux/R2DBC")
+class ReactiveStackBenchmark {
+
+    private static final int USERS = 5_000;
+    private static final int IN_FLIGHT = 512;
+    private static final int REQUESTS = 10_000;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @Test
+    @DisplayName("Latencia, throughput e hilos con " + IN_FLIGHT + " peticiones simultáneas")
+    void servletVersusReactive() throws Exception {
+        Result servlet = run("servlet", false);
+        Result reactive = run("reactive", true);
+
+        for (Result result : List.of(servlet, reactive)) {
+            System.out.printf("[%s] %d peticiones, %d simultáneas: p50=%.1f ms p99=%.1f ms throughput=%.0f req/s "
+                            + "hilos máx=%d errores=%d%n",
+                    result.stack(), REQUESTS, IN_FLIGHT, result.p50(), result.p99(), result.throughput(),
+                    result.peakThreads(), result.errors());
+        }
+        assertEquals(0, servlet.errors());
+        assertEquals(0, reactive.errors());
+    }
+
+    private Result run(String stack, boolean reactive) throws Exception {
+        String db = "bench_" + stack;
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(McpAccesoDatosRa3Application.class)
+                .profiles(reactive ? new String[]{"test", "reactive"} : new String[]{"test"})
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:" + db + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "mcp.reactive.r2dbc-url=r2dbc:h2:mem:///" + db + "?options=MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "mcp.concurrency-limit.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.org.hibernate.SQL=WARN");
+
+        try (ConfigurableApplicationContext context = builder.run()) {
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            userRepository.deleteAll();
+            userRepository.saveAll(IntStream.range(0, USERS)
+                    .mapToObj(i -> new User("Bench " + i, "bench" + i + "@bench.com",
+                            i % 2 == 0 ? "IT" : "HR", "Developer"))
+                    .collect(Collectors.toList()));
+
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/mcp";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/find_users_by_department"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"department\":\"IT\"}"))
+                    .build();
+
+            // Calentamiento (JIT, pools, cachés de sentencias)
+            for (int i = 0; i < 200; i++) {
+                http.send(request, HttpResponse.BodyHandlers.discarding());
+            }
+
+            Result result = load(stack, request);
+            if (reactive) {
+                streaming(base);
+            }
+            return result;
+        }
+    }
+
+    private Result load(String stack, HttpRequest request) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(IN_FLIGHT);
+        List<CompletableFuture<?>> calls = new ArrayList<>(REQUESTS);
+
+        long begin = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            inFlight.acquire();
+            long start = System.nanoTime();
+            calls.add(http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, failure) -> {
+                        inFlight.release();
+                        if (failure != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        } else {
+                            latencies.add(System.nanoTime() - start);
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        return new Result(stack, percentile(latencies, 50), percentile(latencies, 99),
+                latencies.size() / seconds, threads.getPeakThreadCount(), errors.get());
+    }
+
+    /**
+     * find_all_users en NDJSON: la primera línea llega antes de leer todas las filas.
+     */
+    private void streaming(String base) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/find_all_users"))
+                .header("Accept", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<Stream<String>> response = http.send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+        long[] firstLine = {0};
+        long lines = response.body().peek(line -> {
+            if (firstLine[0] == 0) {
+                firstLine[0] = System.nanoTime();
+            }
+        }).count();
+        long end = System.nanoTime();
+
+        System.out.printf("[reactive NDJSON] find_all_users: %d líneas, primera a los %.1f ms, última a los %.1f ms%n",
+                lines, (firstLine[0] - start) / 1e6, (end - start) / 1e6);
+        assertEquals(USERS, lines);
+    }
+
+    private static double percentile(List<Long> samples, int percentile) {
+        if (samples.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percentile / 100)) / 1e6;
+    }
+
+    private record Result(String stack, double p50, double p99, double throughput, int peakThreads, int errors) {
+    }
+}
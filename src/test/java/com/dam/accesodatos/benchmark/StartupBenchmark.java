@@ -0,0 +1,120 @@
+package com.dam.accesodatos.benchmark;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Benchmark de arranque: jar normal vs bootJar extraído + AppCDS (+ AOT de Spring)
+ *
+ * Arranca la aplicación en un proceso aparte y mide, desde el lanzamiento:
+ * - Tiempo hasta el primer GET /mcp/health con 200
+ * - Tiempo hasta completar la primera llamada a herramienta (POST /mcp/find_all_users)
+ *
+ * Ejecutar con: ./gradlew startupBenchmark [-Paot]
+ * (la tarea prepara el jar extraído y el archivo CDS y pasa sus rutas como propiedades)
+ */
+@Tag("benchmark")
+@DisplayName("Benchmark - Tiempo de arranque")
+class StartupBenchmark {
+
+    private static final int RUNS = 3;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+
+    @Test
+    @DisplayName("Arranque hasta /mcp/health y primera herramienta")
+    void startup() throws Exception {
+        String java = System.getProperty("startup.java");
+        String jar = System.getProperty("startup.jar");
+        assumeTrue(java != null && jar != null, "Ejecutar con ./gradlew startupBenchmark");
+
+        String extractedJar = System.getProperty("startup.extractedJar");
+        String cdsArchive = System.getProperty("startup.cdsArchive");
+        boolean aot = Boolean.parseBoolean(System.getProperty("startup.aot"));
+
+        measure("jar", List.of(java, "-jar", jar));
+        measure("extraído + AppCDS", List.of(java, "-XX:SharedArchiveFile=" + cdsArchive, "-jar", extractedJar));
+        if (aot) {
+            measure("extraído + AppCDS + AOT", List.of(java, "-XX:SharedArchiveFile=" + cdsArchive,
+                    "-Dspring.aot.enabled=true", "-jar", extractedJar));
+        }
+    }
+
+    private void measure(String mode, List<String> command) throws Exception {
+        long[] health = new long[RUNS];
+        long[] firstTool = new long[RUNS];
+
+        for (int run = 0; run < RUNS; run++) {
+            int port = freePort();
+            List<String> fullCommand = new ArrayList<>(command);
+            fullCommand.add("--server.port=" + port);
+            fullCommand.add("--logging.level.root=WARN");
+            fullCommand.add("--spring.jpa.show-sql=false");
+
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(fullCommand).redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+            try {
+                String base = "http://localhost:" + port + "/mcp";
+                waitForHealth(base, process);
+                health[run] = System.nanoTime() - start;
+
+                HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(base + "/find_all_users"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+                assertEquals(200, response.statusCode());
+                firstTool[run] = System.nanoTime() - start;
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+
+        System.out.printf("[arranque %s] /mcp/health mediana=%d ms | primera herramienta mediana=%d ms (%d ejecuciones)%n",
+                mode, median(health) / 1_000_000, median(firstTool) / 1_000_000, RUNS);
+    }
+
+    private void waitForHealth(String base, Process process) throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/health")).GET().build();
+        while (System.nanoTime() < deadline) {
+            assertTrue(process.isAlive(), "La aplicación terminó durante el arranque");
+            try {
+                if (http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Todavía no escucha: reintentar
+            }
+            Thread.sleep(10);
+        }
+        fail("La aplicación no respondió en " + STARTUP_TIMEOUT);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
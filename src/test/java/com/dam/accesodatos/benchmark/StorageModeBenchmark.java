@@ -0,0 +1,179 @@
+package com.dam.accesodatos.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de almacenamiento: H2 en memoria vs H2 en fichero mapeado (nioMapped)
+ *
+ * Para cada modo mide, sobre una tabla users grande:
+ * - Reinicio: tiempo hasta poder consultar de nuevo los datos. En memoria incluye
+ *   recrear el esquema y recargar todas las filas; en fichero, solo abrir la BD.
+ * - Latencia de lectura: búsquedas por ID y por departamento (índice), p50 y p99.
+ *
+ * Ejecutar con: ./gradlew benchmark
+ */
+@Tag("benchmark")
+@DisplayName("Benchmark - Almacenamiento en memoria vs fichero mapeado")
+class StorageModeBenchmark {
+
+    private static final int ROWS = 200_000;
+    private static final int LOOKUPS = 20_000;
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales"};
+    private static final String FILE_OPTIONS =
+            ";CACHE_SIZE=131072;WRITE_DELAY=500;AUTO_COMPACT_FILL_RATE=80;MAX_COMPACT_TIME=2000";
+
+    private static Path dataDir;
+
+    @BeforeAll
+    static void createDataDir() throws IOException {
+        dataDir = Files.createTempDirectory("ra3-storage-bench");
+    }
+
+    @AfterAll
+    static void deleteDataDir() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    @DisplayName("En memoria - reinicio con recarga completa")
+    void inMemory() throws SQLException {
+        String url = "jdbc:h2:mem:benchmem";
+
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            createAndLoad(connection);
+            long restartNanos = System.nanoTime() - start;
+
+            report("memoria", restartNanos, connection);
+        }
+    }
+
+    @Test
+    @DisplayName("Fichero nioMapped - reinicio sin recarga")
+    void mappedFile() throws SQLException {
+        String url = "jdbc:h2:nioMapped:" + dataDir.resolve("benchdb").toAbsolutePath() + FILE_OPTIONS;
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            createAndLoad(connection);
+            try (Statement st = connection.createStatement()) {
+                st.execute("SHUTDOWN");
+            }
+        }
+
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            assertEquals(ROWS, count(connection));
+            long restartNanos = System.nanoTime() - start;
+
+            report("fichero nioMapped", restartNanos, connection);
+        }
+    }
+
+    // ========== Métodos auxiliares ==========
+
+    private static void createAndLoad(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS users");
+            st.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(50) NOT NULL, "
+                    + "email VARCHAR(100) UNIQUE NOT NULL, department VARCHAR(50) NOT NULL, "
+                    + "role VARCHAR(50) NOT NULL, active BOOLEAN DEFAULT TRUE, "
+                    + "created_at TIMESTAMP, updated_at TIMESTAMP, version BIGINT DEFAULT 0 NOT NULL)");
+            st.execute("CREATE INDEX idx_users_department ON users(department)");
+        }
+
+        connection.setAutoCommit(false);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO users (id, name, email, department, role, active, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                ps.setLong(1, i);
+                ps.setString(2, "User " + i);
+                ps.setString(3, "user" + i + "@bench.com");
+                ps.setString(4, DEPARTMENTS[i % DEPARTMENTS.length]);
+                ps.setString(5, "Developer");
+                ps.setBoolean(6, i % 10 != 0);
+                ps.setTimestamp(7, now);
+                ps.setTimestamp(8, now);
+                ps.addBatch();
+                if (i % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private static long count(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM users")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void report(String mode, long restartNanos, Connection connection) throws SQLException {
+        Random random = new Random(42);
+        long[] byId = new long[LOOKUPS];
+        try (PreparedStatement ps = connection.prepareStatement("SELECT name FROM users WHERE id = ?")) {
+            for (int i = 0; i < LOOKUPS; i++) {
+                ps.setLong(1, 1 + random.nextInt(ROWS));
+                long start = System.nanoTime();
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                }
+                byId[i] = System.nanoTime() - start;
+            }
+        }
+
+        long[] byDepartment = new long[200];
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT COUNT(*) FROM users WHERE department = ? AND active = true")) {
+            for (int i = 0; i < byDepartment.length; i++) {
+                ps.setString(1, DEPARTMENTS[i % DEPARTMENTS.length]);
+                long start = System.nanoTime();
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                }
+                byDepartment[i] = System.nanoTime() - start;
+            }
+        }
+
+        System.out.printf("[almacenamiento %s] filas=%d reinicio=%.1f ms | por ID p50=%.1f µs p99=%.1f µs"
+                        + " | por departamento p50=%.2f ms p99=%.2f ms%n",
+                mode, ROWS, restartNanos / 1e6,
+                percentile(byId, 50) / 1e3, percentile(byId, 99) / 1e3,
+                percentile(byDepartment, 50) / 1e6, percentile(byDepartment, 99) / 1e6);
+    }
+
+    private static long percentile(long[] samples, int percentile) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -0,0 +1,140 @@
+package com.dam.accesodatos.benchmark;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra3.OptimisticUpdateExecutor;
+import com.dam.accesodatos.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark de contención: bloqueo optimista (@Version + reintentos) vs pesimista (FOR UPDATE)
+ *
+ * Varios hilos actualizan el MISMO usuario a la vez. En ambos casos se comprueba que no
+ * hay actualizaciones perdidas: cada actualización confirmada incrementa 'version' en 1.
+ *
+ * Ejecutar con: ./gradlew benchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "mcp.update.retry.max-attempts=50")
+@ActiveProfiles("test")
+@DisplayName("Benchmark - Contención en update_user")
+class UpdateContentionBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int UPDATES_PER_THREAD = 50;
+
+    @Autowired
+    private OptimisticUpdateExecutor optimisticUpdateExecutor;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        userId = userRepository.save(new User("Contended", "contended@test.com", "IT", "Developer")).getId();
+    }
+
+    @Test
+    @DisplayName("Optimista - @Version + @DynamicUpdate + reintentos acotados")
+    void optimistic() throws InterruptedException {
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        long elapsed = runConcurrently(i -> {
+            UserUpdateDto dto = new UserUpdateDto();
+            dto.setRole("Role-" + i);
+            try {
+                optimisticUpdateExecutor.updateWithRetry(userId, dto);
+                committed.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        });
+
+        report("optimista", elapsed, committed.get(), failed.get());
+        assertEquals(committed.get(), currentVersion(), "Actualizaciones perdidas");
+    }
+
+    @Test
+    @DisplayName("Pesimista - SELECT ... FOR UPDATE")
+    void pessimistic() throws InterruptedException {
+        AtomicInteger committed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        long elapsed = runConcurrently(i -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    User user = entityManager.find(User.class, userId, LockModeType.PESSIMISTIC_WRITE);
+                    user.setRole("Role-" + i);
+                    user.setUpdatedAt(LocalDateTime.now());
+                });
+                committed.incrementAndGet();
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        });
+
+        report("pesimista", elapsed, committed.get(), failed.get());
+        assertEquals(committed.get(), currentVersion(), "Actualizaciones perdidas");
+    }
+
+    // ========== Métodos auxiliares ==========
+
+    private long runConcurrently(java.util.function.IntConsumer update) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    update.accept(thread * UPDATES_PER_THREAD + i);
+                }
+                return null;
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+        return System.nanoTime() - begin;
+    }
+
+    private long currentVersion() {
+        return userRepository.findById(userId).orElseThrow().getVersion();
+    }
+
+    private void report(String mode, long elapsedNanos, int committed, int failed) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("[contención %s] hilos=%d confirmadas=%d fallidas=%d tiempo=%.3fs throughput=%.1f ops/s%n",
+                mode, THREADS, committed, failed, seconds, committed / seconds);
+    }
+}
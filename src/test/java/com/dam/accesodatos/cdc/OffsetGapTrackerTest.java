@@ -0,0 +1,73 @@
+package com.dam.accesodatos.cdc;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios de OffsetGapTracker
+ */
+@DisplayName("Tests Unitarios - Huecos de offset en la outbox")
+class OffsetGapTrackerTest {
+
+    private static final long GAP_TIMEOUT_MS = 1000;
+    private static final long LATE_WINDOW_MS = 60_000;
+
+    @Test
+    @DisplayName("Sin huecos avanza evento a evento")
+    void advancesInOrder() {
+        OffsetGapTracker tracker = new OffsetGapTracker(10, GAP_TIMEOUT_MS, LATE_WINDOW_MS);
+
+        assertTrue(tracker.advance(11, 0));
+        assertTrue(tracker.advance(12, 0));
+
+        assertEquals(12, tracker.cursor());
+        assertFalse(tracker.hasPending());
+        assertEquals("12", tracker.resumeToken());
+    }
+
+    @Test
+    @DisplayName("Ante un hueco espera gap-timeout y después lo deja pendiente")
+    void gap_WaitsThenKeepsPending() {
+        OffsetGapTracker tracker = new OffsetGapTracker(10, GAP_TIMEOUT_MS, LATE_WINDOW_MS);
+
+        assertFalse(tracker.advance(13, 1_000));
+        assertFalse(tracker.advance(13, 1_500));
+        assertTrue(tracker.advance(13, 2_000));
+
+        assertEquals(13, tracker.cursor());
+        assertEquals(List.of(11L, 12L), tracker.pending(2_000));
+        assertEquals("13;11,12", tracker.resumeToken());
+
+        // La transacción lenta del offset 12 confirma
+        tracker.markFound(12);
+        assertEquals(List.of(11L), tracker.pending(3_000));
+    }
+
+    @Test
+    @DisplayName("Un pendiente más antiguo que late-commit-window se da por rollback")
+    void pending_ExpiresAfterWindow() {
+        OffsetGapTracker tracker = new OffsetGapTracker(10, 0, LATE_WINDOW_MS);
+        tracker.advance(12, 1_000);
+
+        assertEquals(List.of(11L), tracker.pending(1_000 + LATE_WINDOW_MS - 1));
+        assertEquals(List.of(), tracker.pending(1_000 + LATE_WINDOW_MS));
+        assertFalse(tracker.hasPending());
+    }
+
+    @Test
+    @DisplayName("resume() recupera cursor y pendientes de resumeToken()")
+    void resume_RoundTrip() {
+        OffsetGapTracker tracker = OffsetGapTracker.resume("120;117,118", GAP_TIMEOUT_MS, LATE_WINDOW_MS, 0);
+
+        assertEquals(120, tracker.cursor());
+        assertEquals(List.of(117L, 118L), tracker.pending(0));
+        assertEquals("120;117,118", tracker.resumeToken());
+        assertEquals(7, OffsetGapTracker.resume("7", GAP_TIMEOUT_MS, LATE_WINDOW_MS, 0).cursor());
+        assertThrows(IllegalArgumentException.class,
+                () -> OffsetGapTracker.resume("abc", GAP_TIMEOUT_MS, LATE_WINDOW_MS, 0));
+    }
+}
@@ -0,0 +1,106 @@
+package com.dam.accesodatos.cdc;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de la outbox de cambios (user_change_events)
+ *
+ * Sin @Transactional en la clase: cada operación del servicio hace commit real,
+ * que es cuando los eventos pasan a ser visibles.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Outbox de cambios de usuarios")
+class UserChangeOutboxIntegrationTest {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserChangeStreamService streamService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private long startOffset;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_change_events", Long.class);
+        startOffset = max != null ? max : 0L;
+    }
+
+    @Test
+    @DisplayName("create_user y update_user generan CREATE y UPDATE en orden")
+    void createAndUpdate_EmitEventsInOrder() {
+        User user = service.createUser(new UserCreateDto("Outbox", "outbox@test.com", "IT", "Developer"));
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setRole("Senior Developer");
+        service.updateUser(user.getId(), dto);
+
+        List<UserChangeEvent> events = streamService.readAfter(startOffset, 100);
+
+        assertEquals(2, events.size());
+        assertEquals(UserChangeOutbox.CREATE, events.get(0).operation());
+        assertEquals(UserChangeOutbox.UPDATE, events.get(1).operation());
+        assertEquals(user.getId(), events.get(1).userId());
+        assertTrue(events.get(0).offset() < events.get(1).offset());
+        assertTrue(events.get(1).payload().contains("Senior Developer"));
+    }
+
+    @Test
+    @DisplayName("Operación masiva genera un único evento BULK_UPDATE con los criterios")
+    void bulkUpdate_EmitsCriteriaEvent() {
+        service.createUser(new UserCreateDto("Bulk", "bulk@test.com", "Sales", "Developer"));
+        long afterCreate = streamService.readAfter(startOffset, 100).get(0).offset();
+
+        service.deactivateDepartment("Sales");
+
+        List<UserChangeEvent> events = streamService.readAfter(afterCreate, 100);
+        assertEquals(1, events.size());
+        assertEquals(UserChangeOutbox.BULK_UPDATE, events.get(0).operation());
+        assertNull(events.get(0).userId());
+        assertTrue(events.get(0).payload().contains("Sales"));
+    }
+
+    @Test
+    @DisplayName("Rollback: el cambio y su evento se descartan juntos")
+    void rollback_DiscardsEvent() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.persist(new User("Rollback", "rollback@test.com", "IT", "Developer"));
+            entityManager.flush();
+            status.setRollbackOnly();
+        });
+
+        assertTrue(streamService.readAfter(startOffset, 100).isEmpty());
+        assertEquals(0, userRepository.count());
+    }
+}
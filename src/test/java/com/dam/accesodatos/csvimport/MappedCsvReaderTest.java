@@ -0,0 +1,75 @@
+package com.dam.accesodatos.csvimport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios de MappedCsvReader
+ */
+@DisplayName("Tests Unitarios - Lector CSV mapeado en memoria")
+class MappedCsvReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Comillas, comillas dobladas, saltos dentro de comillas y CRLF")
+    void parsesQuotedFields() throws IOException {
+        List<MappedCsvReader.CsvRecord> records = readAll(
+                "name,email\r\n\"Pérez, Ana\",ana@test.com\r\n\"Dice \"\"hola\"\"\nen dos líneas\",b@test.com\nÚltimo,c@test.com", 1024);
+
+        assertEquals(4, records.size());
+        assertEquals(List.of("Pérez, Ana", "ana@test.com"), records.get(1).fields());
+        assertEquals("Dice \"hola\"\nen dos líneas", records.get(2).fields().get(0));
+        assertEquals(3, records.get(2).line());
+        assertEquals(5, records.get(3).line(), "La línea cuenta el salto dentro de comillas");
+        assertEquals(List.of("Último", "c@test.com"), records.get(3).fields());
+    }
+
+    @Test
+    @DisplayName("Registros que cruzan el final de la ventana se leen completos")
+    void recordsAcrossWindows() throws IOException {
+        StringBuilder csv = new StringBuilder("\uFEFFid,name\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append(i).append(",\"Usuario ").append(i).append("\"\n");
+        }
+
+        List<MappedCsvReader.CsvRecord> records = readAll(csv.toString(), 64);
+
+        assertEquals(201, records.size());
+        assertEquals(List.of("id", "name"), records.get(0).fields(), "Se salta el BOM");
+        for (int i = 0; i < 200; i++) {
+            assertEquals(List.of(String.valueOf(i), "Usuario " + i), records.get(i + 1).fields());
+        }
+    }
+
+    @Test
+    @DisplayName("Comillas sin cerrar o registro mayor que la ventana: IOException")
+    void malformedInput() {
+        assertThrows(IOException.class, () -> readAll("a,\"sin cerrar\n", 1024));
+        assertThrows(IOException.class, () -> readAll("x".repeat(100) + "\nb\n", 16));
+    }
+
+    private List<MappedCsvReader.CsvRecord> readAll(String content, int windowSize) throws IOException {
+        Path file = dir.resolve("data.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        List<MappedCsvReader.CsvRecord> records = new ArrayList<>();
+        try (MappedCsvReader reader = new MappedCsvReader(file, windowSize)) {
+            MappedCsvReader.CsvRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,135 @@
+package com.dam.accesodatos.csvimport;
+
+import com.dam.accesodatos.mcp.McpDeadline;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserImportResultDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de import_users
+ */
+@SpringBootTest(properties = {
+        "mcp.import.directory=${java.io.tmpdir}/mcp-imports-test",
+        "mcp.import.batch-size=100",
+        "mcp.import.queue-capacity=2",
+        "mcp.import.max-errors=10"
+})
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Importación CSV de usuarios")
+class UserCsvImporterIntegrationTest {
+
+    private static final Path IMPORT_DIR = Paths.get(System.getProperty("java.io.tmpdir"), "mcp-imports-test");
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long startOffset;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        userRepository.deleteAll();
+        Files.createDirectories(IMPORT_DIR);
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM user_change_events", Long.class);
+        startOffset = max != null ? max : 0L;
+    }
+
+    @Test
+    @DisplayName("Carga por lotes, anota las filas con error y sigue")
+    void importsValidRows_ReportsInvalidOnes() throws IOException {
+        service.createUser(new UserCreateDto("Existente", "existing@test.com", "IT", "Developer"));
+
+        StringBuilder csv = new StringBuilder("name,email,department,role,active\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("User ").append(i).append(",user").append(i).append("@test.com,")
+                    .append(i % 2 == 0 ? "IT" : "Imported Dept").append(",Developer,")
+                    .append(i % 10 == 0 ? "false" : "").append('\n');
+        }
+        csv.append("X,bad@test.com,IT,Developer,\n");                     // línea 1002: nombre corto
+        csv.append("Sin Email,no-es-un-email,IT,Developer,\n");           // línea 1003
+        csv.append("Repetido,existing@test.com,IT,Developer,\n");         // línea 1004: ya existe en la BD
+        csv.append("\"García, Luis\",luis@test.com,HR,Manager,true\n");
+        Path file = write("users.csv", csv.toString());
+
+        UserImportResultDto result = service.importUsers(file.getFileName().toString());
+
+        assertEquals(1004, result.getRowsRead());
+        assertEquals(1001, result.getInserted());
+        assertEquals(3, result.getFailed());
+        assertEquals(1002, result.getErrors().get(0).line());
+        assertEquals(1003, result.getErrors().get(1).line());
+        assertEquals(1004, result.getErrors().get(2).line());
+        assertTrue(result.getErrors().get(2).message().contains("existing@test.com"));
+
+        assertEquals(1002, userRepository.count());
+        assertEquals(100, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE active = FALSE", Integer.class));
+        assertEquals(500, service.findUsersByDepartment("Imported Dept").size());
+        assertEquals("HR", userRepository.findAll().stream()
+                .filter(u -> u.getEmail().equals("luis@test.com")).findFirst().orElseThrow().getDepartment());
+        assertTrue(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_change_events WHERE id > ? AND operation = 'BULK_INSERT'",
+                Integer.class, startOffset) >= 10, "Un evento BULK_INSERT por lote");
+    }
+
+    @Test
+    @DisplayName("Plazo agotado: se detiene tras el lote en curso y devuelve lo confirmado")
+    void deadlineExpired_ReturnsPartialResult() throws Exception {
+        StringBuilder csv = new StringBuilder("name,email,department,role\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("User ").append(i).append(",user").append(i).append("@test.com,IT,Developer\n");
+        }
+        write("slow.csv", csv.toString());
+
+        McpDeadline.start("import_users", 1, true);
+        UserImportResultDto result;
+        try {
+            Thread.sleep(5);
+            result = service.importUsers("slow.csv");
+        } finally {
+            McpDeadline.clear();
+        }
+
+        assertTrue(result.isAborted());
+        assertNotNull(result.getAbortReason());
+        assertEquals(100, result.getInserted(), "El primer lote se confirma entero");
+        assertEquals(101, result.getLastCommittedLine());
+        assertEquals(100, userRepository.count());
+    }
+
+    @Test
+    @DisplayName("Cabecera incompleta o fichero fuera del directorio: IllegalArgumentException")
+    void rejectsBadInput() throws IOException {
+        write("no-role.csv", "name,email,department\nAna,ana@test.com,IT\n");
+
+        assertThrows(IllegalArgumentException.class, () -> service.importUsers("no-role.csv"));
+        assertThrows(IllegalArgumentException.class, () -> service.importUsers("../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> service.importUsers("missing.csv"));
+        assertEquals(0, userRepository.count());
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(IMPORT_DIR.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
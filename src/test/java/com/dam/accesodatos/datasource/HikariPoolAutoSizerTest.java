@@ -0,0 +1,49 @@
+package com.dam.accesodatos.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios de la política de ajuste de HikariPoolAutoSizer
+ */
+@DisplayName("Tests Unitarios - Ajuste adaptativo del pool")
+class HikariPoolAutoSizerTest {
+
+    private static final int MIN = 5;
+    private static final int MAX = 30;
+    private static final int STEP = 2;
+    private static final double TARGET_WAIT_MS = 5;
+    private static final double MAX_DB_LATENCY_MS = 200;
+
+    @Test
+    @DisplayName("Crece si hay espera y la BD responde bien")
+    void grows_WhenWaitingAndDatabaseHealthy() {
+        assertEquals(12, size(10, 20.0, 15.0, 4, 0));
+    }
+
+    @Test
+    @DisplayName("No crece si la BD está saturada")
+    void holds_WhenDatabaseSaturated() {
+        assertEquals(10, size(10, 20.0, 500.0, 4, 0));
+    }
+
+    @Test
+    @DisplayName("Respeta el máximo configurado")
+    void neverExceedsMax() {
+        assertEquals(MAX, size(29, 50.0, 10.0, 8, 0));
+    }
+
+    @Test
+    @DisplayName("Decrece de 1 en 1 con conexiones ociosas y sin espera")
+    void shrinks_WhenIdle() {
+        assertEquals(9, size(10, 0.1, 5.0, 0, 6));
+        assertEquals(MIN, size(MIN, 0.1, 5.0, 0, 6));
+    }
+
+    private int size(int current, double avgWaitMs, double avgHoldMs, int pending, int idle) {
+        return HikariPoolAutoSizer.computeTargetSize(current, MIN, MAX, STEP, TARGET_WAIT_MS, MAX_DB_LATENCY_MS,
+                avgWaitMs, avgHoldMs, pending, idle);
+    }
+}
@@ -0,0 +1,132 @@
+package com.dam.accesodatos.datasource;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.LookupCodes;
+import com.dam.accesodatos.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de la separación lectura/escritura
+ *
+ * Dos bases de datos H2 en memoria independientes hacen de primario y réplica. Como
+ * no hay replicación real, cada test prepara la réplica a mano para poder distinguir
+ * de dónde se ha leído cada dato.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingIntegrationTest.PRIMARY_URL,
+        "mcp.datasource.routing.enabled=true",
+        "mcp.datasource.routing.replicas[0].url=" + ReadWriteRoutingIntegrationTest.REPLICA_URL,
+        "mcp.datasource.routing.replicas[0].username=sa",
+        "mcp.datasource.routing.replicas[0].password=",
+        "mcp.datasource.routing.lag-query=SELECT lag_ms FROM replica_lag",
+        "mcp.datasource.routing.max-lag-ms=1000",
+        "mcp.datasource.routing.health-check-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Separación lectura/escritura")
+class ReadWriteRoutingIntegrationTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:primary0;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:replica0;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReplicaHealthChecker healthChecker;
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+
+        replica.execute("DROP TABLE IF EXISTS users");
+        replica.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(50), email VARCHAR(100), "
+                + "department_id SMALLINT, role_id SMALLINT, active BOOLEAN, created_at TIMESTAMP, "
+                + "updated_at TIMESTAMP, version BIGINT)");
+        // Mismos códigos que el primario (la réplica es una copia suya)
+        replica.update("INSERT INTO users VALUES (1, 'Solo en réplica', 'replica@test.com', ?, ?, "
+                + "true, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0)",
+                lookupCodes.ensureDepartment("IT"), lookupCodes.ensureRole("Developer"));
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_lag (lag_ms BIGINT)");
+        replica.update("DELETE FROM replica_lag");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+        healthChecker.checkReplicas();
+    }
+
+    @Test
+    @DisplayName("Escrituras al primario, lecturas readOnly a la réplica")
+    void writesGoToPrimary_ReadsGoToReplica() {
+        // When - createUser() es @Transactional (escritura)
+        service.createUser(new UserCreateDto("En primario", "primary@test.com", "IT", "Developer"));
+
+        // Then - findAll() hereda @Transactional(readOnly = true) y lee de la réplica
+        List<User> fromReplica = service.findAll();
+        assertEquals(1, fromReplica.size());
+        assertEquals("Solo en réplica", fromReplica.get(0).getName());
+
+        // Y el dato escrito está en el primario (consultado directamente, sin enrutamiento)
+        assertEquals(List.of("primary@test.com"),
+                primary.queryForList("SELECT email FROM users", String.class));
+    }
+
+    @Test
+    @DisplayName("Con retraso excesivo la réplica se excluye y se lee del primario")
+    void laggingReplica_FallsBackToPrimary() {
+        // Given
+        service.createUser(new UserCreateDto("En primario", "primary@test.com", "IT", "Developer"));
+        replica.update("UPDATE replica_lag SET lag_ms = 5000");
+
+        // When
+        healthChecker.checkReplicas();
+
+        // Then
+        List<User> users = service.findAll();
+        assertEquals(1, users.size());
+        assertEquals("En primario", users.get(0).getName());
+    }
+
+    @Test
+    @DisplayName("close() cierra los pools del primario y de las réplicas")
+    void close_ClosesPools() throws Exception {
+        HikariDataSource primaryPool = pool(PRIMARY_URL);
+        HikariDataSource replicaPool = pool(REPLICA_URL);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(
+                new InstrumentedDataSource(primaryPool, null),
+                List.of(new ReplicaState("replica-0", new InstrumentedDataSource(replicaPool, null))));
+
+        routing.close();
+
+        assertTrue(primaryPool.isClosed());
+        assertTrue(replicaPool.isClosed());
+    }
+
+    private static HikariDataSource pool(String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername("sa");
+        return pool;
+    }
+}
@@ -0,0 +1,76 @@
+package com.dam.accesodatos.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de las migraciones de SchemaIfMissingInitializer sobre una BD creada con un
+ * esquema anterior (como un fichero del perfil persistent)
+ */
+@DisplayName("Tests Integración - Migración de una BD persistente existente")
+class SchemaIfMissingInitializerTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE departments (id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "name VARCHAR(50) NOT NULL UNIQUE)");
+        jdbc.execute("CREATE TABLE roles (id SMALLINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "name VARCHAR(50) NOT NULL UNIQUE)");
+        jdbc.execute("CREATE TABLE users (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "name VARCHAR(50) NOT NULL, email VARCHAR(100) UNIQUE NOT NULL, "
+                + "department_id SMALLINT NOT NULL REFERENCES departments(id), "
+                + "role_id SMALLINT NOT NULL REFERENCES roles(id), active BOOLEAN DEFAULT TRUE, "
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                + "version BIGINT DEFAULT 0 NOT NULL)");
+        jdbc.execute("CREATE TABLE user_statistics (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "user_id BIGINT NOT NULL, login_count INTEGER DEFAULT 0, last_login TIMESTAMP, "
+                + "FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE)");
+        jdbc.update("INSERT INTO departments (name) VALUES ('IT')");
+        jdbc.update("INSERT INTO roles (name) VALUES ('Developer')");
+        jdbc.update("INSERT INTO users (name, email, department_id, role_id) VALUES ('Ana', 'ana@test.com', 1, 1)");
+        jdbc.update("INSERT INTO user_statistics (user_id, login_count, last_login) VALUES (1, 3, TIMESTAMP '2024-01-01 10:00:00')");
+        jdbc.update("INSERT INTO user_statistics (user_id, login_count, last_login) VALUES (1, 2, TIMESTAMP '2024-03-01 10:00:00')");
+    }
+
+    @Test
+    @DisplayName("Con users ya creada no ejecuta schema.sql y crea las tablas que faltan")
+    void existingDatabase_GetsMissingTables() {
+        assertFalse(new SchemaIfMissingInitializer(dataSource, new SqlInitializationProperties()).initializeDatabase());
+
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class), "Se conservan los datos");
+        jdbc.update("INSERT INTO user_change_events (user_id, operation) VALUES (1, 'UPDATE')");
+        jdbc.update("INSERT INTO user_tombstones (user_id, deleted_at) VALUES (99, CURRENT_TIMESTAMP)");
+        assertEquals(1, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'IDX_USERS_UPDATED_AT'", Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM users_archive", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Fusiona las estadísticas repetidas y crea el índice único")
+    void duplicateStatistics_MergedBeforeUniqueIndex() {
+        new SchemaIfMissingInitializer(dataSource, new SqlInitializationProperties()).initializeDatabase();
+
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM user_statistics", Integer.class));
+        assertEquals(5, jdbc.queryForObject("SELECT login_count FROM user_statistics WHERE user_id = 1", Integer.class));
+        assertEquals("2024-03-01 10:00:00.0", jdbc.queryForObject(
+                "SELECT last_login FROM user_statistics WHERE user_id = 1", Timestamp.class).toString());
+        assertThrows(DataIntegrityViolationException.class, () -> jdbc.update(
+                "INSERT INTO user_statistics (user_id, login_count) VALUES (1, 1)"));
+    }
+}
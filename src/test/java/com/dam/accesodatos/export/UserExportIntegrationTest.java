@@ -0,0 +1,134 @@
+package com.dam.accesodatos.export;
+
+import com.dam.accesodatos.mcp.McpServerController;
+import com.dam.accesodatos.mcp.McpToolRegistry;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserExportDto;
+import com.dam.accesodatos.model.UserExportFilterDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de export_users y de la descarga del fichero
+ */
+@SpringBootTest(properties = "mcp.export.buffer-size-kb=1")  // Buffer pequeño: varias escrituras por fichero
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Exportación de usuarios")
+class UserExportIntegrationTest {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserExportFiles exportFiles;
+
+    @Autowired
+    private McpServerController controller;
+
+    @Autowired
+    private McpToolRegistry toolRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        for (int i = 0; i < 40; i++) {
+            service.createUser(new UserCreateDto("User " + i, "user" + i + "@test.com",
+                    i % 2 == 0 ? "IT" : "HR", "Developer"));
+        }
+        service.createUser(new UserCreateDto("Ana, \"la jefa\"", "ana@test.com", "IT", "Manager"));
+    }
+
+    @Test
+    @DisplayName("CSV: cabecera, una línea por usuario y campos escapados")
+    void exportCsv_AllUsers() throws Exception {
+        UserExportDto export = service.exportUsers(null, "csv");
+
+        List<String> lines = Files.readAllLines(exportFiles.resolve(export.getFileName()));
+        assertEquals(41, export.getRowCount());
+        assertEquals(42, lines.size());
+        assertTrue(lines.get(0).startsWith("id,name,email"));
+        assertTrue(lines.stream().anyMatch(l -> l.contains(",\"Ana, \"\"la jefa\"\"\",ana@test.com,IT,Manager,")));
+        assertEquals(Files.size(exportFiles.resolve(export.getFileName())), export.getSizeBytes());
+    }
+
+    @Test
+    @DisplayName("JSONL con filtros y límite")
+    void exportJsonl_Filtered() throws Exception {
+        UserExportFilterDto query = new UserExportFilterDto("IT", "Developer", true, 5, null);
+
+        UserExportDto export = service.exportUsers(query, "jsonl");
+
+        List<String> lines = Files.readAllLines(exportFiles.resolve(export.getFileName()));
+        assertEquals(5, lines.size());
+        for (String line : lines) {
+            JsonNode user = objectMapper.readTree(line);
+            assertEquals("IT", user.get("department").asText());
+            assertEquals("Developer", user.get("role").asText());
+        }
+    }
+
+    @Test
+    @DisplayName("Por el registro de herramientas, sin limit ni offset se exporta todo")
+    void exportViaRegistry_NoPagingDefaults() throws Exception {
+        UserExportDto export = (UserExportDto) toolRegistry.invoke("export_users", Map.of("format", "csv"));
+
+        assertEquals(41, export.getRowCount());
+        assertEquals(42, Files.readAllLines(exportFiles.resolve(export.getFileName())).size());
+    }
+
+    @Test
+    @DisplayName("Formato desconocido: IllegalArgumentException")
+    void unknownFormat_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.exportUsers(null, "xml"));
+    }
+
+    @Test
+    @DisplayName("La descarga devuelve el fichero completo")
+    void download_ReturnsFile() throws Exception {
+        UserExportDto export = service.exportUsers(null, "csv");
+        Path file = exportFiles.resolve(export.getFileName());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadExport(export.getFileName(), new MockHttpServletRequest(), response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(Files.size(file), response.getContentLengthLong());
+        assertEquals(Files.readString(file, StandardCharsets.UTF_8), response.getContentAsString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Solo se sirven nombres de exportación")
+    void download_RejectsOtherPaths() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.downloadExport("../application.yml", new MockHttpServletRequest(), response);
+        assertEquals(400, response.getStatus());
+
+        response = new MockHttpServletResponse();
+        controller.downloadExport("users-00000000-0000-0000-0000-000000000000.csv", new MockHttpServletRequest(), response);
+        assertEquals(404, response.getStatus());
+    }
+}
@@ -0,0 +1,94 @@
+package com.dam.accesodatos.mcp;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios de AdaptiveConcurrencyLimiter
+ */
+@DisplayName("Tests Unitarios - Límite adaptativo de concurrencia")
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final int MIN = 4;
+    private static final int MAX = 200;
+
+    @Test
+    @DisplayName("Crece si la latencia se mantiene cerca de la referencia y hay carga")
+    void grows_WhenLatencyStable() {
+        assertTrue(newLimit(20, 10, 12, 20) > 20);
+    }
+
+    @Test
+    @DisplayName("Decrece si la latencia supera la tolerancia")
+    void shrinks_WhenLatencyRises() {
+        assertTrue(newLimit(20, 10, 80, 20) < 20);
+    }
+
+    @Test
+    @DisplayName("No crece si la carga no llega a la mitad del límite")
+    void holds_WhenApplicationLimited() {
+        assertEquals(20, newLimit(20, 10, 10, 5));
+    }
+
+    @Test
+    @DisplayName("Respeta el mínimo configurado")
+    void neverBelowMin() {
+        assertEquals(MIN, newLimit(MIN, 10, 10_000, MIN));
+    }
+
+    @Test
+    @DisplayName("Rechaza al instante por encima del límite y admite al liberar")
+    void rejectsAboveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                true, 2, 1, 10, TOLERANCE, SMOOTHING, 10, 100, Set.of());
+
+        assertTrue(limiter.tryAcquire("find_all_users"));
+        assertTrue(limiter.tryAcquire("find_all_users"));
+        assertFalse(limiter.tryAcquire("find_all_users"));
+
+        limiter.release("find_all_users", 1_000_000);
+        assertTrue(limiter.tryAcquire("find_all_users"));
+
+        Map<String, Object> stats = limiter.snapshot();
+        assertEquals(1L, stats.get("rejected"));
+        assertEquals(Map.of("find_all_users", 1L), stats.get("rejectedByTool"));
+    }
+
+    @Test
+    @DisplayName("Desactivado nunca rechaza")
+    void disabled_NeverRejects() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                false, 1, 1, 10, TOLERANCE, SMOOTHING, 10, 100, Set.of());
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("find_all_users"));
+        }
+    }
+
+    @Test
+    @DisplayName("Las herramientas excluidas no ocupan plaza ni cuentan latencia")
+    void excludedTools_Bypass() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                true, 1, 1, 10, TOLERANCE, SMOOTHING, 1, 0, Set.of("export_users"));
+
+        assertTrue(limiter.tryAcquire("export_users"));
+        assertTrue(limiter.tryAcquire("find_all_users"));
+        assertFalse(limiter.tryAcquire("find_user_by_id"));
+
+        // Una exportación de 30 s no altera la latencia de referencia
+        limiter.release("export_users", 30_000_000_000L);
+        assertEquals(0.0, limiter.snapshot().get("rttMs"));
+    }
+
+    private double newLimit(double limit, double rttNoLoad, double shortRtt, int maxInflight) {
+        return AdaptiveConcurrencyLimiter.computeNewLimit(limit, rttNoLoad, shortRtt, maxInflight,
+                TOLERANCE, SMOOTHING, MIN, MAX);
+    }
+}
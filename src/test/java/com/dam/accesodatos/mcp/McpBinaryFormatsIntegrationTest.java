@@ -0,0 +1,114 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests de integración de la negociación de contenido JSON / CBOR / Smile en /mcp
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Respuestas CBOR y Smile")
+class McpBinaryFormatsIntegrationTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cbor;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smile;
+
+    @Autowired
+    private ObjectMapper json;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        user = service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        service.createUser(new UserCreateDto("Luis", "luis@test.com", "HR", "Manager"));
+    }
+
+    @Test
+    @DisplayName("Accept: application/cbor devuelve lo mismo que JSON, en menos bytes")
+    void findAllUsers_Cbor() throws Exception {
+        byte[] jsonBody = findAllUsers(MediaType.APPLICATION_JSON);
+        byte[] cborBody = findAllUsers(MediaType.APPLICATION_CBOR);
+
+        JsonNode fromJson = json.readTree(jsonBody);
+        JsonNode fromCbor = cbor.getObjectMapper().readTree(cborBody);
+        assertEquals(2, fromCbor.get("count").asInt());
+        assertEquals(fromJson.get("result").toString(), fromCbor.get("result").toString());
+        // Misma configuración spring.jackson: fechas ISO-8601, no arrays de números
+        assertTrue(fromCbor.get("result").get(0).get("createdAt").isTextual());
+        assertTrue(cborBody.length < jsonBody.length);
+    }
+
+    @Test
+    @DisplayName("Petición y respuesta en Smile")
+    void findUserById_SmileRequestAndResponse() throws Exception {
+        byte[] request = smile.getObjectMapper().writeValueAsBytes(Map.of("userId", user.getId()));
+
+        MvcResult result = mockMvc.perform(post("/mcp/find_user_by_id")
+                        .contentType(SMILE)
+                        .accept(SMILE)
+                        .content(request))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertTrue(SMILE.isCompatibleWith(MediaType.parseMediaType(result.getResponse().getContentType())));
+        JsonNode body = smile.getObjectMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals("ana@test.com", body.get("result").get("email").asText());
+    }
+
+    @Test
+    @DisplayName("Sin Accept: JSON como antes")
+    void findAllUsers_DefaultsToJson() throws Exception {
+        MvcResult result = mockMvc.perform(post("/mcp/find_all_users"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(
+                MediaType.parseMediaType(result.getResponse().getContentType())));
+    }
+
+    private byte[] findAllUsers(MediaType accept) throws Exception {
+        return mockMvc.perform(post("/mcp/find_all_users").accept(accept))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+}
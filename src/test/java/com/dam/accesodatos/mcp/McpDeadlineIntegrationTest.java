@@ -0,0 +1,71 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.ra3.HibernateUserService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de los plazos por petición (McpDeadline)
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Plazos de las peticiones MCP")
+class McpDeadlineIntegrationTest {
+
+    /** Producto cartesiano enorme: no termina en un tiempo razonable */
+    private static final String ENDLESS_QUERY =
+            "SELECT COUNT(*) FROM SYSTEM_RANGE(1, 1000000) a, SYSTEM_RANGE(1, 1000000) b";
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        McpDeadline.clear();
+    }
+
+    @Test
+    @DisplayName("Plazo vencido: no se inicia la transacción")
+    void expiredDeadline_RejectsTransaction() {
+        McpDeadline.start("find_all_users", 0, true);
+
+        assertThrows(TransactionTimedOutException.class, () -> service.findAll());
+    }
+
+    @Test
+    @DisplayName("Consulta que excede el plazo: se cancela y libera la conexión")
+    void longQuery_IsCancelledAtDeadline() {
+        McpDeadline.start("search_users", 300, true);
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, () -> transactionTemplate.executeWithoutResult(status ->
+                entityManager.createNativeQuery(ENDLESS_QUERY).getSingleResult()));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(McpDeadline.isExpired());
+        assertTrue(elapsedMs < 3000, "La consulta no se canceló a tiempo: " + elapsedMs + " ms");
+    }
+
+    @Test
+    @DisplayName("Sin plazo: las transacciones no cambian")
+    void noDeadline_Unchanged() {
+        assertEquals(Long.MAX_VALUE, McpDeadline.remainingMillis());
+        assertNotNull(service.findAll());
+    }
+}
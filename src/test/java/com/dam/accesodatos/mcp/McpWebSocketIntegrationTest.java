@@ -0,0 +1,208 @@
+package com.dam.accesodatos.mcp;
+
+import com.dam.accesodatos.archive.UserArchiveService;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.net.URI;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración del transporte WebSocket /mcp/ws
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "mcp.websocket.max-in-flight=16")
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Llamadas MCP por WebSocket")
+class McpWebSocketIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserArchiveService archiveService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private WebSocketSession session;
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate.update("DELETE FROM users_archive");
+        userRepository.deleteAll();
+        users = List.of(
+                service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer")),
+                service.createUser(new UserCreateDto("Luis", "luis@test.com", "HR", "Manager")),
+                service.createUser(new UserCreateDto("Eva", "eva@test.com", "IT", "Analyst")));
+
+        session = new StandardWebSocketClient().execute(new TextWebSocketHandler() {
+            @Override
+            protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+                received.add(message.getPayload());
+            }
+        }, "ws://localhost:" + port + "/mcp/ws").get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        session.close();
+    }
+
+    @Test
+    @DisplayName("Al conectar se anuncia la ventana de llamadas simultáneas")
+    void connect_SendsWelcome() throws Exception {
+        JsonNode welcome = next();
+
+        assertEquals("welcome", welcome.get("type").asText());
+        assertEquals(16, welcome.get("maxInFlight").asInt());
+    }
+
+    @Test
+    @DisplayName("Varias llamadas por la misma conexión: cada respuesta lleva su id")
+    void concurrentCalls_AreMatchedById() throws Exception {
+        next();  // welcome
+
+        for (User user : users) {
+            send(Map.of("id", "user-" + user.getId(), "tool", "find_user_by_id",
+                    "arguments", Map.of("id", user.getId())));
+        }
+        send(Map.of("id", 100, "tool", "find_users_by_department", "arguments", Map.of("department", "IT")));
+        send(Map.of("id", 101, "tool", "no_existe"));
+
+        Map<String, JsonNode> responses = new HashMap<>();
+        for (int i = 0; i < users.size() + 2; i++) {
+            JsonNode response = next();
+            responses.put(response.get("id").asText(), response);
+        }
+
+        for (User user : users) {
+            JsonNode response = responses.get("user-" + user.getId());
+            assertEquals("success", response.get("status").asText());
+            assertEquals(user.getEmail(), response.get("result").get("email").asText());
+        }
+        assertEquals(2, responses.get("100").get("result").size());
+        assertEquals("error", responses.get("101").get("status").asText());
+    }
+
+    @Test
+    @DisplayName("Las lecturas compuestas responden con los mismos campos que por HTTP")
+    void composedReads_MatchHttpResponses() throws Exception {
+        next();  // welcome
+        User eva = users.get(2);
+        jdbcTemplate.update("UPDATE users SET active = FALSE, updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusYears(2)), eva.getId());
+        archiveService.archiveInactiveBefore(LocalDateTime.now().minusDays(30));
+
+        send(Map.of("id", 1, "tool", "find_user_by_id",
+                "arguments", Map.of("id", eva.getId(), "includeArchived", true)));
+        JsonNode archived = next();
+        assertTrue(archived.get("archived").asBoolean());
+        assertEquals(eva.getEmail(), archived.get("result").get("email").asText());
+
+        send(Map.of("id", 2, "tool", "user_stats_summary", "arguments", Map.of("includeArchived", true)));
+        JsonNode summary = next();
+        assertEquals("success", summary.get("status").asText());
+        assertEquals(3, summary.get("result").get("totals").get("total").asInt());
+        assertTrue(summary.get("includesArchived").asBoolean());
+        assertTrue(summary.has("ageMs"));
+
+        send(Map.of("id", 3, "tool", "find_users_by_department", "arguments", Map.of("department", "IT")));
+        JsonNode department = next();
+        assertEquals(1, department.get("count").asInt());
+        assertEquals("hibernate", department.get("source").asText());
+    }
+
+    @Test
+    @DisplayName("Un mensaje mal formado recibe un error y la conexión sigue abierta")
+    void invalidMessage_ReturnsError() throws Exception {
+        next();  // welcome
+
+        session.sendMessage(new TextMessage("{no es json"));
+        assertEquals("error", next().get("status").asText());
+
+        send(Map.of("id", 1, "tool", "find_all_users"));
+        JsonNode response = next();
+        assertEquals("success", response.get("status").asText());
+        assertEquals(users.size(), response.get("result").size());
+    }
+
+    @Test
+    @DisplayName("update_user con expectedVersion obsoleta responde conflict")
+    void staleUpdate_ReturnsConflict() throws Exception {
+        next();  // welcome
+        User ana = users.get(0);
+
+        send(Map.of("id", 1, "tool", "update_user",
+                "arguments", Map.of("id", ana.getId(), "role", "Lead", "expectedVersion", ana.getVersion())));
+        JsonNode updated = next();
+        assertEquals("success", updated.get("status").asText());
+        assertEquals("Lead", updated.get("result").get("role").asText());
+
+        send(Map.of("id", 2, "tool", "update_user",
+                "arguments", Map.of("id", ana.getId(), "role", "Architect", "expectedVersion", ana.getVersion())));
+        JsonNode conflict = next();
+        assertEquals("conflict", conflict.get("status").asText());
+        assertEquals("Lead", service.findUserById(ana.getId()).getRole());
+    }
+
+    @Test
+    @DisplayName("Sin allowed-origins se rechaza el handshake desde otro origen")
+    void foreignOrigin_Rejected() {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.setOrigin("http://otro-dominio.example.com");
+
+        assertThrows(ExecutionException.class, () -> new StandardWebSocketClient()
+                .execute(new TextWebSocketHandler(), headers, URI.create("ws://localhost:" + port + "/mcp/ws"))
+                .get(5, TimeUnit.SECONDS));
+    }
+
+    private void send(Map<String, Object> call) throws Exception {
+        session.sendMessage(new TextMessage(objectMapper.writeValueAsString(call)));
+    }
+
+    private JsonNode next() throws Exception {
+        String message = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(message, "Sin respuesta por WebSocket");
+        return objectMapper.readTree(message);
+    }
+}
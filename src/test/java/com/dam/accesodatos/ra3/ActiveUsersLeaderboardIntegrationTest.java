@@ -0,0 +1,124 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.ActiveUserDto;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserStatistics;
+import com.dam.accesodatos.repository.UserRepository;
+import com.dam.accesodatos.repository.UserStatisticsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de top_active_users (rankings de 3 usuarios, volcados manuales)
+ */
+@SpringBootTest(properties = {
+        "mcp.top-active.k=3",
+        "mcp.top-active.rebuild-interval-ms=3600000",
+        "mcp.login-stats.flush-interval-ms=3600000"})
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - top_active_users")
+class ActiveUsersLeaderboardIntegrationTest {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private LoginCounterBuffer buffer;
+
+    @Autowired
+    private ActiveUsersLeaderboard leaderboard;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserStatisticsRepository statisticsRepository;
+
+    private User ana;
+    private User luis;
+    private User eva;
+    private User pablo;
+
+    @BeforeEach
+    void setUp() {
+        buffer.flush();
+        statisticsRepository.deleteAll();
+        userRepository.deleteAll();
+        ana = service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        luis = service.createUser(new UserCreateDto("Luis", "luis@test.com", "IT", "Developer"));
+        eva = service.createUser(new UserCreateDto("Eva", "eva@test.com", "HR", "Manager"));
+        pablo = service.createUser(new UserCreateDto("Pablo", "pablo@test.com", "IT", "Analyst"));
+        leaderboard.rebuild();
+    }
+
+    @Test
+    @DisplayName("Cada volcado actualiza el ranking global y el del departamento")
+    void flush_UpdatesRankings() {
+        logins(ana, 5);
+        logins(luis, 2);
+        logins(eva, 3);
+        buffer.flush();
+
+        assertEquals(List.of(ana.getId(), eva.getId(), luis.getId()), ids(service.topActiveUsers(null, 3)));
+        assertEquals(List.of(ana.getId(), luis.getId()), ids(service.topActiveUsers("IT", null)));
+        assertEquals(5, service.topActiveUsers(null, 1).get(0).getLoginCount());
+
+        logins(luis, 4);
+        buffer.flush();
+        assertEquals(List.of(luis.getId(), ana.getId()), ids(service.topActiveUsers("IT", 2)));
+    }
+
+    @Test
+    @DisplayName("Con el ranking lleno, un usuario entra al superar al último")
+    void flush_FullRanking_EvictsLast() {
+        logins(ana, 5);
+        logins(luis, 4);
+        logins(eva, 3);
+        logins(pablo, 1);
+        buffer.flush();
+        assertFalse(ids(service.topActiveUsers(null, 3)).contains(pablo.getId()));
+
+        logins(pablo, 9);
+        buffer.flush();
+        assertEquals(List.of(pablo.getId(), ana.getId(), luis.getId()), ids(service.topActiveUsers(null, 3)));
+    }
+
+    @Test
+    @DisplayName("La recarga parte de user_statistics")
+    void rebuild_ReadsTable() {
+        statisticsRepository.save(new UserStatistics(eva.getId(), 50, LocalDateTime.now()));
+        statisticsRepository.save(new UserStatistics(pablo.getId(), 20, LocalDateTime.now()));
+        leaderboard.rebuild();
+
+        assertEquals(List.of(eva.getId(), pablo.getId()), ids(service.topActiveUsers(null, 3)));
+        assertEquals(List.of(pablo.getId()), ids(service.topActiveUsers("IT", 3)));
+        assertTrue(service.topActiveUsers("Sales", 3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("limit fuera de 1..K es un argumento no válido")
+    void topActiveUsers_LimitOutOfRange_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> service.topActiveUsers(null, 4));
+        assertThrows(IllegalArgumentException.class, () -> service.topActiveUsers(null, 0));
+    }
+
+    private void logins(User user, int times) {
+        for (int i = 0; i < times; i++) {
+            service.recordLogin(user.getId());
+        }
+    }
+
+    private static List<Long> ids(List<ActiveUserDto> users) {
+        return users.stream().map(ActiveUserDto::getUserId).toList();
+    }
+}
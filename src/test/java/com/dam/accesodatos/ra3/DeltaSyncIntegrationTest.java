@@ -0,0 +1,108 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserDeltaDto;
+import com.dam.accesodatos.model.UserTombstone;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de find_users_changed_since
+ *
+ * Sin margen de seguridad (safety-lag-ms=0) para ver los cambios en cuanto hacen commit.
+ */
+@SpringBootTest(properties = "mcp.delta-sync.safety-lag-ms=0")
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Sincronización incremental")
+class DeltaSyncIntegrationTest {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private LocalDateTime watermark;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        watermark = LocalDateTime.now();
+    }
+
+    @Test
+    @DisplayName("Recorre por lotes altas, modificaciones y borrados sin repetir ni perder filas")
+    void pagesThroughInsertsUpdatesAndDeletes() {
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(service.createUser(new UserCreateDto("Delta " + i, "delta" + i + "@test.com", "IT", "Developer")));
+        }
+        UserUpdateDto dto = new UserUpdateDto();
+        dto.setRole("Lead");
+        service.updateUser(created.get(0).getId(), dto);
+        userRepository.deleteById(created.get(1).getId());
+
+        List<User> changed = new ArrayList<>();
+        List<UserTombstone> deleted = new ArrayList<>();
+        LocalDateTime since = watermark;
+        Long afterId = 0L;
+        UserDeltaDto delta;
+        do {
+            delta = service.findUsersChangedSince(since, afterId, 2);
+            assertTrue(delta.getChanged().size() + delta.getDeleted().size() <= 2);
+            changed.addAll(delta.getChanged());
+            deleted.addAll(delta.getDeleted());
+            since = delta.getNextUpdatedAt();
+            afterId = delta.getNextId();
+        } while (delta.isHasMore());
+
+        List<Long> changedIds = changed.stream().map(User::getId).collect(Collectors.toList());
+        assertEquals(4, changedIds.size());
+        assertEquals(4, changedIds.stream().distinct().count());
+        assertFalse(changedIds.contains(created.get(1).getId()));
+        assertEquals("Lead", changed.get(changed.size() - 1).getRole());
+
+        assertEquals(1, deleted.size());
+        assertEquals(created.get(1).getId(), deleted.get(0).getUserId());
+    }
+
+    @Test
+    @DisplayName("Sin cambios nuevos: lote vacío y la marca de agua no avanza")
+    void noChanges_KeepsWatermark() {
+        UserDeltaDto delta = service.findUsersChangedSince(watermark, 7L, 100);
+
+        assertTrue(delta.getChanged().isEmpty());
+        assertTrue(delta.getDeleted().isEmpty());
+        assertFalse(delta.isHasMore());
+        assertEquals(watermark, delta.getNextUpdatedAt());
+        assertEquals(7L, delta.getNextId());
+    }
+
+    @Test
+    @DisplayName("Borrado masivo deja una lápida por usuario")
+    void bulkDelete_RecordsTombstones() {
+        User user = service.createUser(new UserCreateDto("Bulk Delta", "bulkdelta@test.com", "HR", "Recruiter"));
+        service.deactivateDepartment("HR");
+
+        service.deleteInactiveBefore(LocalDateTime.now().plusSeconds(1));
+
+        UserDeltaDto delta = service.findUsersChangedSince(watermark, 0L, 100);
+        assertTrue(delta.getChanged().isEmpty());
+        assertEquals(List.of(user.getId()),
+                delta.getDeleted().stream().map(UserTombstone::getUserId).collect(Collectors.toList()));
+    }
+}
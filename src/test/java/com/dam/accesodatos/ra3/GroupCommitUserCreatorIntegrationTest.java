@@ -0,0 +1,135 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.repository.UserRepository;
+import jakarta.validation.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración del group commit de create_user
+ *
+ * Ventana amplia (20 ms) para que las altas concurrentes caigan en el mismo lote.
+ */
+@SpringBootTest(properties = {
+        "mcp.create-user.group-commit.enabled=true",
+        "mcp.create-user.group-commit.window-us=20000",
+        "mcp.create-user.group-commit.max-batch=32"
+})
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Group commit de create_user")
+class GroupCommitUserCreatorIntegrationTest {
+
+    private static final int CALLERS = 16;
+
+    @Autowired
+    private GroupCommitUserCreator creator;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Altas concurrentes: cada llamada recibe su propio ID")
+    void concurrentCreates_EachGetsOwnId() throws Exception {
+        List<Future<Object>> results = runConcurrently(i -> new UserCreateDto(
+                "Group " + i, "group" + i + "@test.com", "IT", "Developer"));
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            User user = (User) results.get(i).get();
+            assertEquals("group" + i + "@test.com", user.getEmail());
+            assertNotNull(user.getId());
+            assertEquals(user.getEmail(), userRepository.findById(user.getId()).orElseThrow().getEmail());
+            ids.add(user.getId());
+        }
+        assertEquals(CALLERS, ids.stream().distinct().count());
+        assertEquals(CALLERS, userRepository.count());
+    }
+
+    @Test
+    @DisplayName("Email duplicado: solo falla la llamada afectada")
+    void duplicateEmail_FailsOnlyThatCaller() throws Exception {
+        creator.createUser(new UserCreateDto("Existing", "existing@test.com", "IT", "Developer"));
+
+        List<Future<Object>> results = runConcurrently(i -> new UserCreateDto(
+                "Group " + i, i == 3 ? "existing@test.com" : "dup" + i + "@test.com", "IT", "Developer"));
+
+        for (int i = 0; i < CALLERS; i++) {
+            Object result = results.get(i).get();
+            if (i == 3) {
+                assertInstanceOf(DataIntegrityViolationException.class, result);
+            } else {
+                assertInstanceOf(User.class, result);
+            }
+        }
+        assertEquals(CALLERS, userRepository.count());
+    }
+
+    @Test
+    @DisplayName("Datos no válidos: el mismo error de validación que sin group commit")
+    void invalidUser_FailsOnlyThatCaller() throws Exception {
+        List<Future<Object>> results = runConcurrently(i -> switch (i) {
+            case 2 -> new UserCreateDto("Group 2", "bad-email", "IT", "Developer");
+            case 5 -> new UserCreateDto("X", "short@test.com", "IT", "Developer");
+            default -> new UserCreateDto("Group " + i, "valid" + i + "@test.com", "IT", "Developer");
+        });
+
+        for (int i = 0; i < CALLERS; i++) {
+            Object result = results.get(i).get();
+            if (i == 2 || i == 5) {
+                assertInstanceOf(ConstraintViolationException.class, result);
+            } else {
+                assertInstanceOf(User.class, result);
+            }
+        }
+        assertEquals(CALLERS - 2, userRepository.count());
+    }
+
+    // ========== Métodos auxiliares ==========
+
+    /**
+     * Lanza CALLERS altas a la vez. Cada Future devuelve el User o la excepción lanzada.
+     */
+    private List<Future<Object>> runConcurrently(java.util.function.IntFunction<UserCreateDto> dtoFor)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            UserCreateDto dto = dtoFor.apply(i);
+            results.add(pool.submit(() -> {
+                start.await();
+                try {
+                    return creator.createUser(dto);
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        return results;
+    }
+}
@@ -203,6 +203,20 @@ class HibernateUserServiceImplTest {
         verify(entityManager, never()).merge(any(User.class));
     }
 
+    @Test
+    @DisplayName("updateUser() - Rechaza la actualización si expectedVersion no coincide")
+    void updateUser_VersionMismatch() {
+        // Given
+        testUser.setVersion(3L);
+        updateDto.setExpectedVersion(2L);
+        when(entityManager.find(User.class, 1L)).thenReturn(testUser);
+
+        // When & Then
+        assertThrows(jakarta.persistence.OptimisticLockException.class, () -> service.updateUser(1L, updateDto));
+        assertEquals("Test User", testUser.getName());
+        verify(entityManager, never()).merge(any(User.class));
+    }
+
     // ========== Tests para findAll() ==========
 
     @Test
@@ -181,6 +181,63 @@ class HibernateUserServiceIntegrationTest {
         });
     }
 
+    // ========== Tests de findUsersByIds() ==========
+
+    @Test
+    @DisplayName("findUsersByIds() - Respeta el orden y deja null en IDs inexistentes")
+    void findUsersByIds_OrderedWithMissing() {
+        // Given
+        User alice = createTestUser("Alice", "alice@test.com", "IT");
+        User bob = createTestUser("Bob", "bob@test.com", "HR");
+
+        // When
+        List<User> result = service.findUsersByIds(List.of(bob.getId(), 999_999L, alice.getId()));
+
+        // Then
+        assertEquals(3, result.size());
+        assertEquals("Bob", result.get(0).getName());
+        assertNull(result.get(1));
+        assertEquals("Alice", result.get(2).getName());
+    }
+
+    // ========== Tests de operaciones masivas (bulk JPQL) ==========
+
+    @Test
+    @DisplayName("deactivateDepartment() - Desactiva todo el departamento en un UPDATE")
+    void deactivateDepartment_UpdatesAllAndClearsContext() {
+        // Given - La entidad queda managed en el contexto de persistencia
+        User alice = createTestUser("Alice", "alice@test.com", "IT");
+        createTestUser("Bob", "bob@test.com", "IT");
+        createTestUser("Charlie", "charlie@test.com", "HR");
+
+        // When
+        int updated = service.deactivateDepartment("IT");
+
+        // Then - find() no devuelve la instancia antigua con active=true
+        assertEquals(2, updated);
+        assertFalse(service.findUserById(alice.getId()).getActive());
+        assertTrue(service.findUsersByDepartment("IT").isEmpty());
+        assertEquals(1, service.findUsersByDepartment("HR").size());
+    }
+
+    @Test
+    @DisplayName("reassignRole() y deleteInactiveBefore() - Operaciones bulk")
+    void reassignRoleAndDeleteInactive_Success() {
+        // Given
+        createTestUser("Alice", "alice@test.com", "IT");
+        createTestUser("Bob", "bob@test.com", "IT");
+        service.deactivateDepartment("IT");
+
+        // When
+        int reassigned = service.reassignRole("Developer", "Engineer");
+        int deleted = service.deleteInactiveBefore(java.time.LocalDateTime.now().plusMinutes(1));
+
+        // Then
+        assertEquals(2, reassigned);
+        assertEquals(2, deleted);
+        assertTrue(service.findAll().isEmpty());
+    }
+
     // ========== Métodos auxiliares ==========
 
     private User createTestUser(String name, String email, String department) {
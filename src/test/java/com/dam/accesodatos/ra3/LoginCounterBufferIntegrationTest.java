@@ -0,0 +1,127 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserStatistics;
+import com.dam.accesodatos.repository.UserRepository;
+import com.dam.accesodatos.repository.UserStatisticsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de record_login (volcado manual: el intervalo programado es de una hora)
+ */
+@SpringBootTest(properties = "mcp.login-stats.flush-interval-ms=3600000")
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - record_login")
+class LoginCounterBufferIntegrationTest {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private LoginCounterBuffer buffer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserStatisticsRepository statisticsRepository;
+
+    private User ana;
+    private User luis;
+
+    @BeforeEach
+    void setUp() {
+        buffer.flush();
+        statisticsRepository.deleteAll();
+        userRepository.deleteAll();
+        ana = service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        luis = service.createUser(new UserCreateDto("Luis", "luis@test.com", "HR", "Analyst"));
+    }
+
+    @Test
+    @DisplayName("Los inicios de sesión concurrentes no escriben hasta el volcado y no se pierde ninguno")
+    void recordLogin_Concurrent_CoalescedIntoOneRowPerUser() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Long userId = t % 2 == 0 ? ana.getId() : luis.getId();
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        service.recordLogin(userId);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(0, statisticsRepository.count(), "Nada se escribe antes del volcado");
+        assertEquals(2, buffer.flush());
+
+        UserStatistics anaStats = statisticsRepository.findByUserId(ana.getId()).orElseThrow();
+        assertEquals(threads / 2 * perThread, anaStats.getLoginCount());
+        assertNotNull(anaStats.getLastLogin());
+        assertEquals(threads / 2 * perThread, statisticsRepository.findByUserId(luis.getId()).orElseThrow().getLoginCount());
+    }
+
+    @Test
+    @DisplayName("Un volcado posterior suma sobre la fila existente")
+    void flush_ExistingRow_Incremented() {
+        service.recordLogin(ana.getId());
+        buffer.flush();
+        service.recordLogin(ana.getId());
+        service.recordLogin(ana.getId());
+        buffer.flush();
+
+        assertEquals(3, statisticsRepository.findByUserId(ana.getId()).orElseThrow().getLoginCount());
+        assertEquals(1, statisticsRepository.count());
+    }
+
+    @Test
+    @DisplayName("Las entradas sin actividad se retiran de memoria")
+    void flush_IdleEntries_Retired() {
+        service.recordLogin(ana.getId());
+        buffer.flush();
+        assertEquals(1, buffer.getPendingUsers());
+
+        assertEquals(0, buffer.flush());
+        assertEquals(0, buffer.getPendingUsers());
+    }
+
+    @Test
+    @DisplayName("Los inicios de sesión de usuarios inexistentes se descartan")
+    void flush_UnknownUser_Discarded() {
+        service.recordLogin(999_999L);
+        service.recordLogin(ana.getId());
+        buffer.flush();
+
+        assertTrue(statisticsRepository.findByUserId(999_999L).isEmpty());
+        assertEquals(1, statisticsRepository.findByUserId(ana.getId()).orElseThrow().getLoginCount());
+    }
+
+    @Test
+    @DisplayName("userId null es un argumento no válido")
+    void recordLogin_NullUser_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> service.recordLogin(null));
+    }
+}
@@ -0,0 +1,123 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.datasource.ShardRouter;
+import com.dam.accesodatos.export.UserExportFiles;
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserExportDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración del particionado por departamento sobre 3 bases de datos H2
+ */
+@SpringBootTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "mcp.sharding.enabled=true",
+        "mcp.sharding.init-schema=true",
+        "mcp.sharding.shards[0].url=jdbc:h2:mem:testshard0;DB_CLOSE_DELAY=-1",
+        "mcp.sharding.shards[0].username=sa",
+        "mcp.sharding.shards[1].url=jdbc:h2:mem:testshard1;DB_CLOSE_DELAY=-1",
+        "mcp.sharding.shards[1].username=sa",
+        "mcp.sharding.shards[2].url=jdbc:h2:mem:testshard2;DB_CLOSE_DELAY=-1",
+        "mcp.sharding.shards[2].username=sa"
+})
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Sharding por departamento")
+class ShardedHibernateUserServiceIntegrationTest {
+
+    private static final List<String> DEPARTMENTS = List.of("IT", "HR", "Finance", "Marketing", "Sales");
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private UserExportFiles exportFiles;
+
+    @BeforeEach
+    void setUp() {
+        for (int shard = 0; shard < router.getShardCount(); shard++) {
+            shard(shard).update("DELETE FROM users");
+        }
+    }
+
+    @Test
+    @DisplayName("El servicio principal es el decorador con sharding")
+    void primaryServiceIsSharded() {
+        assertInstanceOf(ShardedHibernateUserService.class, service);
+    }
+
+    @Test
+    @DisplayName("Cada usuario se guarda en el shard de su departamento con un ID que lo identifica")
+    void createUser_RoutesByDepartment() {
+        for (String department : DEPARTMENTS) {
+            User user = service.createUser(new UserCreateDto("User " + department,
+                    department.toLowerCase() + "@test.com", department, "Developer"));
+
+            int expectedShard = router.shardForDepartment(department);
+            assertEquals(expectedShard, router.shardForId(user.getId()));
+            assertEquals(1, countOn(expectedShard, user.getId()));
+            assertEquals("User " + department, service.findUserById(user.getId()).getName());
+        }
+    }
+
+    @Test
+    @DisplayName("findAll() y findUsersByIds() combinan los resultados de todos los shards")
+    void scatterGather_MergesAllShards() {
+        // Given
+        List<User> created = DEPARTMENTS.stream()
+                .map(d -> service.createUser(new UserCreateDto("User " + d, d.toLowerCase() + "@test.com", d, "Dev")))
+                .toList();
+
+        // When
+        List<User> all = service.findAll();
+        List<User> byIds = service.findUsersByIds(List.of(created.get(4).getId(), created.get(0).getId()));
+
+        // Then
+        assertEquals(DEPARTMENTS.size(), all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getId() < all.get(i).getId(), "findAll() debe quedar ordenado por ID");
+        }
+        assertEquals(created.get(4).getId(), byIds.get(0).getId());
+        assertEquals(created.get(0).getId(), byIds.get(1).getId());
+        assertEquals(1, service.findUsersByDepartment("HR").size());
+    }
+
+    @Test
+    @DisplayName("export_users une en un fichero las partes de todos los shards")
+    void exportUsers_ConcatenatesShards() throws Exception {
+        DEPARTMENTS.forEach(d -> service.createUser(new UserCreateDto("User " + d, d.toLowerCase() + "@test.com", d, "Dev")));
+
+        UserExportDto export = service.exportUsers(null, "csv");
+
+        List<String> lines = Files.readAllLines(exportFiles.resolve(export.getFileName()));
+        assertEquals(DEPARTMENTS.size(), export.getRowCount());
+        assertEquals(DEPARTMENTS.size() + 1, lines.size());
+        assertEquals(1, lines.stream().filter(l -> l.startsWith("id,")).count(), "Una sola cabecera");
+    }
+
+    // ========== Métodos auxiliares ==========
+
+    private JdbcTemplate shard(int index) {
+        return new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:testshard" + index, "sa", ""));
+    }
+
+    private int countOn(int shard, Long id) {
+        return shard(shard).queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,91 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitarios de UserStatsSummaryCache: una consulta por clave y sin bloquear las demás
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests Unitarios - Caché de user_stats_summary")
+class UserStatsSummaryCacheTest {
+
+    @Mock
+    private HibernateUserService hibernateUserService;
+
+    @InjectMocks
+    private UserStatsSummaryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 256);
+    }
+
+    @Test
+    @DisplayName("Llamadas simultáneas con la misma clave comparten una consulta; otra clave no espera")
+    void concurrentCalls_SingleQueryPerKey() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UserStatsSummaryDto it = new UserStatsSummaryDto();
+        UserStatsSummaryDto hr = new UserStatsSummaryDto();
+        when(hibernateUserService.userStatsSummary("IT", null, null)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return it;
+        });
+        when(hibernateUserService.userStatsSummary("HR", null, null)).thenReturn(hr);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<UserStatsSummaryCache.Result>> calls = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                calls.add(pool.submit(() -> cache.get("IT", null, null)));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Con la consulta de IT en curso, otra clave se resuelve sin esperar
+            assertSame(hr, cache.get("HR", null, null).summary());
+
+            release.countDown();
+            for (Future<UserStatsSummaryCache.Result> call : calls) {
+                assertSame(it, call.get(5, TimeUnit.SECONDS).summary());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(hibernateUserService, times(1)).userStatsSummary("IT", null, null);
+    }
+
+    @Test
+    @DisplayName("Una consulta fallida no queda en caché")
+    void failedQuery_IsRetried() {
+        UserStatsSummaryDto summary = new UserStatsSummaryDto();
+        when(hibernateUserService.userStatsSummary(null, null, true))
+                .thenThrow(new IllegalStateException("BD no disponible"))
+                .thenReturn(summary);
+
+        assertThrows(IllegalStateException.class, () -> cache.get(null, null, true));
+        assertSame(summary, cache.get(null, null, true).summary());
+        assertSame(summary, cache.get(null, null, true).summary());
+        verify(hibernateUserService, times(2)).userStatsSummary(null, null, true);
+    }
+}
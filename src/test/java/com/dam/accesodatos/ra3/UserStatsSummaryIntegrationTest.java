@@ -0,0 +1,85 @@
+package com.dam.accesodatos.ra3;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserStatsSummaryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de user_stats_summary (caché desactivada)
+ */
+@SpringBootTest(properties = "mcp.stats-summary.cache-ttl-ms=0")
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - user_stats_summary")
+class UserStatsSummaryIntegrationTest {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserStatsSummaryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        service.createUser(new UserCreateDto("Luis", "luis@test.com", "IT", "Developer"));
+        service.createUser(new UserCreateDto("Eva", "eva@test.com", "IT", "Manager"));
+        User inactive = service.createUser(new UserCreateDto("Pablo", "pablo@test.com", "HR", "Analyst"));
+        UserUpdateDto update = new UserUpdateDto();
+        update.setActive(false);
+        service.updateUser(inactive.getId(), update);
+    }
+
+    @Test
+    @DisplayName("Agrupa por departamento y rol con activos e inactivos")
+    void summary_NestedCounts() {
+        UserStatsSummaryDto summary = service.userStatsSummary(null, null, null);
+
+        assertEquals(4, summary.getTotals().getTotal());
+        assertEquals(3, summary.getTotals().getActive());
+        assertEquals(1, summary.getTotals().getInactive());
+
+        UserStatsSummaryDto.DepartmentStats it = summary.getDepartments().get("IT");
+        assertEquals(3, it.getTotal());
+        assertEquals(2, it.getRoles().get("Developer").getActive());
+        assertEquals(1, it.getRoles().get("Manager").getTotal());
+        assertEquals(1, summary.getDepartments().get("HR").getRoles().get("Analyst").getInactive());
+    }
+
+    @Test
+    @DisplayName("Los filtros restringen las filas agregadas")
+    void summary_Filters() {
+        UserStatsSummaryDto onlyIt = service.userStatsSummary("IT", null, null);
+        assertEquals(3, onlyIt.getTotals().getTotal());
+        assertFalse(onlyIt.getDepartments().containsKey("HR"));
+
+        assertEquals(2, service.userStatsSummary(null, "Developer", null).getTotals().getTotal());
+        assertEquals(1, service.userStatsSummary(null, null, false).getTotals().getTotal());
+        assertTrue(service.userStatsSummary("Sales", null, null).getDepartments().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Con TTL 0 la caché siempre consulta")
+    void cache_Disabled_AlwaysFresh() {
+        assertEquals(4, cache.get(null, null, null).summary().getTotals().getTotal());
+
+        service.createUser(new UserCreateDto("Rosa", "rosa@test.com", "HR", "Analyst"));
+
+        UserStatsSummaryCache.Result result = cache.get(null, null, null);
+        assertEquals(5, result.summary().getTotals().getTotal());
+        assertEquals(0, result.ageMs());
+    }
+}
@@ -0,0 +1,96 @@
+package com.dam.accesodatos.repository;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración de las tablas de consulta departments/roles
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Departamento y rol como códigos")
+class LookupCodesIntegrationTest {
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LookupCodes lookupCodes;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("La fila guarda el código y la entidad el nombre")
+    void storesCode_ExposesName() {
+        User created = service.createUser(new UserCreateDto("Ana", "ana@test.com", "Lookup Dept", "Lookup Role"));
+
+        Short storedCode = jdbcTemplate.queryForObject(
+                "SELECT department_id FROM users WHERE id = ?", Short.class, created.getId());
+        assertEquals(lookupCodes.departmentCode("Lookup Dept"), storedCode);
+        assertEquals("Lookup Dept", service.findUserById(created.getId()).getDepartment());
+        assertEquals(1, service.findUsersByDepartment("Lookup Dept").size());
+    }
+
+    @Test
+    @DisplayName("Buscar un nombre inexistente no crea códigos")
+    void unknownName_NotCreatedByReads() {
+        assertTrue(service.findUsersByDepartment("Never Stored").isEmpty());
+
+        assertEquals(LookupCodes.UNKNOWN, lookupCodes.departmentCode("Never Stored"));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM departments WHERE name = 'Never Stored'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("reassign_role a un rol nuevo crea su código")
+    void reassignRole_ToNewRole() {
+        service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+
+        assertEquals(1, service.reassignRole("Developer", "Brand New Role"));
+
+        assertEquals("Brand New Role", userRepository.findAll().get(0).getRole());
+    }
+
+    @Test
+    @DisplayName("Dentro de una transacción usa su conexión: un rollback no deja el código")
+    void ensureInTransaction_UsesItsConnection() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            short code = lookupCodes.ensureDepartment("Rolled Back Dept");
+            assertNotEquals(LookupCodes.UNKNOWN, code);
+            assertEquals("Rolled Back Dept", lookupCodes.departmentName(code));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM departments WHERE name = 'Rolled Back Dept'", Integer.class));
+        assertEquals(LookupCodes.UNKNOWN, lookupCodes.departmentCode("Rolled Back Dept"), "No queda en caché");
+
+        short committed = tx.execute(status -> lookupCodes.ensureDepartment("Committed Dept"));
+        assertEquals(committed, lookupCodes.departmentCode("Committed Dept"));
+    }
+}
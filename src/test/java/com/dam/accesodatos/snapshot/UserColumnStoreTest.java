@@ -0,0 +1,118 @@
+package com.dam.accesodatos.snapshot;
+
+import com.dam.accesodatos.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests unitarios de UserColumnStore
+ */
+@DisplayName("Tests Unitarios - Snapshot columnar de usuarios")
+class UserColumnStoreTest {
+
+    private UserColumnStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new UserColumnStore(2);  // Capacidad mínima: obliga a crecer los arrays
+        store.upsert(user(1, "Zoe", "IT", "Developer", true));
+        store.upsert(user(2, "Ana", "IT", "Manager", true));
+        store.upsert(user(3, "Luis", "IT", "Developer", false));
+        store.upsert(user(4, "Eva", "HR", "Analyst", true));
+    }
+
+    @Test
+    @DisplayName("Por departamento: solo activos, ordenados por nombre")
+    void findActiveByDepartment_SortedByName() {
+        List<User> result = store.findActiveByDepartment("IT");
+
+        assertEquals(List.of("Ana", "Zoe"), result.stream().map(User::getName).toList());
+        assertTrue(store.findActiveByDepartment("Unknown").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Búsqueda: combina filtros y pagina en orden de id")
+    void search_CombinesFiltersAndPaginates() {
+        assertEquals(List.of(1L, 3L), ids(store.search("IT", "Developer", null, 0, 10)));
+        assertEquals(List.of(3L), ids(store.search(null, null, false, 0, 10)));
+        assertEquals(List.of(2L, 3L), ids(store.search("IT", null, null, 1, 2)));
+        assertTrue(store.search(null, "Unknown", null, 0, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Búsqueda: mantiene el orden por id aunque lleguen desordenados")
+    void search_OutOfOrderIds() {
+        store.upsert(user(0, "Bea", "IT", "Developer", true));
+
+        assertEquals(List.of(0L, 1L, 2L), ids(store.search("IT", null, true, 0, 10)));
+    }
+
+    @Test
+    @DisplayName("Cuenta activos por departamento")
+    void countActiveByDepartment() {
+        assertEquals(2, store.countActiveByDepartment("IT"));
+        assertEquals(1, store.countActiveByDepartment("HR"));
+        assertEquals(0, store.countActiveByDepartment("Unknown"));
+    }
+
+    @Test
+    @DisplayName("Upsert: un cambio de departamento mueve la fila de bitmap")
+    void upsert_MovesBetweenDepartments() {
+        store.upsert(user(2, "Ana", "HR", "Manager", true));
+
+        assertEquals(1, store.countActiveByDepartment("IT"));
+        assertEquals(List.of("Ana", "Eva"), store.findActiveByDepartment("HR").stream().map(User::getName).toList());
+        assertEquals(4, store.size());
+    }
+
+    @Test
+    @DisplayName("Borrado: la fila desaparece de todas las consultas")
+    void delete_RemovesRow() {
+        store.delete(1);
+
+        assertEquals(1, store.countActiveByDepartment("IT"));
+        assertEquals(List.of(2L, 3L), ids(store.search("IT", null, null, 0, 10)));
+        assertEquals(3, store.size());
+        assertEquals(4, store.allocatedRows());
+    }
+
+    @Test
+    @DisplayName("Borrado masivo: inactivos anteriores a la fecha de corte")
+    void deleteInactiveBefore() {
+        assertEquals(1, store.deleteInactiveBefore(LocalDateTime.of(2030, 1, 1, 0, 0)));
+        assertEquals(0, store.deleteInactiveBefore(LocalDateTime.of(2030, 1, 1, 0, 0)));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    @DisplayName("Materializa todos los campos del usuario")
+    void materializesAllFields() {
+        User user = store.search(null, null, null, 0, 1).get(0);
+
+        assertEquals(1L, user.getId());
+        assertEquals("zoe@test.com", user.getEmail());
+        assertEquals("Developer", user.getRole());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_000_000), user.getUpdatedAt());
+        assertEquals(7L, user.getVersion());
+    }
+
+    private static User user(long id, String name, String department, String role, boolean active) {
+        User user = new User(name, name.toLowerCase() + "@test.com", department, role);
+        user.setId(id);
+        user.setActive(active);
+        user.setVersion(7L);
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        user.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_000_000));
+        return user;
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+}
@@ -0,0 +1,164 @@
+package com.dam.accesodatos.snapshot;
+
+import com.dam.accesodatos.model.User;
+import com.dam.accesodatos.model.UserCreateDto;
+import com.dam.accesodatos.model.UserQueryDto;
+import com.dam.accesodatos.model.UserUpdateDto;
+import com.dam.accesodatos.ra3.HibernateUserService;
+import com.dam.accesodatos.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de integración del snapshot en memoria: los cambios confirmados con Hibernate
+ * llegan a la copia columnar a través de la outbox.
+ */
+@SpringBootTest(properties = {"mcp.snapshot.enabled=true", "mcp.snapshot.gap-timeout-ms=100"})
+@ActiveProfiles("test")
+@DisplayName("Tests Integración - Snapshot columnar de usuarios")
+class UserSnapshotServiceIntegrationTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @Autowired
+    private UserSnapshotService snapshot;
+
+    @Autowired
+    private HibernateUserService service;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        awaitTrue(() -> snapshot.isReady() && snapshot.searchUsers(new UserQueryDto(null, null, null, 1, 0)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Altas y modificaciones se reflejan en el snapshot")
+    void createAndUpdate_AreApplied() {
+        User ana = service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        service.createUser(new UserCreateDto("Bob", "bob@test.com", "IT", "Manager"));
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 2);
+
+        service.updateUser(ana.getId(), new UserUpdateDto(null, null, "HR", null, null));
+        awaitTrue(() -> snapshot.executeCountByDepartment("HR") == 1);
+
+        assertEquals(1, snapshot.executeCountByDepartment("IT"));
+        assertEquals("Ana", snapshot.findUsersByDepartment("HR").get(0).getName());
+        assertEquals(service.findUsersByDepartment("IT"), snapshot.findUsersByDepartment("IT"));
+    }
+
+    @Test
+    @DisplayName("Operaciones masivas: se releen las filas afectadas")
+    void bulkUpdate_IsApplied() {
+        service.createUser(new UserCreateDto("Ana", "ana@test.com", "Sales", "Developer"));
+        service.createUser(new UserCreateDto("Bob", "bob@test.com", "Sales", "Developer"));
+        awaitTrue(() -> snapshot.executeCountByDepartment("Sales") == 2);
+
+        service.reassignRole("Developer", "Engineer");
+        awaitTrue(() -> snapshot.searchUsers(new UserQueryDto(null, "Engineer", null, 10, 0)).size() == 2);
+
+        service.deactivateDepartment("Sales");
+        awaitTrue(() -> snapshot.executeCountByDepartment("Sales") == 0);
+        assertEquals(2, snapshot.searchUsers(new UserQueryDto("Sales", null, false, 10, 0)).size());
+    }
+
+    @Test
+    @DisplayName("Borrados: la fila desaparece del snapshot")
+    void delete_IsApplied() {
+        User ana = service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 1);
+
+        userRepository.deleteById(ana.getId());
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 0);
+    }
+
+    @Test
+    @DisplayName("Una transacción que confirma tras gap-timeout se aplica igualmente")
+    void lateCommit_IsAppliedWhenItAppears() throws Exception {
+        service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 1);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> slow = createInOpenTransaction("lenta@test.com", release);
+
+        // Un commit posterior: el snapshot salta el offset de la transacción lenta
+        service.createUser(new UserCreateDto("Bob", "bob@test.com", "IT", "Manager"));
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 2);
+
+        release.countDown();
+        slow.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 3);
+    }
+
+    @Test
+    @DisplayName("Recarga con una transacción abierta: su cambio se aplica al confirmar")
+    void reload_KeepsUncommittedOffsetsPending() throws Exception {
+        service.createUser(new UserCreateDto("Ana", "ana@test.com", "IT", "Developer"));
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 1);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> slow = createInOpenTransaction("lenta@test.com", release);
+        service.createUser(new UserCreateDto("Bob", "bob@test.com", "IT", "Manager"));
+
+        // La carga parte de MAX(id), por encima del offset aún sin commit
+        snapshot.reload();
+        assertEquals(2, snapshot.executeCountByDepartment("IT"));
+
+        release.countDown();
+        slow.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        awaitTrue(() -> snapshot.executeCountByDepartment("IT") == 3);
+    }
+
+    /**
+     * Da de alta un usuario en una transacción que no confirma hasta 'release'. Vuelve
+     * cuando el INSERT (y su evento en la outbox, con su offset) ya se ha ejecutado.
+     */
+    private CompletableFuture<Void> createInOpenTransaction(String email, CountDownLatch release)
+            throws InterruptedException {
+        CountDownLatch inserted = new CountDownLatch(1);
+        CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            service.createUser(new UserCreateDto("Lenta", email, "IT", "Analyst"));
+            inserted.countDown();
+            try {
+                release.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(inserted.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        return slow;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("El snapshot no se actualizó en " + TIMEOUT_MS + " ms");
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrumpido esperando al snapshot");
+            }
+        }
+    }
+}